@@ -0,0 +1,160 @@
+package com.cs506.project.bench;
+
+import com.cs506.project.utils.BufferPool;
+import com.cs506.project.utils.FrameDecoder;
+import com.cs506.project.utils.SocketIO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+
+/**
+ * Measures the bytes allocated by the server thread per request, for the
+ * original stream based request path and the pooled buffer request path.
+ *
+ * A client thread sends NUL terminated requests over a single loopback
+ * connection, and the server thread reads every request and writes back a
+ * fixed response. Allocations are counted per thread by the JVM, so the
+ * client does not skew the numbers.
+ *
+ * Usage: {@code gradle allocationBenchmark [--args="<requests> <chunkSize>"]}
+ */
+public class AllocationBenchmark {
+    private static final int WARMUP = 20_000;
+
+    private static final String RESPONSE = "{\"entities\": ["
+        + "{\"facilityId\": 1, \"facilityName\": \"Madison\"}, ".repeat(64)
+        + "{}], \"error\": \"\"}";
+
+    private static final byte[] REQUEST = ("{\"type\": \"READ\", "
+        + "\"table\": \"Facility\", \"filters\": {\"facilityName\": \"Madison\"}, "
+        + "\"entities\": []}\0").getBytes();
+
+    /**
+     * A request path under test, serving one request per call.
+     */
+    private interface Path {
+        void serve() throws IOException;
+    }
+
+    private interface PathFactory {
+        Path create(Socket client) throws IOException;
+    }
+
+    // Keeps the requests read from being optimised away
+    private static int sink;
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int chunkSize = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+
+        System.out.printf("%d requests of %d bytes, responses of %d bytes%n",
+                          requests, REQUEST.length, RESPONSE.length());
+        System.out.printf("%-10s %14s %14s%n", "path", "bytes/request", "requests/s");
+
+        run("stream", requests, client -> {
+            InputStream sockIn = client.getInputStream();
+            OutputStream sockOut = client.getOutputStream();
+            return () -> {
+                // The request path as it was before buffers were pooled
+                byte[] buffer = new byte[chunkSize];
+                ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                int nRead;
+                do {
+                    if ((nRead = sockIn.read(buffer)) < 0)
+                        break;
+                    stream.write(buffer, 0, nRead);
+                    if (nRead < buffer.length || buffer[buffer.length - 1] == 0)
+                        break;
+                } while (sockIn.available() > 0);
+                consume(stream.toByteArray());
+
+                sockOut.write(RESPONSE.getBytes());
+                sockOut.write(0);
+            };
+        });
+
+        run("pooled", requests, client -> {
+            InputStream sockIn = client.getInputStream();
+            FrameDecoder decoder = new FrameDecoder(chunkSize);
+            ByteBuffer chunk = BufferPool.HEAP.acquire(chunkSize);
+            return () -> {
+                byte[] request;
+                while ((request = decoder.poll()) == null)
+                    if (SocketIO.readInto(sockIn, decoder, chunk) < 0)
+                        return;
+                consume(request);
+
+                SocketIO.writeTo(client, RESPONSE, true);
+            };
+        });
+    }
+
+    private static void consume(byte[] request) {
+        sink += request.length;
+    }
+
+    private static void run(String name, int requests, PathFactory factory)
+        throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            int total = WARMUP + requests;
+
+            Thread client = new Thread(() -> {
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                                                server.socket().getLocalPort())) {
+                    socket.setTcpNoDelay(true);
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = socket.getInputStream();
+                    byte[] response = new byte[RESPONSE.length() + 1];
+                    for (int i = 0; i < total; i++) {
+                        out.write(REQUEST);
+                        int b;
+                        do {
+                            int n = in.read(response);
+                            if (n < 0)
+                                return;
+                            b = response[n - 1];
+                        } while (b != 0);
+                    }
+                } catch (IOException e) {
+                    System.err.println(name + ": " + e.getMessage());
+                }
+            }, name + "-client");
+            client.start();
+
+            try (Socket socket = server.accept().socket()) {
+                // Measure allocations, not Nagle's algorithm
+                socket.setTcpNoDelay(true);
+                Path path = factory.create(socket);
+                for (int i = 0; i < WARMUP; i++)
+                    path.serve();
+
+                long before = allocatedBytes();
+                long start = System.nanoTime();
+                for (int i = 0; i < requests; i++)
+                    path.serve();
+                long elapsed = System.nanoTime() - start;
+                long allocated = allocatedBytes() - before;
+
+                System.out.printf("%-10s %14.1f %14.0f%n", name,
+                                  (double) allocated / requests,
+                                  requests / (elapsed / 1e9));
+            }
+            client.join();
+        }
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)
+            ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
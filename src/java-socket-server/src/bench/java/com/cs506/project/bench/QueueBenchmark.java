@@ -0,0 +1,107 @@
+package com.cs506.project.bench;
+
+import com.cs506.project.utils.RingBufferQueue;
+import com.cs506.project.utils.RingBufferQueue.WaitStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Measures the handoff throughput of the listener to worker work queue, for
+ * the {@code LinkedBlockingQueue} used so far and the {@code RingBufferQueue}
+ * with every wait strategy.
+ *
+ * Every round runs the same number of producers, standing in for listeners,
+ * and consumers, standing in for workers, from 1 up to 64 each. Producers
+ * {@code put} a fixed number of elements and consumers {@code take} them.
+ *
+ * Usage: {@code gradle queueBenchmark [--args="<elements> <rounds>"]}
+ */
+public class QueueBenchmark {
+    private static final int[] THREADS = { 1, 2, 4, 8, 16, 32, 64 };
+
+    // Stands in for the accepted sockets
+    private static final Object ELEMENT = new Object();
+
+    public static void main(String[] args) throws Exception {
+        int elements = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        List<String> names = new ArrayList<>();
+        List<Supplier<BlockingQueue<Object>>> queues = new ArrayList<>();
+        names.add("linked");
+        queues.add(LinkedBlockingQueue::new);
+        for (WaitStrategy strategy: WaitStrategy.values()) {
+            names.add("ring:" + strategy.name().toLowerCase());
+            queues.add(() -> new RingBufferQueue<>(RingBufferQueue.DEFAULT_CAPACITY,
+                                                   strategy));
+        }
+
+        System.out.printf("%d elements per run, best of %d runs, in million"
+                        + " handoffs per second%n", elements, rounds);
+        System.out.printf("%-8s", "threads");
+        for (String name: names)
+            System.out.printf(" %12s", name);
+        System.out.println();
+
+        for (int threads: THREADS) {
+            System.out.printf("%-8s", threads + "x" + threads);
+            for (Supplier<BlockingQueue<Object>> queue: queues) {
+                double best = 0;
+                for (int round = 0; round < rounds; round++)
+                    best = Math.max(best, run(queue.get(), threads, elements));
+                System.out.printf(" %12.2f", best / 1e6);
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Hands the given number of elements from producers to consumers.
+     *
+     * @return The number of handoffs per second.
+     */
+    private static double run(BlockingQueue<Object> queue, int threads,
+                              int elements) throws InterruptedException {
+        int perThread = elements / threads;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2 * threads);
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++)
+                        queue.put(ELEMENT);
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    done.countDown();
+                }
+            }, "Listener:" + t).start();
+
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++)
+                        queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    done.countDown();
+                }
+            }, "Worker:" + t).start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        return perThread * threads / (elapsed / 1e9);
+    }
+}
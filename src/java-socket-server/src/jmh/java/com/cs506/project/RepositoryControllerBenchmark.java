@@ -0,0 +1,73 @@
+package com.cs506.project;
+
+import com.cs506.project.schemas.SocketServerRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a request and building the response envelope in the
+ * {@code RepositoryController}.
+ *
+ * Lives in the package of the controller, to reach its package private
+ * {@code formResponse}. The controller tries to connect to the database once
+ * on setup, the benchmarks never use the connection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryControllerBenchmark {
+    private static final byte[] READ_BY_ID = ("{\"type\": \"READ\", "
+        + "\"entityName\": \"Airplane\", \"limit\": 1, \"requestingAllDetails\": true, "
+        + "\"entities\": [{\"airplaneId\": 42}]}").getBytes();
+
+    private static final byte[] CREATE = ("{\"type\": \"CREATE\", "
+        + "\"entityName\": \"Facility\", \"entities\": ["
+        + ("{\"name\": \"Madison\", \"city\": \"Madison\", \"state\": \"WI\", "
+           + "\"description\": \"Final assembly\", \"employeeCount\": 120, \"managerId\": 3}, ").repeat(15)
+        + "{\"name\": \"Verona\"}]}").getBytes();
+
+    private static final String ENTITIES = "["
+        + "{\"airplaneId\":42,\"name\":\"Badger\",\"productionStage\":\"Assembly\",\"cost\":1.5E7},".repeat(63)
+        + "{\"airplaneId\":43}]";
+
+    private RepositoryController controller;
+
+    @Setup
+    public void setup() {
+        controller = new RepositoryController();
+    }
+
+    @TearDown
+    public void tearDown() {
+        controller.close();
+    }
+
+    @Benchmark
+    public SocketServerRequest parseReadById() {
+        return controller.createSocketServerRequest(READ_BY_ID);
+    }
+
+    @Benchmark
+    public SocketServerRequest parseCreate() {
+        return controller.createSocketServerRequest(CREATE);
+    }
+
+    @Benchmark
+    public String formResponse() {
+        return controller.formResponse(ENTITIES);
+    }
+}
@@ -0,0 +1,30 @@
+package com.cs506.project.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler always enabled, so every
+ * result reports the bytes allocated per operation next to its time.
+ *
+ * Takes the usual JMH command line, such as a regular expression selecting
+ * the benchmarks to run.
+ *
+ * Usage: {@code gradle jmh [--args="SocketIO -f 2"]}
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args)
+        throws CommandLineOptionException, RunnerException {
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(options).run();
+    }
+}
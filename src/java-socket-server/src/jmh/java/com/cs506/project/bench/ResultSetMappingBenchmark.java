@@ -0,0 +1,70 @@
+package com.cs506.project.bench;
+
+import com.cs506.project.repos.AirplaneRepository;
+import com.cs506.project.schemas.AirplaneSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures mapping result set rows to schemas in a repository, against a
+ * stub result set serving rows from memory.
+ *
+ * @see StubJdbc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultSetMappingBenchmark {
+    private static final Map<String, Object> ROW = Map.ofEntries(
+        Map.entry("AirplaneId", 42),
+        Map.entry("Name", "Badger"),
+        Map.entry("Description", "Narrow body airliner"),
+        Map.entry("City", "Madison"),
+        Map.entry("State", "WI"),
+        Map.entry("ProductionStage", "Assembly"),
+        Map.entry("Cost", 1.5e7),
+        Map.entry("DateStarted", Date.valueOf("2024-01-15")),
+        Map.entry("DateFinished", Date.valueOf("2024-09-30")),
+        Map.entry("FacilityId", 3),
+        Map.entry("SeatingCapacity", 180),
+        Map.entry("Size", "Medium"),
+        Map.entry("HasFirstClass", true));
+
+    @Param({"1", "100"})
+    public int rows;
+
+    private AirplaneRepository repository;
+
+    @Setup
+    public void setup() throws SQLException {
+        repository = new AirplaneRepository(StubJdbc.connection(ROW, rows));
+    }
+
+    @Benchmark
+    public List<AirplaneSchema> basicDetails() throws SQLException {
+        return repository.getAllWithBasicDetails(rows);
+    }
+
+    @Benchmark
+    public List<AirplaneSchema> allDetails() throws SQLException {
+        return repository.getAllWithAllDetails(rows);
+    }
+}
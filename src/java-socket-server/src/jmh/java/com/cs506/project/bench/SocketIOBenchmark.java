@@ -0,0 +1,130 @@
+package com.cs506.project.bench;
+
+import com.cs506.project.utils.SocketIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading requests from and writing responses to a socket, over a
+ * connected pair of loopback sockets.
+ *
+ * The peer threads never allocate, so the allocations reported are those of
+ * {@code SocketIO} alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SocketIOBenchmark {
+    private static final int CHUNK_SIZE = 1024;  // The server default
+
+    private static final byte[] REQUEST = ("{\"type\": \"READ\", "
+        + "\"entityName\": \"Airplane\", \"limit\": 1, \"requestingAllDetails\": true, "
+        + "\"entities\": [{\"airplaneId\": 42}]}\0").getBytes();
+
+    private static final String RESPONSE = "{\n  \"entities\":["
+        + "{\"airplaneId\":42,\"name\":\"Badger\",\"productionStage\":\"Assembly\",\"cost\":1.5E7},".repeat(32)
+        + "{}],\n  \"error\": \"\"\n}";
+
+    /**
+     * A connected pair of loopback sockets.
+     */
+    private static final class SocketPair {
+        private final Socket server;  // The side under test
+        private final Socket client;
+
+        private SocketPair() throws IOException {
+            try (ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+                client = new Socket(InetAddress.getLoopbackAddress(), listener.getLocalPort());
+                server = listener.accept();
+            }
+            client.setTcpNoDelay(true);
+            server.setTcpNoDelay(true);
+        }
+
+        private void close() throws IOException {
+            client.close();
+            server.close();
+        }
+    }
+
+    /**
+     * A socket pair whose client sends preencoded requests.
+     */
+    @State(Scope.Benchmark)
+    public static class ReadState {
+        private SocketPair pair;
+
+        @Setup(Level.Trial)
+        public void connect() throws IOException {
+            pair = new SocketPair();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            pair.close();
+        }
+    }
+
+    /**
+     * A socket pair whose client discards everything it is sent.
+     */
+    @State(Scope.Benchmark)
+    public static class WriteState {
+        private SocketPair pair;
+
+        @Setup(Level.Trial)
+        public void connect() throws IOException {
+            pair = new SocketPair();
+            InputStream in = pair.client.getInputStream();
+            Thread drainer = new Thread(() -> {
+                byte[] buffer = new byte[64 * 1024];
+                try {
+                    while (in.read(buffer) >= 0)
+                        ;
+                } catch (IOException e) {
+                    // Closed at the end of the trial
+                }
+            }, "Drainer");
+            drainer.setDaemon(true);
+            drainer.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            pair.close();
+        }
+    }
+
+    @Benchmark
+    public byte[] readFrom(ReadState state) throws IOException {
+        // A preencoded request, so only the server side allocates
+        OutputStream out = state.pair.client.getOutputStream();
+        out.write(REQUEST);
+        return SocketIO.readFrom(state.pair.server, CHUNK_SIZE);
+    }
+
+    @Benchmark
+    public void writeTo(WriteState state) throws IOException {
+        SocketIO.writeTo(state.pair.server, RESPONSE, true);
+    }
+}
@@ -0,0 +1,80 @@
+package com.cs506.project.bench;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+
+/**
+ * Stands in for a JDBC driver, serving the same row a fixed number of times
+ * from memory, so code reading result sets can be measured without a
+ * database.
+ *
+ * The stubs are dynamic proxies. Every call through them allocates its
+ * argument array and boxes its result, which adds the same cost to every
+ * run of a benchmark, so compare runs rather than reading absolute numbers.
+ */
+final class StubJdbc {
+    private StubJdbc() {}
+
+    /**
+     * Creates a connection whose statements, prepared or not, all return
+     * the given row the given number of times.
+     *
+     * @param row  The value of every column of the row, by column label.
+     * @param rows The number of rows of every result set.
+     *
+     * @return The stub connection.
+     */
+    static Connection connection(Map<String, Object> row, int rows) {
+        PreparedStatement statement = proxy(PreparedStatement.class, (name, args) -> {
+            if (name.equals("executeQuery"))
+                return resultSet(row, rows);
+            return null;
+        });
+
+        return proxy(Connection.class, (name, args) -> {
+            if (name.equals("createStatement") || name.equals("prepareStatement"))
+                return statement;
+            return null;
+        });
+    }
+
+    private static ResultSet resultSet(Map<String, Object> row, int rows) {
+        int[] cursor = {0};
+        return proxy(ResultSet.class, (name, args) -> {
+            if (name.equals("next"))
+                return ++cursor[0] <= rows;
+            if (name.startsWith("get") && args != null && args[0] instanceof String)
+                return row.get(args[0]);
+            if (name.equals("wasNull"))
+                return false;
+            return null;
+        });
+    }
+
+    private interface Handler {
+        Object invoke(String name, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        Object stub = Proxy.newProxyInstance(
+            StubJdbc.class.getClassLoader(), new Class<?>[]{type},
+            (proxy, method, args) -> {
+                Object result = handler.invoke(method.getName(), args);
+                if (result != null || !method.getReturnType().isPrimitive())
+                    return result;
+
+                // Default values, as the proxy cannot return null for these
+                if (method.getReturnType() == boolean.class)
+                    return false;
+                if (method.getReturnType() == double.class)
+                    return 0.0;
+                if (method.getReturnType() == long.class)
+                    return 0L;
+                return method.getReturnType() == void.class ? null : 0;
+            });
+        return type.cast(stub);
+    }
+}
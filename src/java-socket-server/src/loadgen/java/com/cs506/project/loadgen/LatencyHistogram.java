@@ -0,0 +1,108 @@
+package com.cs506.project.loadgen;
+
+/**
+ * Counts latencies in buckets of logarithmically growing width, so that
+ * any latency is recorded in constant time and space, within about 1.6% of
+ * its value.
+ *
+ * Values below 128 have a bucket of their own. Above that, every power of two
+ * is split into 64 buckets of equal width, like an HdrHistogram with two
+ * significant digits.
+ *
+ * Instances of this class are not thread safe: every connection records into
+ * a histogram of its own, and the histograms are added up once the run is
+ * over.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final long[] counts;
+    private long count;
+    private long max;
+
+    /**
+     * Constructs an empty LatencyHistogram.
+     */
+    public LatencyHistogram() {
+        this.counts = new long[(65 - SUB_BITS) * SUB_BUCKETS];
+    }
+
+    /**
+     * Records a single latency.
+     *
+     * @param value The latency, in any unit, negative values count as zero.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts[index(value)]++;
+        count++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds every latency recorded by another histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Retrieves the number of latencies recorded.
+     *
+     * @return The number of latencies.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Retrieves the largest latency recorded, exactly.
+     *
+     * @return The largest latency, or {@code 0} if none were recorded.
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Retrieves the latency at the given percentile.
+     *
+     * @param percentile The percentile, between {@code 0} and {@code 100}.
+     *
+     * @return The highest latency in the bucket holding the percentile, or
+     *         {@code 0} if no latencies were recorded.
+     */
+    public long percentile(double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(lowest(i + 1) - 1, max);
+        }
+
+        return max;
+    }
+
+    static int index(long value) {
+        if (value < 2 * SUB_BUCKETS)
+            return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long lowest(int index) {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+}
@@ -0,0 +1,362 @@
+package com.cs506.project.loadgen;
+
+import com.cs506.project.loadgen.RequestMix.Kind;
+import com.cs506.project.utils.ArgParser;
+import com.cs506.project.utils.FrameDecoder;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a running Proxy Server with a mix of requests, and reports the
+ * throughput and the latency percentiles per kind of request.
+ *
+ * Every connection runs on a thread of its own and has one request in
+ * flight at a time. Two models of load are supported:
+ * <ul>
+ *   <li>Open loop, with a rate: requests are scheduled at fixed intervals,
+ *       spread evenly over the connections. Latencies are measured from the
+ *       time a request was scheduled rather than sent, so a server that
+ *       stalls is charged for every request that should have been sent
+ *       meanwhile, instead of the stall slowing the generator down and
+ *       hiding them. This corrects for coordinated omission.</li>
+ *   <li>Closed loop, without a rate: every connection sends its next request
+ *       as soon as the last one is answered, measuring the throughput the
+ *       server sustains. Latencies are measured from the time a request was
+ *       sent.</li>
+ * </ul>
+ *
+ * Writes create rows, so run the generator against a test database.
+ *
+ * Usage: {@code gradle loadGenerator [--args="-p 8000 -c 8 -r 500"]}
+ */
+public class LoadGenerator {
+    private static final ArgParser parser = new ArgParser();
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    static {
+        parser.addOption("-h", "boolean", "Display usage information")
+              .alias("--help")
+
+              .addOption("-H", "string", "The host the server runs on")
+              .alias("--host")
+
+              .addOption("-p", "int", "The port the server listens on")
+              .alias("--port")
+
+              .addOption("-c", "int", "Number of connections")
+              .alias("--connections")
+
+              .addOption("-r", "int",
+                         "Requests per second over all connections,"
+                       + " 0 for a closed loop")
+              .alias("--rate")
+
+              .addOption("-d", "int", "Seconds to measure for")
+              .alias("--duration")
+
+              .addOption("-W", "int",
+                         "Seconds to send requests for before measuring")
+              .alias("--warmup")
+
+              .addOption("-m", "string",
+                         "Weights of the kinds of requests, such as"
+                       + " id:70,all:10,write:10,health:10")
+              .alias("--mix")
+
+              .addOption("-e", "string", "The entity requests are made for")
+              .alias("--entity")
+
+              .addOption("-i", "int", "Number of ids READs are spread over")
+              .alias("--ids")
+
+              .addOption("-k", "boolean",
+                         "Send every request of a connection on the same"
+                       + " socket. The server must keep connections alive.")
+              .alias("--keep-alive")
+
+              .addOption("-L", "boolean", "Use length prefixed framing")
+              .alias("--length-prefixed")
+
+              .addOption("-t", "int", "Socket read timeout in milliseconds")
+              .alias("--timeout");
+    }
+
+    /**
+     * A connection to the server, sending requests on its own thread.
+     */
+    private static final class Client implements Runnable {
+        private final LoadGenerator generator;
+        private final long firstAt;   // When the first request is scheduled
+        private final Random random;
+        private final LatencyHistogram[] latencies;
+        private final long[] errors;
+        private final byte[] buffer;
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+
+        private Client(LoadGenerator generator, long firstAt, long seed) {
+            this.generator = generator;
+            this.firstAt = firstAt;
+            this.random = new Random(seed);
+            this.latencies = new LatencyHistogram[Kind.values().length];
+            for (int i = 0; i < latencies.length; i++)
+                latencies[i] = new LatencyHistogram();
+            this.errors = new long[Kind.values().length];
+            this.buffer = new byte[8192];
+        }
+
+        @Override
+        public void run() {
+            boolean openLoop = generator.interval > 0;
+            long scheduledAt = firstAt;
+
+            while (true) {
+                if (openLoop) {
+                    if (scheduledAt >= generator.endAt)
+                        break;
+                    sleepUntil(scheduledAt);
+                } else if ((scheduledAt = System.nanoTime()) >= generator.endAt) {
+                    break;
+                }
+
+                Kind kind = generator.mix.next(random);
+                boolean answered = send(generator.mix.request(kind, random));
+                long latency = System.nanoTime() - scheduledAt;
+
+                if (scheduledAt >= generator.measureFrom) {
+                    if (answered)
+                        latencies[kind.ordinal()].record(
+                            TimeUnit.NANOSECONDS.toMicros(latency));
+                    else
+                        errors[kind.ordinal()]++;
+                }
+
+                scheduledAt += generator.interval;
+            }
+
+            close();
+        }
+
+        private static void sleepUntil(long deadline) {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0)
+                LockSupport.parkNanos(remaining);
+        }
+
+        /**
+         * Sends a request and waits for the whole response.
+         *
+         * @return {@code true} if the request was answered, {@code false} if
+         *         the connection failed.
+         */
+        private boolean send(byte[] request) {
+            try {
+                if (socket == null)
+                    connect();
+
+                if (generator.lengthPrefixed) {
+                    out.write(ByteBuffer.allocate(FrameDecoder.HEADER_SIZE + request.length)
+                                        .putInt(request.length).put(request).array());
+                    DataInputStream data = new DataInputStream(in);
+                    data.skipNBytes(data.readInt() & ~FrameDecoder.DEFLATED_BIT);
+                } else {
+                    byte[] frame = new byte[request.length + 1];
+                    System.arraycopy(request, 0, frame, 0, request.length);
+                    out.write(frame);
+                    readUntilNul();
+                }
+
+                if (!generator.keepAlive)
+                    close();
+                return true;
+            } catch (IOException e) {
+                close();
+                return false;
+            }
+        }
+
+        private void connect() throws IOException {
+            socket = new Socket(generator.host, generator.port);
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(generator.timeout);
+            in = socket.getInputStream();
+            out = socket.getOutputStream();
+            if (generator.lengthPrefixed)
+                out.write(FrameDecoder.LENGTH_PREAMBLE);
+        }
+
+        private void readUntilNul() throws IOException {
+            boolean received = false;
+            while (true) {
+                int n = in.read(buffer);
+                if (n < 0) {
+                    // Unless kept alive, the server may end the response by
+                    // closing the connection instead
+                    if (received && !generator.keepAlive)
+                        return;
+                    throw new IOException("Connection closed before the response ended");
+                }
+                received = true;
+
+                // One request in flight, so nothing follows the NUL
+                if (buffer[n - 1] == 0)
+                    return;
+            }
+        }
+
+        private void close() {
+            if (socket == null)
+                return;
+
+            try { socket.close(); }
+            catch (IOException ignored) {}
+            socket = null;
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final int connections;
+    private final int rate;
+    private final RequestMix mix;
+    private final boolean keepAlive;
+    private final boolean lengthPrefixed;
+    private final int timeout;
+
+    private final long interval;     // Between requests of a connection, in ns
+    private long measureFrom;
+    private long endAt;
+
+    private LoadGenerator(String host, int port, int connections, int rate,
+                          RequestMix mix, boolean keepAlive,
+                          boolean lengthPrefixed, int timeout) {
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+        this.rate = rate;
+        this.mix = mix;
+        this.keepAlive = keepAlive;
+        this.lengthPrefixed = lengthPrefixed;
+        this.timeout = timeout;
+        this.interval = rate > 0 ? TimeUnit.SECONDS.toNanos(connections) / rate : 0;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        parser.parse(args);
+        if (parser.getOrDefault("-h", false)) {
+            String[] options = parser.getOptionsSet().toArray(new String[0]);
+            Arrays.sort(options, String::compareToIgnoreCase);
+            for (String option: options)
+                System.out.println(" " + option + " | "
+                                 + String.join(" | ", parser.getOption(option).getAliases())
+                                 + ": " + parser.getOption(option).getDescription());
+            return;
+        }
+
+        int connections = parser.getOrDefault("-c", 4);
+        int rate = parser.getOrDefault("-r", 0);
+        int duration = parser.getOrDefault("-d", 30);
+        int warmup = parser.getOrDefault("-W", 5);
+        int ids = parser.getOrDefault("-i", 100);
+        if (connections <= 0 || rate < 0 || duration <= 0 || warmup < 0 || ids <= 0) {
+            System.err.println("Connections, duration and ids must be positive,"
+                             + " rate and warmup must not be negative.");
+            return;
+        }
+
+        RequestMix mix;
+        try {
+            mix = new RequestMix(parser.getOrDefault("-m", "id:70,all:10,write:10,health:10"),
+                                 parser.getOrDefault("-e", "Airplane"), ids);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+
+        LoadGenerator generator = new LoadGenerator(
+            parser.getOrDefault("-H", "127.0.0.1"),
+            parser.getOrDefault("-p", 8000),
+            connections, rate, mix,
+            parser.getOrDefault("-k", false),
+            parser.getOrDefault("-L", false),
+            parser.getOrDefault("-t", 5000));
+
+        System.out.println(generator.describe(duration, warmup));
+        generator.report(generator.run(duration, warmup), duration);
+    }
+
+    private String describe(int duration, int warmup) {
+        String load = rate > 0 ? "Open loop at " + rate + " requests/s"
+                               : "Closed loop";
+        return load + " over " + connections + " connection(s) to " + host + ":"
+             + port + ", measuring " + duration + " s after " + warmup
+             + " s of warmup.";
+    }
+
+    private Client[] run(int duration, int warmup) throws InterruptedException {
+        long start = System.nanoTime();
+        measureFrom = start + TimeUnit.SECONDS.toNanos(warmup);
+        endAt = measureFrom + TimeUnit.SECONDS.toNanos(duration);
+
+        // Stagger the connections, so the requests arrive at an even rate
+        Client[] clients = new Client[connections];
+        Thread[] threads = new Thread[connections];
+        for (int i = 0; i < connections; i++) {
+            clients[i] = new Client(this, start + interval * i / connections, i);
+            threads[i] = new Thread(clients[i], "Client:" + (i + 1));
+            threads[i].start();
+        }
+
+        for (Thread thread: threads)
+            thread.join();
+
+        return clients;
+    }
+
+    private void report(Client[] clients, int duration) {
+        System.out.printf("%n%-8s %10s %8s %10s", "kind", "requests", "errors", "req/s");
+        for (double percentile: PERCENTILES)
+            System.out.printf(" %9s", percentile == (long) percentile
+                                      ? "p" + (long) percentile : "p" + percentile);
+        System.out.printf(" %9s  (latencies in ms)%n", "max");
+
+        LatencyHistogram total = new LatencyHistogram();
+        long totalErrors = 0;
+        for (Kind kind: Kind.values()) {
+            LatencyHistogram latencies = new LatencyHistogram();
+            long errors = 0;
+            for (Client client: clients) {
+                latencies.add(client.latencies[kind.ordinal()]);
+                errors += client.errors[kind.ordinal()];
+            }
+            if (latencies.count() == 0 && errors == 0)
+                continue;  // Not part of the mix
+
+            printRow(kind.label(), latencies, errors, duration);
+            total.add(latencies);
+            totalErrors += errors;
+        }
+
+        printRow("total", total, totalErrors, duration);
+    }
+
+    private static void printRow(String label, LatencyHistogram latencies,
+                                 long errors, int duration) {
+        System.out.printf("%-8s %10d %8d %10.1f", label, latencies.count(), errors,
+                          (double) latencies.count() / duration);
+        for (double percentile: PERCENTILES)
+            System.out.printf(" %9.3f", latencies.percentile(percentile) / 1000.0);
+        System.out.printf(" %9.3f%n", latencies.max() / 1000.0);
+    }
+}
@@ -0,0 +1,132 @@
+package com.cs506.project.loadgen;
+
+import java.util.Random;
+
+/**
+ * Picks the requests sent by the load generator, in given proportions.
+ *
+ * A mix is written as comma separated {@code kind:weight} pairs, such as
+ * {@code id:70,all:10,write:10,health:10}. Kinds left out are never sent.
+ * Requests are encoded up front where possible, so picking one does not
+ * skew the latencies measured.
+ */
+public class RequestMix {
+    /**
+     * The kinds of requests sent.
+     */
+    public enum Kind {
+        /** A READ of a single row by its id. */
+        ID,
+        /** A READ of the whole table. */
+        ALL,
+        /** A CREATE of a single row. */
+        WRITE,
+        /** A healthcheck. */
+        HEALTH;
+
+        String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final String entityName;
+    private final int[] cumulative;  // Cumulative weights, by kind
+    private final byte[][] reads;    // READs by id, by id
+    private final byte[] readAll;
+    private final byte[] health;
+
+    /**
+     * Constructs a new RequestMix.
+     *
+     * @param spec       The weights of the kinds of requests.
+     * @param entityName The entity requests are made for, such as
+     *                   {@code Airplane}.
+     * @param ids        The number of ids READs are spread over, from 1.
+     *
+     * @throws IllegalArgumentException if the spec is not a valid mix.
+     */
+    public RequestMix(String spec, String entityName, int ids) {
+        this.entityName = entityName;
+        this.cumulative = parse(spec);
+
+        String idField = Character.toLowerCase(entityName.charAt(0))
+                       + entityName.substring(1) + "Id";
+        this.reads = new byte[ids][];
+        for (int id = 1; id <= ids; id++)
+            reads[id - 1] = ("{\"type\": \"READ\", \"entityName\": \"" + entityName
+                + "\", \"limit\": 1, \"requestingAllDetails\": true,"
+                + " \"entities\": [{\"" + idField + "\": " + id + "}]}").getBytes();
+        this.readAll = ("{\"type\": \"READ\", \"entityName\": \"" + entityName
+            + "\", \"limit\": -1, \"requestingAllDetails\": true,"
+            + " \"entities\": []}").getBytes();
+        this.health = "healthcheck".getBytes();
+    }
+
+    private static int[] parse(String spec) {
+        int[] weights = new int[Kind.values().length];
+        for (String pair: spec.split(",")) {
+            String[] parts = pair.trim().split(":");
+            if (parts.length != 2)
+                throw new IllegalArgumentException(pair + " is not a kind:weight pair.");
+
+            Kind kind;
+            int weight;
+            try {
+                kind = Kind.valueOf(parts[0].trim().toUpperCase());
+                weight = Integer.parseInt(parts[1].trim());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(pair + " is not a kind:weight pair.");
+            }
+            if (weight < 0)
+                throw new IllegalArgumentException(pair + " has a negative weight.");
+
+            weights[kind.ordinal()] += weight;
+        }
+
+        for (int i = 1; i < weights.length; i++)
+            weights[i] += weights[i - 1];
+        if (weights[weights.length - 1] == 0)
+            throw new IllegalArgumentException(spec + " sends no requests.");
+
+        return weights;
+    }
+
+    /**
+     * Picks the kind of the next request.
+     *
+     * @param random The source of randomness of the calling connection.
+     *
+     * @return The kind of request to send.
+     */
+    public Kind next(Random random) {
+        int pick = random.nextInt(cumulative[cumulative.length - 1]);
+        int i = 0;
+        while (pick >= cumulative[i])
+            i++;
+
+        return Kind.values()[i];
+    }
+
+    /**
+     * Encodes a request of the given kind, without its delimiter.
+     *
+     * @param kind   The kind of request.
+     * @param random The source of randomness of the calling connection.
+     *
+     * @return The encoded request.
+     */
+    public byte[] request(Kind kind, Random random) {
+        switch (kind) {
+            case ID:
+                return reads[random.nextInt(reads.length)];
+            case ALL:
+                return readAll;
+            case WRITE:
+                return ("{\"type\": \"CREATE\", \"entityName\": \"" + entityName
+                    + "\", \"entities\": [{\"name\": \"loadgen-"
+                    + Integer.toHexString(random.nextInt()) + "\"}]}").getBytes();
+            default:
+                return health;
+        }
+    }
+}
@@ -1,33 +1,56 @@
 package com.cs506.project;
+import com.cs506.project.configs.PoolConfig;
+import com.cs506.project.utils.ConnectionPool;
+
 import java.sql.*;
 
 
 /*
- * JDBConnection class that establishes a connection with the database and then returns that connection
+ * JDBConnection class that establishes connections with the database and then lends them out of a pool
  * */
 public class JDBCConnection {
     private static final String SQLHOSTNAME = System.getenv().getOrDefault("SQL_SERVER_HOST", "localhost");
     private static final String SQLPORTNAME = System.getenv().getOrDefault("SQL_SERVER_PORT", "3306");
-    private static final String DB_URL = "jdbc:mysql://" + SQLHOSTNAME + ":" + SQLPORTNAME + "/testdb1";
+    private static final String DB_URL = "jdbc:mysql://" + SQLHOSTNAME + ":" + SQLPORTNAME + "/testdb1"
+            + "?useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048";
     private static final String USER = System.getenv().getOrDefault("USERNAME","user");
     private static final String PASS = System.getenv().getOrDefault("PASSWORD","password");
-    private static Connection connection;
+    private static final PoolConfig POOL_CONFIG = new PoolConfig(0, 4, 5000, 30 * 60 * 1000, 60 * 1000);
+    private static volatile ConnectionPool pool;
     /**
-     * Actual connection method that will use the variables above and if it succeeded will return a connection
+     * Actual connection method that will use the variables above and if it succeeded will return a connection of its
+     * own to the caller, which must close it to return it to the pool
      *
      * @return connection object
      */
     public static Connection getConnection(){
-        if (connection == null){
-            try{
+        try{
+            // borrows a connection, without holding up the other callers while waiting for one
+            return getPool().borrow();
+        } catch(Exception e ){
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Creates the pool on first use, only once
+     *
+     * @return pool object
+     */
+    private static ConnectionPool getPool() throws ClassNotFoundException {
+        ConnectionPool current = pool;
+        if (current != null)
+            return current;
+
+        synchronized (JDBCConnection.class){
+            if (pool == null){
                 //registers the JDBC driver
                 Class.forName("com.mysql.cj.jdbc.Driver");
-                // opens the connection
-                connection = DriverManager.getConnection(DB_URL,USER,PASS);
-            } catch(Exception e ){
-                e.printStackTrace();
+                pool = new ConnectionPool(() -> DriverManager.getConnection(DB_URL,USER,PASS), POOL_CONFIG,
+                        System.out);
             }
+            return pool;
         }
-        return connection;
     }
 }
@@ -17,6 +17,7 @@ public class JDBConnectionTester {
         Connection connection = getConnection();
         if(connection != null){
             System.out.println("Connection work");
+            connection.close();
         }
            /*
            connection = getConnection();
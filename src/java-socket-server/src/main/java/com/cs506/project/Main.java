@@ -4,10 +4,14 @@ import com.cs506.project.configs.ListenerConfig;
 import com.cs506.project.configs.ServerConfig;
 import com.cs506.project.configs.WorkerConfig;
 import com.cs506.project.server.ProxyServer;
+import com.cs506.project.server.ProxyServerDispatcher;
 import com.cs506.project.server.ProxyServerListener;
 import com.cs506.project.server.ProxyServerWorker;
+import com.cs506.project.server.StreamingTask;
 import com.cs506.project.utils.ArgParser;
 import com.cs506.project.utils.Option;
+import com.cs506.project.utils.RingBufferQueue;
+import com.cs506.project.utils.RingBufferQueue.WaitStrategy;
 import com.cs506.project.RepositoryController;
 
 import java.io.File;
@@ -39,6 +43,21 @@ public class Main {
     protected static final int CHUNK_SIZE;
     protected static final boolean AUTO_APPEND;  // End messages with a NUL byte
     protected static final int TIMEOUT;  // In milliseconds
+    protected static final int EVENT_LOOPS;
+    protected static final boolean VIRTUAL_THREADS;
+    protected static final int IDLE_TIMEOUT;  // In milliseconds
+    protected static final String WORK_QUEUE;
+    protected static final int QUEUE_LIMIT;
+    protected static final int QUEUE_DELAY;  // In milliseconds
+    protected static final int MAX_WORKERS;
+    protected static final int BULK_WORKERS;
+    protected static final int ADMIN_PORT;
+    protected static final int CLIENT_RATE;  // Connections per second
+    protected static final int CLIENT_CONNECTIONS;
+    protected static final int DB_CONNECTIONS;
+
+    // How long healthchecks wait for the database, in seconds
+    private static final int DB_PROBE_TIMEOUT = 2;
 
     static {
         /////////////////////// CONFIGURATION PARAMETERS ///////////////////////
@@ -75,7 +94,80 @@ public class Main {
               .alias("--log-file")
 
               .addOption("-m", "boolean", "Run the mock server.")
-              .alias("--mock");
+              .alias("--mock")
+
+              .addOption("-e", "int",
+                         "Number of non-blocking event loops to run instead of"
+                       + " listeners. 0 disables event loop mode.")
+              .alias("--event-loops")
+
+              .addOption("-v", "boolean",
+                         "Serve every connection on its own virtual thread"
+                       + " instead of a fixed number of workers. Requires"
+                       + " Java 21 or later.")
+              .alias("--virtual-threads")
+
+              .addOption("-k", "int",
+                         "Keep connections open for this many milliseconds"
+                       + " between NUL terminated requests. 0 closes"
+                       + " connections after every request.")
+              .alias("--keep-alive")
+
+              .addOption("-q", "string",
+                         "Queue handing connections from listeners to workers:"
+                       + " linked, or ring[:spin|yield|park] for a lock-free"
+                       + " ring buffer.")
+              .alias("--work-queue")
+
+              .addOption("-b", "int",
+                         "Most connections or requests waiting to be served."
+                       + " Clients beyond it are told the server is busy."
+                       + " 0 leaves the queue unbounded.")
+              .alias("--queue-limit")
+
+              .addOption("-d", "int",
+                         "Shed queued work that persistently waits longer than"
+                       + " this many milliseconds. 0 never sheds queued work.")
+              .alias("--queue-delay")
+
+              .addOption("-W", "int",
+                         "Add workers up to this many while connections back"
+                       + " up, and retire them once idle. 0 keeps the number"
+                       + " of workers fixed.")
+              .alias("--max-workers")
+
+              .addOption("-B", "int",
+                         "Number of threads serving bulk requests, such as"
+                       + " reads of whole tables, so workers stay free for"
+                       + " healthchecks and lookups. 0 serves bulk requests"
+                       + " like any other.")
+              .alias("--bulk-workers")
+
+              .addOption("-A", "int",
+                         "Serve metrics and per stage latencies, and take"
+                       + " reconfiguration commands, on this loopback port."
+                       + " 0 serves no admin port.")
+              .alias("--admin-port")
+
+              .addOption("-r", "int",
+                         "New connections per second a single client address"
+                       + " may open. Clients beyond it are turned away."
+                       + " 0 leaves the rate unlimited.")
+              .alias("--client-rate")
+
+              .addOption("-c", "int",
+                         "Connections a single client address may have open"
+                       + " at once. 0 leaves them unlimited.")
+              .alias("--client-connections")
+
+              .addOption("-D", "int",
+                         "Connections to the database open at once. Queries"
+                       + " beyond it wait for a connection. 0 opens one per"
+                       + " thread that may query at once, following the"
+                       + " workers when reconfigured. With virtual threads,"
+                       + " which are unbounded, only the bulk workers are"
+                       + " counted, so set it.")
+              .alias("--db-connections");
 
 
         ////////////////////// SET DEFAULT CONFIGURATION ///////////////////////
@@ -111,6 +203,68 @@ public class Main {
             TIMEOUT = Integer.parseInt(env);
         else // Default to 1 second
             TIMEOUT = 1000;
+
+        if ((env = System.getenv("PROXYSERVER_EVENT_LOOPS")) != null)
+            EVENT_LOOPS = Integer.parseInt(env);
+        else  // Default to blocking listeners
+            EVENT_LOOPS = 0;
+
+        if ((env = System.getenv("PROXYSERVER_VIRTUAL_THREADS")) != null)
+            VIRTUAL_THREADS = Boolean.parseBoolean(env);
+        else  // Default to a fixed worker pool
+            VIRTUAL_THREADS = false;
+
+        if ((env = System.getenv("PROXYSERVER_IDLE_TIMEOUT")) != null)
+            // Assume Env Var has timeout in milliseconds
+            IDLE_TIMEOUT = Integer.parseInt(env);
+        else  // Default to one request per connection
+            IDLE_TIMEOUT = 0;
+
+        if ((env = System.getenv("PROXYSERVER_WORK_QUEUE")) != null)
+            WORK_QUEUE = env;
+        else  // Default to a linked blocking queue
+            WORK_QUEUE = "linked";
+
+        if ((env = System.getenv("PROXYSERVER_QUEUE_LIMIT")) != null)
+            QUEUE_LIMIT = Integer.parseInt(env);
+        else  // Default to an unbounded queue
+            QUEUE_LIMIT = 0;
+
+        if ((env = System.getenv("PROXYSERVER_QUEUE_DELAY")) != null)
+            // Assume Env Var has delay in milliseconds
+            QUEUE_DELAY = Integer.parseInt(env);
+        else  // Default to never shedding queued work
+            QUEUE_DELAY = 0;
+
+        if ((env = System.getenv("PROXYSERVER_MAX_WORKERS")) != null)
+            MAX_WORKERS = Integer.parseInt(env);
+        else  // Default to a fixed number of workers
+            MAX_WORKERS = 0;
+
+        if ((env = System.getenv("PROXYSERVER_BULK_WORKERS")) != null)
+            BULK_WORKERS = Integer.parseInt(env);
+        else  // Default to 1 bulk worker
+            BULK_WORKERS = 1;
+
+        if ((env = System.getenv("PROXYSERVER_ADMIN_PORT")) != null)
+            ADMIN_PORT = Integer.parseInt(env);
+        else  // Default to no admin port
+            ADMIN_PORT = 0;
+
+        if ((env = System.getenv("PROXYSERVER_CLIENT_RATE")) != null)
+            CLIENT_RATE = Integer.parseInt(env);
+        else  // Default to no connection rate limit
+            CLIENT_RATE = 0;
+
+        if ((env = System.getenv("PROXYSERVER_CLIENT_CONNECTIONS")) != null)
+            CLIENT_CONNECTIONS = Integer.parseInt(env);
+        else  // Default to no open connection limit
+            CLIENT_CONNECTIONS = 0;
+
+        if ((env = System.getenv("PROXYSERVER_DB_CONNECTIONS")) != null)
+            DB_CONNECTIONS = Integer.parseInt(env);
+        else  // Default to a connection per thread that may query at once
+            DB_CONNECTIONS = 0;
     } // End static block
 
 
@@ -271,6 +425,66 @@ public class Main {
             System.err.println("Timeout must be positive");
         }
 
+        // Validate number of event loops
+        if (config.eventLoops() < 0) {
+            error = true;
+            System.err.println("Cannot have fewer than 0 event loops.");
+        }
+
+        // Validate virtual threads, which are not available before JDK 21
+        if (config.virtualThreads() && !ProxyServerDispatcher.supportsVirtualThreads()) {
+            error = true;
+            System.err.println("Virtual threads are not supported by Java "
+                             + Runtime.version().feature()
+                             + ". Run on Java 21 or later, or without -v.");
+        }
+
+        // Validate keep alive idle timeout
+        if (config.idleTimeout() < 0) {
+            error = true;
+            System.err.println("Keep alive timeout cannot be negative");
+        }
+
+        // Validate admission control
+        if (config.queueLimit() < 0) {
+            error = true;
+            System.err.println("Queue limit cannot be negative");
+        }
+
+        if (config.queueDelay() < 0) {
+            error = true;
+            System.err.println("Queue delay cannot be negative");
+        }
+
+        // Validate worker scaling
+        if (config.maxWorkers() != 0 && config.maxWorkers() < config.numWorkers()) {
+            error = true;
+            System.err.println("Cannot have fewer max workers than workers.");
+        }
+
+        if (config.bulkWorkers() < 0) {
+            error = true;
+            System.err.println("Bulk workers cannot be negative");
+        }
+
+        // Validate the admin port, if any
+        if (config.adminPort() != 0) {
+            int[] adminPortInfo = portCheck(config.adminPort());
+            if (portErrMsg(adminPortInfo[0], adminPortInfo[1]))
+                error = true;
+        }
+
+        // Validate per client limits
+        if (config.clientRate() < 0) {
+            error = true;
+            System.err.println("Client rate cannot be negative");
+        }
+
+        if (config.clientConnections() < 0) {
+            error = true;
+            System.err.println("Client connections cannot be negative");
+        }
+
         // Validate log file path
         if (config.logFilePath() != null) {
             File file = new File(config.logFilePath());
@@ -293,6 +507,34 @@ public class Main {
         return !error;
     }
 
+    /**
+     * Creates the work queue described by the given specification.
+     *
+     * The specification is either {@code linked}, for a
+     * {@code LinkedBlockingQueue}, or {@code ring}, optionally followed by a
+     * colon and a wait strategy, for a {@code RingBufferQueue}.
+     *
+     * @param spec The work queue specification.
+     *
+     * @return The work queue, or {@code null} if the specification is invalid.
+     */
+    protected static BlockingQueue<Socket> createWorkQueue(String spec) {
+        String[] parts = spec.trim().split(":", 2);
+
+        if (parts[0].equalsIgnoreCase("linked") && parts.length == 1)
+            return new LinkedBlockingQueue<>();
+
+        if (parts[0].equalsIgnoreCase("ring")) {
+            WaitStrategy strategy = parts.length == 1 ? WaitStrategy.PARK
+                                  : WaitStrategy.parse(parts[1]);
+            if (strategy != null)
+                return new RingBufferQueue<>(RingBufferQueue.DEFAULT_CAPACITY,
+                                             strategy);
+        }
+
+        return null;
+    }
+
     public static void main(String[] args) {
         // Parse CLAs
         parser.parse(args);
@@ -327,16 +569,40 @@ public class Main {
             parser.getOrDefault("-s", CHUNK_SIZE),
             parser.getOrDefault("-a", AUTO_APPEND),
             parser.getOrDefault("-t", TIMEOUT),
-            parser.getOrDefault("-f", null)
+            parser.getOrDefault("-f", null),
+            parser.getOrDefault("-e", EVENT_LOOPS),
+            parser.getOrDefault("-v", VIRTUAL_THREADS),
+            parser.getOrDefault("-k", IDLE_TIMEOUT),
+            parser.getOrDefault("-b", QUEUE_LIMIT),
+            parser.getOrDefault("-d", QUEUE_DELAY),
+            parser.getOrDefault("-W", MAX_WORKERS),
+            parser.getOrDefault("-B", BULK_WORKERS),
+            parser.getOrDefault("-A", ADMIN_PORT),
+            parser.getOrDefault("-r", CLIENT_RATE),
+            parser.getOrDefault("-c", CLIENT_CONNECTIONS)
         );
 
 
         if (!validateServerConfig(serverConfig))
             return;
 
+        if (parser.getOrDefault("-D", DB_CONNECTIONS) < 0) {
+            System.err.println("Database connections cannot be negative");
+            return;
+        }
+
+        String workQueueSpec = parser.getOrDefault("-q", WORK_QUEUE);
+        BlockingQueue<Socket> workQueue = createWorkQueue(workQueueSpec);
+        if (workQueue == null) {
+            System.err.println(workQueueSpec + " is not a valid work queue."
+                             + " Use linked, ring, ring:spin, ring:yield"
+                             + " or ring:park.");
+            return;
+        }
+
         ProxyServer server;
         try {
-            server = new ProxyServer(serverConfig, new LinkedBlockingQueue<>());
+            server = new ProxyServer(serverConfig, workQueue);
         } catch (IOException e) {
             System.out.println("Failed to initialize the server."
                              + " See stderr for stack trace.");
@@ -344,13 +610,21 @@ public class Main {
             return;
         }
 
-        RepositoryController controller = new RepositoryController();
+        // Unless bounded, every thread that may query the database at once
+        // gets a connection, also once reconfigured
+        int dbConnections = parser.getOrDefault("-D", DB_CONNECTIONS);
+        int poolSize = dbConnections > 0
+                     ? dbConnections
+                     : RepositoryController.poolSizeFor(ProxyServer.taskThreads(serverConfig));
+        RepositoryController controller = new RepositoryController(poolSize);
+        controller.useMetrics(server.getMetrics());
+        if (dbConnections == 0)
+            server.useReconfigureListener(next -> controller.resizePool(
+                RepositoryController.poolSizeFor(ProxyServer.taskThreads(next))));
+        StreamingTask task = controller::handleRequest;
+        server.useHealthCheck(() -> controller.isDatabaseReachable(DB_PROBE_TIMEOUT));
         try {
-            server.setup(x -> {
-                if ((new String(x)).startsWith("healthcheck"))
-                    return "";
-                return controller.handleRequest(x);
-            });
+            server.setup(task);
         } catch (IOException e) {
             System.out.println("Failed to start the server."
                              + " See stderr for stack trace.");
@@ -367,5 +641,6 @@ public class Main {
                              + " See stderr for stack trace.");
             e.printStackTrace(System.err);
         }
+        controller.close();
     }
 }
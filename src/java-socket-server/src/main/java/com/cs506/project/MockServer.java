@@ -18,7 +18,17 @@ public class MockServer {
             /*    chunk_size */  1024,
             /*   auto_append */ false,
             /*       timeout */  1000,
-            /*      log_file */  null
+            /*      log_file */  null,
+            /*   event_loops */     0,
+            /*  virt_threads */ false,
+            /*  idle_timeout */     0,
+            /*   queue_limit */     0,
+            /*   queue_delay */     0,
+            /*   max_workers */     0,
+            /*  bulk_workers */     0,
+            /*    admin_port */     0,
+            /*   client_rate */     0,
+            /*  client_conns */     0
         );
 
         ProxyServer server;
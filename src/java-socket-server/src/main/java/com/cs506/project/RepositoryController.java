@@ -1,5 +1,8 @@
 package com.cs506.project;
 
+import com.cs506.project.configs.PoolConfig;
+import com.cs506.project.events.RequestParsedEvent;
+import com.cs506.project.interfaces.ISQLRepository;
 import com.cs506.project.repos.AirplaneRepository;
 import com.cs506.project.repos.ComponentRepository;
 import com.cs506.project.repos.FacilityRepository;
@@ -9,25 +12,50 @@ import com.cs506.project.schemas.ComponentSchema;
 import com.cs506.project.schemas.FacilitySchema;
 import com.cs506.project.schemas.ManagerSchema;
 import com.cs506.project.schemas.SocketServerRequest;
+import com.cs506.project.server.ServerMetrics;
+import com.cs506.project.utils.ConnectionPool;
+import com.cs506.project.utils.SingleFlight;
+import com.cs506.project.utils.SnapshotCache;
+import com.cs506.project.utils.SocketWriter;
 import jdk.net.Sockets;
 import java.sql.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
 
 /**
  * Controller class that controls which SQL repository handles an incoming request.
  */
-public class RepositoryController {
+public class RepositoryController implements AutoCloseable {
 
-    private Connection conn;
+    private final ConnectionPool pool;
+
+    // Probes the database on a connection of its own, so a pool with every connection borrowed is not mistaken for a
+    // reachable database
+    private final ConnectionPool.ConnectionFactory probeFactory;
+
+    private Connection probeConnection;
 
     private static final Gson gson = new Gson();
 
@@ -35,52 +63,254 @@ public class RepositoryController {
 
     private static final String sql_port = System.getenv().getOrDefault("SQL_SERVER_PORT", "3306");
 
+    private static final String REQUEST_ERROR = "There was an issue processing your request. Ensure your request is a valid SocketServerRequest.";
+
+    private static final String snapshot_dir = System.getenv().getOrDefault("SNAPSHOT_DIR",
+            Path.of(System.getProperty("java.io.tmpdir"), "inventory-snapshots").toString());
+
+    // Bounds how stale an export gets when its table is written to by someone else than this server
+    private static final long EXPORT_MAX_AGE = 5 * 60 * 1000;
+
+    private static final SnapshotCache snapshots = new SnapshotCache(Path.of(snapshot_dir), EXPORT_MAX_AGE);
+
+    // Bounds the work and the connections a single BATCH takes up
+    private static final int MAX_BATCH_SIZE = 32;
+
+    private static final int BATCH_PARALLELISM = 4;
+
+    private static final String BATCH_ERROR = "A BATCH must hold between 1 and " + MAX_BATCH_SIZE + " requests.";
+
+    // Connection pool bounds, in milliseconds where timed
+    private static final int DEFAULT_POOL_SIZE = 8;
+
+    private static final int POOL_MIN_IDLE = 2;
+
+    private static final int POOL_BORROW_TIMEOUT = 5000;
+
+    private static final int POOL_MAX_LIFETIME = 30 * 60 * 1000;
+
+    private static final int POOL_LEAK_THRESHOLD = 60 * 1000;
+
+    // Prepares statements on the server and caches them on every pooled connection, so each query is planned once
+    private static final String STATEMENT_CACHE = "useServerPrepStmts=true&cachePrepStmts=true"
+            + "&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048";
+
+    // Runs the requests of parallel BATCHes, each on a connection of its own
+    private final ExecutorService batchExecutor;
+
+    /**
+     * Identifies identical READs: their request ids are normalized by the JSON of the requested entities.
+     */
+    private record ReadKey(String entityName, int limit, boolean requestingAllDetails, String entities) {}
+
+    private final SingleFlight<ReadKey> reads = new SingleFlight<>();
+
+    private ServerMetrics metrics;
+
    public RepositoryController () {
-        createConnection();
+        this(DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * Creates a controller whose requests borrow their JDBC Connection from a pool of the given size, so that many of
+     * them query the database at once.
+     *
+     * @param poolSize : Most connections open to the database at once.
+     */
+    public RepositoryController (int poolSize) {
+        this(new ConnectionPool(RepositoryController::openConnection,
+                new PoolConfig(Math.min(POOL_MIN_IDLE, poolSize), poolSize, POOL_BORROW_TIMEOUT, POOL_MAX_LIFETIME,
+                        POOL_LEAK_THRESHOLD),
+                System.out), RepositoryController::openConnection);
+    }
+
+    /**
+     * Creates a controller whose requests borrow their JDBC Connection from the given pool.
+     *
+     * @param pool : Pool lending the connections to the database.
+     * @param probeFactory : Opens the connection the database is probed on, outside of the pool.
+     */
+    RepositoryController (ConnectionPool pool, ConnectionPool.ConnectionFactory probeFactory) {
+        this.pool = pool;
+        this.probeFactory = probeFactory;
+
+        AtomicInteger batchThreads = new AtomicInteger();
+        this.batchExecutor = Executors.newFixedThreadPool(BATCH_PARALLELISM, r -> {
+            Thread thread = new Thread(r, "Batch:" + batchThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Counts the connections a controller needs for none of its queries to wait for one: one for every thread that may
+     * answer requests at once and one for every thread running the requests of a BATCH. The health probe has a
+     * connection of its own.
+     *
+     * @param requestThreads : Most threads answering requests at once.
+     * @return Size of the pool.
+     */
+    public static int poolSizeFor (int requestThreads) {
+        return requestThreads + BATCH_PARALLELISM;
+    }
+
+    /**
+     * Changes the most connections open to the database at once, following the threads that answer requests.
+     *
+     * @param poolSize : Most connections open to the database at once.
+     */
+    public void resizePool (int poolSize) {
+        pool.resize(poolSize);
+    }
+
+    /**
+     * Stops running BATCHes and closes the connections to the database, once the server no longer takes requests.
+     */
+    @Override
+    public void close () {
+        batchExecutor.shutdownNow();
+        pool.close();
+        synchronized (this) {
+            closeProbeConnection();
+        }
+    }
+
+    private static Connection openConnection () throws SQLException {
+        String url = "jdbc:mysql://" + sql_host + ":" + sql_port + "/appdb?" + STATEMENT_CACHE;
+        return DriverManager.getConnection(url, "root", "pass");
+    }
+
+    /**
+     * Borrows a JDBC Connection from the pool, to be closed once the request is answered.
+     */
+    private Connection borrowConnection () throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return pool.borrow();
+        } finally {
+            if (metrics != null) {
+                metrics.latency("pool.borrow").recordSince(start);
+            }
+        }
     }
 
     /**
-     * Creates a JDBC Connection to be passed to the appropriate SQL repository.
+     * Checks whether the database answers, on a connection kept outside of the pool so the check never waits for a
+     * connection borrowed by a request, nor mistakes an exhausted pool for a reachable database. The connection is
+     * reopened whenever it stops answering.
      *
-     * @return JDBCConnection object.
+     * @param timeout How long to wait for the database, in seconds.
+     * @return true if the database is reachable, false otherwise.
      */
-    private void createConnection () {
+    public synchronized boolean isDatabaseReachable (int timeout) {
         try {
-            conn = DriverManager.getConnection("jdbc:mysql://" + sql_host + ":" + sql_port + "/appdb", "root", "pass");
-        } catch (SQLException e){
-            e.printStackTrace();
+            if (probeConnection != null && probeConnection.isValid(timeout)) {
+                return true;
+            }
+
+            closeProbeConnection();
+            probeConnection = probeFactory.open();
+            return probeConnection.isValid(timeout);
+        } catch (SQLException e) {
+            closeProbeConnection();
+            return false;
         }
-        ;
+    }
+
+    private void closeProbeConnection () {
+        if (probeConnection == null) {
+            return;
+        }
+
+        try {
+            probeConnection.close();
+        } catch (SQLException e) {
+            // The connection is dropped either way
+        }
+        probeConnection = null;
+    }
+
+    /**
+     * Records how long requests spend in the SQL repositories and serializing their responses, by entity and type of
+     * request, such as repository.Airplane.READ and serialize.Airplane.READ. Only requests for a known entity and type
+     * are recorded.
+     *
+     * @param metrics : Metrics to record into, or null to record nothing.
+     */
+    public void useMetrics (ServerMetrics metrics) {
+        this.metrics = metrics;
+        if (metrics != null) {
+            metrics.gauge("pool.size", pool::maxSize);
+            metrics.gauge("pool.active", pool::activeCount);
+            metrics.gauge("pool.idle", pool::idleCount);
+            metrics.gauge("pool.waiting", pool::waitingCount);
+            metrics.gauge("pool.created", pool::createdCount);
+            metrics.gauge("pool.timeouts", pool::timeoutCount);
+            metrics.gauge("pool.leaks", pool::leakCount);
+        }
+    }
+
+    /**
+     * Records the repository and serialization time of a request answered as a whole.
+     *
+     * @param start : When the repository was called, from System.nanoTime().
+     * @param queried : When the repository returned.
+     */
+    private void recordStages (SocketServerRequest ssrequest, long start, long queried) {
+        if (metrics == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        String name = ssrequest.entityName + "." + ssrequest.type;
+        metrics.latency("repository." + name).record((queried - start) / 1000);
+        metrics.latency("serialize." + name).record((now - queried) / 1000);
     }
 
     public SocketServerRequest createSocketServerRequest (byte[] request) {
+        RequestParsedEvent event = new RequestParsedEvent();
+        event.begin();
+        SocketServerRequest result = null;
         try {
 
             String jsonString = new String(request);
 
-            SocketServerRequest result = gson.fromJson(jsonString, SocketServerRequest.class);
+            result = gson.fromJson(jsonString, SocketServerRequest.class);
 
             return result;
 
         } catch (Exception e) {
             e.printStackTrace();
             return null;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.size = request.length;
+                event.valid = result != null;
+                if (result != null) {
+                    event.entityName = result.entityName;
+                    event.type = result.type;
+                }
+                event.commit();
+            }
         }
     }
 
     /**
      * Creates a Socket Server Response to give to the Web Server.
      *
+     * Package private so the benchmarks can measure it.
+     *
      * @param responseEntities : Schema of entity queried.
      * @return JSON Response as string.
      */
-    private String formResponse (String responseEntities) {
+    String formResponse (String responseEntities) {
 
         String response = "";
         if (responseEntities == null) {
             response = "{\n" +
                     "  \"entities\": [],\n" +
-                    "  \"error\": \"There was an issue processing your request. Ensure your request is a valid SocketServerRequest.\"\n" +
+                    "  \"error\": \"" + REQUEST_ERROR + "\"\n" +
                     "}";
         } else {
             response = "{\n" +
@@ -96,12 +326,14 @@ public class RepositoryController {
      * Chooses which method to run within the Airplane SQL Repository.
      *
      * @param requestAirplanes : List of Airplanes
+     * @param connection : Connection to query the database on.
      * @return List of Airplane Objects (even if one is just requested).
      */
     private List<AirplaneSchema> handleAirplaneRequest (String action, int limit, boolean readAll,
-                                                        List<AirplaneSchema> requestAirplanes) throws SQLException {
+                                                        List<AirplaneSchema> requestAirplanes,
+                                                        Connection connection) throws SQLException {
 
-        AirplaneRepository repository = new AirplaneRepository(conn);
+        AirplaneRepository repository = new AirplaneRepository(connection);
 
         List<AirplaneSchema> result = null;
 
@@ -134,13 +366,15 @@ public class RepositoryController {
      * Chooses which method to run within the Components SQL Repository.
      *
      * @param requestComponents : List of Components
+     * @param connection : Connection to query the database on.
      * @return List of Component Objects (even if one is just requested).
      */
     private List<ComponentSchema> handleComponentRequest (String action, int limit, boolean readAll,
-                                                          List<ComponentSchema> requestComponents) throws SQLException {
+                                                          List<ComponentSchema> requestComponents,
+                                                          Connection connection) throws SQLException {
 
         // Call JDBCConnection.create before
-        ComponentRepository repository = new ComponentRepository(conn);
+        ComponentRepository repository = new ComponentRepository(connection);
 
         List<ComponentSchema> result = null;
 
@@ -173,11 +407,13 @@ public class RepositoryController {
      * Chooses which method to run within the Facility SQL Repository.
      *
      * @param requestFacilities : List of Components
+     * @param connection : Connection to query the database on.
      * @return List of Facility Objects (even if one is just requested).
      */
     public List<FacilitySchema> handleFacilityRequest (String action, int limit, boolean readAll,
-                                                        List<FacilitySchema> requestFacilities) throws SQLException {
-        FacilityRepository repository = new FacilityRepository(conn);
+                                                        List<FacilitySchema> requestFacilities,
+                                                        Connection connection) throws SQLException {
+        FacilityRepository repository = new FacilityRepository(connection);
         List<FacilitySchema> result = null;
         switch (action) {
             case "CREATE":
@@ -208,13 +444,15 @@ public class RepositoryController {
      * Chooses which method to run within the Components SQL Repository.
      *
      * @param requestComponents : List of Components
+     * @param connection : Connection to query the database on.
      * @return List of Manager Objects (even if one is just requested).
      */
     private List<ManagerSchema> handleManagerRequest (String action, int limit, boolean readAll,
-                                                          List<ManagerSchema> requestManagers) throws SQLException {
+                                                          List<ManagerSchema> requestManagers,
+                                                          Connection connection) throws SQLException {
 
         // Call JDBCConnection.create before
-        ManagerRepository repository = new ManagerRepository(conn);
+        ManagerRepository repository = new ManagerRepository(connection);
 
         List<ManagerSchema> result = null;
 
@@ -250,13 +488,289 @@ public class RepositoryController {
      * @return JSON Response as string.
      */
     public String handleRequest (byte[] request) {
+        return handleRequest(createSocketServerRequest(request));
+    }
+
+    /**
+     * Contains master SQL repository controller switch to dictate which repository handles the incoming request,
+     * writing the JSON Response to the writer.
+     *
+     * A READ of whole tables is streamed: every entity is written as soon as its row arrives from the database, so
+     * memory use does not grow with the size of the table. An EXPORT is answered with a snapshot file of the whole
+     * table with all details. A BATCH is answered with the responses to all the requests it holds. Any other request
+     * is answered as a whole. Identical READs that arrive while one is in
+     * progress share its response, instead of querying the database again.
+     *
+     * @param request : byte[] of incoming socket server request
+     * @param out : Writer to write the JSON Response to.
+     */
+    public void handleRequest (byte[] request, Writer out) throws IOException {
         SocketServerRequest ssrequest = createSocketServerRequest(request);
 
+        if (ssrequest != null && ssrequest.entityName != null && "EXPORT".equals(ssrequest.type)) {
+            exportResponse(ssrequest.entityName, out);
+            return;
+        }
+
+        if (ssrequest == null || ssrequest.entityName == null || !"READ".equals(ssrequest.type)
+                || ssrequest.entities == null) {
+            out.write(handleRequest(ssrequest));
+            return;
+        }
+
+        // Identical READs in progress share a single execution and response
+        ReadKey key = new ReadKey(ssrequest.entityName, ssrequest.limit, ssrequest.requestingAllDetails,
+                gson.toJson(ssrequest.entities));
+        if (reads.execute(key, out, shared -> readResponse(ssrequest, shared))) {
+            System.out.println("Returning shared " + ssrequest.entityName.toLowerCase() + " records.");
+        }
+    }
+
+    /**
+     * Writes the JSON Response to a READ, streaming it if the READ is of whole tables.
+     */
+    private void readResponse (SocketServerRequest ssrequest, Writer out) throws IOException {
+        if (!ssrequest.entities.isEmpty()) {
+            out.write(handleRequest(ssrequest));
+            return;
+        }
+
+        // A streamed read holds its connection until the last row is sent
+        boolean responded = false;
+        try (Connection streamConn = borrowConnection()) {
+            ISQLRepository<?> repository = createRepository(ssrequest.entityName, streamConn);
+            responded = true;
+            if (repository == null) {
+                out.write(formResponse(null));
+            } else {
+                streamResponse(repository, ssrequest.entityName, "READ", ssrequest.limit,
+                               ssrequest.requestingAllDetails, out);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            if (!responded) {
+                out.write(formResponse(null));
+            }
+        }
+    }
+
+    /**
+     * Creates the SQL repository for the given entity.
+     *
+     * @return SQL repository, or null if there is none for the entity.
+     */
+    private ISQLRepository<?> createRepository (String entityName, Connection connection) throws SQLException {
+        switch (entityName) {
+            case "Airplane":
+                return new AirplaneRepository(connection);
+            case "Component":
+                return new ComponentRepository(connection);
+            case "Facility":
+                return new FacilityRepository(connection);
+            case "Manager":
+                return new ManagerRepository(connection);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Sends the snapshot of a whole table with all details, in the same format as a READ. The snapshot is built from
+     * the database only if the table was written to since the last one, or if it is too old.
+     *
+     * The snapshot is sent straight from the file to the socket, without going through the heap.
+     */
+    private void exportResponse (String entityName, Writer out) throws IOException {
+        FileChannel snapshot = snapshots.open(entityName, file -> exportTable(entityName, file));
+        if (snapshot == null) {
+            out.write(formResponse(null));
+            return;
+        }
+
+        try (snapshot) {
+            System.out.println("Exporting " + snapshot.size() + " bytes of " + entityName.toLowerCase() + " records.");
+            if (out instanceof SocketWriter socketOut) {
+                socketOut.transferFrom(snapshot);
+            } else {
+                Channels.newReader(snapshot, Charset.defaultCharset()).transferTo(out);
+            }
+        }
+    }
+
+    /**
+     * Writes a whole table with all details to a snapshot file.
+     *
+     * @return Whether the snapshot is complete.
+     */
+    private boolean exportTable (String entityName, Writer file) throws IOException {
+        try (Connection exportConn = borrowConnection()) {
+            ISQLRepository<?> repository = createRepository(entityName, exportConn);
+            return repository != null && streamResponse(repository, entityName, "EXPORT", -1, true, file);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Streams a READ of a whole table as a Socket Server Response, in the same format as formResponse.
+     *
+     * The entities are written as they are read, so an error part way is reported in the error field, after the
+     * entities that were read before it. The time spent writing them counts as serialization time.
+     *
+     * @return Whether every entity was read without error.
+     */
+    private boolean streamResponse (ISQLRepository<?> repository, String entityName, String type, int limit,
+                                    boolean readAll, Writer out) throws IOException {
+        long start = System.nanoTime();
+        int[] count = { 0 };
+        long[] serializing = { 0 };
+        Consumer<Object> sink = entity -> {
+            long serializeStart = System.nanoTime();
+            try {
+                if (count[0]++ > 0) {
+                    out.write(',');
+                }
+                gson.toJson(entity, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                serializing[0] += System.nanoTime() - serializeStart;
+            }
+        };
+
+        String error = "";
+        out.write("{\n  \"entities\":[");
+        try {
+            repository.streamAll(limit, readAll, sink);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (JsonIOException e) {
+            throw new IOException(e);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            error = REQUEST_ERROR;
+        }
+        out.write("],\n  \"error\": \"" + error + "\"\n}");
+
+        // Rows are serialized as they arrive, so the repository time is whatever was not spent serializing
+        if (metrics != null) {
+            long elapsed = System.nanoTime() - start;
+            metrics.latency("repository." + entityName + "." + type).record((elapsed - serializing[0]) / 1000);
+            metrics.latency("serialize." + entityName + "." + type).record(serializing[0] / 1000);
+        }
+
+        System.out.println("Returning " + count[0] + " " + entityName.toLowerCase() + " records.");
+        return error.isEmpty();
+    }
+
+    private String handleRequest (SocketServerRequest ssrequest) {
+        if (ssrequest != null && "BATCH".equals(ssrequest.type)) {
+            return batchResponse(ssrequest);
+        }
+
+        try (Connection connection = borrowConnection()) {
+            return handleRequest(ssrequest, connection);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return formResponse(null);
+        }
+    }
+
+    /**
+     * Answers a BATCH with an array of Socket Server Responses, one per request it holds, in the same order.
+     *
+     * The requests run one after the other on a single borrowed connection, unless the BATCH asks for them to run in
+     * parallel, each on a connection of its own. Every request is answered as a whole, even READs of whole tables, and
+     * a request that fails only fails its own response. BATCHes and EXPORTs cannot be batched.
+     *
+     * @param batch : BATCH request.
+     * @return JSON Response as string.
+     */
+    private String batchResponse (SocketServerRequest batch) {
+        List<SocketServerRequest> requests = batch.requests;
+        if (requests == null || requests.isEmpty() || requests.size() > MAX_BATCH_SIZE) {
+            return formBatchResponse(new String[0], BATCH_ERROR);
+        }
+
+        String[] responses = new String[requests.size()];
+        if (!batch.parallel || requests.size() == 1) {
+            try (Connection connection = borrowConnection()) {
+                for (int i = 0; i < responses.length; i++) {
+                    responses[i] = handleBatched(requests.get(i), connection);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                Arrays.fill(responses, formResponse(null));
+            }
+            return formBatchResponse(responses, "");
+        }
+
+        List<Future<String>> futures = new ArrayList<>(requests.size());
+        for (SocketServerRequest request : requests) {
+            futures.add(batchExecutor.submit(() -> {
+                try (Connection batchConn = borrowConnection()) {
+                    return handleBatched(request, batchConn);
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                    return formResponse(null);
+                }
+            }));
+        }
+
+        for (int i = 0; i < responses.length; i++) {
+            try {
+                responses[i] = futures.get(i).get();
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+                responses[i] = formResponse(null);
+            } catch (InterruptedException e) {
+                // Shutting down, give up on the rest
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                return formBatchResponse(new String[0], REQUEST_ERROR);
+            }
+        }
+
+        return formBatchResponse(responses, "");
+    }
+
+    /**
+     * Answers a single request of a BATCH.
+     */
+    private String handleBatched (SocketServerRequest request, Connection connection) {
+        if (request == null || "BATCH".equals(request.type) || "EXPORT".equals(request.type)) {
+            return formResponse(null);
+        }
+
+        return handleRequest(request, connection);
+    }
+
+    /**
+     * Creates the response to a BATCH from the responses to its requests.
+     *
+     * @param responses : Socket Server Responses, in the order of the requests.
+     * @param error : Error of the BATCH as a whole, empty if none.
+     * @return JSON Response as string.
+     */
+    private static String formBatchResponse (String[] responses, String error) {
+        return "{\n" +
+                "  \"responses\":[" + String.join(",", responses) + "],\n" +
+                "  \"error\": \"" + error + "\"\n" +
+                "}";
+    }
+
+    /**
+     * Answers a request other than a BATCH as a whole, querying the database on the given connection.
+     */
+    private String handleRequest (SocketServerRequest ssrequest, Connection connection) {
         if (ssrequest == null) {
             return formResponse(null);
         }
 
         String response = "";
+        long start;
+        long queried;
 
         try {
 
@@ -267,14 +781,17 @@ public class RepositoryController {
                             .map(obj -> (AirplaneSchema) obj)
                             .collect(Collectors.toList());
 
+                    start = System.nanoTime();
                     List<AirplaneSchema> responseAirplanes = handleAirplaneRequest(ssrequest.type, ssrequest.limit,
-                            ssrequest.requestingAllDetails ,airplanes);
+                            ssrequest.requestingAllDetails ,airplanes, connection);
+                    queried = System.nanoTime();
 
                     if (responseAirplanes == null) {
                         response = formResponse(null);
                     } else{
                         System.out.println("Returning " + responseAirplanes.size() + " airplane records.");
                         response = formResponse(gson.toJson(responseAirplanes));
+                        recordStages(ssrequest, start, queried);
                     }
                     break;
 
@@ -282,14 +799,17 @@ public class RepositoryController {
                     List<ComponentSchema> components = ssrequest.entities.stream()
                             .map(obj -> (ComponentSchema) obj)
                             .collect(Collectors.toList());
+                    start = System.nanoTime();
                     List<ComponentSchema> responseComponents = handleComponentRequest(ssrequest.type, ssrequest.limit,
-                            ssrequest.requestingAllDetails, components);
+                            ssrequest.requestingAllDetails, components, connection);
+                    queried = System.nanoTime();
 
                     if (responseComponents == null){
                         response = formResponse(null);
                     } else {
                         System.out.println("Returning " + responseComponents.size() + " component records.");
                         response = formResponse(gson.toJson(responseComponents));
+                        recordStages(ssrequest, start, queried);
                     }
                     break;
 
@@ -297,13 +817,16 @@ public class RepositoryController {
                     List<FacilitySchema>  facilities = ssrequest.entities.stream()
                             .map(obj -> (FacilitySchema) obj)
                             .collect(Collectors.toList());
+                    start = System.nanoTime();
                     List<FacilitySchema> responseFacilities = handleFacilityRequest(ssrequest.type, ssrequest.limit,
-                            ssrequest.requestingAllDetails,facilities);
+                            ssrequest.requestingAllDetails,facilities, connection);
+                    queried = System.nanoTime();
                     if (responseFacilities == null){
                         response = formResponse(null);
                     } else {
                         System.out.println("Returning " + responseFacilities.size() + " facility records.");
                         response = formResponse(gson.toJson(responseFacilities));
+                        recordStages(ssrequest, start, queried);
                     }
                     break;
 
@@ -311,13 +834,16 @@ public class RepositoryController {
                     List<ManagerSchema>  managers = ssrequest.entities.stream()
                             .map(obj -> (ManagerSchema) obj)
                             .collect(Collectors.toList());
+                    start = System.nanoTime();
                     List<ManagerSchema> responseManagers = handleManagerRequest(ssrequest.type, ssrequest.limit,
-                            ssrequest.requestingAllDetails,managers);
+                            ssrequest.requestingAllDetails,managers, connection);
+                    queried = System.nanoTime();
                     if (responseManagers == null){
                         response = formResponse(null);
                     } else {
                         System.out.println("Returning " + responseManagers.size() + " manager records.");
                         response = formResponse(gson.toJson(responseManagers));
+                        recordStages(ssrequest, start, queried);
                     }
                     break;
 
@@ -330,6 +856,11 @@ public class RepositoryController {
         } catch(Exception ex){
             ex.printStackTrace();
             return formResponse(null);
+        } finally {
+            // Exported again, whether or not the write went through
+            if (ssrequest.entityName != null && !"READ".equals(ssrequest.type)) {
+                snapshots.invalidate(ssrequest.entityName);
+            }
         }
 
         return response;
@@ -0,0 +1,25 @@
+package com.cs506.project.configs;
+
+/**
+ * Represents the configuration settings for the database connection pool.
+ *
+ * This record encapsulates the bounds on the number of connections, and how
+ * long connections may be waited for, live and stay borrowed.
+ *
+ * Instances of PoolConfig are immutable and can be used to store
+ * configuration data for initializing a connection pool.
+ *
+ * @param minIdle       The number of idle connections kept open, so requests
+ *                      rarely wait for a connection to be opened.
+ * @param maxSize       The most connections open at once, borrowed or idle.
+ * @param borrowTimeout How long, in milliseconds, to wait for a connection
+ *                      when all of them are borrowed.
+ * @param maxLifetime   How long, in milliseconds, a connection is used before
+ *                      it is closed and replaced. Zero keeps connections
+ *                      open for as long as they work.
+ * @param leakThreshold How long, in milliseconds, a connection may stay
+ *                      borrowed before it is reported as leaked. Zero never
+ *                      reports leaks.
+ */
+public record PoolConfig(int minIdle, int maxSize, int borrowTimeout,
+                         int maxLifetime, int leakThreshold) {}
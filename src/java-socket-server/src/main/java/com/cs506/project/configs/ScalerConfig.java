@@ -0,0 +1,21 @@
+package com.cs506.project.configs;
+
+/**
+ * Represents the configuration settings for the worker scaler in the Proxy
+ * Server.
+ *
+ * This record encapsulates the bounds within which the number of workers may
+ * change, and the thresholds at which workers are added or retired.
+ *
+ * Instances of ScalerConfig are immutable and can be used to store
+ * configuration data for initializing the worker scaler in the Proxy Server.
+ *
+ * @param minWorkers  The number of workers that are never retired.
+ * @param maxWorkers  The largest number of workers to scale up to.
+ * @param targetDelay The queueing delay, in milliseconds, above which workers
+ *                    are added.
+ * @param retireAfter How long, in milliseconds, workers must have been idle
+ *                    before some of them are retired.
+ */
+public record ScalerConfig(int minWorkers, int maxWorkers, int targetDelay,
+                           int retireAfter) {}
@@ -19,6 +19,31 @@ package com.cs506.project.configs;
  * @param autoAppend   Flag indicating whether to automatically append a NUL byte to messages.
  * @param timeout      The timeout duration for socket operations, in milliseconds.
  * @param logFilePath  The file path for logging server activity.
+ * @param eventLoops   The number of non-blocking event loop threads to run in
+ *                     place of listeners. Zero disables event loop mode.
+ * @param virtualThreads Flag indicating whether to serve every connection on
+ *                     its own virtual thread instead of a fixed worker pool.
+ * @param idleTimeout  How long, in milliseconds, to keep a client connection
+ *                     open while waiting for its next request. Zero closes
+ *                     every connection after a single request.
+ * @param queueLimit   The most connections or requests that may wait to be
+ *                     served. Beyond it, clients are told the server is busy.
+ *                     Zero leaves the queue unbounded.
+ * @param queueDelay   The queueing delay, in milliseconds, that work may
+ *                     persistently exceed before it is shed. Zero never
+ *                     sheds queued work.
+ * @param maxWorkers   The largest number of worker threads to scale up to
+ *                     while connections back up. Zero, or no more than
+ *                     {@code numWorkers}, keeps the number of workers fixed.
+ * @param bulkWorkers  The number of threads serving bulk requests, such as
+ *                     reads of whole tables, apart from the workers. Zero
+ *                     serves bulk requests like any other.
+ * @param adminPort    The loopback port the metrics and latencies are served
+ *                     on. Zero serves no admin port.
+ * @param clientRate   The new connections per second a single client address
+ *                     may open. Zero leaves the rate unlimited.
+ * @param clientConnections The connections a single client address may have
+ *                     open at once. Zero leaves them unlimited.
  *
  * @author Mrigank Kumar
  */
@@ -30,5 +55,15 @@ public record ServerConfig(
     int chunkSize,
     boolean autoAppend,
     int timeout,
-    String logFilePath
+    String logFilePath,
+    int eventLoops,
+    boolean virtualThreads,
+    int idleTimeout,
+    int queueLimit,
+    int queueDelay,
+    int maxWorkers,
+    int bulkWorkers,
+    int adminPort,
+    int clientRate,
+    int clientConnections
 ) {}
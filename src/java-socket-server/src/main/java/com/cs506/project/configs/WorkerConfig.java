@@ -14,7 +14,26 @@ package com.cs506.project.configs;
  * @param timeout    The timeout duration for socket operations, in milliseconds.
  * @param autoAppend A flag indicating whether to automatically append a
  *                   NUL byte to messages.
+ * @param idleTimeout How long, in milliseconds, to keep a connection open
+ *                   while waiting for its next request. Zero closes every
+ *                   connection after a single request.
  *
  * @author Mrigank Kumar
  */
-public record WorkerConfig(int chunkSize, int timeout, boolean autoAppend) {}
+public record WorkerConfig(int chunkSize, int timeout, boolean autoAppend,
+                           int idleTimeout) {
+    /**
+     * Constructs a WorkerConfig that closes every connection after a single
+     * request.
+     */
+    public WorkerConfig(int chunkSize, int timeout, boolean autoAppend) {
+        this(chunkSize, timeout, autoAppend, 0);
+    }
+
+    /**
+     * Indicates whether connections are kept open between requests.
+     */
+    public boolean keepAlive() {
+        return idleTimeout > 0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.cs506.project.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.net.Socket;
+
+/**
+ * Emitted by a listener for every client connection it accepts.
+ */
+@Name("com.cs506.project.ConnectionAccepted")
+@Label("Connection Accepted")
+@Category({"Proxy Server", "Connections"})
+@Description("A client connection was accepted")
+@StackTrace(false)
+public class ConnectionAcceptedEvent extends Event {
+    @Label("Remote Address")
+    public String remoteAddress;
+
+    @Label("Remote Port")
+    public int remotePort;
+
+    /**
+     * Emits an event for the given connection, if recorded.
+     *
+     * @param client The accepted connection.
+     */
+    public static void emit(Socket client) {
+        ConnectionAcceptedEvent event = new ConnectionAcceptedEvent();
+        if (!event.shouldCommit())
+            return;
+
+        event.remoteAddress = client.getInetAddress().getHostAddress();
+        event.remotePort = client.getPort();
+        event.commit();
+    }
+}
@@ -0,0 +1,46 @@
+package com.cs506.project.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emitted by a worker or dispatcher for every connection it takes from the
+ * work queue.
+ */
+@Name("com.cs506.project.ConnectionDequeued")
+@Label("Connection Dequeued")
+@Category({"Proxy Server", "Connections"})
+@Description("A client connection was taken from the work queue")
+@StackTrace(false)
+public class ConnectionDequeuedEvent extends Event {
+    @Label("Queue Time")
+    @Description("How long the connection waited in the queue, if known")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueTime;
+
+    @Label("Shed")
+    @Description("Whether the connection was turned away for waiting too long")
+    public boolean shed;
+
+    /**
+     * Emits an event for a connection, if recorded.
+     *
+     * @param queueTime How long the connection waited, in nanoseconds, or a
+     *                  negative value if unknown.
+     * @param shed      Whether the connection is turned away.
+     */
+    public static void emit(long queueTime, boolean shed) {
+        ConnectionDequeuedEvent event = new ConnectionDequeuedEvent();
+        if (!event.shouldCommit())
+            return;
+
+        event.queueTime = Math.max(0, queueTime);
+        event.shed = shed;
+        event.commit();
+    }
+}
@@ -0,0 +1,58 @@
+package com.cs506.project.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Queue;
+
+/**
+ * Emitted by a listener once it has put a connection in the work queue, or
+ * turned it away. Its duration covers any wait for room in the queue.
+ */
+@Name("com.cs506.project.ConnectionQueued")
+@Label("Connection Queued")
+@Category({"Proxy Server", "Connections"})
+@Description("A client connection was put in the work queue, or turned away")
+@StackTrace(false)
+public class ConnectionQueuedEvent extends Event {
+    @Label("Admitted")
+    @Description("Whether the connection was queued rather than turned away")
+    public boolean admitted;
+
+    @Label("Queue Depth")
+    @Description("The number of connections in the queue afterwards")
+    public int queueDepth;
+
+    /**
+     * Starts timing the queueing of a connection.
+     *
+     * @return The event, to be finished once the connection is queued or
+     *         turned away.
+     */
+    public static ConnectionQueuedEvent start() {
+        ConnectionQueuedEvent event = new ConnectionQueuedEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Finishes timing the queueing of a connection, and emits the event if
+     * recorded.
+     *
+     * @param admitted Whether the connection was queued.
+     * @param queue    The work queue.
+     */
+    public void finish(boolean admitted, Queue<?> queue) {
+        end();
+        if (!shouldCommit())
+            return;
+
+        this.admitted = admitted;
+        this.queueDepth = queue.size();
+        commit();
+    }
+}
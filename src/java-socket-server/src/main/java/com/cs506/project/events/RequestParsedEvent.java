@@ -0,0 +1,34 @@
+package com.cs506.project.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted for every request parsed into a {@code SocketServerRequest}. Its
+ * duration covers the parsing.
+ */
+@Name("com.cs506.project.RequestParsed")
+@Label("Request Parsed")
+@Category({"Proxy Server", "Requests"})
+@Description("A request was parsed from JSON")
+@StackTrace(false)
+public class RequestParsedEvent extends Event {
+    @Label("Entity Name")
+    public String entityName;
+
+    @Label("Type")
+    public String type;
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+
+    @Label("Valid")
+    @Description("Whether the request could be parsed")
+    public boolean valid;
+}
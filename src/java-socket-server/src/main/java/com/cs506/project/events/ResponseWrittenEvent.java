@@ -0,0 +1,56 @@
+package com.cs506.project.events;
+
+import com.cs506.project.utils.FrameDecoder.Framing;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted by a worker for every response it writes to a client. Its
+ * duration covers the write. Streamed responses are written while they are
+ * produced, so the duration of their event covers producing them as well.
+ */
+@Name("com.cs506.project.ResponseWritten")
+@Label("Response Written")
+@Category({"Proxy Server", "Requests"})
+@Description("A response was written to a client")
+@StackTrace(false)
+public class ResponseWrittenEvent extends Event {
+    @Label("Framing")
+    public String framing;
+
+    @Label("Length")
+    @Description("The number of characters in the response, or -1 if streamed")
+    public int length;
+
+    /**
+     * Starts timing a response.
+     *
+     * @return The event, to be finished once the response is written.
+     */
+    public static ResponseWrittenEvent start() {
+        ResponseWrittenEvent event = new ResponseWrittenEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Finishes timing a response, and emits the event if recorded.
+     *
+     * @param framing The framing of the connection.
+     * @param length  The number of characters written, or {@code -1} if the
+     *                response was streamed.
+     */
+    public void finish(Framing framing, int length) {
+        end();
+        if (!shouldCommit())
+            return;
+
+        this.framing = framing.name();
+        this.length = length;
+        commit();
+    }
+}
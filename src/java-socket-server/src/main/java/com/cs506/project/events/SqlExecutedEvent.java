@@ -0,0 +1,78 @@
+package com.cs506.project.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.regex.Pattern;
+
+/**
+ * Emitted by the SQL repositories for every statement they execute. Its
+ * duration covers executing the statement and reading every row of its
+ * result.
+ *
+ * Only the shape of the statement is recorded, with its literal values
+ * replaced by {@code ?}, so recordings never hold the data of the tables.
+ */
+@Name("com.cs506.project.SqlExecuted")
+@Label("SQL Executed")
+@Category({"Proxy Server", "Database"})
+@Description("A SQL statement was executed and its result read")
+@StackTrace(false)
+public class SqlExecutedEvent extends Event {
+    private static final Pattern VALUES =
+        Pattern.compile("(?i)VALUES\\s*\\(.*", Pattern.DOTALL);
+    private static final Pattern LITERALS =
+        Pattern.compile("'(?:[^']|'')*'|\"(?:[^\"]|\"\")*\"|\\b\\d+(?:\\.\\d+)?\\b");
+
+    @Label("Statement")
+    @Description("The statement, with its literal values replaced by ?")
+    public String statement;
+
+    @Label("Rows")
+    @Description("The number of rows read or changed")
+    public int rows;
+
+    /**
+     * Starts timing a statement.
+     *
+     * @return The event, to be finished once the result is read.
+     */
+    public static SqlExecutedEvent start() {
+        SqlExecutedEvent event = new SqlExecutedEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Finishes timing a statement, and emits the event if recorded.
+     *
+     * @param sql  The statement executed.
+     * @param rows The number of rows read or changed.
+     */
+    public void finish(String sql, int rows) {
+        end();
+        if (!shouldCommit())
+            return;
+
+        this.statement = shape(sql);
+        this.rows = rows;
+        commit();
+    }
+
+    /**
+     * Replaces the literal values of a statement by {@code ?}.
+     *
+     * @param sql The statement.
+     *
+     * @return The shape of the statement.
+     */
+    public static String shape(String sql) {
+        // Unquoted values are not told apart from names, so drop them all
+        String shape = VALUES.matcher(sql).replaceFirst("VALUES (?)");
+        return LITERALS.matcher(shape).replaceAll("?");
+    }
+}
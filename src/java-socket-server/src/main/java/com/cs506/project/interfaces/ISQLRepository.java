@@ -2,8 +2,12 @@ package com.cs506.project.interfaces;
 
 import com.cs506.project.schemas.AirplaneSchema;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * This is the generic interface which outlines general query methods used by all SQL repositories.
@@ -66,4 +70,73 @@ public interface ISQLRepository<E> {
      */
     public List<E> handleDeleteQuery(List<E> request) throws SQLException;
 
+    /**
+     * Streams a Read query of every E, handing each one to the sink as soon as its row arrives,
+     * instead of collecting them all in a list first.
+     *
+     * Repositories that do not override this method read the whole list first.
+     *
+     * @param limit : If not equal to -1, then adds a limit operator to final query.
+     * @param readAllDetails : Specifies whether all columns are requested from database.
+     * @param sink : Receives every E read from database.
+     */
+    public default void streamAll(int limit, boolean readAllDetails, Consumer<? super E> sink) throws SQLException {
+        List<E> result = readAllDetails ? getAllWithAllDetails(limit) : getAllWithBasicDetails(limit);
+        result.forEach(sink);
+    }
+
+    /**
+     * Prepares a query and binds its parameters, in order. Queries take every value as a parameter
+     * rather than in their text, so each one is parsed and planned once per connection and reused
+     * from the connector's statement cache afterwards.
+     *
+     * @param connection : Connection to prepare the statement on.
+     * @param query : Query with a '?' placeholder for every parameter.
+     * @param parameters : Values of the placeholders, in order.
+     * @return Prepared Statement, ready to execute.
+     */
+    public static PreparedStatement prepareStatement(Connection connection, String query, int... parameters)
+            throws SQLException {
+        return bind(connection.prepareStatement(query), parameters);
+    }
+
+    /**
+     * Prepares a query whose result set is streamed from the database row by row, rather than
+     * fetched all at once. No other statement may run on the connection until the result set is closed.
+     *
+     * @param connection : Connection to prepare the statement on.
+     * @param query : Query with a '?' placeholder for every parameter.
+     * @param parameters : Values of the placeholders, in order.
+     * @return Streaming Prepared Statement, ready to execute.
+     */
+    public static PreparedStatement prepareStreamingStatement(Connection connection, String query, int... parameters)
+            throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+                                                                  ResultSet.CONCUR_READ_ONLY);
+
+        // Tells MySQL Connector/J to stream rows instead of buffering the whole result
+        statement.setFetchSize(Integer.MIN_VALUE);
+        return bind(statement, parameters);
+    }
+
+    /**
+     * Retrieves the parameters of a query ending with the optional limit operator.
+     *
+     * @param limit : If not equal to -1, the value of the limit operator.
+     * @return The limit as the only parameter, or no parameters at all.
+     */
+    public static int[] limitParameters(int limit) {
+        return limit != -1 ? new int[] { limit } : new int[0];
+    }
+
+    private static PreparedStatement bind(PreparedStatement statement, int... parameters) throws SQLException {
+        try {
+            for (int i = 0; i < parameters.length; i++)
+                statement.setInt(i + 1, parameters[i]);
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
 }
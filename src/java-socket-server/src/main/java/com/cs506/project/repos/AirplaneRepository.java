@@ -1,11 +1,13 @@
 package com.cs506.project.repos;
 
+import com.cs506.project.events.SqlExecutedEvent;
 import com.cs506.project.interfaces.ISQLRepository;
 import com.cs506.project.schemas.AirplaneSchema;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * SQL Repository used to query the Airplane table in the 506 database.
@@ -27,27 +29,18 @@ public class AirplaneRepository implements ISQLRepository<AirplaneSchema> {
     public List<AirplaneSchema> getAllWithBasicDetails(int limit) throws SQLException{
 
         List<AirplaneSchema> airplanes = new ArrayList<>();
-        String query = "";
-        if (limit != -1) {
-            query = "SELECT AirplaneId, Name, ProductionStage, Cost FROM Airplane LIMIT " + limit + ";";
-        } else {
-            query = "SELECT AirplaneId, Name, ProductionStage, Cost FROM Airplane;";
-        }
+        String query = basicDetailsQuery(limit);
 
-        try (Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(query)) {
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStatement(connection, query,
+                                                                           ISQLRepository.limitParameters(limit));
+             ResultSet resultSet = statement.executeQuery()) {
             while (resultSet.next()) {
 
-                AirplaneSchema airplaneSchema = new AirplaneSchema();
-
-                airplaneSchema.airplaneId = resultSet.getInt("AirplaneId");
-                airplaneSchema.name = resultSet.getString("Name");
-                airplaneSchema.productionStage = resultSet.getString("ProductionStage");
-                airplaneSchema.cost = resultSet.getDouble("Cost");
-
-                airplanes.add(airplaneSchema);
+                airplanes.add(readBasicDetails(resultSet));
             }
         }
+        event.finish(query, airplanes.size());
 
         return airplanes;
 
@@ -62,36 +55,18 @@ public class AirplaneRepository implements ISQLRepository<AirplaneSchema> {
     public List<AirplaneSchema> getAllWithAllDetails(int limit) throws SQLException {
         List<AirplaneSchema> airplanes = new ArrayList<>();
 
-        String query = "";
-
-        if (limit != -1) {
-            query = "SELECT * FROM Airplane LIMIT " + limit + ";";
-        } else {
-            query = "SELECT * FROM Airplane;";
-        }
+        String query = allDetailsQuery(limit);
 
-        try (Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(query)) {
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStatement(connection, query,
+                                                                           ISQLRepository.limitParameters(limit));
+             ResultSet resultSet = statement.executeQuery()) {
             while (resultSet.next()) {
 
-                AirplaneSchema airplaneSchema = new AirplaneSchema();
-
-                airplaneSchema.airplaneId = resultSet.getInt("AirplaneId");
-                airplaneSchema.city = resultSet.getString("City");
-                airplaneSchema.state = resultSet.getString("State");
-                airplaneSchema.seatingCapacity = resultSet.getInt("SeatingCapacity");
-                airplaneSchema.description = resultSet.getString("Description");
-                airplaneSchema.name = resultSet.getString("Name");
-                airplaneSchema.productionStage = resultSet.getString("ProductionStage");
-                airplaneSchema.cost = resultSet.getDouble("Cost");
-                airplaneSchema.dateStarted = resultSet.getDate("DateStarted");
-                airplaneSchema.dateFinished = resultSet.getDate("DateFinished");
-                airplaneSchema.facilityID = resultSet.getInt("FacilityId");
-                airplaneSchema.size = resultSet.getString("Size");
-                airplaneSchema.hasFirstClass = resultSet.getBoolean("HasFirstClass");
-                airplanes.add(airplaneSchema);
+                airplanes.add(readAllDetails(resultSet));
             }
         }
+        event.finish(query, airplanes.size());
 
         return airplanes;
     }
@@ -105,31 +80,17 @@ public class AirplaneRepository implements ISQLRepository<AirplaneSchema> {
     @Override
     public List<AirplaneSchema> getById(int airplaneId) throws SQLException{
         List<AirplaneSchema> airplane = new ArrayList<>();
-        String query = "SELECT * FROM Airplane WHERE AirplaneId = " + airplaneId + ";";
-        try (Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(query);){
+        String query = "SELECT * FROM Airplane WHERE AirplaneId = ?";
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStatement(connection, query, airplaneId);
+             ResultSet resultSet = statement.executeQuery()){
             while (resultSet.next()) {
 
-                AirplaneSchema airplaneSchema = new AirplaneSchema();
-
-                airplaneSchema.airplaneId = resultSet.getInt("AirplaneId");
-                airplaneSchema.city = resultSet.getString("City");
-                airplaneSchema.state = resultSet.getString("State");
-                airplaneSchema.seatingCapacity = resultSet.getInt("SeatingCapacity");
-                airplaneSchema.description = resultSet.getString("Description");
-                airplaneSchema.name = resultSet.getString("Name");
-                airplaneSchema.productionStage = resultSet.getString("ProductionStage");
-                airplaneSchema.cost = resultSet.getDouble("Cost");
-                airplaneSchema.dateStarted = resultSet.getDate("DateStarted");
-                airplaneSchema.dateFinished = resultSet.getDate("DateFinished");
-                airplaneSchema.facilityID = resultSet.getInt("FacilityId");
-                airplaneSchema.size = resultSet.getString("Size");
-                airplaneSchema.hasFirstClass = resultSet.getBoolean("HasFirstClass");
-
-                airplane.add(airplaneSchema);
+                airplane.add(readAllDetails(resultSet));
 
             }
         }
+        event.finish(query, airplane.size());
 
         return airplane;
     }
@@ -196,4 +157,79 @@ public class AirplaneRepository implements ISQLRepository<AirplaneSchema> {
         return null;
     }
 
+    /**
+     * Streams a Read query of every airplane, handing each one to the sink as
+     * soon as its row arrives from the database.
+     *
+     * @param limit          : If not equal to -1, then adds a limit operator to final query.
+     * @param readAllDetails : Specifies whether all columns are requested from database.
+     * @param sink           : Receives every AirplaneSchema read from database.
+     */
+    @Override
+    public void streamAll(int limit, boolean readAllDetails, Consumer<? super AirplaneSchema> sink) throws SQLException {
+        String query = readAllDetails ? allDetailsQuery(limit) : basicDetailsQuery(limit);
+
+        int rows = 0;
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStreamingStatement(connection, query,
+                                                                                    ISQLRepository.limitParameters(limit));
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                rows++;
+                sink.accept(readAllDetails ? readAllDetails(resultSet) : readBasicDetails(resultSet));
+            }
+        }
+        event.finish(query, rows);
+    }
+
+    private static String basicDetailsQuery(int limit) {
+        if (limit != -1)
+            return "SELECT AirplaneId, Name, ProductionStage, Cost FROM Airplane LIMIT ?";
+
+        return "SELECT AirplaneId, Name, ProductionStage, Cost FROM Airplane";
+    }
+
+    private static String allDetailsQuery(int limit) {
+        if (limit != -1)
+            return "SELECT * FROM Airplane LIMIT ?";
+
+        return "SELECT * FROM Airplane";
+    }
+
+    /**
+     * Reads the 'basic info' columns of the current row.
+     */
+    private static AirplaneSchema readBasicDetails(ResultSet resultSet) throws SQLException {
+        AirplaneSchema airplane = new AirplaneSchema();
+
+        airplane.airplaneId = resultSet.getInt("AirplaneId");
+        airplane.name = resultSet.getString("Name");
+        airplane.productionStage = resultSet.getString("ProductionStage");
+        airplane.cost = resultSet.getDouble("Cost");
+
+        return airplane;
+    }
+
+    /**
+     * Reads every column of the current row.
+     */
+    private static AirplaneSchema readAllDetails(ResultSet resultSet) throws SQLException {
+        AirplaneSchema airplane = new AirplaneSchema();
+
+        airplane.airplaneId = resultSet.getInt("AirplaneId");
+        airplane.city = resultSet.getString("City");
+        airplane.state = resultSet.getString("State");
+        airplane.seatingCapacity = resultSet.getInt("SeatingCapacity");
+        airplane.description = resultSet.getString("Description");
+        airplane.name = resultSet.getString("Name");
+        airplane.productionStage = resultSet.getString("ProductionStage");
+        airplane.cost = resultSet.getDouble("Cost");
+        airplane.dateStarted = resultSet.getDate("DateStarted");
+        airplane.dateFinished = resultSet.getDate("DateFinished");
+        airplane.facilityID = resultSet.getInt("FacilityId");
+        airplane.size = resultSet.getString("Size");
+        airplane.hasFirstClass = resultSet.getBoolean("HasFirstClass");
+
+        return airplane;
+    }
 }
@@ -1,14 +1,16 @@
 package com.cs506.project.repos;
 
+import com.cs506.project.events.SqlExecutedEvent;
 import com.cs506.project.interfaces.ISQLRepository;
 import com.cs506.project.schemas.ComponentSchema;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * SQL Repository used to query the Component table in the 506 database.
@@ -31,29 +33,20 @@ public class ComponentRepository implements ISQLRepository<ComponentSchema> {
     public List<ComponentSchema> getAllWithBasicDetails(int limit) throws SQLException{
         List<ComponentSchema> components = new ArrayList<>();
 
-        String query = "";
-        if (limit != -1) {
-            query = "SELECT ComponentId, Name, ProductionStage, Cost FROM Component LIMIT " + limit;
-        } else {
-            query = "SELECT ComponentId, Name, ProductionStage, Cost FROM Component";
-        }
+        String query = basicDetailsQuery(limit);
 
-        try (Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(query)) {
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStatement(connection, query,
+                                                                           ISQLRepository.limitParameters(limit));
+             ResultSet resultSet = statement.executeQuery()) {
 
             while (resultSet.next()) {
 
-                ComponentSchema componentSchema = new ComponentSchema();
-
-                componentSchema.componentId = resultSet.getInt("ComponentId");
-                componentSchema.name = resultSet.getString("Name");
-                componentSchema.cost = resultSet.getDouble("Cost");
-                componentSchema.productionStage = resultSet.getString("ProductionStage");
-
-                components.add(componentSchema);
+                components.add(readBasicDetails(resultSet));
             }
 
         }
+        event.finish(query, components.size());
 
         return components;
 
@@ -68,36 +61,21 @@ public class ComponentRepository implements ISQLRepository<ComponentSchema> {
     public List<ComponentSchema> getAllWithAllDetails(int limit) throws SQLException {
         List<ComponentSchema> components = new ArrayList<>();
 
-        String query = "";
-
-        if (limit != -1){
-            query = "SELECT * FROM Component LIMIT " + limit;
-        } else {
-            query = "SELECT * FROM Component";
-        }
+        String query = allDetailsQuery(limit);
 
 
-        try (Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(query)) {
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStatement(connection, query,
+                                                                           ISQLRepository.limitParameters(limit));
+             ResultSet resultSet = statement.executeQuery()) {
 
             while (resultSet.next()) {
 
-                ComponentSchema componentSchema = new ComponentSchema();
-
-                componentSchema.componentId = resultSet.getInt("ComponentId");
-                componentSchema.city = resultSet.getString("City");
-                componentSchema.state = resultSet.getString("State");
-                componentSchema.name = resultSet.getString("Name");
-                componentSchema.description = resultSet.getString("Description");
-                componentSchema.componentType = resultSet.getString("ComponentType");
-                componentSchema.facilityId = resultSet.getInt("FacilityId");
-                componentSchema.cost = resultSet.getDouble("Cost");
-                componentSchema.productionStage = resultSet.getString("ProductionStage");
-
-                components.add(componentSchema);
+                components.add(readAllDetails(resultSet));
             }
 
         }
+        event.finish(query, components.size());
 
         return components;
     }
@@ -111,29 +89,19 @@ public class ComponentRepository implements ISQLRepository<ComponentSchema> {
     @Override
     public List<ComponentSchema> getById(int componentId) throws SQLException{
         List<ComponentSchema> component = new ArrayList<>();
-        String query = "SELECT * FROM Component WHERE ComponentId = " + componentId;
-        try (Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(query)){
+        String query = "SELECT * FROM Component WHERE ComponentId = ?";
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStatement(connection, query, componentId);
+             ResultSet resultSet = statement.executeQuery()){
 
             while (resultSet.next()) {
                 
-                ComponentSchema componentSchema = new ComponentSchema();
-
-                componentSchema.componentId = resultSet.getInt("ComponentId");
-                componentSchema.city = resultSet.getString("City");
-                componentSchema.state = resultSet.getString("State");
-                componentSchema.name = resultSet.getString("Name");
-                componentSchema.description = resultSet.getString("Description");
-                componentSchema.componentType = resultSet.getString("ComponentType");
-                componentSchema.facilityId = resultSet.getInt("FacilityId");
-                componentSchema.cost = resultSet.getDouble("Cost");
-                componentSchema.productionStage = resultSet.getString("ProductionStage");
-
-                component.add(componentSchema);
+                component.add(readAllDetails(resultSet));
                 
             }
             
         }
+        event.finish(query, component.size());
         
         return component;
     }
@@ -200,4 +168,75 @@ public class ComponentRepository implements ISQLRepository<ComponentSchema> {
         return null;
     }
 
+    /**
+     * Streams a Read query of every component, handing each one to the sink as
+     * soon as its row arrives from the database.
+     *
+     * @param limit          : If not equal to -1, then adds a limit operator to final query.
+     * @param readAllDetails : Specifies whether all columns are requested from database.
+     * @param sink           : Receives every ComponentSchema read from database.
+     */
+    @Override
+    public void streamAll(int limit, boolean readAllDetails, Consumer<? super ComponentSchema> sink) throws SQLException {
+        String query = readAllDetails ? allDetailsQuery(limit) : basicDetailsQuery(limit);
+
+        int rows = 0;
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStreamingStatement(connection, query,
+                                                                                    ISQLRepository.limitParameters(limit));
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                rows++;
+                sink.accept(readAllDetails ? readAllDetails(resultSet) : readBasicDetails(resultSet));
+            }
+        }
+        event.finish(query, rows);
+    }
+
+    private static String basicDetailsQuery(int limit) {
+        if (limit != -1)
+            return "SELECT ComponentId, Name, ProductionStage, Cost FROM Component LIMIT ?";
+
+        return "SELECT ComponentId, Name, ProductionStage, Cost FROM Component";
+    }
+
+    private static String allDetailsQuery(int limit) {
+        if (limit != -1)
+            return "SELECT * FROM Component LIMIT ?";
+
+        return "SELECT * FROM Component";
+    }
+
+    /**
+     * Reads the 'basic info' columns of the current row.
+     */
+    private static ComponentSchema readBasicDetails(ResultSet resultSet) throws SQLException {
+        ComponentSchema component = new ComponentSchema();
+
+        component.componentId = resultSet.getInt("ComponentId");
+        component.name = resultSet.getString("Name");
+        component.cost = resultSet.getDouble("Cost");
+        component.productionStage = resultSet.getString("ProductionStage");
+
+        return component;
+    }
+
+    /**
+     * Reads every column of the current row.
+     */
+    private static ComponentSchema readAllDetails(ResultSet resultSet) throws SQLException {
+        ComponentSchema component = new ComponentSchema();
+
+        component.componentId = resultSet.getInt("ComponentId");
+        component.city = resultSet.getString("City");
+        component.state = resultSet.getString("State");
+        component.name = resultSet.getString("Name");
+        component.description = resultSet.getString("Description");
+        component.componentType = resultSet.getString("ComponentType");
+        component.facilityId = resultSet.getInt("FacilityId");
+        component.cost = resultSet.getDouble("Cost");
+        component.productionStage = resultSet.getString("ProductionStage");
+
+        return component;
+    }
 }
@@ -1,15 +1,17 @@
 package com.cs506.project.repos;
 
 import com.cs506.project.JDBCConnection;
+import com.cs506.project.events.SqlExecutedEvent;
 import com.cs506.project.interfaces.ISQLRepository;
 import com.cs506.project.schemas.FacilitySchema;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 public class FacilityRepository implements ISQLRepository<FacilitySchema>{
     private Connection connection;
 
@@ -25,24 +27,16 @@ public class FacilityRepository implements ISQLRepository<FacilitySchema>{
     @Override
     public List<FacilitySchema> getAllWithBasicDetails(int limit) throws SQLException {
         List<FacilitySchema> facilites = new ArrayList<>();
-        String query = "";
-        if (limit != -1) {
-            query = "SELECT facilityId, city, state FROM Facility LIMIT " + limit;
-        } else {
-            query = "SELECT facilityId, city, state FROM Facility";
-        }
-        try(Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(query)){
+        String query = basicDetailsQuery(limit);
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try(PreparedStatement statement = ISQLRepository.prepareStatement(connection, query,
+                                                                          ISQLRepository.limitParameters(limit));
+            ResultSet resultSet = statement.executeQuery()){
             while(resultSet.next()){
-                FacilitySchema facilitySchema = new FacilitySchema();
-
-                facilitySchema.facilityId = resultSet.getInt("FacilityID");
-                facilitySchema.city = resultSet.getString("City");
-                facilitySchema.state = resultSet.getString("State");
-
-                facilites.add(facilitySchema);
+                facilites.add(readBasicDetails(resultSet));
             }
         }
+        event.finish(query, facilites.size());
         return facilites;
     }
 
@@ -54,34 +48,18 @@ public class FacilityRepository implements ISQLRepository<FacilitySchema>{
     @Override
     public List<FacilitySchema> getAllWithAllDetails(int limit) throws SQLException {
         List<FacilitySchema> facilities = new ArrayList<>();
-        String query = "";
-        if(limit != -1){
-            query = "SELECT * FROM Facility LIMIT " + limit;
-        } else {
-            query = "SELECT * FROM Facility";
-        }
+        String query = allDetailsQuery(limit);
 
-        try (Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(query)) {
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStatement(connection, query,
+                                                                           ISQLRepository.limitParameters(limit));
+             ResultSet resultSet = statement.executeQuery()) {
             while (resultSet.next()) {
 
-                FacilitySchema facilitySchema= new FacilitySchema();
-
-                facilitySchema.facilityId = resultSet.getInt("FacilityID");
-                facilitySchema.name = resultSet.getString("Name");
-                facilitySchema.city = resultSet.getString("City");
-                facilitySchema.state = resultSet.getString("State");
-                facilitySchema.description = resultSet.getString("Description");
-                facilitySchema.componentsInProduction = resultSet.getInt("ComponentsInProduction");
-                facilitySchema.componentsCompleted= resultSet.getInt("ComponentsCompleted");
-                facilitySchema.modelsInProduction = resultSet.getInt("ModelsInProduction");
-                facilitySchema.modelsCompleted = resultSet.getInt("ModelsCompleted");
-                facilitySchema.employeeCount = resultSet.getInt("EmployeeCount");
-                facilitySchema.managerId = resultSet.getInt("ManagerID");
-
-                facilities.add(facilitySchema);
+                facilities.add(readAllDetails(resultSet));
             }
         }
+        event.finish(query, facilities.size());
 
         return facilities;
     }
@@ -96,30 +74,18 @@ public class FacilityRepository implements ISQLRepository<FacilitySchema>{
     public List<FacilitySchema> getById(int facilityId) throws SQLException{
         List<FacilitySchema> facility = new ArrayList<>();
 
-        String query = "SELECT * FROM Facility WHERE facilityId = " + facilityId;
-        try (Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(query);){
+        String query = "SELECT * FROM Facility WHERE facilityId = ?";
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStatement(connection, query, facilityId);
+             ResultSet resultSet = statement.executeQuery()){
 
             while (resultSet.next()) {
 
-                FacilitySchema facilitySchema = new FacilitySchema();
-
-                facilitySchema.facilityId = resultSet.getInt("FacilityID");
-                facilitySchema.name = resultSet.getString("Name");
-                facilitySchema.city = resultSet.getString("City");
-                facilitySchema.state = resultSet.getString("State");
-                facilitySchema.description = resultSet.getString("Description");
-                facilitySchema.componentsInProduction = resultSet.getInt("ComponentsInProduction");
-                facilitySchema.componentsCompleted= resultSet.getInt("ComponentsCompleted");
-                facilitySchema.modelsInProduction = resultSet.getInt("ModelsInProduction");
-                facilitySchema.modelsCompleted = resultSet.getInt("ModelsCompleted");
-                facilitySchema.employeeCount = resultSet.getInt("EmployeeCount");
-                facilitySchema.managerId = resultSet.getInt("ManagerID");
-
-                facility.add(facilitySchema);
+                facility.add(readAllDetails(resultSet));
 
             }
         }
+        event.finish(query, facility.size());
 
         return facility;
     }
@@ -131,22 +97,24 @@ public class FacilityRepository implements ISQLRepository<FacilitySchema>{
      * @return result : returns true if successful
      */
     public List<FacilitySchema> handleAddFacility(List<FacilitySchema> facilitySchema) throws SQLException{
-        try(Statement statement = connection.createStatement();) {
+        String query = "INSERT INTO appdb"
+                + "(facilityId, Name, City, State, Description, ComponentsInProduction, ComponentsCompleted, ModelsInProduction, ModelsCompleted, EmployeeCount, ManagerID)"
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try(PreparedStatement statement = connection.prepareStatement(query)) {
             for (FacilitySchema facilitySchema1 : facilitySchema) {
-                String query = "INSERT INTO appdb"
-                        + "(facilityId, Name, City, State, Description, ComponentsInProduction, ComponentsCompleted, ModelsInProduction, ModelsCompleted, EmployeeCount, ManagerID)"
-                        + "VALUES (" + facilitySchema1.facilityId + ", "
-                        + facilitySchema1.name + ", "
-                        + facilitySchema1.city + ", "
-                        + facilitySchema1.state + ", "
-                        + facilitySchema1.description + ", "
-                        + facilitySchema1.componentsInProduction + ", "
-                        + facilitySchema1.componentsCompleted + ", "
-                        + facilitySchema1.modelsInProduction + ", "
-                        + facilitySchema1.modelsCompleted + ", "
-                        + facilitySchema1.employeeCount + ", "
-                        + facilitySchema1.managerId + ")";
-                statement.executeQuery(query);
+                statement.setInt(1, facilitySchema1.facilityId);
+                statement.setString(2, facilitySchema1.name);
+                statement.setString(3, facilitySchema1.city);
+                statement.setString(4, facilitySchema1.state);
+                statement.setString(5, facilitySchema1.description);
+                statement.setInt(6, facilitySchema1.componentsInProduction);
+                statement.setInt(7, facilitySchema1.componentsCompleted);
+                statement.setInt(8, facilitySchema1.modelsInProduction);
+                statement.setInt(9, facilitySchema1.modelsCompleted);
+                statement.setInt(10, facilitySchema1.employeeCount);
+                statement.setInt(11, facilitySchema1.managerId);
+                SqlExecutedEvent event = SqlExecutedEvent.start();
+                event.finish(query, statement.executeUpdate());
             }
         } catch (SQLException e){
             e.printStackTrace();
@@ -214,4 +182,77 @@ public class FacilityRepository implements ISQLRepository<FacilitySchema>{
 
         return null;
     }
+
+    /**
+     * Streams a Read query of every facility, handing each one to the sink as
+     * soon as its row arrives from the database.
+     *
+     * @param limit          : If not equal to -1, then adds a limit operator to final query.
+     * @param readAllDetails : Specifies whether all columns are requested from database.
+     * @param sink           : Receives every FacilitySchema read from database.
+     */
+    @Override
+    public void streamAll(int limit, boolean readAllDetails, Consumer<? super FacilitySchema> sink) throws SQLException {
+        String query = readAllDetails ? allDetailsQuery(limit) : basicDetailsQuery(limit);
+
+        int rows = 0;
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStreamingStatement(connection, query,
+                                                                                    ISQLRepository.limitParameters(limit));
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                rows++;
+                sink.accept(readAllDetails ? readAllDetails(resultSet) : readBasicDetails(resultSet));
+            }
+        }
+        event.finish(query, rows);
+    }
+
+    private static String basicDetailsQuery(int limit) {
+        if (limit != -1)
+            return "SELECT facilityId, city, state FROM Facility LIMIT ?";
+
+        return "SELECT facilityId, city, state FROM Facility";
+    }
+
+    private static String allDetailsQuery(int limit) {
+        if (limit != -1)
+            return "SELECT * FROM Facility LIMIT ?";
+
+        return "SELECT * FROM Facility";
+    }
+
+    /**
+     * Reads the 'basic info' columns of the current row.
+     */
+    private static FacilitySchema readBasicDetails(ResultSet resultSet) throws SQLException {
+        FacilitySchema facility = new FacilitySchema();
+
+        facility.facilityId = resultSet.getInt("FacilityID");
+        facility.city = resultSet.getString("City");
+        facility.state = resultSet.getString("State");
+
+        return facility;
+    }
+
+    /**
+     * Reads every column of the current row.
+     */
+    private static FacilitySchema readAllDetails(ResultSet resultSet) throws SQLException {
+        FacilitySchema facility = new FacilitySchema();
+
+        facility.facilityId = resultSet.getInt("FacilityID");
+        facility.name = resultSet.getString("Name");
+        facility.city = resultSet.getString("City");
+        facility.state = resultSet.getString("State");
+        facility.description = resultSet.getString("Description");
+        facility.componentsInProduction = resultSet.getInt("ComponentsInProduction");
+        facility.componentsCompleted= resultSet.getInt("ComponentsCompleted");
+        facility.modelsInProduction = resultSet.getInt("ModelsInProduction");
+        facility.modelsCompleted = resultSet.getInt("ModelsCompleted");
+        facility.employeeCount = resultSet.getInt("EmployeeCount");
+        facility.managerId = resultSet.getInt("ManagerID");
+
+        return facility;
+    }
 }
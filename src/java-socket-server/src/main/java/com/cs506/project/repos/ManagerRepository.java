@@ -1,15 +1,17 @@
 package com.cs506.project.repos;
 
 import com.cs506.project.JDBCConnection;
+import com.cs506.project.events.SqlExecutedEvent;
 import com.cs506.project.interfaces.ISQLRepository;
 import com.cs506.project.schemas.ManagerSchema;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 public class ManagerRepository implements ISQLRepository<ManagerSchema>{
     private Connection connection;
 
@@ -25,25 +27,16 @@ public class ManagerRepository implements ISQLRepository<ManagerSchema>{
     @Override
     public List<ManagerSchema> getAllWithBasicDetails(int limit) throws SQLException {
         List<ManagerSchema> manager = new ArrayList<>();
-        String query = "";
-        if (limit != -1) {
-            query = "SELECT managerId, name, position, accessLevel FROM Manager LIMIT " + limit;
-        } else {
-            query = "SELECT managerId, name, position, accessLevel FROM Manager";
-        }
-        try(Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery(query)){
+        String query = basicDetailsQuery(limit);
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try(PreparedStatement statement = ISQLRepository.prepareStatement(connection, query,
+                                                                          ISQLRepository.limitParameters(limit));
+            ResultSet resultSet = statement.executeQuery()){
             while(resultSet.next()){
-                ManagerSchema managerSchema = new ManagerSchema();
-
-                managerSchema.managerId = resultSet.getInt("ManagerID");
-                managerSchema.name = resultSet.getString("Name");
-                managerSchema.position = resultSet.getString("Position");
-                managerSchema.accessLevel = resultSet.getInt("AccessLevel");
-
-                manager.add(managerSchema);
+                manager.add(readBasicDetails(resultSet));
             }
         }
+        event.finish(query, manager.size());
         return manager;
     }
 
@@ -55,29 +48,18 @@ public class ManagerRepository implements ISQLRepository<ManagerSchema>{
     @Override
     public List<ManagerSchema> getAllWithAllDetails(int limit) throws SQLException {
         List<ManagerSchema> facilities = new ArrayList<>();
-        String query = "";
-        if(limit != -1){
-            query = "SELECT * FROM Manager LIMIT " + limit;
-        } else {
-            query = "SELECT * FROM Manager";
-        }
+        String query = allDetailsQuery(limit);
 
-        try (Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(query)) {
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStatement(connection, query,
+                                                                           ISQLRepository.limitParameters(limit));
+             ResultSet resultSet = statement.executeQuery()) {
             while (resultSet.next()) {
 
-                ManagerSchema managerSchema= new ManagerSchema();
-
-                managerSchema.managerId = resultSet.getInt("ManagerID");
-                managerSchema.name = resultSet.getString("Name");
-                managerSchema.password = resultSet.getString("Password");
-                managerSchema.position = resultSet.getString("Position");
-                managerSchema.accessLevel = resultSet.getInt("AccessLevel");
-                managerSchema.facilityId = resultSet.getInt("FacilityID");
-
-                facilities.add(managerSchema);
+                facilities.add(readAllDetails(resultSet));
             }
         }
+        event.finish(query, facilities.size());
 
         return facilities;
     }
@@ -92,25 +74,18 @@ public class ManagerRepository implements ISQLRepository<ManagerSchema>{
     public List<ManagerSchema> getById(int managerId) throws SQLException{
         List<ManagerSchema> manager = new ArrayList<>();
 
-        String query = "SELECT * FROM Manager WHERE managerId = " + managerId;
-        try (Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(query);){
+        String query = "SELECT * FROM Manager WHERE managerId = ?";
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStatement(connection, query, managerId);
+             ResultSet resultSet = statement.executeQuery()){
 
             while (resultSet.next()) {
 
-                ManagerSchema managerSchema = new ManagerSchema();
-
-                managerSchema.managerId = resultSet.getInt("ManagerID");
-                managerSchema.name = resultSet.getString("Name");
-                managerSchema.password = resultSet.getString("Password");
-                managerSchema.position = resultSet.getString("Position");
-                managerSchema.accessLevel = resultSet.getInt("AccessLevel");
-                managerSchema.facilityId = resultSet.getInt("FacilityID");
-
-                manager.add(managerSchema);
+                manager.add(readAllDetails(resultSet));
 
             }
         }
+        event.finish(query, manager.size());
 
         return manager;
     }
@@ -122,17 +97,19 @@ public class ManagerRepository implements ISQLRepository<ManagerSchema>{
      * @return result : returns true if successful
      */
     public List<ManagerSchema> handleAddManager(List<ManagerSchema> managerSchema) throws SQLException{
-        try(Statement statement = connection.createStatement();) {
+        String query = "INSERT INTO appdb"
+                + "(managerId, Name, Password, Position, AccessLevel, FacilityID)"
+                + "VALUES (?, ?, ?, ?, ?, ?)";
+        try(PreparedStatement statement = connection.prepareStatement(query)) {
             for (ManagerSchema managerSchema1 : managerSchema) {
-                String query = "INSERT INTO appdb"
-                        + "(managerId, Name, Password, Position, AccessLevel, FacilityID)"
-                        + "VALUES (" + managerSchema1.managerId + ", "
-                        + managerSchema1.name + ", "
-                        + managerSchema1.password + ", "
-                        + managerSchema1.position + ", "
-                        + managerSchema1.accessLevel + ", "
-                        + managerSchema1.facilityId + ")";
-                statement.executeQuery(query);
+                statement.setInt(1, managerSchema1.managerId);
+                statement.setString(2, managerSchema1.name);
+                statement.setString(3, managerSchema1.password);
+                statement.setString(4, managerSchema1.position);
+                statement.setInt(5, managerSchema1.accessLevel);
+                statement.setInt(6, managerSchema1.facilityId);
+                SqlExecutedEvent event = SqlExecutedEvent.start();
+                event.finish(query, statement.executeUpdate());
             }
         } catch (SQLException e){
             e.printStackTrace();
@@ -200,4 +177,73 @@ public class ManagerRepository implements ISQLRepository<ManagerSchema>{
 
         return null;
     }
+
+    /**
+     * Streams a Read query of every manager, handing each one to the sink as
+     * soon as its row arrives from the database.
+     *
+     * @param limit          : If not equal to -1, then adds a limit operator to final query.
+     * @param readAllDetails : Specifies whether all columns are requested from database.
+     * @param sink           : Receives every ManagerSchema read from database.
+     */
+    @Override
+    public void streamAll(int limit, boolean readAllDetails, Consumer<? super ManagerSchema> sink) throws SQLException {
+        String query = readAllDetails ? allDetailsQuery(limit) : basicDetailsQuery(limit);
+
+        int rows = 0;
+        SqlExecutedEvent event = SqlExecutedEvent.start();
+        try (PreparedStatement statement = ISQLRepository.prepareStreamingStatement(connection, query,
+                                                                                    ISQLRepository.limitParameters(limit));
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                rows++;
+                sink.accept(readAllDetails ? readAllDetails(resultSet) : readBasicDetails(resultSet));
+            }
+        }
+        event.finish(query, rows);
+    }
+
+    private static String basicDetailsQuery(int limit) {
+        if (limit != -1)
+            return "SELECT managerId, name, position, accessLevel FROM Manager LIMIT ?";
+
+        return "SELECT managerId, name, position, accessLevel FROM Manager";
+    }
+
+    private static String allDetailsQuery(int limit) {
+        if (limit != -1)
+            return "SELECT * FROM Manager LIMIT ?";
+
+        return "SELECT * FROM Manager";
+    }
+
+    /**
+     * Reads the 'basic info' columns of the current row.
+     */
+    private static ManagerSchema readBasicDetails(ResultSet resultSet) throws SQLException {
+        ManagerSchema manager = new ManagerSchema();
+
+        manager.managerId = resultSet.getInt("ManagerID");
+        manager.name = resultSet.getString("Name");
+        manager.position = resultSet.getString("Position");
+        manager.accessLevel = resultSet.getInt("AccessLevel");
+
+        return manager;
+    }
+
+    /**
+     * Reads every column of the current row.
+     */
+    private static ManagerSchema readAllDetails(ResultSet resultSet) throws SQLException {
+        ManagerSchema manager = new ManagerSchema();
+
+        manager.managerId = resultSet.getInt("ManagerID");
+        manager.name = resultSet.getString("Name");
+        manager.password = resultSet.getString("Password");
+        manager.position = resultSet.getString("Position");
+        manager.accessLevel = resultSet.getInt("AccessLevel");
+        manager.facilityId = resultSet.getInt("FacilityID");
+
+        return manager;
+    }
 }
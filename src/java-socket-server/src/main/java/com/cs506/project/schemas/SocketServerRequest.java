@@ -9,7 +9,9 @@ public class SocketServerRequest {
 
     /**
      * This represents the type of request being made.
-     * Valid requests are: Create, Read, Update, Delete
+     * Valid requests are: Create, Read, Update, Delete, Export, Batch
+     * An Export returns all rows of the entity with all details, like a Read, from a cached snapshot.
+     * A Batch holds other requests instead of acting on an entity itself, and returns their responses in an array.
      */
     public String type;
 
@@ -35,4 +37,15 @@ public class SocketServerRequest {
      */
     public List<Object> entities;
 
+    /**
+     * If the request is a Batch, these are the requests it holds. They are answered in the same order.
+     */
+    public List<SocketServerRequest> requests;
+
+    /**
+     * If the request is a Batch, this is whether its requests may run in parallel, each on a database connection of its
+     * own, rather than one after the other on a shared one.
+     */
+    public boolean parallel;
+
 }
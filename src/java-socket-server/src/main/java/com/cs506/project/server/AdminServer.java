@@ -0,0 +1,228 @@
+package com.cs506.project.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serves the metrics of the Proxy Server to operators, on a port of its own
+ * bound to the loopback address only.
+ *
+ * Every connection sends a single command line and is answered in plain
+ * text, then closed, so any line based client will do, such as
+ * {@code echo latency | nc localhost 8100}. The commands are:
+ * <ul>
+ *   <li>{@code stats}: the value of every counter and gauge, one
+ *       {@code name value} pair per line.</li>
+ *   <li>{@code latency}: the count, percentiles and maximum of every latency
+ *       recorder over the current interval, in microseconds.</li>
+ *   <li>{@code latency reset}: the same, then starts a new interval, so
+ *       polling it reports the latencies of every interval on their own.</li>
+ *   <li>{@code jfr start}, {@code jfr dump [file]} and {@code jfr stop}:
+ *       control a Flight Recorder recording of the server. See
+ *       {@code FlightRecording}.</li>
+ *   <li>{@code config}: the settings that can be changed while the server
+ *       runs, one {@code name value} pair per line.</li>
+ *   <li>{@code set name value [name value ...]}: changes settings of the
+ *       running server, all at once or none at all, such as
+ *       {@code set num-workers 16 timeout 500}. See
+ *       {@code ProxyServer.reconfigure}.</li>
+ * </ul>
+ *
+ * Commands are served one at a time on the admin thread, away from the
+ * request path.
+ */
+public class AdminServer implements Runnable {
+    /**
+     * The percentiles reported by the {@code latency} command.
+     */
+    public static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    // How long a connection may take to send its command, in milliseconds
+    private static final int COMMAND_TIMEOUT = 1000;
+
+    private final int port;
+    private final ServerMetrics metrics;
+    private final PrintStream logger;
+    private final FlightRecording recording;
+    private ProxyServer server;
+    private ServerSocket serverSocket;
+    private String name;
+
+    /**
+     * Constructs a new AdminServer.
+     *
+     * @param port    The port to bind on the loopback address, zero for any
+     *                free port.
+     * @param metrics The metrics to serve.
+     * @param logger  The output stream for logging admin activity.
+     */
+    public AdminServer(int port, ServerMetrics metrics, PrintStream logger) {
+        this.port = port;
+        this.metrics = metrics;
+        this.logger = logger;
+        this.recording = new FlightRecording();
+    }
+
+    /**
+     * Sets the server whose settings the {@code config} and {@code set}
+     * commands show and change. Without one, they are unavailable.
+     *
+     * @param server The server to reconfigure, or {@code null}.
+     */
+    public void useProxyServer(ProxyServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Binds the admin port.
+     *
+     * @throws IOException if an I/O error occurs when binding the port.
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        logger.println("Admin bound to port " + serverSocket.getLocalPort());
+    }
+
+    /**
+     * Retrieves the port the admin server is bound to.
+     *
+     * @return The local port, or {@code -1} if not started.
+     */
+    public int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : -1;
+    }
+
+    @Override
+    public void run() {
+        name = Thread.currentThread().getName();
+        while (!serverSocket.isClosed()) {
+            try (Socket client = serverSocket.accept()) {
+                client.setSoTimeout(COMMAND_TIMEOUT);
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                    client.getInputStream(), StandardCharsets.UTF_8));
+                String command = in.readLine();
+
+                Writer out = new OutputStreamWriter(client.getOutputStream(),
+                                                    StandardCharsets.UTF_8);
+                out.write(execute(command == null ? "" : command.trim()));
+                out.flush();
+            } catch (SocketException e) {
+                // Closed while accepting, or the client went away
+            } catch (IOException e) {
+                logger.println(name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Executes a single command.
+     *
+     * @param command The command line, without surrounding whitespace.
+     *
+     * @return The response to the command.
+     */
+    String execute(String command) {
+        switch (command) {
+            case "stats":
+                return metrics.toString();
+            case "latency":
+                return formatLatencies(metrics.latencies(false));
+            case "latency reset":
+                return formatLatencies(metrics.latencies(true));
+            case "jfr start":
+                return recording.start();
+            case "jfr dump":
+                return recording.dump(null);
+            case "jfr stop":
+                return recording.stop();
+            case "config":
+                if (server == null)
+                    return "Reconfiguration is not available\n";
+                StringBuilder sb = new StringBuilder();
+                server.getSettings().forEach((name, value) ->
+                    sb.append(name).append(' ').append(value).append('\n'));
+                return sb.toString();
+            default:
+                if (command.startsWith("jfr dump "))
+                    return recording.dump(Path.of(command.substring(9).trim()));
+                if (command.startsWith("set "))
+                    return reconfigure(command.substring(4).trim().split("\\s+"));
+
+                return "Unknown command: " + command + "\n"
+                     + "Commands: stats, latency, latency reset, jfr start,"
+                     + " jfr dump [file], jfr stop, config,"
+                     + " set name value [name value ...]\n";
+        }
+    }
+
+    /**
+     * Changes the settings given as name and value pairs.
+     */
+    private String reconfigure(String[] args) {
+        if (server == null)
+            return "Reconfiguration is not available\n";
+        if (args.length % 2 != 0)
+            return "Usage: set name value [name value ...]\n"
+                 + "Settings: " + String.join(", ", server.getSettingNames()) + "\n";
+
+        Map<String, Integer> settings = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            try {
+                settings.put(args[i], Integer.parseInt(args[i + 1]));
+            } catch (NumberFormatException e) {
+                return args[i] + " must be a number, not " + args[i + 1] + "\n";
+            }
+        }
+
+        try {
+            server.reconfigure(settings);
+        } catch (IllegalArgumentException | IllegalStateException | IOException e) {
+            return "Failed to reconfigure: " + e.getMessage() + "\n";
+        }
+
+        return "Reconfigured " + settings + "\n";
+    }
+
+    /**
+     * Formats latency snapshots one recorder per line, such as
+     * {@code stage.read count 12 p50 35 p90 40 p99 98 p99.9 120 max 131}.
+     */
+    static String formatLatencies(Map<String, LatencyRecorder.Snapshot> snapshots) {
+        StringBuilder sb = new StringBuilder();
+        snapshots.forEach((name, snapshot) -> {
+            sb.append(name).append(" count ").append(snapshot.count());
+            for (double percentile: PERCENTILES)
+                sb.append(percentile == (long) percentile ? " p" + (long) percentile
+                                                          : " p" + percentile)
+                  .append(' ').append(snapshot.percentile(percentile));
+            sb.append(" max ").append(snapshot.max()).append('\n');
+        });
+        return sb.toString();
+    }
+
+    /**
+     * Stops the admin server by closing its port.
+     *
+     * @throws IOException if an I/O error occurs when closing the port.
+     */
+    public void stop() throws IOException {
+        if (serverSocket == null || serverSocket.isClosed())
+            return;
+
+        serverSocket.close();
+        recording.stop();
+        logger.println(name + " going down!");
+    }
+}
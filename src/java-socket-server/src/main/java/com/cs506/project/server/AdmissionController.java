@@ -0,0 +1,268 @@
+package com.cs506.project.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which work is admitted into the Proxy Server under load.
+ *
+ * Work is turned away in two places:
+ * <ul>
+ *   <li>When it is queued, if the queue already holds the configured limit.
+ *       This bounds the memory and the worst case queueing delay.</li>
+ *   <li>When it is dequeued, if it has been queued for longer than the target
+ *       delay for a whole interval, following CoDel. Persistent queues are
+ *       drained by shedding work at an increasing rate, while short bursts
+ *       are absorbed.</li>
+ * </ul>
+ *
+ * Turned away work is answered immediately with a "server busy" error, in
+ * the same format as the responses of the {@code RepositoryController}, so
+ * clients fail fast instead of waiting for their timeout.
+ *
+ * Instances of this class are thread safe.
+ */
+public class AdmissionController {
+    /**
+     * The response sent to clients whose request was turned away.
+     */
+    public static final String BUSY_RESPONSE = "{\n"
+        + "  \"entities\": [],\n"
+        + "  \"error\": \"The server is busy. Please try again later.\"\n"
+        + "}";
+
+    // CoDel never sheds more often than this before the delay persists
+    private static final long MIN_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private volatile int queueLimit;
+    private volatile long target;    // In nanoseconds, zero to disable CoDel
+    private volatile long interval;  // In nanoseconds
+    private final byte[] busyResponse;
+
+    private final AtomicInteger queued;
+    private final AtomicLong shed;
+    private final Map<Socket, Long> enqueuedAt;
+
+    // CoDel state, guarded by this
+    private long firstAboveTime;
+    private long dropNext;
+    private int count;
+    private boolean dropping;
+
+    /**
+     * Constructs a new AdmissionController.
+     *
+     * @param queueLimit  The most work that may be queued at once, zero for
+     *                    no limit.
+     * @param targetDelay The acceptable queueing delay in milliseconds, zero
+     *                    to never shed queued work.
+     * @param appendNull  Whether to append a NUL byte to busy responses.
+     */
+    public AdmissionController(int queueLimit, int targetDelay,
+                               boolean appendNull) {
+        useLimits(queueLimit, targetDelay);
+        this.queued = new AtomicInteger();
+        this.shed = new AtomicLong();
+        this.enqueuedAt = new ConcurrentHashMap<>();
+
+        // Pre-encoded, so shedding stays cheap when it matters most
+        byte[] body = BUSY_RESPONSE.getBytes();
+        this.busyResponse = new byte[body.length + (appendNull ? 1 : 0)];
+        System.arraycopy(body, 0, busyResponse, 0, body.length);
+    }
+
+    /**
+     * Replaces the queue limit and the target delay. Work already queued is
+     * not turned away because of a lower limit, but is shed as usual.
+     *
+     * @param queueLimit  The most work that may be queued at once, zero for
+     *                    no limit.
+     * @param targetDelay The acceptable queueing delay in milliseconds, zero
+     *                    to never shed queued work.
+     */
+    public synchronized void useLimits(int queueLimit, int targetDelay) {
+        this.queueLimit = queueLimit;
+        this.target = TimeUnit.MILLISECONDS.toNanos(targetDelay);
+        this.interval = Math.max(MIN_INTERVAL, 20 * target);
+
+        // Start over from the new target
+        firstAboveTime = 0;
+        dropping = false;
+    }
+
+    /**
+     * Retrieves the number of requests turned away so far.
+     *
+     * @return The number of shed requests.
+     */
+    public long shedCount() {
+        return shed.get();
+    }
+
+    /**
+     * Retrieves the amount of work currently queued.
+     *
+     * @return The number of queued requests or connections.
+     */
+    public int queued() {
+        return queued.get();
+    }
+
+    /**
+     * Reserves room for one piece of work in the queue.
+     *
+     * @return The time the work was queued at, in nanoseconds, or {@code -1}
+     *         if the queue is full and the work must be turned away.
+     */
+    public long tryEnqueue() {
+        int limit = queueLimit;
+        if (queued.incrementAndGet() > limit && limit > 0) {
+            queued.decrementAndGet();
+            shed.incrementAndGet();
+            return -1;
+        }
+
+        return System.nanoTime();
+    }
+
+    /**
+     * Releases the room of one piece of work taken from the queue, and
+     * decides whether it should be shed.
+     *
+     * @param enqueuedAt The time the work was queued at, as returned by
+     *                   {@link #tryEnqueue()}.
+     *
+     * @return {@code true} if the work must be turned away,
+     *         {@code false} if it should be served
+     */
+    public boolean dequeue(long enqueuedAt) {
+        queued.decrementAndGet();
+        if (target == 0)
+            return false;
+
+        long now = System.nanoTime();
+        if (codel(now - enqueuedAt, now)) {
+            shed.incrementAndGet();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Queues a client connection, unless the queue is full.
+     *
+     * @param queue  The work queue.
+     * @param client The client connection to queue.
+     *
+     * @return {@code true} if the connection was queued,
+     *         {@code false} if it must be turned away
+     *
+     * @throws InterruptedException if interrupted while waiting for room in
+     *                              a bounded queue.
+     */
+    public boolean offer(BlockingQueue<Socket> queue, Socket client)
+        throws InterruptedException {
+        long time = tryEnqueue();
+        if (time < 0)
+            return false;
+
+        // Recorded first, as a worker may take the connection right away
+        enqueuedAt.put(client, time);
+        if (queueLimit == 0) {
+            queue.put(client);
+            return true;
+        }
+
+        if (!queue.offer(client)) {
+            // The queue itself is smaller than the limit
+            enqueuedAt.remove(client);
+            queued.decrementAndGet();
+            shed.incrementAndGet();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Releases the room of a client connection taken from the queue, and
+     * decides whether it should be shed.
+     *
+     * @param client The client connection taken from the queue.
+     *
+     * @return {@code true} if the connection must be turned away,
+     *         {@code false} if it should be served
+     */
+    public boolean dequeue(Socket client) {
+        Long time = enqueuedAt.remove(client);
+        if (time == null)
+            return false;  // Not queued through this controller
+
+        return dequeue(time);
+    }
+
+    /**
+     * Answers a client with the busy response, without reading its request,
+     * and closes the connection.
+     *
+     * The response is NUL delimited, as clients are turned away before
+     * their framing is known.
+     *
+     * @param client The client connection to turn away.
+     */
+    public void reject(Socket client) {
+        try (client) {
+            OutputStream sockOut = client.getOutputStream();
+            sockOut.write(busyResponse);
+        } catch (IOException e) {
+            // The client is gone already, nothing left to tell it
+        }
+    }
+
+    /**
+     * Runs the CoDel control law for one dequeued piece of work.
+     */
+    private synchronized boolean codel(long sojourn, long now) {
+        if (sojourn < target) {
+            // Queue is draining fine
+            firstAboveTime = 0;
+            dropping = false;
+            return false;
+        }
+
+        if (!dropping) {
+            // Shed only once the delay has persisted for a whole interval
+            if (firstAboveTime == 0) {
+                firstAboveTime = now + interval;
+                return false;
+            }
+            if (now < firstAboveTime)
+                return false;
+
+            // Resume near the previous rate if the queue just came back
+            dropping = true;
+            count = count > 2 && now - dropNext < 16 * interval ? count - 2 : 1;
+            dropNext = controlLaw(now);
+            return true;
+        }
+
+        if (now < dropNext)
+            return false;
+
+        count++;
+        dropNext = controlLaw(dropNext);
+        return true;
+    }
+
+    private long controlLaw(long time) {
+        return time + (long) (interval / Math.sqrt(count));
+    }
+}
@@ -0,0 +1,208 @@
+package com.cs506.project.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the connections every client may open, by source address, so that
+ * a single misbehaving client cannot starve the others.
+ *
+ * Two limits are enforced as soon as a connection is accepted, before it is
+ * queued:
+ * <ul>
+ *   <li>A rate: every client has a token bucket holding up to a second worth
+ *       of connections, refilled continuously.</li>
+ *   <li>A number of connections open at once.</li>
+ * </ul>
+ *
+ * The state of every client is kept in a concurrent table and updated with
+ * compare and set only, so listeners never block each other. The bucket is
+ * kept as a single timestamp, the time at which it will be full again
+ * (GCRA). Clients with no open connections and a full bucket are forgotten
+ * every {@link #SWEEP_INTERVAL} milliseconds, so the table only grows with
+ * the clients that are active.
+ *
+ * Instances of this class are thread safe.
+ */
+public class ConnectionLimiter {
+    /**
+     * The response sent to clients whose connection was turned away.
+     */
+    public static final String LIMITED_RESPONSE = "{\n"
+        + "  \"entities\": [],\n"
+        + "  \"error\": \"Too many connections from this client. Please try again later.\"\n"
+        + "}";
+
+    /**
+     * How often clients that went idle are forgotten, in milliseconds.
+     */
+    public static final int SWEEP_INTERVAL = 10_000;
+
+    /**
+     * The state of a single client.
+     */
+    private static final class Client {
+        private final AtomicLong fullAt;  // When the bucket is full again
+        private final AtomicInteger open; // -1 once forgotten
+
+        private Client(long now) {
+            this.fullAt = new AtomicLong(now);
+            this.open = new AtomicInteger();
+        }
+    }
+
+    private final long interval;  // Between connections at the rate, in ns
+    private final long burst;     // Bucket size, in ns
+    private final int maxOpen;
+    private final byte[] limitedResponse;
+
+    private final Map<InetAddress, Client> clients;
+    private final AtomicLong nextSweep;
+    private final AtomicLong rejected;
+
+    /**
+     * Constructs a new ConnectionLimiter.
+     *
+     * @param rate       The connections per second a client may open, zero
+     *                   for no limit.
+     * @param maxOpen    The connections a client may have open at once, zero
+     *                   for no limit.
+     * @param appendNull Whether to append a NUL byte to the response sent to
+     *                   turned away clients.
+     */
+    public ConnectionLimiter(int rate, int maxOpen, boolean appendNull) {
+        this.interval = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+        this.burst = TimeUnit.SECONDS.toNanos(1) - interval;
+        this.maxOpen = maxOpen;
+        this.clients = new ConcurrentHashMap<>();
+        this.nextSweep = new AtomicLong(System.nanoTime()
+            + TimeUnit.MILLISECONDS.toNanos(SWEEP_INTERVAL));
+        this.rejected = new AtomicLong();
+
+        // Pre-encoded, so turning clients away stays cheap
+        byte[] body = LIMITED_RESPONSE.getBytes();
+        this.limitedResponse = new byte[body.length + (appendNull ? 1 : 0)];
+        System.arraycopy(body, 0, limitedResponse, 0, body.length);
+    }
+
+    /**
+     * Retrieves the number of connections turned away so far.
+     *
+     * @return The number of rejected connections.
+     */
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Retrieves the number of clients currently tracked.
+     *
+     * @return The number of clients.
+     */
+    public int clientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Admits a new connection from a client, if the client is within its
+     * limits. Every admitted connection must be released once closed.
+     *
+     * @param client The accepted connection.
+     *
+     * @return {@code true} if the connection is admitted,
+     *         {@code false} if it must be turned away
+     */
+    public boolean acquire(Socket client) {
+        long now = System.nanoTime();
+        if (now - nextSweep.get() >= 0)
+            sweep(now);
+
+        InetAddress address = client.getInetAddress();
+        while (true) {
+            Client state = clients.computeIfAbsent(address, a -> new Client(now));
+            int open = state.open.get();
+            if (open < 0)
+                continue;  // Forgotten meanwhile, look it up again
+
+            if (maxOpen > 0 && open >= maxOpen) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (!state.open.compareAndSet(open, open + 1))
+                continue;
+
+            if (interval > 0 && !takeToken(state, now)) {
+                state.open.decrementAndGet();
+                rejected.incrementAndGet();
+                return false;
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Takes a token from the bucket of a client, if there is one left.
+     */
+    private boolean takeToken(Client state, long now) {
+        while (true) {
+            long fullAt = state.fullAt.get();
+            long from = Math.max(fullAt, now);
+            if (from - now > burst)
+                return false;  // Bucket empty
+
+            if (state.fullAt.compareAndSet(fullAt, from + interval))
+                return true;
+        }
+    }
+
+    /**
+     * Releases a connection admitted by {@link #acquire(Socket)}, once it
+     * is closed.
+     *
+     * @param client The connection.
+     */
+    public void release(Socket client) {
+        Client state = clients.get(client.getInetAddress());
+        if (state != null)
+            state.open.decrementAndGet();
+    }
+
+    /**
+     * Answers a client with the limited response, without reading its
+     * request, and closes the connection.
+     *
+     * @param client The connection to turn away.
+     */
+    public void reject(Socket client) {
+        try (client) {
+            OutputStream sockOut = client.getOutputStream();
+            sockOut.write(limitedResponse);
+        } catch (IOException e) {
+            // The client is gone already, nothing left to tell it
+        }
+    }
+
+    /**
+     * Forgets the clients with no open connections and a full bucket, from
+     * a single thread at a time.
+     */
+    void sweep(long now) {
+        long due = nextSweep.get();
+        long next = now + TimeUnit.MILLISECONDS.toNanos(SWEEP_INTERVAL);
+        if (!nextSweep.compareAndSet(due, next))
+            return;  // Another listener is sweeping
+
+        clients.forEach((address, state) -> {
+            if (state.fullAt.get() - now <= 0 && state.open.compareAndSet(0, -1))
+                clients.remove(address, state);
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package com.cs506.project.server;
+
+import com.cs506.project.events.ConnectionAcceptedEvent;
+import com.cs506.project.events.ConnectionDequeuedEvent;
+import com.cs506.project.events.ConnectionQueuedEvent;
+import com.cs506.project.events.RequestParsedEvent;
+import com.cs506.project.events.ResponseWrittenEvent;
+import com.cs506.project.events.SqlExecutedEvent;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Starts, dumps and stops a JDK Flight Recorder recording of the running
+ * server, on demand.
+ *
+ * The recording uses the {@code default} settings of the JDK, which cost
+ * about one percent of throughput, along with the events of the Proxy
+ * Server, such as {@code com.cs506.project.SqlExecuted}. It keeps the last
+ * {@link #MAX_AGE} of events, so it can be left running and dumped once an
+ * incident happens.
+ *
+ * Instances of this class are thread safe.
+ */
+public class FlightRecording {
+    /**
+     * How long events are kept in a running recording.
+     */
+    public static final Duration MAX_AGE = Duration.ofMinutes(15);
+
+    private Recording recording;  // Guarded by this
+
+    /**
+     * Registers the events of the Proxy Server with the Flight Recorder.
+     *
+     * The first event of a JVM otherwise loads and initializes the Flight
+     * Recorder on the request path, delaying that request. Registering an
+     * event more than once has no effect.
+     */
+    public static void registerEvents() {
+        FlightRecorder.register(ConnectionAcceptedEvent.class);
+        FlightRecorder.register(ConnectionQueuedEvent.class);
+        FlightRecorder.register(ConnectionDequeuedEvent.class);
+        FlightRecorder.register(RequestParsedEvent.class);
+        FlightRecorder.register(SqlExecutedEvent.class);
+        FlightRecorder.register(ResponseWrittenEvent.class);
+    }
+
+    /**
+     * Starts recording, unless already recording.
+     *
+     * @return A message describing the outcome.
+     */
+    public synchronized String start() {
+        if (isRecording())
+            return "Already recording since " + recording.getStartTime() + "\n";
+
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+        } catch (IOException | ParseException e) {
+            return "Failed to load the recording settings: " + e.getMessage() + "\n";
+        }
+        recording.setName("ProxyServer");
+        recording.setToDisk(true);
+        recording.setMaxAge(MAX_AGE);
+        recording.start();
+        return "Recording started\n";
+    }
+
+    /**
+     * Dumps the events recorded so far to a file, and keeps recording.
+     *
+     * @param path The file to dump to, or {@code null} for a file named
+     *             after the current time in the temporary directory.
+     *
+     * @return A message describing the outcome.
+     */
+    public synchronized String dump(Path path) {
+        if (!isRecording())
+            return "Not recording\n";
+
+        if (path == null)
+            path = Path.of(System.getProperty("java.io.tmpdir"),
+                           "proxyserver-" + Instant.now().toEpochMilli() + ".jfr");
+        try {
+            recording.dump(path);
+        } catch (IOException e) {
+            return "Failed to dump the recording: " + e.getMessage() + "\n";
+        }
+        return "Recording dumped to " + path.toAbsolutePath() + "\n";
+    }
+
+    /**
+     * Stops recording and discards the events recorded.
+     *
+     * @return A message describing the outcome.
+     */
+    public synchronized String stop() {
+        if (!isRecording())
+            return "Not recording\n";
+
+        recording.close();
+        recording = null;
+        return "Recording stopped\n";
+    }
+
+    /**
+     * Indicates whether a recording is running.
+     *
+     * @return {@code true} if recording.
+     */
+    public synchronized boolean isRecording() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+}
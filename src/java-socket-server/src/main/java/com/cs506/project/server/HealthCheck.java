@@ -0,0 +1,269 @@
+package com.cs506.project.server;
+
+import com.cs506.project.utils.BufferPool;
+import com.cs506.project.utils.FrameDecoder;
+import com.cs506.project.utils.FrameDecoder.Framing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+/**
+ * Answers healthchecks, without handing them to the task.
+ *
+ * A healthcheck is any request starting with the bytes {@code healthcheck}.
+ * It is recognized as soon as it is framed, and answered on the thread that
+ * read it with one of a few responses encoded up front, so it never waits
+ * behind other requests and never touches the database.
+ *
+ * Healthchecks report readiness: the server is ready while the database
+ * answers and the queue of waiting work stays under a threshold. The queue
+ * is checked on every healthcheck, as it is cheap. The database is probed
+ * every {@link #PROBE_INTERVAL} milliseconds in the background instead, and
+ * the last result is reported.
+ *
+ * Instances of this class are thread safe.
+ */
+public class HealthCheck {
+    /**
+     * The response sent while the server is ready.
+     */
+    public static final String READY_RESPONSE = "{\n"
+        + "  \"status\": \"ready\"\n"
+        + "}";
+
+    /**
+     * The response sent while the database is unreachable.
+     */
+    public static final String DATABASE_DOWN_RESPONSE = "{\n"
+        + "  \"status\": \"unavailable\",\n"
+        + "  \"error\": \"The database is unreachable.\"\n"
+        + "}";
+
+    /**
+     * The response sent while too much work is queued.
+     */
+    public static final String BUSY_RESPONSE = "{\n"
+        + "  \"status\": \"unavailable\",\n"
+        + "  \"error\": \"Too many requests are queued.\"\n"
+        + "}";
+
+    /**
+     * How often the database is probed, in milliseconds.
+     */
+    public static final int PROBE_INTERVAL = 1000;
+
+    private static final byte[] PREFIX =
+        "healthcheck".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * A response encoded once in every framing it may be sent in.
+     */
+    private static final class Encoded {
+        private final byte[] body;
+        private final byte[] terminated;  // Followed by a NUL byte
+        private final byte[] prefixed;    // Preceded by its length
+        private final ByteBuffer direct;
+        private final ByteBuffer directTerminated;
+        private final ByteBuffer directPrefixed;
+
+        private Encoded(String response) {
+            body = response.getBytes();
+            terminated = ByteBuffer.allocate(body.length + 1)
+                                   .put(body).put((byte) 0).array();
+            prefixed = ByteBuffer.allocate(FrameDecoder.HEADER_SIZE + body.length)
+                                 .putInt(body.length).put(body).array();
+            direct = readOnly(body);
+            directTerminated = readOnly(terminated);
+            directPrefixed = readOnly(prefixed);
+        }
+
+        private static ByteBuffer readOnly(byte[] bytes) {
+            return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip()
+                             .asReadOnlyBuffer();
+        }
+    }
+
+    private final BooleanSupplier database;
+    private final IntSupplier queueDepth;
+    private final IntSupplier maxQueueDepth;
+
+    private final Encoded ready;
+    private final Encoded databaseDown;
+    private final Encoded busy;
+
+    private volatile boolean databaseUp;
+    private ScheduledExecutorService prober;
+
+    /**
+     * Constructs a new HealthCheck. The database is assumed reachable until
+     * it is first probed.
+     *
+     * @param database      Probes the database, {@code true} if reachable.
+     * @param queueDepth    Retrieves the amount of work currently queued.
+     * @param maxQueueDepth Retrieves the amount of queued work at which the
+     *                      server is no longer ready, which may change while
+     *                      it runs.
+     */
+    public HealthCheck(BooleanSupplier database, IntSupplier queueDepth,
+                       IntSupplier maxQueueDepth) {
+        this.database = database;
+        this.queueDepth = queueDepth;
+        this.maxQueueDepth = maxQueueDepth;
+        this.ready = new Encoded(READY_RESPONSE);
+        this.databaseDown = new Encoded(DATABASE_DOWN_RESPONSE);
+        this.busy = new Encoded(BUSY_RESPONSE);
+        this.databaseUp = true;
+    }
+
+    /**
+     * Indicates whether a request is a healthcheck, from its raw bytes.
+     *
+     * @param request The request, without its delimiter.
+     *
+     * @return {@code true} if the request starts with {@code healthcheck}.
+     */
+    public static boolean matches(byte[] request) {
+        if (request.length < PREFIX.length)
+            return false;
+
+        for (int i = 0; i < PREFIX.length; i++)
+            if (request[i] != PREFIX[i])
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Starts probing the database in the background.
+     */
+    public void start() {
+        prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "HealthCheck");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(this::probe, 0, PROBE_INTERVAL,
+                                      TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (prober != null)
+            prober.shutdownNow();
+    }
+
+    /**
+     * Probes the database once.
+     */
+    void probe() {
+        try {
+            databaseUp = database.getAsBoolean();
+        } catch (RuntimeException e) {
+            databaseUp = false;
+        }
+    }
+
+    /**
+     * Indicates whether the server is ready for requests.
+     *
+     * @return {@code true} if the database was reachable when last probed
+     *         and the queue is under its threshold.
+     */
+    public boolean isReady() {
+        return current() == ready;
+    }
+
+    private Encoded current() {
+        if (!databaseUp)
+            return databaseDown;
+        if (queueDepth.getAsInt() >= maxQueueDepth.getAsInt())
+            return busy;
+
+        return ready;
+    }
+
+    /**
+     * Retrieves the current response, ready to be written to a channel.
+     * The buffer is read only, so it is never taken into a
+     * {@code BufferPool} when released.
+     *
+     * @param framing    The framing of the connection, except pipelined.
+     * @param appendNull Whether to append a null byte after the response.
+     *
+     * @return The encoded response.
+     */
+    public ByteBuffer encode(Framing framing, boolean appendNull) {
+        Encoded response = current();
+        if (framing == Framing.LENGTH)
+            return response.directPrefixed.duplicate();
+
+        return appendNull ? response.directTerminated.duplicate()
+                          : response.direct.duplicate();
+    }
+
+    /**
+     * Retrieves the current response as a pipelined frame, in a pooled
+     * direct buffer ready to be written to a channel.
+     *
+     * @param correlationId The correlation id of the healthcheck.
+     *
+     * @return The flipped buffer, which must be handed back to
+     *         {@link BufferPool#DIRECT} once written.
+     */
+    public ByteBuffer encode(int correlationId) {
+        byte[] body = current().body;
+        ByteBuffer frame = BufferPool.DIRECT.acquire(
+            FrameDecoder.PIPELINE_HEADER_SIZE + body.length);
+        return frame.putInt(body.length).putInt(correlationId).put(body).flip();
+    }
+
+    /**
+     * Writes the current response to a socket.
+     *
+     * @param socket     The socket to which to write.
+     * @param framing    The framing of the connection, except pipelined.
+     * @param appendNull Whether to append a null byte after the response.
+     *
+     * @throws IOException if an I/O error occurs while writing to the socket.
+     */
+    public void writeTo(Socket socket, Framing framing, boolean appendNull)
+        throws IOException {
+        Encoded response = current();
+        OutputStream sockOut = socket.getOutputStream();
+        if (framing == Framing.LENGTH)
+            sockOut.write(response.prefixed);
+        else
+            sockOut.write(appendNull ? response.terminated : response.body);
+    }
+
+    /**
+     * Writes the current response to a socket as a pipelined frame.
+     *
+     * Frames are written whole, so concurrent callers writing to the same
+     * socket must synchronize on it.
+     *
+     * @param socket        The socket to which to write.
+     * @param correlationId The correlation id of the healthcheck.
+     *
+     * @throws IOException if an I/O error occurs while writing to the socket.
+     */
+    public void writeTo(Socket socket, int correlationId) throws IOException {
+        byte[] body = current().body;
+        ByteBuffer frame = BufferPool.HEAP.acquire(
+            FrameDecoder.PIPELINE_HEADER_SIZE + body.length);
+        try {
+            frame.putInt(body.length).putInt(correlationId).put(body);
+            socket.getOutputStream().write(frame.array(), frame.arrayOffset(),
+                                           frame.position());
+        } finally {
+            BufferPool.HEAP.release(frame);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.cs506.project.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records latencies from many threads at once, in buckets of
+ * logarithmically growing width, so that any latency is recorded in
+ * constant time and space, within about 1.6% of its value.
+ *
+ * Values below 128 have a bucket of their own. Above that, every power of
+ * two is split into 64 buckets of equal width, like an HdrHistogram with two
+ * significant digits. Latencies are recorded in microseconds, up to
+ * {@link #HIGHEST}; longer ones are counted as that.
+ *
+ * Recording never blocks: it increments a single bucket atomically. Taking a
+ * snapshot may reset the recorder for the next interval, moving every bucket
+ * to the snapshot atomically, so a latency recorded meanwhile is counted in
+ * exactly one of the two intervals.
+ *
+ * Instances of this class are thread safe.
+ */
+public class LatencyRecorder {
+    /**
+     * The largest latency recorded as itself, in microseconds, a little over
+     * nineteen hours.
+     */
+    public static final long HIGHEST = (1L << 36) - 1;
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong max;
+
+    /**
+     * A copy of the latencies recorded during an interval.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long max;
+
+        private Snapshot(long[] counts, long max) {
+            long count = 0;
+            for (long c: counts)
+                count += c;
+
+            this.counts = counts;
+            this.count = count;
+            this.max = max;
+        }
+
+        /**
+         * Retrieves the number of latencies recorded.
+         *
+         * @return The number of latencies.
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Retrieves the largest latency recorded, exactly.
+         *
+         * @return The largest latency, or {@code 0} if none were recorded.
+         */
+        public long max() {
+            return max;
+        }
+
+        /**
+         * Retrieves the latency at the given percentile.
+         *
+         * @param percentile The percentile, between {@code 0} and {@code 100}.
+         *
+         * @return The highest latency in the bucket holding the percentile,
+         *         or {@code 0} if no latencies were recorded.
+         */
+        public long percentile(double percentile) {
+            if (count == 0)
+                return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank)
+                    return Math.min(lowest(i + 1) - 1, max);
+            }
+
+            return max;
+        }
+    }
+
+    /**
+     * Constructs an empty LatencyRecorder.
+     */
+    public LatencyRecorder() {
+        this.counts = new AtomicLongArray(index(HIGHEST) + 1);
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records a single latency.
+     *
+     * @param micros The latency in microseconds, negative values count as
+     *               zero.
+     */
+    public void record(long micros) {
+        micros = Math.min(Math.max(0, micros), HIGHEST);
+        counts.incrementAndGet(index(micros));
+        if (micros > max.get())
+            max.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * Records the time elapsed since the given instant.
+     *
+     * @param start The instant, from {@code System.nanoTime()}.
+     */
+    public void recordSince(long start) {
+        record((System.nanoTime() - start) / 1000);
+    }
+
+    /**
+     * Copies the latencies recorded so far.
+     *
+     * @param reset Whether to start a new interval, recording later
+     *              latencies from zero.
+     *
+     * @return The snapshot.
+     */
+    public Snapshot snapshot(boolean reset) {
+        long[] copy = new long[counts.length()];
+        for (int i = 0; i < copy.length; i++)
+            copy[i] = reset ? counts.getAndSet(i, 0) : counts.get(i);
+
+        return new Snapshot(copy, reset ? max.getAndSet(0) : max.get());
+    }
+
+    static int index(long value) {
+        if (value < 2 * SUB_BUCKETS)
+            return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long lowest(int index) {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+}
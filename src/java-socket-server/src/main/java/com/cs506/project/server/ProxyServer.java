@@ -1,18 +1,35 @@
 package com.cs506.project.server;
 
 import com.cs506.project.configs.ListenerConfig;
+import com.cs506.project.configs.ScalerConfig;
 import com.cs506.project.configs.ServerConfig;
 import com.cs506.project.configs.WorkerConfig;
+import com.cs506.project.utils.AsyncLogger;
 import com.cs506.project.server.ProxyServerListener;
 import com.cs506.project.server.ProxyServerWorker;
 
 import java.net.Socket;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -20,39 +37,111 @@ import java.util.stream.Stream;
  *
  * This class manages the configuration, setup, and execution of the Proxy Server.
  * It is essentially the controller for the server, and uses is backed by
- * {@code ProxyServerListener} and {@code ProxyServerWorker} processes.
+ * {@code ProxyServerListener} and {@code ProxyServerWorker} processes, or by
+ * {@code ProxyServerEventLoop} processes when event loop mode is enabled.
+ *
+ * Some settings can be changed while the server runs, through
+ * {@link #reconfigure(Map)}.
  *
  * Instances of this class are thread safe
  *
  * @author Mrigank Kumar
  */
 public class ProxyServer implements Runnable {
-    // Server configuration
-    private final ServerConfig config;
+    /**
+     * The settings that can be changed while the server runs, named after
+     * their command line options.
+     */
+    public static final List<String> SETTINGS = List.of(
+        "num-listeners", "num-workers", "max-workers", "chunk-size", "timeout",
+        "keep-alive", "queue-limit", "queue-delay");
+
+    /**
+     * The settings that can be changed while the server runs in event loop
+     * mode.
+     */
+    public static final List<String> EVENT_LOOP_SETTINGS = List.of(
+        "queue-limit", "queue-delay");
+
+    // Server configuration, replaced whole when reconfigured
+    private volatile ServerConfig config;
     private int[] ports;
     private String name;
 
     // Server processes
     private ProxyServerListener[] listeners;
     private ProxyServerWorker[] workers;
+    private ProxyServerEventLoop[] eventLoops;
+    private ProxyServerDispatcher dispatcher;
+    private ProxyServerWorker dispatchedWorker;
+    private WorkerScaler scaler;
+    private ProxyServerTask task;  // Run by workers added when reconfigured
 
     // Server Thread groups
     private final ThreadGroup listenerGroup;
     private final ThreadGroup workerGroup;
+    private final ThreadGroup eventLoopGroup;
 
     // Server threads per process
     private Thread[] listenerThreads;
     private Thread[] workerThreads;
+    private Thread[] eventLoopThreads;
+    private Thread scalerThread;
+
+    // Executes complete requests read by the event loops, and the requests
+    // of pipelined connections
+    private ExecutorService taskExecutor;
+
+    // Serves bulk requests, so they never hold up cheaper ones
+    private ExecutorService bulkExecutor;
 
     // Logger
-    private PrintStream logger;
+    private final AsyncLogger logger;
+
+    // Queued connections per worker at which the server is no longer ready
+    private static final int READY_QUEUE_PER_WORKER = 4;
+
+    // Worker scaling thresholds, in milliseconds
+    private static final int DEFAULT_TARGET_DELAY = 100;
+    private static final int RETIRE_AFTER = 30_000;
+
+    // How often idle workers check whether they were retired, in milliseconds
+    private static final int RETIRE_POLL = 250;
 
     // The Work Queue
     private BlockingQueue<Socket> workQueue;
 
+    // Metrics of all server processes
+    private final ServerMetrics metrics;
+
+    // Turns work away under load, if the queue is bounded or delay targeted
+    private final AdmissionController admission;
+
+    // Turns away clients opening too many connections, if limits are set
+    private final ConnectionLimiter limiter;
+
+    // Answers healthchecks without running the task, if set
+    private HealthCheck health;
+
+    // Records the latency of every stage of a request
+    private final RequestStages stages;
+
+    // Serves the metrics on a loopback port, if configured
+    private AdminServer admin;
+    private Thread adminThread;
+
+    // Told about every configuration applied while running, if set
+    private Consumer<ServerConfig> reconfigureListener;
+
     // Optional latch for shutdown hooks
     private CountDownLatch shutdownLatch;
 
+    // Listeners and workers created while running, at whatever index, which
+    // have no shutdown hook of their own. Retired workers are kept until
+    // their thread ends, as they may still be serving a connection
+    private final Set<ProxyServerListener> addedListeners;
+    private final Map<ProxyServerWorker, Thread> addedWorkers;
+
     /**
      * Constructs a new ProxyServer with the specified configuration.
      * Initializes the server with an empty work queue.
@@ -83,17 +172,45 @@ public class ProxyServer implements Runnable {
             throw new IllegalArgumentException("Work queue cannot be null");
 
         this.config = config;
-        this.logger = System.out;  // Default logger
+        PrintStream out = System.out;  // Default logger
 
         // If a log file was specified, use that instead
         if (config.logFilePath() != null)
-            this.logger = new PrintStream(config.logFilePath());
+            out = new PrintStream(config.logFilePath());
+
+        // Keep logging off the accept and request paths
+        this.logger = new AsyncLogger(out);
 
         // Work queue for the listeners and workers
         this.workQueue = queue;
+        this.metrics = new ServerMetrics();
+        metrics.gauge("log.dropped", logger::droppedCount);
+        if (config.queueLimit() > 0 || config.queueDelay() > 0) {
+            this.admission = new AdmissionController(config.queueLimit(),
+                                                     config.queueDelay(),
+                                                     config.autoAppend());
+            metrics.gauge("queue.shed", admission::shedCount);
+        } else {
+            this.admission = null;
+        }
+
+        if (config.clientRate() > 0 || config.clientConnections() > 0) {
+            this.limiter = new ConnectionLimiter(config.clientRate(),
+                                                 config.clientConnections(),
+                                                 config.autoAppend());
+            metrics.gauge("limiter.rejected", limiter::rejectedCount);
+            metrics.gauge("limiter.clients", limiter::clientCount);
+        } else {
+            this.limiter = null;
+        }
+
+        this.stages = new RequestStages(metrics);
+        this.addedListeners = ConcurrentHashMap.newKeySet();
+        this.addedWorkers = new ConcurrentHashMap<>();
 
         this.listenerGroup = new ThreadGroup("ProxyServer_Listeners");
         this.workerGroup = new ThreadGroup("ProxyServer_Workers");
+        this.eventLoopGroup = new ThreadGroup("ProxyServer_EventLoops");
 
         this.configurePorts();
     }
@@ -142,6 +259,28 @@ public class ProxyServer implements Runnable {
                                           "Worker:" + (i + 1));
     }
 
+    private void createThreads(ProxyServerDispatcher dispatcher) {
+        workerThreads = new Thread[]{
+            new Thread(workerGroup, dispatcher, "Dispatcher")
+        };
+    }
+
+    private void createThreads(ProxyServerEventLoop[] eventLoops) {
+        eventLoopThreads = new Thread[eventLoops.length];
+        for (int i = 0; i < eventLoopThreads.length; i++)
+            eventLoopThreads[i] = new Thread(eventLoopGroup,
+                                             eventLoops[i],
+                                             "EventLoop:" + (i + 1));
+    }
+
+    /**
+     * Indicates whether this server runs non-blocking event loops instead of
+     * listeners and workers.
+     */
+    private boolean usesEventLoops() {
+        return config.eventLoops() > 0;
+    }
+
     /**
      * Sets up the listeners automatically based on the server configurations.
      *
@@ -160,12 +299,21 @@ public class ProxyServer implements Runnable {
 
         // Setup and start the listeners
         for (int i = 0; i < listeners.length; i++) {
-            ListenerConfig config = new ListenerConfig(ports[i]);
-            listeners[i] = new ProxyServerListener(config, workQueue, logger);
+            listeners[i] = createListener(ports[i]);
             listeners[i].start();
         }
     }
 
+    private ProxyServerListener createListener(int port) throws IOException {
+        ListenerConfig config = new ListenerConfig(port);
+        ProxyServerListener listener = new ProxyServerListener(config, workQueue,
+                                                               logger);
+        listener.useAdmissionController(admission);
+        listener.useRequestStages(stages);
+        listener.useConnectionLimiter(limiter);
+        return listener;
+    }
+
     /**
      * Uses the given listeners instead of the automatically configured ones.
      *
@@ -190,6 +338,10 @@ public class ProxyServer implements Runnable {
      * This method will spawn the number of workers specified by
      * {@code ServerConfig.numWorkers()}, all of which will perform same task.
      *
+     * If {@code ServerConfig.maxWorkers()} is larger, a {@code WorkerScaler}
+     * adds workers up to that number while the work queue backs up, and
+     * retires them once they are idle.
+     *
      * For workers with different tasks, use {@code useWorkers}
      *
      * @see {@link useWorkers(ProxyServerWorker[])}
@@ -200,16 +352,145 @@ public class ProxyServer implements Runnable {
     public void setupWorkers(ProxyServerTask task) throws IOException {
         int numWorkers = config.numWorkers();
         workers = new ProxyServerWorker[numWorkers];
+        this.task = task;
+
+        // Pipelined requests are fanned out to a pool of the same size
+        taskExecutor = Executors.newFixedThreadPool(numWorkers,
+                                                    daemonThreads("Pipeline:"));
+        setupBulkExecutor();
 
-        // Setup the workers
+        // Setup the workers, polling so they can be retired when reconfigured
         for (int i = 0; i < numWorkers; i++) {
-            WorkerConfig config = new WorkerConfig(this.config.chunkSize(),
-                                                   this.config.timeout(),
-                                                   this.config.autoAppend());
-            workers[i] = new ProxyServerWorker(config, workQueue, logger);
-            workers[i].setTask(task);
+            workers[i] = createWorker(task);
+            workers[i].usePollTimeout(RETIRE_POLL);
             workers[i].start();
         }
+
+        if (config.maxWorkers() > numWorkers) {
+            scaler = new WorkerScaler(scalerConfig(config), workQueue, workers,
+                                      () -> createWorker(task), workerGroup,
+                                      metrics, logger);
+            scaler.start();
+        }
+    }
+
+    private static ScalerConfig scalerConfig(ServerConfig config) {
+        int targetDelay = config.queueDelay() > 0 ? config.queueDelay()
+                                                  : DEFAULT_TARGET_DELAY;
+        return new ScalerConfig(config.numWorkers(),
+                                Math.max(config.numWorkers(), config.maxWorkers()),
+                                targetDelay, RETIRE_AFTER);
+    }
+
+    /**
+     * Creates the executor for bulk requests, unless bulk requests are
+     * served like any other.
+     */
+    private void setupBulkExecutor() {
+        if (config.bulkWorkers() <= 0)
+            return;
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            config.bulkWorkers(), config.bulkWorkers(), 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), daemonThreads("Bulk:"));
+        metrics.gauge("lane.bulk.active", executor::getActiveCount);
+        metrics.gauge("lane.bulk.queued", () -> executor.getQueue().size());
+        bulkExecutor = executor;
+    }
+
+    /**
+     * Creates the threads of an executor, which never keep the JVM running
+     * on their own: executors are shut down along with the server.
+     */
+    private ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(workerGroup, r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Answers healthchecks without running the task, in every server process
+     * set up afterwards. Healthchecks report the server ready while the
+     * database is reachable and fewer connections are queued than the queue
+     * limit, or than four per worker without one, as currently configured.
+     *
+     * Must be called before the server processes are set up.
+     *
+     * @param database Probes the database, {@code true} if reachable.
+     */
+    public void useHealthCheck(BooleanSupplier database) {
+        health = new HealthCheck(database, this::queueDepth, this::maxQueueDepth);
+        metrics.gauge("health.ready", () -> health.isReady() ? 1 : 0);
+    }
+
+    private int maxQueueDepth() {
+        ServerConfig config = this.config;
+        return config.queueLimit() > 0
+             ? config.queueLimit()
+             : READY_QUEUE_PER_WORKER
+               * Math.max(config.numWorkers(), config.maxWorkers());
+    }
+
+    private int queueDepth() {
+        return admission != null ? admission.queued() : workQueue.size();
+    }
+
+    private static WorkerConfig workerConfig(ServerConfig config) {
+        return new WorkerConfig(config.chunkSize(), config.timeout(),
+                                config.autoAppend(), config.idleTimeout());
+    }
+
+    private ProxyServerWorker createWorker(ProxyServerTask task) {
+        ProxyServerWorker worker = new ProxyServerWorker(workerConfig(config),
+                                                         workQueue, logger);
+        worker.setTask(task);
+        worker.usePipelineExecutor(taskExecutor);
+        worker.useBulkExecutor(bulkExecutor);
+        worker.useHealthCheck(health);
+        worker.useAdmissionController(admission);
+        worker.useRequestStages(stages);
+        worker.useConnectionLimiter(limiter);
+        return worker;
+    }
+
+    /**
+     * Sets up a dispatcher that serves every connection on its own virtual
+     * thread with the specified task, instead of a fixed number of workers.
+     *
+     * All connections are served by the same {@code ProxyServerWorker}
+     * through {@code ProxyServerWorker.serve}, so the task contract is the
+     * same as with {@code setupWorkers}.
+     *
+     * @see {@link setupWorkers(ProxyServerTask)}
+     *
+     * @param task The task to be executed for every connection.
+     */
+    public void setupDispatcher(ProxyServerTask task) {
+        taskExecutor = ProxyServerDispatcher.newThreadPerTaskExecutor(workerGroup);
+        setupBulkExecutor();
+        ProxyServerWorker worker = new ProxyServerWorker(workerConfig(config),
+                                                         workQueue, logger);
+        worker.setTask(task);
+        worker.usePipelineExecutor(taskExecutor);
+        worker.useBulkExecutor(bulkExecutor);
+        worker.useHealthCheck(health);
+        worker.useRequestStages(stages);
+        worker.useConnectionLimiter(limiter);
+
+        if (!ProxyServerDispatcher.supportsVirtualThreads())
+            logger.println("Virtual threads are not supported by this runtime,"
+                         + " using a platform thread per connection.");
+
+        dispatchedWorker = worker;
+        dispatcher = new ProxyServerDispatcher(workQueue, worker, taskExecutor,
+                                               logger);
+        dispatcher.useAdmissionController(admission);
+        dispatcher.useRequestStages(stages);
+        dispatcher.useConnectionLimiter(limiter);
+        dispatcher.start();
     }
 
     /**
@@ -224,26 +505,104 @@ public class ProxyServer implements Runnable {
     }
 
     /**
-     * Returns the listeners used by this ProxyServer
+     * Returns the workers used by this ProxyServer
      */
-    public ProxyServerListener[] getWorkers() {
-        return listeners;
+    public ProxyServerWorker[] getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Sets up the event loops automatically with the specified task to execute.
+     *
+     * This method will spawn the number of event loops specified by
+     * {@code ServerConfig.eventLoops()}. The listener ports are spread over
+     * the event loops, and every event loop accepts connections for the ports
+     * it owns, distributing them over all event loops. Complete requests are
+     * executed by a pool of {@code ServerConfig.numWorkers()} threads.
+     *
+     * @param task The task to be executed for every request.
+     * @throws IOException if an I/O error occurs during setup.
+     */
+    public void setupEventLoops(ProxyServerTask task) throws IOException {
+        if (config.virtualThreads())
+            taskExecutor = ProxyServerDispatcher.newThreadPerTaskExecutor(workerGroup);
+        else
+            taskExecutor = Executors.newFixedThreadPool(config.numWorkers(),
+                                                        daemonThreads("Worker:"));
+        setupBulkExecutor();
+
+        WorkerConfig workerConfig = workerConfig(config);
+
+        eventLoops = new ProxyServerEventLoop[config.eventLoops()];
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i] = new ProxyServerEventLoop(workerConfig,
+                                                     taskExecutor,
+                                                     logger);
+            eventLoops[i].setTask(task);
+            eventLoops[i].useGroup(eventLoops);
+            eventLoops[i].useBulkExecutor(bulkExecutor);
+            eventLoops[i].useHealthCheck(health);
+            eventLoops[i].useAdmissionController(admission);
+            eventLoops[i].useRequestStages(stages);
+            eventLoops[i].useConnectionLimiter(limiter);
+        }
+
+        // Bind every port on exactly one event loop
+        for (int i = 0; i < ports.length; i++)
+            eventLoops[i % eventLoops.length].bind(new ListenerConfig(ports[i]));
+
+        for (ProxyServerEventLoop eventLoop: eventLoops)
+            eventLoop.start();
+    }
+
+    /**
+     * Sets up the admin server on the configured loopback port, serving the
+     * metrics and the latencies recorded by the server processes. It is
+     * started along with the server.
+     *
+     * @see {@code AdminServer}
+     *
+     * @throws IOException if an I/O error occurs when binding the port.
+     */
+    public void setupAdmin() throws IOException {
+        admin = new AdminServer(config.adminPort(), metrics, logger);
+        admin.useProxyServer(this);
+        admin.start();
     }
 
     /**
      * This is a shortcut method that sets up the Proxy Server's listener and
      * worker processes with the specified task to execute.
+     * If event loop mode is enabled, event loops are set up instead. If
+     * virtual threads are enabled, a dispatcher is set up instead of workers.
+     * If an admin port is configured, the admin server is set up as well.
      *
      * @see {@code setupListeners()}
      * @see {@code setupWorkers()}
+     * @see {@code setupDispatcher()}
+     * @see {@code setupEventLoops()}
+     * @see {@code setupAdmin()}
      *
      * @param task The task to be executed by worker threads.
      *
      * @throws IOException if an I/O error occurs during setup.
      */
     public void setup(ProxyServerTask task) throws IOException {
+        FlightRecording.registerEvents();
+
+        if (config.adminPort() > 0)
+            setupAdmin();
+
+        if (usesEventLoops()) {
+            setupEventLoops(task);
+            return;
+        }
+
         setupListeners();
-        setupWorkers(task);
+        if (config.virtualThreads())
+            setupDispatcher(task);
+        else
+            setupWorkers(task);
     }
 
     /**
@@ -252,26 +611,59 @@ public class ProxyServer implements Runnable {
     @Override
     public void run() {
         name = Thread.currentThread().getName();
+
+        if (health != null)
+            health.start();
+
+        if (admin != null) {
+            adminThread = new Thread(admin, "Admin");
+            adminThread.setDaemon(true);
+            adminThread.start();
+        }
+
+        if (usesEventLoops()) {
+            runEventLoops();
+            return;
+        }
+
         createThreads(listeners);
-        createThreads(workers);
+        if (dispatcher != null)
+            createThreads(dispatcher);
+        else
+            createThreads(workers);
+
+        if (scaler != null)
+            scalerThread = new Thread(workerGroup, scaler, "Scaler");
 
         // Initialize shutdown latch for graceful termination
-        shutdownLatch = new CountDownLatch(listeners.length + workers.length);
+        shutdownLatch = new CountDownLatch(listenerThreads.length
+                                         + workerThreads.length
+                                         + (scaler != null ? 1 : 0));
         Arrays.stream(listeners)
               .forEach(l -> l.useShutdownLatch(shutdownLatch));
-        Arrays.stream(workers)
-              .forEach(l -> l.useShutdownLatch(shutdownLatch));
+        if (dispatcher != null)
+            dispatcher.useShutdownLatch(shutdownLatch);
+        else
+            Arrays.stream(workers)
+                  .forEach(l -> l.useShutdownLatch(shutdownLatch));
+        if (scaler != null)
+            scaler.useShutdownLatch(shutdownLatch);
 
         // Add shutdown hook to wait for thread termination and close logger
         Runtime.getRuntime().addShutdownHook(new Thread() {
             @Override
             public void run() {
+                stopAdded();
                 try {
                     shutdownLatch.await();
                 } catch (InterruptedException e) {
                     logger.println(name + ": " +  e.getMessage());
                 }
 
+                if (taskExecutor != null)
+                    taskExecutor.shutdownNow();
+                if (bulkExecutor != null)
+                    bulkExecutor.shutdownNow();
                 logger.close();
             }
         });
@@ -280,20 +672,111 @@ public class ProxyServer implements Runnable {
         Stream.concat(Arrays.stream(listenerThreads),
                       Arrays.stream(workerThreads))
               .forEach(t -> t.start());
+        if (scalerThread != null)
+            scalerThread.start();
+
+        logger.println("Server up!\n");
+    }
+
+    private void runEventLoops() {
+        createThreads(eventLoops);
+
+        // Initialize shutdown latch for graceful termination
+        shutdownLatch = new CountDownLatch(eventLoops.length);
+        Arrays.stream(eventLoops)
+              .forEach(e -> e.useShutdownLatch(shutdownLatch));
+
+        // Add shutdown hook to wait for thread termination, then release the
+        // task threads and close logger
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    shutdownLatch.await();
+                } catch (InterruptedException e) {
+                    logger.println(name + ": " +  e.getMessage());
+                }
+
+                taskExecutor.shutdownNow();
+                if (bulkExecutor != null)
+                    bulkExecutor.shutdownNow();
+                logger.close();
+            }
+        });
+
+        Arrays.stream(eventLoopThreads).forEach(t -> t.start());
 
         logger.println("Server up!\n");
     }
 
     /**
-     * Stops the Proxy Server by terminating all listener and worker threads.
+     * Stops the listeners and workers created while running, which are left
+     * out of the shutdown latch, along with the created workers still
+     * finishing their connection after being retired.
+     */
+    synchronized void stopAdded() {
+        List<Closeable> added = new ArrayList<>();
+        for (ProxyServerListener listener: addedListeners)
+            added.add(listener::stop);
+        for (ProxyServerWorker worker: addedWorkers.keySet())
+            added.add(worker::stop);
+
+        for (Closeable component: added) {
+            try { component.close(); }
+            catch (IOException e) { logger.println(name + ": " +  e.getMessage()); }
+        }
+    }
+
+    /**
+     * Stops the Proxy Server by terminating all listener and worker threads,
+     * or all event loop threads in event loop mode, along with the executors
+     * and the logging thread. The log stream itself is closed on exit.
      */
     public void stop() {
+        if (health != null)
+            health.stop();
+
+        if (admin != null) {
+            try { admin.stop(); }
+            catch (IOException e) { logger.println(name + ": " +  e.getMessage()); }
+        }
+
+        if (usesEventLoops()) {
+            Arrays.stream(eventLoops).forEach(e -> {
+                try { e.stop(); }
+                catch (IOException ex) { logger.println(name + ": " +  ex.getMessage()); }
+            });
+        } else {
+            stopProcesses();
+        }
+
+        if (taskExecutor != null)
+            taskExecutor.shutdownNow();
+        if (bulkExecutor != null)
+            bulkExecutor.shutdownNow();
+        logger.shutdown();
+    }
+
+    private void stopProcesses() {
+        stopAdded();
+
         // Stop all listeners
         Arrays.stream(listeners).forEach(l -> {
             try { l.stop();}
             catch (IOException e) { logger.println(name + ": " +  e.getMessage()); }
         });
 
+        // Stop the dispatcher, if any
+        if (dispatcher != null) {
+            try { dispatcher.stop(); }
+            catch (IOException e) { logger.println(name + ": " +  e.getMessage()); }
+            return;
+        }
+
+        // Stop the workers added on demand first, so none are added anymore
+        if (scaler != null)
+            scaler.stop();
+
         // Stop all workers
         Arrays.stream(workers).forEach(w -> {
             try { w.stop(); }
@@ -301,14 +784,326 @@ public class ProxyServer implements Runnable {
         });
     }
 
+    /**
+     * Returns the current configuration of this ProxyServer
+     */
+    public ServerConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Counts the threads that may run the task at once with a configuration,
+     * which are the workers at their most, the threads they fan pipelined
+     * requests out to, or the event loops hand requests to, and the bulk
+     * workers. Virtual threads are not bounded, so only the bulk workers are
+     * counted with them.
+     *
+     * @param config The server configuration.
+     *
+     * @return The number of threads.
+     */
+    public static int taskThreads(ServerConfig config) {
+        int threads = config.bulkWorkers();
+        if (config.virtualThreads())
+            return threads;
+
+        if (config.eventLoops() > 0)
+            return threads + config.numWorkers();
+
+        return threads + Math.max(config.numWorkers(), config.maxWorkers())
+                       + config.numWorkers();
+    }
+
+    /**
+     * Tells a listener about every configuration applied by
+     * {@link #reconfigure(Map)}, once applied, such as to size what depends on
+     * the number of workers.
+     *
+     * @param listener Receives the new configuration, on the thread
+     *                 reconfiguring the server.
+     */
+    public void useReconfigureListener(Consumer<ServerConfig> listener) {
+        this.reconfigureListener = listener;
+    }
+
+    /**
+     * Returns the names of the settings that can be changed while the server
+     * runs in its mode, {@link #EVENT_LOOP_SETTINGS} in event loop mode and
+     * {@link #SETTINGS} otherwise.
+     */
+    public List<String> getSettingNames() {
+        return usesEventLoops() ? EVENT_LOOP_SETTINGS : SETTINGS;
+    }
+
+    /**
+     * Returns the current value of every setting that can be changed while
+     * the server runs in its mode, in the order of
+     * {@link #getSettingNames()}.
+     */
+    public Map<String, Integer> getSettings() {
+        ServerConfig config = this.config;
+        Map<String, Integer> settings = new LinkedHashMap<>();
+        settings.put("num-listeners", config.numListeners());
+        settings.put("num-workers", config.numWorkers());
+        settings.put("max-workers", config.maxWorkers());
+        settings.put("chunk-size", config.chunkSize());
+        settings.put("timeout", config.timeout());
+        settings.put("keep-alive", config.idleTimeout());
+        settings.put("queue-limit", config.queueLimit());
+        settings.put("queue-delay", config.queueDelay());
+        settings.keySet().retainAll(getSettingNames());
+        return settings;
+    }
+
+    /**
+     * Changes settings of the running server, either all of them or none.
+     *
+     * Listeners are added on the ports following the port hint, and removed
+     * from the last one on, without dropping the connections they queued.
+     * Workers are added right away, and removed workers finish the
+     * connection they are serving first. The chunk size and timeouts apply
+     * to connections taken by a worker afterwards. Queue limits can only be
+     * tuned if admission control was enabled at startup, and the maximum
+     * number of workers if worker scaling was. In event loop mode, only the
+     * queue limits can be changed.
+     *
+     * @param settings The new values, by the names in {@link #SETTINGS}.
+     *
+     * @throws IllegalArgumentException if a setting is unknown or its value
+     *                                  is invalid.
+     * @throws IllegalStateException    if a setting cannot be changed in the
+     *                                  current mode, even to its current
+     *                                  value.
+     * @throws IOException              if a listener could not be added.
+     */
+    public synchronized void reconfigure(Map<String, Integer> settings)
+        throws IOException {
+        for (String setting: settings.keySet())
+            if (!SETTINGS.contains(setting))
+                throw new IllegalArgumentException("Unknown setting: " + setting);
+        for (String setting: settings.keySet())
+            if (!getSettingNames().contains(setting))
+                throw new IllegalStateException("Only queue limits can be changed"
+                                              + " in event loop mode");
+
+        ServerConfig old = config;
+        ServerConfig next = new ServerConfig(
+            settings.getOrDefault("num-listeners", old.numListeners()),
+            settings.getOrDefault("num-workers", old.numWorkers()),
+            old.portHint(),
+            old.portList(),
+            settings.getOrDefault("chunk-size", old.chunkSize()),
+            old.autoAppend(),
+            settings.getOrDefault("timeout", old.timeout()),
+            old.logFilePath(),
+            old.eventLoops(),
+            old.virtualThreads(),
+            settings.getOrDefault("keep-alive", old.idleTimeout()),
+            settings.getOrDefault("queue-limit", old.queueLimit()),
+            settings.getOrDefault("queue-delay", old.queueDelay()),
+            settings.getOrDefault("max-workers", old.maxWorkers()),
+            old.bulkWorkers(),
+            old.adminPort(),
+            old.clientRate(),
+            old.clientConnections()
+        );
+        checkReconfiguration(old, next);
+
+        // Only adding listeners may fail, so do it before anything changes
+        if (next.numListeners() != old.numListeners())
+            resizeListeners(next.numListeners());
+        config = next;
+
+        if (next.queueLimit() != old.queueLimit()
+            || next.queueDelay() != old.queueDelay())
+            admission.useLimits(next.queueLimit(), next.queueDelay());
+
+        if (!usesEventLoops()) {
+            WorkerConfig workerConfig = workerConfig(next);
+            if (dispatchedWorker != null)
+                dispatchedWorker.useConfig(workerConfig);
+            if (workers != null)
+                for (ProxyServerWorker worker: workers)
+                    worker.useConfig(workerConfig);
+            if (scaler != null)
+                scaler.useWorkerConfig(workerConfig);
+
+            if (workers != null && next.numWorkers() != old.numWorkers())
+                resizeWorkers(next.numWorkers());
+            if (scaler != null)
+                scaler.useConfig(scalerConfig(next));
+        }
+
+        if (reconfigureListener != null)
+            reconfigureListener.accept(next);
+
+        logger.println("Reconfigured " + settings);
+    }
+
+    private void checkReconfiguration(ServerConfig old, ServerConfig next) {
+        if (next.numListeners() < 1)
+            throw new IllegalArgumentException("Cannot have fewer than 1 listeners.");
+        if (next.numWorkers() < 1)
+            throw new IllegalArgumentException("Cannot have fewer than 1 workers.");
+        if (next.chunkSize() <= 0)
+            throw new IllegalArgumentException("Chunk size must be positive");
+        if (next.timeout() <= 0)
+            throw new IllegalArgumentException("Timeout must be positive");
+        if (next.idleTimeout() < 0)
+            throw new IllegalArgumentException("Keep alive timeout cannot be negative");
+        if (next.queueLimit() < 0)
+            throw new IllegalArgumentException("Queue limit cannot be negative");
+        if (next.queueDelay() < 0)
+            throw new IllegalArgumentException("Queue delay cannot be negative");
+        if (next.maxWorkers() != 0 && next.maxWorkers() < next.numWorkers())
+            throw new IllegalArgumentException("Cannot have fewer max workers than workers.");
+
+        if (listenerThreads == null && eventLoopThreads == null)
+            throw new IllegalStateException("The server is not running yet");
+
+        boolean queueChanged = next.queueLimit() != old.queueLimit()
+                            || next.queueDelay() != old.queueDelay();
+        if (queueChanged && admission == null)
+            throw new IllegalStateException("Queue limits can only be tuned if"
+                                          + " set at startup");
+
+        // Only the queue limits were given, as reconfigure checked
+        if (usesEventLoops())
+            return;
+
+        if (next.numListeners() > ports.length && old.portList() != null)
+            throw new IllegalStateException("Cannot listen on more than the "
+                                          + ports.length + " ports listed");
+
+        boolean workersChanged = next.numWorkers() != old.numWorkers()
+                              || next.maxWorkers() != old.maxWorkers();
+        if (workersChanged && workers == null)
+            throw new IllegalStateException("The number of workers cannot be"
+                                          + " changed with virtual threads");
+        if (next.maxWorkers() != old.maxWorkers() && scaler == null)
+            throw new IllegalStateException("Max workers can only be changed if"
+                                          + " set at startup");
+    }
+
+    /**
+     * Starts or stops the last listeners until the given number run. Fails
+     * without any change if a port cannot be bound.
+     */
+    private void resizeListeners(int numListeners) throws IOException {
+        int current = listeners.length;
+        ProxyServerListener[] resized = Arrays.copyOf(listeners, numListeners);
+        Thread[] threads = Arrays.copyOf(listenerThreads, numListeners);
+
+        for (int i = current; i < numListeners; i++) {
+            int port = i < ports.length ? ports[i] : config.portHint() + i;
+            try {
+                resized[i] = createListener(port);
+                resized[i].bind();  // Stopped by the shutdown hook of this server
+            } catch (IOException e) {
+                for (int j = current; j < i; j++)
+                    resized[j].stop();
+                throw e;
+            }
+            threads[i] = new Thread(listenerGroup, resized[i], "Listener:" + port);
+        }
+
+        for (int i = current; i < numListeners; i++) {
+            addedListeners.add(resized[i]);
+            threads[i].start();
+        }
+
+        // Connections queued already are still served
+        for (int i = numListeners; i < current; i++) {
+            listeners[i].stop();
+            addedListeners.remove(listeners[i]);
+        }
+
+        // Their port is only released once their accept returns, so it can be
+        // bound again by the next resize
+        try {
+            for (int i = numListeners; i < current; i++)
+                listenerThreads[i].join(RETIRE_POLL);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        listeners = resized;
+        listenerThreads = threads;
+    }
+
+    /**
+     * Starts or retires the last workers until the given number run, and
+     * resizes the pool for pipelined requests along.
+     */
+    private void resizeWorkers(int numWorkers) {
+        int current = workers.length;
+        ProxyServerWorker[] resized = Arrays.copyOf(workers, numWorkers);
+        Thread[] threads = Arrays.copyOf(workerThreads, numWorkers);
+
+        for (int i = current; i < numWorkers; i++) {
+            resized[i] = createWorker(task);
+            resized[i].usePollTimeout(RETIRE_POLL);
+            resized[i].activate();  // Stopped by the shutdown hook of this server
+            threads[i] = new Thread(workerGroup, resized[i], "Worker:" + (i + 1));
+            addedWorkers.put(resized[i], threads[i]);
+            threads[i].start();
+        }
+
+        // Retired workers finish the connection they are serving first, and
+        // are forgotten once their thread ends
+        addedWorkers.values().removeIf(thread -> !thread.isAlive());
+        for (int i = numWorkers; i < current; i++)
+            workers[i].retire();
+
+        workers = resized;
+        workerThreads = threads;
+        if (scaler != null)
+            scaler.useBaseWorkers(resized);
+
+        if (taskExecutor instanceof ThreadPoolExecutor pool) {
+            // The core size may never exceed the maximum size
+            if (numWorkers > pool.getMaximumPoolSize()) {
+                pool.setMaximumPoolSize(numWorkers);
+                pool.setCorePoolSize(numWorkers);
+            } else {
+                pool.setCorePoolSize(numWorkers);
+                pool.setMaximumPoolSize(numWorkers);
+            }
+        }
+    }
+
+    /**
+     * Returns the metrics of this ProxyServer
+     */
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the admission controller of this ProxyServer, or {@code null}
+     * if neither a queue limit nor a queue delay target is configured.
+     */
+    public AdmissionController getAdmissionController() {
+        return admission;
+    }
+
     /**
      * Blocks current thread and waits for the Proxy Server to terminate.
      */
     public void waitForTermination() throws InterruptedException {
+        if (usesEventLoops()) {
+            for (Thread t: eventLoopThreads)
+                t.join();
+            return;
+        }
+
         for (Thread t: listenerThreads)
             t.join();
 
         for (Thread t: workerThreads)
             t.join();
+
+        if (scalerThread != null)
+            scalerThread.join();
     }
 }
@@ -0,0 +1,277 @@
+package com.cs506.project.server;
+
+import com.cs506.project.events.ConnectionDequeuedEvent;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Represents a thread-per-connection dispatcher in the Proxy Server.
+ *
+ * This class implements the Runnable interface, allowing instances of
+ * ProxyServerDispatcher to be executed in a separate thread.
+ *
+ * The dispatcher retrieves incoming client connections from the shared work
+ * queue, and serves each of them on its own virtual thread using
+ * {@code ProxyServerWorker.serve}. Concurrency therefore grows with the load
+ * instead of being capped by the number of workers. On runtimes without
+ * virtual threads, a platform thread per connection is used instead.
+ */
+public class ProxyServerDispatcher implements Runnable {
+    private boolean active;
+    private final BlockingQueue<Socket> workQueue;
+    private final ProxyServerWorker worker;
+    private final PrintStream logger;
+    private final ExecutorService executor;
+    private final Set<Socket> clients;
+    private CountDownLatch shutdownLatch;
+    private AdmissionController admission;
+    private RequestStages stages;
+    private ConnectionLimiter limiter;
+    private String name;
+
+    /**
+     * Constructs a new ProxyServerDispatcher that serves the connections
+     * of the given work queue with the given worker.
+     * The default log output stream is set to System.out.
+     *
+     * @param workQueue The shared queue for incoming client connections.
+     * @param worker    The worker used to serve every connection.
+     * @param executor  The executor running one task per connection.
+     */
+    public ProxyServerDispatcher(BlockingQueue<Socket> workQueue,
+                                 ProxyServerWorker worker,
+                                 ExecutorService executor) {
+        this(workQueue, worker, executor, System.out);
+    }
+
+    /**
+     * Constructs a new ProxyServerDispatcher that serves the connections
+     * of the given work queue with the given worker, and log output stream.
+     *
+     * @param workQueue The shared queue for incoming client connections.
+     * @param worker    The worker used to serve every connection.
+     * @param executor  The executor running one task per connection.
+     * @param logger    The output stream for logging dispatcher activity.
+     */
+    public ProxyServerDispatcher(BlockingQueue<Socket> workQueue,
+                                 ProxyServerWorker worker,
+                                 ExecutorService executor,
+                                 PrintStream logger) {
+        this.workQueue = workQueue;
+        this.worker = worker;
+        this.executor = executor;
+        this.logger = logger;
+        this.clients = ConcurrentHashMap.newKeySet();
+        this.shutdownLatch = null;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for every task.
+     *
+     * Virtual threads are only available from JDK 21 onwards, so they are
+     * looked up reflectively. When they are unavailable, a cached pool of
+     * platform threads in the given thread group is returned instead.
+     *
+     * @param group The thread group for platform threads.
+     *
+     * @return An executor running every task on its own thread.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(ThreadGroup group) {
+        try {
+            return newVirtualThreadExecutor();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(group, r, "Worker:" + count.incrementAndGet());
+                thread.setDaemon(true);  // Like virtual threads
+                return thread;
+            });
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor()
+        throws ReflectiveOperationException {
+        Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        builder = builderClass.getMethod("name", String.class, long.class)
+                              .invoke(builder, "Worker:", 1L);
+        ThreadFactory factory = (ThreadFactory) builderClass
+                              .getMethod("factory").invoke(builder);
+
+        return (ExecutorService) Executors.class
+            .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+            .invoke(null, factory);
+    }
+
+    /**
+     * Indicates whether virtual threads are supported by the current runtime,
+     * by building an executor of them. Runtimes where they are a preview
+     * feature that is not enabled do not support them.
+     *
+     * @return {@code true} if virtual threads are available,
+     *         {@code false} otherwise
+     */
+    public static boolean supportsVirtualThreads() {
+        try {
+            newVirtualThreadExecutor().shutdown();
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Indicates whether or not the current dispatcher is active
+     *
+     * @return {@code true} if the current dispatcher is active,
+     *         {@code false} otherwise
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    public void useShutdownLatch(CountDownLatch latch) {
+        this.shutdownLatch = latch;
+    }
+
+    /**
+     * Sets the admission controller deciding which queued connections are
+     * shed instead of served.
+     *
+     * @param admission The admission controller, or {@code null}.
+     */
+    public void useAdmissionController(AdmissionController admission) {
+        this.admission = admission;
+    }
+
+    /**
+     * Sets the stages the queue latencies of connections are recorded into.
+     * Without them, nothing is recorded.
+     *
+     * @param stages The request stages, or {@code null}.
+     */
+    public void useRequestStages(RequestStages stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * Sets the limiter the connections of every client are counted by.
+     * Connections turned away here are released.
+     *
+     * @param limiter The connection limiter, or {@code null}.
+     */
+    public void useConnectionLimiter(ConnectionLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    public void start() {
+        this.active = true;
+
+        ProxyServerDispatcher dispatcher = this;
+
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try { dispatcher.stop(); }
+                catch (IOException e) { logger.println(name + ": " +  e.getMessage()); }
+
+                if (dispatcher.shutdownLatch != null)
+                    dispatcher.shutdownLatch.countDown();
+                active = false;
+            }
+        });
+    }
+
+    /**
+     * Executes the dispatcher thread logic.
+     * This method is called when the thread is started.
+     */
+    @Override
+    public void run() {
+        name = Thread.currentThread().getName();
+
+        while (active && !Thread.interrupted()) {
+            Socket client;
+            try {
+                client = workQueue.take();
+            } catch (InterruptedException e) {
+                logger.println(name + ": " +  e.getMessage());
+                break;
+            }
+
+            long waited = stages != null ? stages.dequeued(client) : -1;
+
+            // Waited too long in the queue, the client is better off failing
+            if (admission != null && admission.dequeue(client)) {
+                ConnectionDequeuedEvent.emit(waited, true);
+                if (limiter != null)
+                    limiter.release(client);
+                admission.reject(client);
+                continue;
+            }
+            ConnectionDequeuedEvent.emit(waited, false);
+
+            clients.add(client);
+            try {
+                executor.execute(() -> {
+                    // Closed by the worker, possibly after handing it over
+                    try {
+                        worker.serve(client);
+                    } finally {
+                        clients.remove(client);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                logger.println(name + ": " +  e.getMessage());
+                clients.remove(client);
+                close(client);
+                if (limiter != null)
+                    limiter.release(client);
+            }
+        }
+
+        // Stop in case current thread was interrupted
+        try {
+            stop();
+        } catch (IOException e) {
+            logger.println(name + ": " +  e.getMessage());
+        }
+    }
+
+    private void close(Socket client) {
+        try {
+            client.close();
+        } catch (IOException e) {
+            logger.println(Thread.currentThread().getName()
+                         + ": " +  e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the dispatcher, closing all connections that are still being
+     * served.
+     *
+     * @throws IOException if an I/O error occurs when closing a connection.
+     */
+    public void stop() throws IOException {
+        executor.shutdown();
+        for (Socket client: clients)
+            client.close();
+
+        if (active) {
+            active = false;
+            logger.println(name + " going down!");
+        }
+    }
+}
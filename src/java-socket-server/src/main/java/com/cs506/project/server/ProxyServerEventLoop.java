@@ -0,0 +1,754 @@
+package com.cs506.project.server;
+
+import com.cs506.project.configs.ListenerConfig;
+import com.cs506.project.configs.WorkerConfig;
+import com.cs506.project.utils.AsyncLogger;
+import com.cs506.project.utils.BufferPool;
+import com.cs506.project.utils.FrameDecoder;
+import com.cs506.project.utils.FrameDecoder.Framing;
+import com.cs506.project.utils.SocketIO;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Represents a non-blocking event loop in the Proxy Server.
+ *
+ * This class implements the Runnable interface, allowing instances of
+ * ProxyServerEventLoop to be executed concurrently in separate threads.
+ *
+ * An event loop multiplexes many client connections over a single
+ * {@code Selector}. It accepts connections on the ports bound to it, reads
+ * requests and writes responses without blocking, and only hands complete
+ * requests to the task executor. Slow or idle clients therefore never occupy
+ * a task thread. If keep alive is enabled, clients that delimit their
+ * requests, either with a NUL byte or a length prefix, may send several
+ * requests over one connection. Pipelined clients may send requests without
+ * waiting for responses, which are then handled concurrently and written
+ * back as they complete.
+ */
+public class ProxyServerEventLoop implements Runnable {
+    private final WorkerConfig config;
+    private final Selector selector;
+    private final Executor executor;
+    private final PrintStream logger;
+    private final ByteBuffer readBuffer;
+
+    // Work submitted from other threads, executed on the event loop thread
+    private final Queue<Runnable> pending;
+
+    // Event loops that accepted connections are distributed over
+    private ProxyServerEventLoop[] group;
+    private int next;
+
+    private ProxyServerTask task;
+    private Executor bulkExecutor;
+    private HealthCheck health;
+    private AdmissionController admission;
+    private RequestStages stages;
+    private ConnectionLimiter limiter;
+    private CountDownLatch shutdownLatch;
+    private volatile boolean active;
+    private String name;
+
+    /**
+     * Per connection state, only ever touched by the owning event loop thread.
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final FrameDecoder decoder;
+        private ByteBuffer response;
+        private long lastActive;
+        private boolean framed;  // Whether the client delimits its requests
+        private long readStart;  // When the current request started arriving
+        private long writeStart; // When the current response started writing
+
+        // Pipelined connections only
+        private final Queue<ByteBuffer> responses;
+        private int inFlight;    // Requests handed to the executor
+        private boolean eof;     // Whether the client is done sending requests
+
+        private Connection(SocketChannel channel, int chunkSize) {
+            this.channel = channel;
+            this.decoder = new FrameDecoder(chunkSize);
+            this.lastActive = System.currentTimeMillis();
+            this.framed = false;
+            this.responses = new ArrayDeque<>();
+            this.inFlight = 0;
+            this.eof = false;
+        }
+    }
+
+    /**
+     * Constructs a new ProxyServerEventLoop with the specified configuration
+     * and task executor.
+     * The default log output stream is set to System.out.
+     *
+     * @param config   The configuration settings for the connections.
+     * @param executor The executor complete requests are handed to.
+     *
+     * @throws IOException if an I/O error occurs when opening the Selector.
+     */
+    public ProxyServerEventLoop(WorkerConfig config, Executor executor)
+        throws IOException {
+        this(config, executor, System.out);
+    }
+
+    /**
+     * Constructs a new ProxyServerEventLoop with the specified configuration,
+     * task executor, and log output stream.
+     *
+     * @param config   The configuration settings for the connections.
+     * @param executor The executor complete requests are handed to.
+     * @param logger   The output stream for logging event loop activity.
+     *
+     * @throws IOException if an I/O error occurs when opening the Selector.
+     */
+    public ProxyServerEventLoop(WorkerConfig config,
+                                Executor executor,
+                                PrintStream logger) throws IOException {
+        this.config = config;
+        this.executor = executor;
+        this.logger = logger;
+        this.selector = Selector.open();
+        this.readBuffer = ByteBuffer.allocateDirect(config.chunkSize());
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.group = new ProxyServerEventLoop[]{ this };
+        this.next = 0;
+        this.shutdownLatch = null;
+    }
+
+    public void useShutdownLatch(CountDownLatch latch) {
+        this.shutdownLatch = latch;
+    }
+
+    /**
+     * Distributes the connections accepted by this event loop over the given
+     * event loops, in a round robin fashion.
+     *
+     * @param group The event loops to distribute connections over.
+     */
+    public void useGroup(ProxyServerEventLoop[] group) {
+        this.group = group;
+    }
+
+    /**
+     * Sets the admission controller deciding which requests are handed to the
+     * executor, and which are answered right away with a busy response.
+     *
+     * @param admission The admission controller, or {@code null}.
+     */
+    public void useAdmissionController(AdmissionController admission) {
+        this.admission = admission;
+    }
+
+    /**
+     * Sets the stages the latencies of connections and requests are recorded
+     * into. The queue stage is the wait of a request for the executor.
+     * Without them, nothing is recorded.
+     *
+     * @param stages The request stages, or {@code null}.
+     */
+    public void useRequestStages(RequestStages stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * Sets the limiter deciding which clients may open more connections.
+     * Without one, every client may open as many as it likes.
+     *
+     * @param limiter The connection limiter, or {@code null}.
+     */
+    public void useConnectionLimiter(ConnectionLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    /**
+     * Sets the executor {@link RequestClassifier.Lane#BULK} requests are
+     * handed to, so that cheaper requests are never stuck behind them.
+     * Without one, all requests are handed to the same executor.
+     *
+     * @param executor The executor for bulk requests, or {@code null}.
+     */
+    public void useBulkExecutor(Executor executor) {
+        this.bulkExecutor = executor;
+    }
+
+    /**
+     * Sets the health check that answers healthchecks on the loop itself,
+     * without going through the executor. Without one, healthchecks are
+     * handed to the task like any other request.
+     *
+     * @param health The health check, or {@code null}.
+     */
+    public void useHealthCheck(HealthCheck health) {
+        this.health = health;
+    }
+
+    /**
+     * Sets the task to be executed for every complete request.
+     *
+     * @param task The task to be executed.
+     */
+    public void setTask(ProxyServerTask task) {
+        this.task = task;
+    }
+
+    /**
+     * Indicates whether or not the current event loop is active
+     *
+     * @return {@code true} if the current event loop is active,
+     *         {@code false} otherwise
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Binds a non-blocking server socket to the port of the given listener
+     * configuration, and accepts its connections on this event loop.
+     *
+     * @param config The listener configuration holding the port to bind.
+     *
+     * @throws IOException if an I/O error occurs when binding the socket.
+     */
+    public void bind(ListenerConfig config) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(config.port()));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        logger.println("Bound to port " + config.port());
+    }
+
+    public void start() {
+        this.active = true;
+
+        ProxyServerEventLoop loop = this;
+
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try { loop.stop(); }
+                catch (IOException e) { logger.println(name + ": " +  e.getMessage()); }
+
+                if (loop.shutdownLatch != null)
+                    loop.shutdownLatch.countDown();
+            }
+        });
+    }
+
+    /**
+     * Executes the event loop thread logic.
+     * This method is called when the thread is started.
+     *
+     * @throws IllegalStateException If no task has been set before running the
+     *                               event loop.
+     */
+    @Override
+    public void run() {
+        name = Thread.currentThread().getName();
+        if (this.task == null) {
+            String errMsg = "Cannot run the event loop when no task is set";
+            throw new IllegalStateException(errMsg);
+        }
+
+        while (active && !Thread.interrupted()) {
+            try {
+                // Wake up at least once per timeout to expire stale clients
+                selector.select(config.timeout());
+            } catch (IOException | ClosedSelectorException e) {
+                if (active)
+                    logger.println(name + ": " +  e.getMessage());
+                break;
+            }
+
+            try {
+                runPending();
+                handleSelected();
+                expireIdle();
+            } catch (ClosedSelectorException e) {
+                break;  // Stopped from another thread
+            } catch (CancelledKeyException e) {
+                // Channels closed by stop() from another thread, while a
+                // response or an expiry was being handled
+                if (!active)
+                    break;
+                logger.println(name + ": " +  e.getMessage());
+            }
+        }
+
+        // Stop in case current thread was interrupted
+        try {
+            stop();
+        } catch (IOException e) {
+            logger.println(name + ": " +  e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the event loop by closing all its channels and its Selector.
+     *
+     * @throws IOException if an I/O error occurs when closing the Selector.
+     */
+    public void stop() throws IOException {
+        if (!selector.isOpen())
+            return;
+
+        active = false;
+        try {
+            for (SelectionKey key: selector.keys())
+                key.channel().close();
+        } catch (ClosedSelectorException e) {}
+
+        selector.close();
+        logger.println(name + " going down!");
+    }
+
+    private void handleSelected() {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+
+            try {
+                if (!key.isValid())
+                    continue;
+
+                if (key.isAcceptable()) {
+                    accept((ServerSocketChannel) key.channel());
+                    continue;
+                }
+
+                // Pipelined connections may read and write at the same time
+                if (key.isWritable())
+                    write(key);
+                if (key.isValid() && key.isReadable())
+                    read(key);
+            } catch (IOException e) {
+                logger.println(name + ": " +  e.getMessage());
+                close(key);
+            }
+        }
+    }
+
+    /**
+     * Schedules the given action to run on the event loop thread.
+     */
+    private void submit(Runnable action) {
+        pending.add(action);
+        selector.wakeup();
+    }
+
+    private void runPending() {
+        Runnable action;
+        while ((action = pending.poll()) != null)
+            action.run();
+    }
+
+    private void accept(ServerSocketChannel server) throws IOException {
+        SocketChannel client;
+        while ((client = server.accept()) != null) {
+            long acceptedAt = System.nanoTime();
+
+            // Turn away clients over their limits, while still blocking
+            if (limiter != null && !limiter.acquire(client.socket())) {
+                limiter.reject(client.socket());
+                continue;
+            }
+
+            client.configureBlocking(false);
+
+            // Log the connection
+            AsyncLogger.access(logger, name, client.socket().getInetAddress(),
+                               client.socket().getPort());
+
+            ProxyServerEventLoop owner = group[next];
+            next = (next + 1) % group.length;
+
+            if (owner == this) {
+                register(client, acceptedAt);
+            } else {
+                SocketChannel channel = client;
+                owner.submit(() -> owner.register(channel, acceptedAt));
+            }
+        }
+    }
+
+    private void register(SocketChannel client, long acceptedAt) {
+        try {
+            client.register(selector, SelectionKey.OP_READ,
+                            new Connection(client, config.chunkSize()));
+        } catch (IOException | ClosedSelectorException e) {
+            logger.println(name + ": " +  e.getMessage());
+            if (limiter != null)
+                limiter.release(client.socket());
+            try { client.close(); } catch (IOException ignored) {}
+            return;
+        }
+
+        if (stages != null)
+            stages.accepted(acceptedAt);
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection conn = (Connection) key.attachment();
+        conn.lastActive = System.currentTimeMillis();
+
+        int nRead;
+        while (true) {
+            ByteBuffer payload = conn.decoder.payloadBuffer();
+            if (payload != null) {
+                // Read the rest of a length prefixed request straight into place
+                if ((nRead = conn.channel.read(payload)) > 0)
+                    conn.decoder.payloadFilled(nRead);
+                if (nRead <= 0 || payload.hasRemaining())
+                    break;
+                continue;
+            }
+
+            readBuffer.clear();
+            if ((nRead = conn.channel.read(readBuffer)) < 0)
+                break;
+            if (nRead > 0 && conn.readStart == 0)
+                conn.readStart = System.nanoTime();
+
+            readBuffer.flip();
+            conn.decoder.feed(readBuffer);
+
+            // If we didn't fill up the buffer, it's likely we've read all data
+            if (nRead < readBuffer.capacity())
+                break;
+        }
+
+        if (conn.decoder.framing() == Framing.PIPELINED) {
+            conn.framed = true;
+            conn.eof |= nRead < 0;
+            dispatchPipelined(key, conn);
+            return;
+        }
+
+        byte[] request = conn.decoder.poll();
+        if (request != null) {
+            conn.framed = true;
+        } else if (conn.decoder.framing() == Framing.LENGTH) {
+            // Length prefixed requests are never guessed at
+            if (nRead < 0)
+                close(key);
+            return;
+        } else if (nRead < 0) {
+            // Client hung up, serve whatever was sent before that
+            if (!conn.decoder.hasPartial()) {
+                close(key);
+                return;
+            }
+            conn.framed = false;
+            request = conn.decoder.drain();
+        } else if (!conn.framed && conn.decoder.hasPartial()) {
+            // Unterminated request, and nothing left to read
+            request = conn.decoder.drain();
+        } else {
+            return;  // Wait for the rest of the request
+        }
+
+        if (stages != null && conn.readStart != 0)
+            stages.read(conn.readStart);
+        conn.readStart = 0;
+
+        dispatch(key, request);
+    }
+
+    private void dispatch(SelectionKey key, byte[] request) {
+        // Stop reading while the request is being handled
+        key.interestOps(0);
+
+        // Answered right away, never queued behind other requests
+        if (health != null && HealthCheck.matches(request)) {
+            Connection conn = (Connection) key.attachment();
+            respond(key, health.encode(conn.decoder.framing(),
+                                       appendNull(conn)));
+            return;
+        }
+
+        long enqueuedAt = admission != null ? admission.tryEnqueue() : 0;
+        if (enqueuedAt < 0) {
+            respond(key, AdmissionController.BUSY_RESPONSE);  // Fail fast
+            return;
+        }
+
+        long queuedAt = System.nanoTime();
+        try {
+            executorFor(request).execute(() -> {
+                String resp;
+                try {
+                    resp = handle(request, enqueuedAt, queuedAt);
+                } catch (RuntimeException e) {
+                    logger.println(Thread.currentThread().getName()
+                                 + ": " +  e.getMessage());
+                    submit(() -> close(key));
+                    return;
+                }
+
+                submit(() -> respond(key, resp));
+            });
+        } catch (RejectedExecutionException e) {
+            logger.println(name + ": " +  e.getMessage());
+            close(key);
+        }
+    }
+
+    /**
+     * Picks the executor for a request, by its lane.
+     */
+    private Executor executorFor(byte[] request) {
+        if (bulkExecutor != null
+            && RequestClassifier.classify(request) == RequestClassifier.Lane.BULK)
+            return bulkExecutor;
+
+        return executor;
+    }
+
+    /**
+     * Handles a request taken from the executor queue, unless it waited in
+     * the queue for too long.
+     */
+    private String handle(byte[] request, long enqueuedAt, long queuedAt) {
+        if (stages != null)
+            stages.dequeued(queuedAt);
+        if (admission != null && admission.dequeue(enqueuedAt))
+            return AdmissionController.BUSY_RESPONSE;
+
+        long start = System.nanoTime();
+        String resp = task.handle(request);
+        if (stages != null)
+            stages.handled(start);
+        return resp;
+    }
+
+    private void respond(SelectionKey key, String resp) {
+        if (!key.isValid())
+            return;
+
+        Connection conn = (Connection) key.attachment();
+        conn.writeStart = System.nanoTime();
+        boolean lengthPrefix = conn.decoder.framing() == Framing.LENGTH;
+        respond(key, SocketIO.encode(resp, lengthPrefix,
+                                     !lengthPrefix && appendNull(conn),
+                                     conn.decoder.acceptsDeflate()));
+    }
+
+    private void respond(SelectionKey key, ByteBuffer response) {
+        Connection conn = (Connection) key.attachment();
+        conn.response = response;
+
+        try {
+            write(key);
+        } catch (IOException e) {
+            logger.println(name + ": " +  e.getMessage());
+            close(key);
+        }
+    }
+
+    /**
+     * Hands the pipelined requests read so far to the executor, up to the
+     * in flight limit of the connection.
+     */
+    private void dispatchPipelined(SelectionKey key, Connection conn) {
+        while (conn.inFlight < ProxyServerPipeline.MAX_IN_FLIGHT) {
+            byte[] request = conn.decoder.poll();
+            if (request == null)
+                break;
+
+            int id = conn.decoder.correlationId();
+            if (health != null && HealthCheck.matches(request)) {
+                conn.responses.add(health.encode(id));
+                continue;
+            }
+
+            long enqueuedAt = admission != null ? admission.tryEnqueue() : 0;
+            if (enqueuedAt < 0) {
+                // Fail fast, the response is written with the others
+                conn.responses.add(SocketIO.encode(
+                    AdmissionController.BUSY_RESPONSE, id));
+                continue;
+            }
+
+            conn.inFlight++;
+            long queuedAt = System.nanoTime();
+            try {
+                executorFor(request).execute(() -> {
+                    String resp;
+                    try {
+                        resp = handle(request, enqueuedAt, queuedAt);
+                    } catch (RuntimeException e) {
+                        logger.println(Thread.currentThread().getName()
+                                     + ": " +  e.getMessage());
+                        submit(() -> close(key));
+                        return;
+                    }
+
+                    submit(() -> respondPipelined(key, id, resp));
+                });
+            } catch (RejectedExecutionException e) {
+                logger.println(name + ": " +  e.getMessage());
+                close(key);
+                return;
+            }
+        }
+
+        updatePipelined(key, conn);
+    }
+
+    private void respondPipelined(SelectionKey key, int id, String resp) {
+        if (!key.isValid())
+            return;
+
+        Connection conn = (Connection) key.attachment();
+        conn.inFlight--;
+        conn.responses.add(SocketIO.encode(resp, id,
+                                           conn.decoder.acceptsDeflate()));
+
+        try {
+            write(key);
+        } catch (IOException e) {
+            logger.println(name + ": " +  e.getMessage());
+            close(key);
+        }
+    }
+
+    private void writePipelined(SelectionKey key, Connection conn)
+        throws IOException {
+        // Write responses in the order they completed
+        while (conn.response != null
+               || (conn.response = conn.responses.poll()) != null) {
+            conn.channel.write(conn.response);
+
+            // Socket buffer is full, wait until the client catches up
+            if (conn.response.hasRemaining())
+                break;
+
+            BufferPool.DIRECT.release(conn.response);
+            conn.response = null;
+        }
+
+        // Requests held back by the in flight limit may go now
+        dispatchPipelined(key, conn);
+    }
+
+    private void updatePipelined(SelectionKey key, Connection conn) {
+        boolean unwritten = conn.response != null || !conn.responses.isEmpty();
+        if (conn.eof && conn.inFlight == 0 && !unwritten) {
+            close(key);  // Every request was answered
+            return;
+        }
+
+        int ops = 0;
+        if (!conn.eof && conn.inFlight < ProxyServerPipeline.MAX_IN_FLIGHT)
+            ops |= SelectionKey.OP_READ;
+        if (unwritten)
+            ops |= SelectionKey.OP_WRITE;
+        key.interestOps(ops);
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        Connection conn = (Connection) key.attachment();
+        conn.lastActive = System.currentTimeMillis();
+        if (conn.decoder.framing() == Framing.PIPELINED) {
+            writePipelined(key, conn);
+            return;
+        }
+
+        conn.channel.write(conn.response);
+
+        // Socket buffer is full, wait until the client catches up
+        if (conn.response.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_WRITE);
+            return;
+        }
+
+        // Request complete!
+        BufferPool.DIRECT.release(conn.response);
+        conn.response = null;
+        if (stages != null && conn.writeStart != 0)
+            stages.written(conn.writeStart);
+        conn.writeStart = 0;
+        if (!keepAlive(conn)) {
+            close(key);
+            return;
+        }
+
+        // Serve requests the client already sent, or wait for the next one
+        byte[] request = conn.decoder.poll();
+        if (request != null)
+            dispatch(key, request);
+        else
+            key.interestOps(SelectionKey.OP_READ);
+    }
+
+    // Responses on a kept alive connection must be delimited
+    private boolean appendNull(Connection conn) {
+        return keepAlive(conn) || config.autoAppend();
+    }
+
+    private boolean keepAlive(Connection conn) {
+        return conn.framed && config.keepAlive();
+    }
+
+    /**
+     * Closes connections that have been stuck mid request for longer than
+     * the read timeout, or kept alive without a request for longer than the
+     * idle timeout.
+     */
+    private void expireIdle() {
+        long now = System.currentTimeMillis();
+        for (SelectionKey key: selector.keys()) {
+            if (!key.isValid() || !(key.attachment() instanceof Connection conn))
+                continue;
+
+            // Connections awaiting a response are not idle
+            if (key.interestOps() == 0 || conn.inFlight > 0)
+                continue;
+
+            int timeout = keepAlive(conn) && !conn.decoder.hasPartial()
+                        ? config.idleTimeout() : config.timeout();
+            if (conn.lastActive < now - timeout)
+                close(key);
+        }
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        if (limiter != null && key.channel() instanceof SocketChannel channel
+            && channel.isOpen())
+            limiter.release(channel.socket());
+
+        if (key.attachment() instanceof Connection conn) {
+            BufferPool.DIRECT.release(conn.response);
+            conn.response = null;
+
+            ByteBuffer response;
+            while ((response = conn.responses.poll()) != null)
+                BufferPool.DIRECT.release(response);
+        }
+
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            logger.println(name + ": " +  e.getMessage());
+        }
+    }
+}
@@ -1,16 +1,19 @@
 package com.cs506.project.server;
 
 import com.cs506.project.configs.ListenerConfig;
+import com.cs506.project.events.ConnectionAcceptedEvent;
+import com.cs506.project.events.ConnectionQueuedEvent;
+import com.cs506.project.utils.AsyncLogger;
 
 import java.io.IOException;
 import java.io.PrintStream;
 import java.net.InetSocketAddress;
-import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
-import java.util.Formatter;
 
 
 /**
@@ -22,24 +25,22 @@ import java.util.Formatter;
  * The listener listens for incoming client connections and enqueues them
  * into a shared work queue for processing by worker threads.
  *
+ * Connections are accepted through a channel, so that the sockets handed to
+ * the workers can be written to with pooled direct buffers.
+ *
  * @author Mrigank Kumar
  */
 public class ProxyServerListener implements Runnable {
     private final ListenerConfig config;
     private final BlockingQueue<Socket> workQueue;
-    private final ServerSocket serverSocket;
+    private final ServerSocketChannel serverSocket;
     private final PrintStream logger;
-    private final Formatter formatter;
     private CountDownLatch shutdownLatch;
+    private AdmissionController admission;
+    private RequestStages stages;
+    private ConnectionLimiter limiter;
     private String name;
 
-    private final static String timeFormat;
-
-    static {
-        // Formats date/time as "yy/mm/dd hh:mm:ss"
-        timeFormat = "%1$ty/%1$tm/%1$td %1$tH:%1$tM:%1$tS";
-    }
-
     /**
      * Constructs a new ProxyServerListener with the specified configuration and
      * work queue.
@@ -71,8 +72,7 @@ public class ProxyServerListener implements Runnable {
         this.config = config;
         this.workQueue = workQueue;
         this.logger = logger;
-        this.serverSocket = new ServerSocket();
-        this.formatter = new Formatter(logger);
+        this.serverSocket = ServerSocketChannel.open();
         this.shutdownLatch = null;
     }
 
@@ -80,14 +80,43 @@ public class ProxyServerListener implements Runnable {
         this.shutdownLatch = latch;
     }
 
+    /**
+     * Sets the admission controller deciding which connections are queued.
+     * Without one, every connection is queued, waiting for room if needed.
+     *
+     * @param admission The admission controller, or {@code null}.
+     */
+    public void useAdmissionController(AdmissionController admission) {
+        this.admission = admission;
+    }
+
+    /**
+     * Sets the stages the accept and queue latencies of connections are
+     * recorded into. Without them, nothing is recorded.
+     *
+     * @param stages The request stages, or {@code null}.
+     */
+    public void useRequestStages(RequestStages stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * Sets the limiter deciding which clients may open more connections.
+     * Without one, every client may open as many as it likes.
+     *
+     * @param limiter The connection limiter, or {@code null}.
+     */
+    public void useConnectionLimiter(ConnectionLimiter limiter) {
+        this.limiter = limiter;
+    }
+
     /**
      * Starts the listener by binding it to the specified port.
      *
      * @throws IOException if an I/O error occurs when binding the ServerSocket.
      */
     public void start() throws IOException {
-        this.serverSocket.bind(new InetSocketAddress(config.port()));
-        logger.println("Bound to port " + config.port());
+        bind();
 
         ProxyServerListener listener = this;
 
@@ -107,6 +136,18 @@ public class ProxyServerListener implements Runnable {
         });
     }
 
+    /**
+     * Binds the listener to the specified port without registering a shutdown
+     * hook, for listeners added to a running {@code ProxyServer}, which stops
+     * them itself.
+     *
+     * @throws IOException if an I/O error occurs when binding the ServerSocket.
+     */
+    void bind() throws IOException {
+        this.serverSocket.bind(new InetSocketAddress(config.port()));
+        logger.println("Bound to port " + config.port());
+    }
+
     /**
      * Executes the listener thread logic.
      * This method is called when the thread is started.
@@ -114,22 +155,45 @@ public class ProxyServerListener implements Runnable {
     @Override
     public void run() {
         name = Thread.currentThread().getName();
-        while (serverSocket.isBound() && !serverSocket.isClosed()) {
+        while (serverSocket.isOpen()) {
             try {
-                Socket client = serverSocket.accept();
+                Socket client = serverSocket.accept().socket();
+                long acceptedAt = System.nanoTime();
+                ConnectionAcceptedEvent.emit(client);
+
+                // Turn away clients over their limits before they cost more
+                if (limiter != null && !limiter.acquire(client)) {
+                    limiter.reject(client);
+                    continue;
+                }
+
+                ConnectionQueuedEvent queued = ConnectionQueuedEvent.start();
+                if (stages != null)
+                    stages.queueing(client);
 
                 // Place the client in the queue FIRST to reduce processing time
-                workQueue.put(client);
+                if (admission == null) {
+                    workQueue.put(client);
+                } else if (!admission.offer(workQueue, client)) {
+                    queued.finish(false, workQueue);
+                    if (stages != null)
+                        stages.rejected(client);
+                    if (limiter != null)
+                        limiter.release(client);
+                    admission.reject(client);  // Overloaded, fail fast
+                    continue;
+                }
+
+                queued.finish(true, workQueue);
+
+                if (stages != null)
+                    stages.accepted(acceptedAt);
 
                 // Log the connection
-                synchronized (logger) {
-                    logger.print(name + " ");
-                    formatter.format(timeFormat, System.currentTimeMillis());
-                    logger.print(" from " + client.getInetAddress());
-                    logger.println(":" + client.getPort());
-                }
+                AsyncLogger.access(logger, name, client.getInetAddress(),
+                                   client.getPort());
 
-            } catch (SocketException e) {}
+            } catch (SocketException | ClosedChannelException e) {}
             catch (IOException | InterruptedException e) {
                 logger.println(name + ": " +  e.getMessage());
                 break;
@@ -150,7 +214,7 @@ public class ProxyServerListener implements Runnable {
      * @throws IOException if an I/O error occurs when closing the ServerSocket.
      */
     public void stop() throws IOException {
-        if (serverSocket.isClosed())
+        if (!serverSocket.isOpen())
             return;
 
         this.serverSocket.close();
@@ -0,0 +1,195 @@
+package com.cs506.project.server;
+
+import com.cs506.project.configs.WorkerConfig;
+import com.cs506.project.utils.FrameDecoder;
+import com.cs506.project.utils.SocketIO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Serves a pipelined client connection on the blocking request path.
+ *
+ * The thread serving the connection only reads frames. Every complete frame
+ * is handed to the executor as soon as it arrives, so the requests of one
+ * connection are handled concurrently. Responses are written back as they
+ * complete, possibly out of order, tagged with the correlation id of their
+ * request. Writes are serialized on the socket, so frames never interleave.
+ *
+ * At most {@link #MAX_IN_FLIGHT} requests of a connection are handled at a
+ * time. Beyond that, the connection is not read from until a response has
+ * been written, pushing back on the client.
+ */
+public class ProxyServerPipeline {
+    /**
+     * The largest number of requests of a single connection handled at once.
+     */
+    public static final int MAX_IN_FLIGHT = 64;
+
+    private final Socket client;
+    private final FrameDecoder decoder;
+    private final WorkerConfig config;
+    private final ProxyServerTask task;
+    private final Executor executor;
+    private final PrintStream logger;
+    private final Semaphore inFlight;
+    private Executor bulkExecutor;
+    private HealthCheck health;
+
+    /**
+     * Constructs a new ProxyServerPipeline for a connection that negotiated
+     * pipelined framing.
+     *
+     * @param client   The client connection to serve.
+     * @param decoder  The decoder the first bytes of the connection were fed to.
+     * @param config   The configuration settings for the connection.
+     * @param task     The task to be executed for every request.
+     * @param executor The executor requests are handed to, or {@code null}
+     *                 to handle them one after the other on the reading thread.
+     * @param logger   The output stream for logging pipeline activity.
+     */
+    public ProxyServerPipeline(Socket client, FrameDecoder decoder,
+                               WorkerConfig config, ProxyServerTask task,
+                               Executor executor, PrintStream logger) {
+        this.client = client;
+        this.decoder = decoder;
+        this.config = config;
+        this.task = task;
+        this.executor = executor;
+        this.logger = logger;
+        this.inFlight = new Semaphore(MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Sets the executor {@link RequestClassifier.Lane#BULK} requests are
+     * handed to, so that cheaper requests of the connection are never stuck
+     * behind them. Without one, they are handed to the same executor as the
+     * other requests.
+     *
+     * @param executor The executor for bulk requests, or {@code null}.
+     */
+    public void useBulkExecutor(Executor executor) {
+        this.bulkExecutor = executor;
+    }
+
+    /**
+     * Sets the health check that answers healthchecks on the reading thread,
+     * ahead of the requests in flight. Without one, healthchecks are handed
+     * to the task like any other request.
+     *
+     * @param health The health check, or {@code null}.
+     */
+    public void useHealthCheck(HealthCheck health) {
+        this.health = health;
+    }
+
+    /**
+     * Serves requests until the client closes the connection or stays idle
+     * for too long, then waits for the requests still in flight.
+     *
+     * @param chunk The heap buffer to read into.
+     *
+     * @throws IOException if an I/O error occurs while reading from the client.
+     */
+    public void serve(ByteBuffer chunk) throws IOException {
+        InputStream sockIn = client.getInputStream();
+        int idleTimeout = config.keepAlive() ? config.idleTimeout()
+                                             : config.timeout();
+        int soTimeout = client.getSoTimeout();
+
+        try {
+            while (!client.isClosed()) {
+                byte[] request;
+                while ((request = decoder.poll()) != null)
+                    dispatch(decoder.correlationId(), request);
+
+                // Wait longer for the start of a request than for the rest
+                int timeout = decoder.hasPartial() ? config.timeout() : idleTimeout;
+                if (timeout != soTimeout)
+                    client.setSoTimeout(soTimeout = timeout);
+
+                try {
+                    if (SocketIO.readInto(sockIn, decoder, chunk) < 0)
+                        break;  // Client is done sending requests
+                } catch (SocketTimeoutException e) {
+                    // Not idle while responses are still to come
+                    if (decoder.hasPartial() || !isBusy())
+                        break;
+                }
+            }
+
+            // Let the requests in flight finish before the connection is closed
+            inFlight.acquire(MAX_IN_FLIGHT);
+            inFlight.release(MAX_IN_FLIGHT);
+        } catch (InterruptedException e) {
+            logger.println(Thread.currentThread().getName()
+                         + ": " +  e.getMessage());
+        }
+    }
+
+    private boolean isBusy() {
+        return inFlight.availablePermits() < MAX_IN_FLIGHT;
+    }
+
+    private void dispatch(int id, byte[] request) throws InterruptedException {
+        if (health != null && HealthCheck.matches(request)) {
+            respondHealth(id);
+            return;
+        }
+
+        inFlight.acquire();
+
+        Executor executor = this.executor;
+        if (bulkExecutor != null
+            && RequestClassifier.classify(request) == RequestClassifier.Lane.BULK)
+            executor = bulkExecutor;
+
+        if (executor == null) {
+            handle(id, request);
+            return;
+        }
+
+        try {
+            executor.execute(() -> handle(id, request));
+        } catch (RejectedExecutionException e) {
+            handle(id, request);  // Shutting down, serve it ourselves
+        }
+    }
+
+    private void respondHealth(int id) {
+        try {
+            synchronized (client) {
+                health.writeTo(client, id);
+            }
+        } catch (IOException e) {
+            logger.println(Thread.currentThread().getName()
+                         + ": " +  e.getMessage());
+            try { client.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    private void handle(int id, byte[] request) {
+        try {
+            String resp = task.handle(request);
+
+            synchronized (client) {
+                SocketIO.writeFrame(client, resp, id, decoder.acceptsDeflate());
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.println(Thread.currentThread().getName()
+                         + ": " +  e.getMessage());
+
+            // The client would wait for this response forever
+            try { client.close(); } catch (IOException ignored) {}
+        } finally {
+            inFlight.release();
+        }
+    }
+}
@@ -1,16 +1,28 @@
 package com.cs506.project.server;
 
 import com.cs506.project.configs.WorkerConfig;
+import com.cs506.project.events.ConnectionDequeuedEvent;
+import com.cs506.project.events.ResponseWrittenEvent;
 import com.cs506.project.server.ProxyServerTask;
+import com.cs506.project.server.RequestClassifier.Lane;
+import com.cs506.project.utils.BufferPool;
+import com.cs506.project.utils.FrameDecoder;
+import com.cs506.project.utils.FrameDecoder.Framing;
 import com.cs506.project.utils.SocketIO;
+import com.cs506.project.utils.SocketWriter;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.net.Socket;
 import java.net.SocketException;
-import java.util.Arrays;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Represents a worker thread in the Proxy Server.
@@ -24,13 +36,28 @@ import java.util.concurrent.CountDownLatch;
  * @author Mrigank Kumar
  */
 public class ProxyServerWorker implements Runnable {
-    private boolean active;
-    private WorkerConfig config;
+    static {
+        // Workers emit events for every connection, so the first one served
+        // must not be the one initializing the Flight Recorder
+        FlightRecording.registerEvents();
+    }
+
+    private volatile boolean active;
+    private volatile boolean busy;
+    private volatile long servedCount;
+    private int pollTimeout;
+    private volatile WorkerConfig config;
     private BlockingQueue<Socket> workQueue;
     private PrintStream logger;
     private ProxyServerTask task;
     private Socket client;
     private CountDownLatch shutdownLatch;
+    private Executor pipelineExecutor;
+    private Executor bulkExecutor;
+    private HealthCheck health;
+    private AdmissionController admission;
+    private RequestStages stages;
+    private ConnectionLimiter limiter;
     private String name;
 
     /**
@@ -73,10 +100,115 @@ public class ProxyServerWorker implements Runnable {
         return active;
     }
 
+    /**
+     * Indicates whether or not the current worker is serving a connection
+     *
+     * @return {@code true} if the current worker is serving a connection,
+     *         {@code false} if it is waiting for one
+     */
+    public boolean isBusy() {
+        return busy;
+    }
+
+    /**
+     * Retrieves the number of connections this worker has taken from the
+     * work queue so far.
+     *
+     * @return The number of connections taken.
+     */
+    public long servedCount() {
+        return servedCount;
+    }
+
     public void useShutdownLatch(CountDownLatch latch) {
         this.shutdownLatch = latch;
     }
 
+    /**
+     * Replaces the configuration of this worker. Connections being served
+     * keep the configuration they were taken with, only connections taken
+     * afterwards use the new one.
+     *
+     * @param config The new configuration settings for the worker.
+     */
+    public void useConfig(WorkerConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Makes the worker wait at most the given time for a connection before
+     * checking whether it is still active, so it can be retired while idle.
+     * By default, the worker waits for a connection indefinitely.
+     *
+     * @param timeout How long to wait for a connection at a time, in
+     *                milliseconds. Zero waits indefinitely.
+     */
+    public void usePollTimeout(int timeout) {
+        this.pollTimeout = timeout;
+    }
+
+    /**
+     * Sets the executor the requests of pipelined connections are handed to.
+     * Without one, pipelined requests are handled one after the other.
+     *
+     * @param executor The executor for pipelined requests.
+     */
+    public void usePipelineExecutor(Executor executor) {
+        this.pipelineExecutor = executor;
+    }
+
+    /**
+     * Sets the executor that serves connections once they send a
+     * {@link Lane#BULK} request, so that cheaper requests are never stuck
+     * behind them. Without one, all requests are served by this worker.
+     *
+     * @param executor The executor for bulk requests.
+     */
+    public void useBulkExecutor(Executor executor) {
+        this.bulkExecutor = executor;
+    }
+
+    /**
+     * Sets the health check that answers healthchecks without running the
+     * task. Without one, healthchecks are handed to the task like any other
+     * request.
+     *
+     * @param health The health check, or {@code null}.
+     */
+    public void useHealthCheck(HealthCheck health) {
+        this.health = health;
+    }
+
+    /**
+     * Sets the admission controller deciding which queued connections are
+     * shed instead of served.
+     *
+     * @param admission The admission controller, or {@code null}.
+     */
+    public void useAdmissionController(AdmissionController admission) {
+        this.admission = admission;
+    }
+
+    /**
+     * Sets the stages the latencies of connections and requests are recorded
+     * into. Without them, nothing is recorded.
+     *
+     * @param stages The request stages, or {@code null}.
+     */
+    public void useRequestStages(RequestStages stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * Sets the limiter the connections of every client are counted by.
+     * Connections it admitted are released here once closed.
+     *
+     * @param limiter The connection limiter, or {@code null}.
+     */
+    public void useConnectionLimiter(ConnectionLimiter limiter) {
+        this.limiter = limiter;
+    }
+
     /**
      * Sets the task to be executed by this worker thread.
      *
@@ -87,7 +219,7 @@ public class ProxyServerWorker implements Runnable {
     }
 
     public void start() {
-        this.active = true;
+        activate();
 
         ProxyServerWorker worker = this;
 
@@ -104,6 +236,25 @@ public class ProxyServerWorker implements Runnable {
         });
     }
 
+    /**
+     * Marks this worker active without registering a shutdown hook, for
+     * workers that are started and stopped by a {@code WorkerScaler}.
+     */
+    void activate() {
+        this.active = true;
+    }
+
+    /**
+     * Lets the worker finish the connection it is serving, if any, then stop
+     * taking connections from the work queue.
+     * The worker only notices while idle if it polls the work queue.
+     *
+     * @see {@link usePollTimeout(int)}
+     */
+    public void retire() {
+        this.active = false;
+    }
+
     /**
      * Executes the worker thread logic.
      * This method is called when the thread is started.
@@ -122,7 +273,10 @@ public class ProxyServerWorker implements Runnable {
         while (active && !Thread.interrupted()) {
             client = null; // Reset client connection
             try {
-                client = workQueue.take();
+                if (pollTimeout > 0)
+                    client = workQueue.poll(pollTimeout, TimeUnit.MILLISECONDS);
+                else
+                    client = workQueue.take();
             } catch (InterruptedException e) {
                 logger.println(name + ": " +  e.getMessage());
                 if (Thread.interrupted())
@@ -131,34 +285,25 @@ public class ProxyServerWorker implements Runnable {
                 continue;
             }
 
-            // Apply socket read timeout
-            try {
-                client.setSoTimeout(config.timeout());
-            } catch (SocketException e) {
-                logger.println(name + ": " +  e.getMessage());
-                continue;
-            }
+            if (client == null)
+                continue;  // Nothing to serve, check whether still active
 
-            // Read in chunks as long as there is some data to read
-            byte[] request;
-            try {
-                request = SocketIO.readFrom(client, config.chunkSize());
-            } catch (IOException e) {
-                logger.println(name + ": " +  e.getMessage());
-                continue;
-            }
-
-            // Handle the request
-            String resp = task.handle(request);
-
-            try {
-                SocketIO.writeTo(client, resp, config.autoAppend());
+            busy = true;
+            servedCount++;  // Only ever written by this thread
+            long waited = stages != null ? stages.dequeued(client) : -1;
 
-                // Request complete!
-                client.close();
-            } catch (IOException e) {
-                logger.println(name + ": " +  e.getMessage());
+            // Waited too long in the queue, the client is better off failing
+            if (admission != null && admission.dequeue(client)) {
+                ConnectionDequeuedEvent.emit(waited, true);
+                if (limiter != null)
+                    limiter.release(client);
+                admission.reject(client);
+            } else {
+                ConnectionDequeuedEvent.emit(waited, false);
+                serve(client);
             }
+
+            busy = false;
         }
 
         // Stop in case current thread was interrupted
@@ -169,6 +314,205 @@ public class ProxyServerWorker implements Runnable {
         }
     }
 
+    /**
+     * Serves a single client connection on the current thread: reads the
+     * request, executes the task and writes the response back.
+     * If keep alive is enabled, requests are served until the client closes
+     * the connection or stays idle for too long. Pipelined connections are
+     * served by a {@code ProxyServerPipeline}. Responses of a
+     * {@code StreamingTask} are written to the client as they are produced,
+     * unless they are length prefixed.
+     *
+     * If a bulk executor is set, the connection is handed to it as soon as
+     * a request is classified as {@link Lane#BULK}, so the current thread is
+     * free for cheaper requests again.
+     *
+     * Unlike {@code run()}, this method keeps no per connection state in the
+     * worker, so a single worker may serve many connections concurrently.
+     *
+     * @param client The client connection to serve.
+     */
+    public void serve(Socket client) {
+        String name = Thread.currentThread().getName();
+        WorkerConfig config = this.config;  // Fixed for the whole connection
+
+        // Apply socket read timeout
+        try {
+            client.setSoTimeout(config.timeout());
+        } catch (SocketException e) {
+            logger.println(name + ": " +  e.getMessage());
+            try { client.close(); }
+            catch (IOException ex) { logger.println(name + ": " +  ex.getMessage()); }
+            if (limiter != null)
+                limiter.release(client);
+            return;
+        }
+
+        FrameDecoder decoder = new FrameDecoder(config.chunkSize());
+        ByteBuffer chunk = BufferPool.HEAP.acquire(config.chunkSize());
+        serve(client, config, decoder, chunk, null, false, config.timeout(),
+              false);
+    }
+
+    /**
+     * Serves a client connection from the given request on, then closes it,
+     * unless it is handed to the bulk executor.
+     *
+     * @param config    The configuration the connection is served with.
+     * @param request   The request read but not served yet, or {@code null}.
+     * @param framed    Whether the client delimits its requests.
+     * @param soTimeout The read timeout currently set on the client.
+     * @param bulk      Whether the connection is served by the bulk executor.
+     */
+    private void serve(Socket client, WorkerConfig config, FrameDecoder decoder,
+                       ByteBuffer chunk, byte[] request, boolean framed,
+                       int soTimeout, boolean bulk) {
+        String name = Thread.currentThread().getName();
+        boolean handedOff = false;
+        boolean reading = false;  // Some of the next request has arrived
+        long readStart = 0;
+
+        try {
+            InputStream sockIn = client.getInputStream();
+            while (!client.isClosed()) {
+                if (request == null)
+                    request = decoder.poll();
+                if (request == null) {
+                    // Wait longer for the start of a request than for the rest
+                    int timeout = decoder.hasPartial() || !config.keepAlive()
+                                ? config.timeout() : config.idleTimeout();
+                    if (timeout != soTimeout)
+                        client.setSoTimeout(soTimeout = timeout);
+                    int nRead;
+                    try {
+                        nRead = SocketIO.readInto(sockIn, decoder, chunk);
+                    } catch (SocketTimeoutException e) {
+                        return;  // Idle for too long
+                    }
+                    if (!reading && nRead > 0) {
+                        reading = true;
+                        readStart = System.nanoTime();
+                    }
+
+                    if (decoder.framing() == Framing.PIPELINED) {
+                        ProxyServerPipeline pipeline =
+                            new ProxyServerPipeline(client, decoder, config, task,
+                                                    pipelineExecutor, logger);
+                        pipeline.useBulkExecutor(bulkExecutor);
+                        pipeline.useHealthCheck(health);
+                        pipeline.serve(chunk);
+                        return;
+                    }
+
+                    request = decoder.poll();
+                    if (request != null) {
+                        framed = true;
+                    } else if (decoder.framing() == Framing.LENGTH) {
+                        // Length prefixed requests are never guessed at
+                        if (nRead < 0)
+                            return;
+                        continue;
+                    } else if (nRead < 0) {
+                        // Client hung up, serve whatever was sent before that
+                        if (!decoder.hasPartial())
+                            return;
+                        framed = false;
+                        request = decoder.drain();
+                    } else if (!framed && nRead < chunk.limit()
+                               && sockIn.available() == 0) {
+                        // Unterminated request, and nothing left to read
+                        request = decoder.drain();
+                    } else {
+                        continue;
+                    }
+                } else {
+                    framed = true;
+                }
+
+                if (reading && stages != null)
+                    stages.read(readStart);
+                reading = false;
+
+                // Leave bulk requests to their own lane
+                if (bulkExecutor != null && !bulk
+                    && RequestClassifier.classify(request) == Lane.BULK) {
+                    handedOff = handOff(client, config, decoder, chunk, request,
+                                        framed, soTimeout);
+                    if (handedOff)
+                        return;
+                }
+
+                // Responses on a kept alive connection must be delimited
+                boolean appendNull = (framed && config.keepAlive())
+                                   || config.autoAppend();
+
+                // Handle the request
+                long start = System.nanoTime();
+                if (health != null && HealthCheck.matches(request)) {
+                    health.writeTo(client, decoder.framing(), appendNull);
+                } else if (task instanceof StreamingTask streaming
+                           && decoder.framing() != Framing.LENGTH) {
+                    // Written while handled
+                    ResponseWrittenEvent written = ResponseWrittenEvent.start();
+                    try (SocketWriter out = new SocketWriter(client, appendNull)) {
+                        streaming.handle(request, out);
+                    }
+                    if (stages != null)
+                        stages.handled(start);
+                    written.finish(decoder.framing(), -1);
+                } else {
+                    String response = task.handle(request);
+                    long handled = System.nanoTime();
+                    if (stages != null)
+                        stages.handled(start);
+
+                    ResponseWrittenEvent written = ResponseWrittenEvent.start();
+                    if (decoder.framing() == Framing.LENGTH)
+                        SocketIO.writeFrame(client, response,
+                                            decoder.acceptsDeflate());
+                    else
+                        SocketIO.writeTo(client, response, appendNull);
+                    if (stages != null)
+                        stages.written(handled);
+                    written.finish(decoder.framing(), response.length());
+                }
+                request = null;
+
+                // Request complete!
+                if (!framed || !config.keepAlive())
+                    return;
+            }
+        } catch (IOException e) {
+            logger.println(name + ": " +  e.getMessage());
+        } finally {
+            if (!handedOff) {
+                BufferPool.HEAP.release(chunk);
+                try { client.close(); }
+                catch (IOException e) { logger.println(name + ": " +  e.getMessage()); }
+                if (limiter != null)
+                    limiter.release(client);
+            }
+        }
+    }
+
+    /**
+     * Hands the rest of a connection to the bulk executor.
+     *
+     * @return {@code true} if the bulk executor took the connection,
+     *         {@code false} if it is shutting down
+     */
+    private boolean handOff(Socket client, WorkerConfig config,
+                            FrameDecoder decoder, ByteBuffer chunk,
+                            byte[] request, boolean framed, int soTimeout) {
+        try {
+            bulkExecutor.execute(() -> serve(client, config, decoder, chunk,
+                                             request, framed, soTimeout, true));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;  // Serve it ourselves
+        }
+    }
+
     public void stop() throws IOException {
         if (client != null && !client.isClosed())
             client.close();
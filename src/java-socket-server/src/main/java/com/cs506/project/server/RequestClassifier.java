@@ -0,0 +1,134 @@
+package com.cs506.project.server;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sorts requests into priority lanes by their cost, from their raw bytes.
+ *
+ * Requests are classified without being parsed, by looking for the
+ * top level fields that decide their cost:
+ * <ul>
+ *   <li>{@link Lane#HEALTH}: healthchecks.</li>
+ *   <li>{@link Lane#BULK}: reads of whole tables, with no entities, and
+ *       exports. Their cost grows with the size of the table. Batches are
+ *       bulk if any request they hold has no entities.</li>
+ *   <li>{@link Lane#POINT}: everything else, such as reads by id and
+ *       writes, whose cost only grows with the size of the request.</li>
+ * </ul>
+ *
+ * Classification only affects where a request is scheduled, never how it is
+ * handled, so a request that is misclassified is still answered correctly.
+ */
+public final class RequestClassifier {
+    /**
+     * The lanes requests are scheduled in.
+     */
+    public enum Lane { HEALTH, POINT, BULK }
+
+    private static final byte[] TYPE = ascii("\"type\"");
+    private static final byte[] ENTITIES = ascii("\"entities\"");
+    private static final byte[] READ = ascii("\"READ\"");
+    private static final byte[] EXPORT = ascii("\"EXPORT\"");
+    private static final byte[] BATCH = ascii("\"BATCH\"");
+
+    private RequestClassifier() {}
+
+    /**
+     * Classifies a request.
+     *
+     * @param request The request, without its delimiter.
+     *
+     * @return The lane the request belongs to.
+     */
+    public static Lane classify(byte[] request) {
+        if (HealthCheck.matches(request))
+            return Lane.HEALTH;
+
+        int type = valueOf(request, TYPE);
+        if (type < 0)
+            return Lane.POINT;  // Rejected right away
+        if (regionMatches(request, type, EXPORT))
+            return Lane.BULK;
+        if (regionMatches(request, type, BATCH)) {
+            // Any request without entities may read a whole table
+            for (int entities = valueOf(request, ENTITIES, 0); entities >= 0;
+                 entities = valueOf(request, ENTITIES, entities))
+                if (isEmptyArray(request, entities))
+                    return Lane.BULK;
+            return Lane.POINT;
+        }
+        if (!regionMatches(request, type, READ))
+            return Lane.POINT;
+
+        // Whole tables are read when no entities are given
+        int entities = valueOf(request, ENTITIES);
+        return entities >= 0 && isEmptyArray(request, entities) ? Lane.BULK
+                                                               : Lane.POINT;
+    }
+
+    private static boolean isEmptyArray(byte[] request, int value) {
+        if (request[value] != '[')
+            return false;
+
+        int end = skipWhitespace(request, value + 1);
+        return end < request.length && request[end] == ']';
+    }
+
+    /**
+     * Finds the value of the first occurrence of the given key.
+     *
+     * @return The index of the first byte of the value, or {@code -1} if the
+     *         key is missing.
+     */
+    private static int valueOf(byte[] request, byte[] key) {
+        return valueOf(request, key, 0);
+    }
+
+    /**
+     * Finds the value of the first occurrence of the given key, from the
+     * given index on.
+     *
+     * @return The index of the first byte of the value, or {@code -1} if the
+     *         key is missing.
+     */
+    private static int valueOf(byte[] request, byte[] key, int from) {
+        for (int i = from; i <= request.length - key.length; i++) {
+            if (!regionMatches(request, i, key))
+                continue;
+
+            int colon = skipWhitespace(request, i + key.length);
+            if (colon == request.length || request[colon] != ':')
+                continue;  // A value equal to the key, not the key itself
+
+            int value = skipWhitespace(request, colon + 1);
+            return value < request.length ? value : -1;
+        }
+
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] request, int index) {
+        while (index < request.length
+               && (request[index] == ' ' || request[index] == '\t'
+                   || request[index] == '\n' || request[index] == '\r'))
+            index++;
+
+        return index;
+    }
+
+    private static boolean regionMatches(byte[] request, int offset,
+                                         byte[] expected) {
+        if (offset + expected.length > request.length)
+            return false;
+
+        for (int i = 0; i < expected.length; i++)
+            if (request[offset + i] != expected[i])
+                return false;
+
+        return true;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
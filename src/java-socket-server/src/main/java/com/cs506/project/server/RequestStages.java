@@ -0,0 +1,138 @@
+package com.cs506.project.server;
+
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how long connections and requests spend in every stage of their
+ * lifecycle, from being accepted by a listener to the response being
+ * written by a worker:
+ * <ul>
+ *   <li>{@code stage.accept}: from accepting a connection to queueing it,
+ *       including any wait for room in the queue.</li>
+ *   <li>{@code stage.queue}: from queueing a connection to a worker taking
+ *       it.</li>
+ *   <li>{@code stage.read}: from the first bytes of a request arriving to
+ *       the request being complete.</li>
+ *   <li>{@code stage.handle}: running the task. Streamed responses are
+ *       written while the task runs, so this includes writing them.</li>
+ *   <li>{@code stage.write}: writing a response the task returned whole.</li>
+ * </ul>
+ *
+ * Event loops queue requests rather than connections, so in event loop mode
+ * {@code stage.accept} ends once a connection is registered with its event
+ * loop, and {@code stage.queue} is the wait of a request for the executor.
+ *
+ * Latencies are recorded in microseconds into the {@code ServerMetrics} the
+ * stages were created with.
+ *
+ * Instances of this class are thread safe.
+ */
+public class RequestStages {
+    private final LatencyRecorder accept;
+    private final LatencyRecorder queue;
+    private final LatencyRecorder read;
+    private final LatencyRecorder handle;
+    private final LatencyRecorder write;
+    private final Map<Socket, Long> queuedAt;
+
+    /**
+     * Constructs new RequestStages, registering their latency recorders.
+     *
+     * @param metrics The metrics to record into.
+     */
+    public RequestStages(ServerMetrics metrics) {
+        this.accept = metrics.latency("stage.accept");
+        this.queue = metrics.latency("stage.queue");
+        this.read = metrics.latency("stage.read");
+        this.handle = metrics.latency("stage.handle");
+        this.write = metrics.latency("stage.write");
+        this.queuedAt = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Notes that a connection is about to be queued, so the time it waits in
+     * the queue can be recorded once it is taken.
+     *
+     * @param client The connection.
+     */
+    public void queueing(Socket client) {
+        queuedAt.put(client, System.nanoTime());
+    }
+
+    /**
+     * Records the accept stage of a connection, once it was queued.
+     *
+     * @param acceptedAt When the connection was accepted, from
+     *                   {@code System.nanoTime()}.
+     */
+    public void accepted(long acceptedAt) {
+        accept.recordSince(acceptedAt);
+    }
+
+    /**
+     * Forgets a connection that was not queued after all.
+     *
+     * @param client The connection.
+     */
+    public void rejected(Socket client) {
+        queuedAt.remove(client);
+    }
+
+    /**
+     * Records the queue stage of a connection taken from the queue.
+     *
+     * @param client The connection.
+     *
+     * @return How long the connection waited in the queue, in nanoseconds,
+     *         or {@code -1} if it was not queued by a listener.
+     */
+    public long dequeued(Socket client) {
+        Long since = queuedAt.remove(client);
+        if (since == null)
+            return -1;
+
+        long waited = System.nanoTime() - since;
+        queue.record(waited / 1000);
+        return waited;
+    }
+
+    /**
+     * Records the queue stage of a request taken by an executor, in event
+     * loop mode.
+     *
+     * @param queuedAt When the request was handed to the executor, from
+     *                 {@code System.nanoTime()}.
+     */
+    public void dequeued(long queuedAt) {
+        queue.recordSince(queuedAt);
+    }
+
+    /**
+     * Records the read stage of a request.
+     *
+     * @param start When the first bytes of the request arrived.
+     */
+    public void read(long start) {
+        read.recordSince(start);
+    }
+
+    /**
+     * Records the handle stage of a request.
+     *
+     * @param start When the task was started.
+     */
+    public void handled(long start) {
+        handle.recordSince(start);
+    }
+
+    /**
+     * Records the write stage of a response.
+     *
+     * @param start When writing started.
+     */
+    public void written(long start) {
+        write.recordSince(start);
+    }
+}
@@ -0,0 +1,126 @@
+package com.cs506.project.server;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A registry of the metrics of the Proxy Server.
+ *
+ * Components register counters, which they increment as events happen, and
+ * gauges, which are sampled whenever the metrics are read. Metrics are
+ * identified by dotted names, such as {@code workers.active}.
+ *
+ * Latencies are recorded apart, into a {@code LatencyRecorder} per name, and
+ * read as percentiles over the interval since they were last reset.
+ *
+ * Instances of this class are thread safe.
+ */
+public class ServerMetrics {
+    private final Map<String, LongSupplier> metrics;
+    private final Map<String, LatencyRecorder> latencies;
+
+    /**
+     * Constructs an empty ServerMetrics registry.
+     */
+    public ServerMetrics() {
+        this.metrics = new ConcurrentSkipListMap<>();
+        this.latencies = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Retrieves the counter with the given name, registering it first if
+     * there is none yet.
+     *
+     * @param name The name of the counter.
+     *
+     * @return The counter.
+     *
+     * @throws IllegalStateException if a gauge is registered by that name.
+     */
+    public LongAdder counter(String name) {
+        LongAdder counter = new LongAdder();
+        LongSupplier existing = metrics.putIfAbsent(name, new Counter(counter));
+        if (existing == null)
+            return counter;
+
+        if (existing instanceof Counter c)
+            return c.adder();
+
+        throw new IllegalStateException(name + " is not a counter");
+    }
+
+    /**
+     * Registers a gauge, replacing any metric by the same name.
+     *
+     * @param name  The name of the gauge.
+     * @param gauge Supplies the current value of the gauge.
+     */
+    public void gauge(String name, LongSupplier gauge) {
+        metrics.put(name, gauge);
+    }
+
+    /**
+     * Retrieves the latency recorder with the given name, registering it
+     * first if there is none yet.
+     *
+     * @param name The name of the recorder.
+     *
+     * @return The recorder.
+     */
+    public LatencyRecorder latency(String name) {
+        LatencyRecorder recorder = latencies.get(name);
+        if (recorder != null)
+            return recorder;
+
+        recorder = new LatencyRecorder();
+        LatencyRecorder existing = latencies.putIfAbsent(name, recorder);
+        return existing != null ? existing : recorder;
+    }
+
+    /**
+     * Copies the latencies recorded by every recorder.
+     *
+     * @param reset Whether to start a new interval in every recorder.
+     *
+     * @return The snapshots by name, in name order.
+     */
+    public Map<String, LatencyRecorder.Snapshot> latencies(boolean reset) {
+        Map<String, LatencyRecorder.Snapshot> snapshots = new TreeMap<>();
+        latencies.forEach((name, recorder) ->
+            snapshots.put(name, recorder.snapshot(reset)));
+        return snapshots;
+    }
+
+    /**
+     * Reads the current value of every metric.
+     *
+     * @return The metric values by name, in name order.
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        metrics.forEach((name, metric) -> snapshot.put(name, metric.getAsLong()));
+        return snapshot;
+    }
+
+    /**
+     * Formats the current value of every metric, one {@code name value}
+     * pair per line.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        snapshot().forEach((name, value) ->
+            sb.append(name).append(' ').append(value).append('\n'));
+        return sb.toString();
+    }
+
+    private record Counter(LongAdder adder) implements LongSupplier {
+        @Override
+        public long getAsLong() {
+            return adder.sum();
+        }
+    }
+}
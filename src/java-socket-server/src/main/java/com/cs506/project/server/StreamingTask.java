@@ -0,0 +1,50 @@
+package com.cs506.project.server;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Represents a task that writes its response incrementally, instead of
+ * returning it as a whole.
+ *
+ * Workers hand a streaming task a writer backed by the client socket, so
+ * large responses are sent as they are produced, without ever being held in
+ * memory. Where the length of a response must be known before it is sent,
+ * such as on length prefixed or pipelined connections, the response is
+ * collected through {@link #handle(byte[])} instead.
+ *
+ * @see ProxyServerTask
+ */
+@FunctionalInterface
+public interface StreamingTask extends ProxyServerTask {
+    /**
+     * Handles an incoming request, writing the response to the given writer.
+     * The writer must not be closed by the task.
+     *
+     * @param request the byte array representing the incoming request
+     * @param out     the writer to write the response to
+     *
+     * @throws IOException if an I/O error occurs while writing the response
+     */
+    public void handle(byte[] request, Writer out) throws IOException;
+
+    /**
+     * Handles an incoming request, collecting the response in a string.
+     *
+     * @param request the byte array representing the incoming request
+     * @return a string representing the response to the request
+     */
+    @Override
+    public default String handle(byte[] request) {
+        StringWriter out = new StringWriter();
+        try {
+            handle(request, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // Never thrown by StringWriter
+        }
+
+        return out.toString();
+    }
+}
@@ -0,0 +1,300 @@
+package com.cs506.project.server;
+
+import com.cs506.project.configs.ScalerConfig;
+import com.cs506.project.configs.WorkerConfig;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Grows and shrinks the worker pool of the Proxy Server with the load.
+ *
+ * This class implements the Runnable interface, allowing instances of
+ * WorkerScaler to be executed in a separate thread.
+ *
+ * The scaler samples the work queue every {@link #SAMPLE_INTERVAL}
+ * milliseconds. It estimates the queueing delay from the queue depth and the
+ * rate at which workers take connections, following Little's law. When every
+ * worker is busy and the delay exceeds its target, or more connections wait
+ * than there are workers, workers are added, at most doubling the pool at a
+ * time. When workers have been idle and the queue empty for long enough, half
+ * of the idle workers are retired.
+ *
+ * The minimum number of workers is managed by the {@code ProxyServer}, the
+ * scaler only starts and retires the workers above it. Its decisions are
+ * published as metrics under {@code workers.*} and {@code queue.*}.
+ */
+public class WorkerScaler implements Runnable {
+    /**
+     * How often the work queue is sampled, in milliseconds.
+     */
+    public static final int SAMPLE_INTERVAL = 250;
+
+    private volatile ScalerConfig config;
+    private final BlockingQueue<Socket> workQueue;
+    private final Supplier<ProxyServerWorker> factory;
+    private final ThreadGroup group;
+    private final PrintStream logger;
+
+    // Workers that are always running, and the ones added on demand
+    private volatile List<ProxyServerWorker> baseWorkers;
+    private final List<ProxyServerWorker> extraWorkers;
+
+    private final LongAdder scaledUp;
+    private final LongAdder scaledDown;
+
+    private volatile boolean active;
+    private volatile long queueWait;  // Last estimate, in milliseconds
+    private CountDownLatch shutdownLatch;
+    private long lastServed;
+    private long idleSince;
+    private int count;  // Names the added workers
+    private String name;
+
+    /**
+     * Constructs a new WorkerScaler.
+     *
+     * @param config      The bounds and thresholds for scaling.
+     * @param workQueue   The shared queue for incoming client connections.
+     * @param baseWorkers The workers that are always running.
+     * @param factory     Creates the workers that are added on demand.
+     * @param group       The thread group to run added workers in.
+     * @param metrics     The registry to publish the scaling metrics to.
+     * @param logger      The output stream for logging scaling decisions.
+     */
+    public WorkerScaler(ScalerConfig config,
+                        BlockingQueue<Socket> workQueue,
+                        ProxyServerWorker[] baseWorkers,
+                        Supplier<ProxyServerWorker> factory,
+                        ThreadGroup group,
+                        ServerMetrics metrics,
+                        PrintStream logger) {
+        this.config = config;
+        this.workQueue = workQueue;
+        this.baseWorkers = List.of(baseWorkers);
+        this.extraWorkers = new CopyOnWriteArrayList<>();
+        this.factory = factory;
+        this.group = group;
+        this.logger = logger;
+        this.count = baseWorkers.length;
+
+        this.scaledUp = metrics.counter("workers.scaled_up");
+        this.scaledDown = metrics.counter("workers.scaled_down");
+        metrics.gauge("workers.active", this::workerCount);
+        metrics.gauge("workers.busy", this::busyCount);
+        metrics.gauge("workers.min", () -> this.config.minWorkers());
+        metrics.gauge("workers.max", () -> this.config.maxWorkers());
+        metrics.gauge("queue.depth", workQueue::size);
+        metrics.gauge("queue.wait_ms", () -> queueWait);
+    }
+
+    /**
+     * Retrieves the number of running workers, including the ones that are
+     * never retired.
+     *
+     * @return The size of the worker pool.
+     */
+    public int workerCount() {
+        return baseWorkers.size() + extraWorkers.size();
+    }
+
+    private int busyCount() {
+        int busy = 0;
+        for (ProxyServerWorker worker: baseWorkers)
+            if (worker.isBusy())
+                busy++;
+        for (ProxyServerWorker worker: extraWorkers)
+            if (worker.isBusy())
+                busy++;
+
+        return busy;
+    }
+
+    private long servedCount() {
+        long served = 0;
+        for (ProxyServerWorker worker: baseWorkers)
+            served += worker.servedCount();
+        for (ProxyServerWorker worker: extraWorkers)
+            served += worker.servedCount();
+
+        return served;
+    }
+
+    public void useShutdownLatch(CountDownLatch latch) {
+        this.shutdownLatch = latch;
+    }
+
+    /**
+     * Replaces the bounds and thresholds for scaling, from the next sample
+     * on. Workers added already are retired as usual, once idle for long
+     * enough.
+     *
+     * @param config The new bounds and thresholds.
+     */
+    public void useConfig(ScalerConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Replaces the workers that are always running, once the
+     * {@code ProxyServer} added or retired some of them.
+     *
+     * @param baseWorkers The workers that are always running.
+     */
+    public void useBaseWorkers(ProxyServerWorker[] baseWorkers) {
+        this.baseWorkers = List.of(baseWorkers);
+    }
+
+    /**
+     * Replaces the configuration of every added worker. Workers added later
+     * are configured by the factory.
+     *
+     * @param config The new configuration settings for the workers.
+     */
+    public void useWorkerConfig(WorkerConfig config) {
+        for (ProxyServerWorker worker: extraWorkers)
+            worker.useConfig(config);
+    }
+
+    public void start() {
+        this.active = true;
+
+        WorkerScaler scaler = this;
+
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                scaler.stop();
+
+                if (scaler.shutdownLatch != null)
+                    scaler.shutdownLatch.countDown();
+            }
+        });
+    }
+
+    /**
+     * Executes the scaler thread logic.
+     * This method is called when the thread is started.
+     */
+    @Override
+    public void run() {
+        name = Thread.currentThread().getName();
+        lastServed = servedCount();
+
+        while (active) {
+            try {
+                Thread.sleep(SAMPLE_INTERVAL);
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            sample();
+        }
+
+        stop();
+    }
+
+    /**
+     * Samples the work queue and the workers once, and adds or retires
+     * workers accordingly.
+     */
+    void sample() {
+        int depth = workQueue.size();
+        long served = servedCount();
+        long rate = served - lastServed;  // Per sample interval
+        lastServed = served;
+
+        // Little's law, assuming the current rate holds
+        if (depth == 0)
+            queueWait = 0;
+        else if (rate == 0)
+            queueWait = Long.MAX_VALUE;
+        else
+            queueWait = depth * SAMPLE_INTERVAL / rate;
+
+        int workers = workerCount();
+        int busy = busyCount();
+
+        if (depth > 0 && busy >= workers) {
+            idleSince = 0;
+            if (queueWait > config.targetDelay() || depth >= workers)
+                scaleUp(Math.min(depth, workers), depth);
+            return;
+        }
+
+        if (depth > 0 || busy >= workers || extraWorkers.isEmpty()) {
+            idleSince = 0;
+            return;
+        }
+
+        // Some workers are idle, retire them once they have been for long enough
+        long now = System.currentTimeMillis();
+        if (idleSince == 0)
+            idleSince = now;
+        else if (now - idleSince >= config.retireAfter()) {
+            scaleDown(Math.max(1, (workers - busy) / 2));
+            idleSince = 0;
+        }
+    }
+
+    private void scaleUp(int add, int depth) {
+        add = Math.min(add, config.maxWorkers() - workerCount());
+        if (add <= 0)
+            return;
+
+        for (int i = 0; i < add; i++) {
+            ProxyServerWorker worker = factory.get();
+            worker.usePollTimeout(SAMPLE_INTERVAL);
+            worker.activate();
+            extraWorkers.add(worker);
+            new Thread(group, worker, "Worker:" + ++count).start();
+        }
+
+        scaledUp.add(add);
+        logger.println(name + ": Scaled up to " + workerCount()
+                     + " workers, " + depth + " connections waiting");
+    }
+
+    private void scaleDown(int retire) {
+        int retired = 0;
+        for (ProxyServerWorker worker: extraWorkers) {
+            if (retired == retire)
+                break;
+            if (worker.isBusy())
+                continue;
+
+            worker.retire();
+            extraWorkers.remove(worker);
+            retired++;
+        }
+
+        if (retired == 0)
+            return;
+
+        scaledDown.add(retired);
+        logger.println(name + ": Scaled down to " + workerCount() + " workers");
+    }
+
+    /**
+     * Stops the scaler, and every worker it added.
+     */
+    public void stop() {
+        for (ProxyServerWorker worker: extraWorkers) {
+            try { worker.stop(); }
+            catch (IOException e) { logger.println(name + ": " +  e.getMessage()); }
+        }
+        extraWorkers.clear();
+
+        if (active) {
+            active = false;
+            logger.println(name + " going down!");
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.cs506.project.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.util.Formatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A log output stream that never blocks the threads logging to it.
+ *
+ * Lines passed to {@code println} are copied into a lock free ring of
+ * preallocated records, and written to the underlying stream in batches by a
+ * background thread. Accepted connections are logged with
+ * {@link #access(PrintStream, String, InetAddress, int)}, which only stores
+ * the fields of the line, so formatting it is also left to the background
+ * thread.
+ *
+ * When the ring is full, records are dropped rather than waited for. The
+ * number of dropped records is reported in the log once there is room again,
+ * and is available from {@link #droppedCount()}.
+ *
+ * Only {@code println} is asynchronous, other writes go straight to the
+ * underlying stream.
+ */
+public class AsyncLogger extends PrintStream {
+    /**
+     * The number of records the ring holds when none is specified.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    // Formats date/time as "yy/mm/dd hh:mm:ss"
+    private static final String TIME_FORMAT = "%1$ty/%1$tm/%1$td %1$tH:%1$tM:%1$tS";
+
+    private static final int RECORD_SIZE = 256;  // Initial characters per record
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * A preallocated log record, either a plain line or an access line.
+     */
+    private static final class Record {
+        private final StringBuilder text = new StringBuilder(RECORD_SIZE);
+        private String source;       // Set for access lines only
+        private long time;
+        private InetAddress address;
+        private int port;
+    }
+
+    private final Writer out;
+    private final Record[] records;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail;
+    private final int mask;
+    private final LongAdder dropped;
+    private final Thread drainer;
+    private long head;  // Only touched by the drainer
+    private long reportedDrops;
+    private volatile boolean running;
+
+    /**
+     * Constructs a new AsyncLogger of the default capacity, and starts its
+     * background thread.
+     *
+     * @param out The stream log lines are written to.
+     */
+    public AsyncLogger(PrintStream out) {
+        this(out, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new AsyncLogger, and starts its background thread.
+     *
+     * @param out      The stream log lines are written to.
+     * @param capacity The number of records the ring holds, rounded up to a
+     *                 power of two.
+     */
+    public AsyncLogger(PrintStream out, int capacity) {
+        super(out, false);
+
+        int size = Math.max(Integer.highestOneBit(capacity), 2);
+        if (size < capacity)
+            size <<= 1;
+
+        this.out = new BufferedWriter(new OutputStreamWriter(out));
+        this.records = new Record[size];
+        this.sequences = new AtomicLongArray(size);
+        this.tail = new AtomicLong();
+        this.mask = size - 1;
+        this.dropped = new LongAdder();
+
+        // Slot i is free for the record with index i
+        for (int i = 0; i < size; i++) {
+            records[i] = new Record();
+            sequences.set(i, i);
+        }
+
+        this.running = true;
+        this.drainer = new Thread(this::drain, "Logger");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Retrieves the number of records dropped because the ring was full.
+     *
+     * @return The number of dropped records.
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Logs that a connection was accepted, as a line of the form
+     * {@code source yy/mm/dd hh:mm:ss from address:port}.
+     *
+     * On an {@code AsyncLogger}, the line is formatted by the background
+     * thread. On any other stream, it is formatted and written right away.
+     *
+     * @param logger  The stream to log to.
+     * @param source  The name of the accepting thread.
+     * @param address The address of the client.
+     * @param port    The port of the client.
+     */
+    public static void access(PrintStream logger, String source,
+                              InetAddress address, int port) {
+        long time = System.currentTimeMillis();
+        if (logger instanceof AsyncLogger async) {
+            long index = async.claim();
+            if (index < 0)
+                return;
+
+            Record record = async.records[(int) index & async.mask];
+            record.source = source;
+            record.time = time;
+            record.address = address;
+            record.port = port;
+            async.publish(index);
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        formatAccess(new Formatter(sb), sb, source, time, address, port);
+        logger.println(sb);
+    }
+
+    private static void formatAccess(Formatter formatter, StringBuilder sb,
+                                     String source, long time,
+                                     InetAddress address, int port) {
+        sb.append(source).append(' ');
+        formatter.format(TIME_FORMAT, time);
+        sb.append(" from ").append(address).append(':').append(port);
+    }
+
+    @Override
+    public void println(String x) {
+        long index = claim();
+        if (index < 0)
+            return;
+
+        Record record = records[(int) index & mask];
+        record.source = null;
+        record.text.setLength(0);
+        record.text.append(x);
+        publish(index);
+    }
+
+    @Override
+    public void println(Object x) {
+        println(String.valueOf(x));
+    }
+
+    /**
+     * Claims the next free record.
+     *
+     * @return The index of the record, or {@code -1} if the ring is full.
+     */
+    private long claim() {
+        long index = tail.get();
+        while (running) {
+            int slot = (int) index & mask;
+            long diff = sequences.get(slot) - index;
+
+            if (diff == 0) {
+                if (tail.weakCompareAndSetVolatile(index, index + 1))
+                    return index;
+                index = tail.get();
+            } else if (diff < 0) {
+                break;  // Full, the drainer has not caught up
+            } else {
+                index = tail.get();  // Another thread claimed it first
+            }
+        }
+
+        dropped.increment();
+        return -1;
+    }
+
+    private void publish(long index) {
+        sequences.lazySet((int) index & mask, index + 1);
+    }
+
+    /**
+     * Writes the published records in batches, until the logger is closed.
+     */
+    private void drain() {
+        StringBuilder batch = new StringBuilder(RECORD_SIZE * 16);
+        Formatter formatter = new Formatter(batch);
+
+        while (true) {
+            boolean stopping = !running;  // Read before the last drain
+            int count = 0;
+
+            while (count <= mask) {
+                int slot = (int) head & mask;
+                if (sequences.get(slot) != head + 1)
+                    break;  // Not published yet
+
+                Record record = records[slot];
+                if (record.source != null) {
+                    formatAccess(formatter, batch, record.source, record.time,
+                                 record.address, record.port);
+                    record.source = null;
+                    record.address = null;
+                } else {
+                    batch.append(record.text);
+                }
+                batch.append('\n');
+
+                sequences.lazySet(slot, head + mask + 1);  // Free
+                head++;
+                count++;
+            }
+
+            // Reported after the records that made the ring overflow
+            long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                batch.append(drops - reportedDrops)
+                     .append(" log records dropped").append('\n');
+                reportedDrops = drops;
+                count++;
+            }
+
+            if (count > 0) {
+                try {
+                    out.append(batch);
+                    out.flush();
+                } catch (IOException e) {
+                    setError();
+                }
+                batch.setLength(0);
+                continue;  // More may have been published meanwhile
+            }
+
+            if (stopping)
+                return;
+
+            LockSupport.parkNanos(this, IDLE_NANOS);
+        }
+    }
+
+    /**
+     * Writes the records logged so far and stops the background thread,
+     * leaving the underlying stream open. Lines logged afterwards are never
+     * written.
+     */
+    public void shutdown() {
+        if (running) {
+            running = false;
+            try {
+                drainer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes the records logged so far, then closes the underlying stream.
+     */
+    @Override
+    public void close() {
+        shutdown();
+        super.close();
+    }
+}
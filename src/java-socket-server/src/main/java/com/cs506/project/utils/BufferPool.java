@@ -0,0 +1,119 @@
+package com.cs506.project.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock free pool of ByteBuffers, bucketed into power of two size classes.
+ *
+ * Buffers are acquired for a request or response, and released once it has
+ * been written, so the steady state request path reuses the same buffers
+ * instead of allocating new ones. Every size class holds a bounded number of
+ * idle buffers in a fixed array of slots, so neither acquiring nor releasing
+ * a buffer allocates.
+ *
+ * Requests larger than the largest size class are served by a new buffer,
+ * which is simply dropped when released.
+ */
+public class BufferPool {
+    /**
+     * The shared pool of direct buffers, for channel I/O.
+     */
+    public static final BufferPool DIRECT = new BufferPool(true);
+
+    /**
+     * The shared pool of heap buffers, for stream I/O.
+     */
+    public static final BufferPool HEAP = new BufferPool(false);
+
+    private static final int MIN_SHIFT = 9;   // 512 B
+    private static final int MAX_SHIFT = 20;  // 1 MiB
+    private static final int SLOTS = 32;      // Idle buffers per size class
+
+    private final boolean direct;
+    private final AtomicReferenceArray<ByteBuffer>[] classes;
+
+    /**
+     * Constructs an empty BufferPool.
+     *
+     * @param direct Whether to allocate direct buffers instead of heap buffers.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BufferPool(boolean direct) {
+        this.direct = direct;
+        this.classes = new AtomicReferenceArray[MAX_SHIFT - MIN_SHIFT + 1];
+        for (int i = 0; i < classes.length; i++)
+            classes[i] = new AtomicReferenceArray<>(SLOTS);
+    }
+
+    /**
+     * Indicates whether this pool hands out direct buffers.
+     *
+     * @return {@code true} for direct buffers,
+     *         {@code false} for heap buffers
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Acquires a cleared buffer of at least the given size.
+     * The limit of the buffer is set to the requested size.
+     *
+     * @param size The number of bytes needed.
+     *
+     * @return A buffer that must be handed back with {@link #release}.
+     */
+    public ByteBuffer acquire(int size) {
+        int index = sizeClass(size);
+        if (index < classes.length) {
+            AtomicReferenceArray<ByteBuffer> slots = classes[index];
+            for (int i = 0; i < SLOTS; i++) {
+                ByteBuffer buffer = slots.get(i);
+                if (buffer != null && slots.compareAndSet(i, buffer, null)) {
+                    buffer.clear().limit(size);
+                    return buffer;
+                }
+            }
+        }
+
+        // Pool is empty, or the request is too large to be pooled
+        int capacity = index < classes.length ? 1 << (index + MIN_SHIFT) : size;
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(capacity)
+                                   : ByteBuffer.allocate(capacity);
+        buffer.limit(size);
+        return buffer;
+    }
+
+    /**
+     * Hands a buffer acquired from this pool back for reuse.
+     * The buffer must not be used by the caller afterwards. Read only
+     * buffers are never taken, so shared responses may be released too.
+     *
+     * @param buffer The buffer to release, may be {@code null}.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.isDirect() != direct || buffer.isReadOnly())
+            return;
+
+        int capacity = buffer.capacity();
+        int index = sizeClass(capacity);
+        if (index >= classes.length || 1 << (index + MIN_SHIFT) != capacity)
+            return;  // Not one of ours
+
+        AtomicReferenceArray<ByteBuffer> slots = classes[index];
+        for (int i = 0; i < SLOTS; i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, buffer))
+                return;
+        }
+
+        // Pool is full, leave the buffer to the garbage collector
+    }
+
+    private static int sizeClass(int size) {
+        if (size <= 1 << MIN_SHIFT)
+            return 0;
+
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+}
@@ -0,0 +1,536 @@
+package com.cs506.project.utils;
+
+import com.cs506.project.configs.PoolConfig;
+
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lends database connections to concurrent requests, so every request
+ * queries on a connection of its own without opening one.
+ *
+ * Borrowed connections are returned by closing them, which makes them fit
+ * the usual {@code try (Connection connection = pool.borrow())}. At most
+ * {@link PoolConfig#maxSize()} connections are borrowed at once, further
+ * borrowers wait for one to be returned, up to the borrow timeout. The bound
+ * can be changed later on with {@link #resize(int)}.
+ *
+ * Connections are kept healthy along the way:
+ * <ul>
+ *   <li>Idle connections are borrowed most recently used first, and are
+ *       validated first if they sat idle for longer than
+ *       {@link #VALIDATE_AFTER} milliseconds.</li>
+ *   <li>A connection that failed with a connection error is closed once
+ *       returned, instead of being lent again.</li>
+ *   <li>Connections are replaced once older than their maximum lifetime.</li>
+ *   <li>Connections borrowed for longer than the leak threshold are
+ *       reported once, along with where they were borrowed.</li>
+ *   <li>Enough idle connections are opened ahead of time to keep the
+ *       minimum idle.</li>
+ * </ul>
+ * The last three happen on a housekeeping thread, every
+ * {@link #HOUSEKEEPING_INTERVAL} milliseconds.
+ *
+ * Instances of this class are thread safe.
+ */
+public class ConnectionPool implements AutoCloseable {
+    /**
+     * How often connections are checked for their lifetime and leaks, in
+     * milliseconds.
+     */
+    public static final int HOUSEKEEPING_INTERVAL = 1000;
+
+    /**
+     * How long a connection may sit idle before it is validated when
+     * borrowed, in milliseconds.
+     */
+    public static final int VALIDATE_AFTER = 500;
+
+    // How long validating a connection may take, in seconds
+    private static final int VALIDATION_TIMEOUT = 2;
+
+    /**
+     * Opens new database connections.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        /**
+         * Opens a new connection.
+         *
+         * @return The connection.
+         *
+         * @throws SQLException if the database cannot be connected to.
+         */
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * The permits to borrow, which can be taken away to shrink the pool.
+     */
+    private static final class Permits extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        private Permits(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    /**
+     * A connection to the database, borrowed or idle.
+     */
+    private static final class PooledConnection {
+        private final Connection connection;
+        private final long createdAt;
+        private volatile long lastUsed;
+        private volatile boolean broken;  // Failed with a connection error
+
+        private PooledConnection(Connection connection, long now) {
+            this.connection = connection;
+            this.createdAt = now;
+            this.lastUsed = now;
+        }
+    }
+
+    /**
+     * A single borrowing of a connection, handed out as a {@code Connection}
+     * that returns it when closed. Closing it again does nothing.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final long borrowedAt;
+        private final Throwable borrowedBy;  // Only when detecting leaks
+        private final AtomicBoolean returned;
+        private final AtomicBoolean reported;
+
+        private Lease(PooledConnection pooled, long now, Throwable borrowedBy) {
+            this.pooled = pooled;
+            this.borrowedAt = now;
+            this.borrowedBy = borrowedBy;
+            this.returned = new AtomicBoolean();
+            this.reported = new AtomicBoolean();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+            throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true))
+                        giveBack(this);
+                    return null;
+                case "isClosed":
+                    if (returned.get())
+                        return true;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + pooled.connection;
+                default:
+                    break;
+            }
+
+            if (returned.get())
+                throw new SQLException("Connection was returned to the pool");
+
+            try {
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException sqlException && isFatal(sqlException))
+                    pooled.broken = true;
+                throw cause;
+            }
+        }
+    }
+
+    private final ConnectionFactory factory;
+    private final PoolConfig config;
+    private final PrintStream logger;
+
+    private final Permits permits;  // One per connection that may be borrowed
+    private final BlockingDeque<PooledConnection> idle;
+    private final Set<Lease> borrowed;
+    private final AtomicInteger open;
+    private final AtomicLong created;
+    private final AtomicLong timeouts;
+    private final AtomicLong leaks;
+    private final ScheduledExecutorService housekeeper;
+
+    private volatile int maxSize;  // Written under this
+    private volatile boolean closed;
+    private boolean fillFailing;  // Guarded by this
+
+    /**
+     * Constructs a new ConnectionPool, with no connections open yet. Idle
+     * connections are opened by the housekeeping thread.
+     *
+     * @param factory Opens the connections of the pool.
+     * @param config  The bounds and timeouts of the pool.
+     * @param logger  The output stream for reporting leaks and failures.
+     */
+    public ConnectionPool(ConnectionFactory factory, PoolConfig config,
+                          PrintStream logger) {
+        this.factory = factory;
+        this.config = config;
+        this.logger = logger;
+        this.maxSize = config.maxSize();
+        this.permits = new Permits(maxSize);
+        this.idle = new LinkedBlockingDeque<>();
+        this.borrowed = ConcurrentHashMap.newKeySet();
+        this.open = new AtomicInteger();
+        this.created = new AtomicLong();
+        this.timeouts = new AtomicLong();
+        this.leaks = new AtomicLong();
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ConnectionPool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0,
+                                           HOUSEKEEPING_INTERVAL,
+                                           TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Retrieves the most connections open at once.
+     *
+     * @return The size of the pool.
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Retrieves the number of connections currently borrowed.
+     *
+     * @return The number of borrowed connections.
+     */
+    public int activeCount() {
+        return borrowed.size();
+    }
+
+    /**
+     * Retrieves the number of open connections waiting to be borrowed.
+     *
+     * @return The number of idle connections.
+     */
+    public int idleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Retrieves the number of threads waiting for a connection.
+     *
+     * @return The number of waiting borrowers.
+     */
+    public int waitingCount() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Retrieves the number of connections opened so far.
+     *
+     * @return The number of connections opened.
+     */
+    public long createdCount() {
+        return created.get();
+    }
+
+    /**
+     * Retrieves the number of borrowers that gave up waiting so far.
+     *
+     * @return The number of borrow timeouts.
+     */
+    public long timeoutCount() {
+        return timeouts.get();
+    }
+
+    /**
+     * Retrieves the number of connections reported as leaked so far.
+     *
+     * @return The number of leaks.
+     */
+    public long leakCount() {
+        return leaks.get();
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout for one to be
+     * returned if all of them are borrowed.
+     *
+     * @return The connection, to be closed once done with.
+     *
+     * @throws SQLTransientConnectionException if no connection was returned
+     *                                         in time.
+     * @throws SQLException                    if a new connection could not
+     *                                         be opened, or the pool is
+     *                                         closed.
+     */
+    public Connection borrow() throws SQLException {
+        return borrow(config.borrowTimeout());
+    }
+
+    /**
+     * Borrows a connection, waiting up to the given time for one to be
+     * returned if all of them are borrowed.
+     *
+     * @param timeout How long to wait, in milliseconds.
+     *
+     * @return The connection, to be closed once done with.
+     *
+     * @throws SQLTransientConnectionException if no connection was returned
+     *                                         in time.
+     * @throws SQLException                    if a new connection could not
+     *                                         be opened, or the pool is
+     *                                         closed.
+     */
+    public Connection borrow(long timeout) throws SQLException {
+        if (closed)
+            throw new SQLException("The connection pool is closed");
+
+        try {
+            if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTransientConnectionException("Timed out after "
+                    + timeout + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null)
+                pooled = openConnection();
+
+            long now = System.nanoTime();
+            Lease lease = new Lease(pooled, now, config.leakThreshold() > 0
+                                                 ? new Throwable("Borrowed here")
+                                                 : null);
+            borrowed.add(lease);
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{ Connection.class }, lease);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes the most recently used idle connection that still works, closing
+     * the ones that do not along the way.
+     */
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            long now = System.nanoTime();
+            if (expired(pooled, now)) {
+                discard(pooled);
+                continue;
+            }
+
+            long idleFor = TimeUnit.NANOSECONDS.toMillis(now - pooled.lastUsed);
+            if (idleFor > VALIDATE_AFTER && !isValid(pooled)) {
+                discard(pooled);
+                continue;
+            }
+
+            return pooled;
+        }
+
+        return null;
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection connection = factory.open();
+        open.incrementAndGet();
+        created.incrementAndGet();
+        return new PooledConnection(connection, System.nanoTime());
+    }
+
+    /**
+     * Takes back a borrowed connection, keeping it idle if it is still fit
+     * to be lent again.
+     */
+    private void giveBack(Lease lease) {
+        borrowed.remove(lease);
+        PooledConnection pooled = lease.pooled;
+        long now = System.nanoTime();
+        try {
+            if (closed || pooled.broken || expired(pooled, now)
+                || open.get() > maxSize || !reset(pooled)) {
+                discard(pooled);
+                return;
+            }
+
+            pooled.lastUsed = now;
+            idle.offerFirst(pooled);
+
+            // Closed meanwhile, so nobody else will close it
+            if (closed && idle.remove(pooled))
+                discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Undoes what the borrower left behind that would leak into the next
+     * borrower.
+     *
+     * @return Whether the connection can be lent again.
+     */
+    private boolean reset(PooledConnection pooled) {
+        try {
+            if (pooled.connection.isClosed())
+                return false;
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.connection.isValid(VALIDATION_TIMEOUT);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean expired(PooledConnection pooled, long now) {
+        return config.maxLifetime() > 0
+            && TimeUnit.NANOSECONDS.toMillis(now - pooled.createdAt) >= config.maxLifetime();
+    }
+
+    private void discard(PooledConnection pooled) {
+        open.decrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            // Closing a broken connection may fail, it is gone either way
+        }
+    }
+
+    private static boolean isFatal(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLNonTransientConnectionException
+            || (state != null && state.startsWith("08"));
+    }
+
+    /**
+     * Changes the most connections open at once. Growing lets waiting
+     * borrowers through right away. Shrinking lets borrowed connections be
+     * returned first, and closes them once returned until the pool fits.
+     *
+     * @param maxSize The new size of the pool.
+     *
+     * @throws IllegalArgumentException if the size is not positive.
+     */
+    public synchronized void resize(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Pool size must be positive");
+
+        int change = maxSize - this.maxSize;
+        this.maxSize = maxSize;
+        if (change > 0)
+            permits.release(change);
+        else if (change < 0)
+            permits.reducePermits(-change);
+    }
+
+    /**
+     * Reports leaked connections, closes idle connections past their
+     * lifetime and opens idle connections up to the minimum.
+     */
+    synchronized void housekeep() {
+        long now = System.nanoTime();
+
+        if (config.leakThreshold() > 0) {
+            for (Lease lease: borrowed) {
+                long heldFor = TimeUnit.NANOSECONDS.toMillis(now - lease.borrowedAt);
+                if (heldFor < config.leakThreshold()
+                    || !lease.reported.compareAndSet(false, true))
+                    continue;
+
+                leaks.incrementAndGet();
+                logger.println("Connection borrowed " + heldFor
+                             + " ms ago was not returned, possible leak");
+                lease.borrowedBy.printStackTrace(logger);
+            }
+        }
+
+        for (PooledConnection pooled: idle)
+            if (expired(pooled, now) && idle.remove(pooled))
+                discard(pooled);
+
+        // Shrunk meanwhile, close the least recently used idle connections
+        PooledConnection surplus;
+        while (open.get() > maxSize && (surplus = idle.pollLast()) != null)
+            discard(surplus);
+
+        // Only open connections that could be borrowed right now
+        while (!closed && idle.size() < Math.min(config.minIdle(), maxSize)
+               && open.get() < maxSize && permits.tryAcquire()) {
+            try {
+                idle.offerFirst(openConnection());
+                fillFailing = false;
+            } catch (SQLException e) {
+                if (!fillFailing)
+                    logger.println("Failed to open a database connection: "
+                                 + e.getMessage());
+                fillFailing = true;
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Closes the pool along with its idle connections. Borrowed connections
+     * are closed once returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null)
+            discard(pooled);
+    }
+}
@@ -0,0 +1,347 @@
+package com.cs506.project.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * Incrementally splits the bytes read from a connection into requests.
+ *
+ * Bytes are fed in as they arrive, in chunks of any size, and complete
+ * requests are polled out in order. Bytes following the last complete
+ * request are kept until the rest of their request arrives, so several
+ * requests can be read from one connection in sequence.
+ *
+ * The framing is negotiated by the first byte of the connection:
+ * <ul>
+ *   <li>{@link #LENGTH_PREAMBLE} selects {@link Framing#LENGTH}, where every
+ *       request is a 4 byte big endian length followed by that many bytes.
+ *       The payload is read into a single buffer of exactly that length.</li>
+ *   <li>{@link #PIPELINE_PREAMBLE} selects {@link Framing#PIPELINED}, where
+ *       the length is followed by a 4 byte big endian correlation id chosen
+ *       by the client. Requests may be sent without waiting for responses,
+ *       and responses carry the id of their request, so they can be sent
+ *       back in any order.</li>
+ *   <li>Anything else selects {@link Framing#NUL}, where requests are
+ *       delimited by a NUL byte. This is the fallback for existing
+ *       clients.</li>
+ * </ul>
+ *
+ * Setting {@link #DEFLATE_FLAG} in the length prefixed or pipelined preamble
+ * also lets the server compress large responses. A compressed response has
+ * {@link #DEFLATED_BIT} set in its length header, and its payload is zlib
+ * deflated. Requests are never compressed. NUL delimited connections cannot
+ * negotiate compression, as compressed payloads may contain NUL bytes.
+ *
+ * Instances of this class are not thread safe.
+ */
+public class FrameDecoder {
+    /**
+     * The first byte a client sends to select length prefixed framing.
+     */
+    public static final byte LENGTH_PREAMBLE = 0x01;
+
+    /**
+     * The first byte a client sends to select pipelined framing.
+     */
+    public static final byte PIPELINE_PREAMBLE = 0x02;
+
+    /**
+     * The bit set in the preamble by clients accepting compressed responses.
+     */
+    public static final byte DEFLATE_FLAG = 0x10;
+
+    /**
+     * The bit set in the length header of a compressed response.
+     */
+    public static final int DEFLATED_BIT = 0x80000000;
+
+    /**
+     * The size of the length header of a length prefixed frame.
+     */
+    public static final int HEADER_SIZE = 4;
+
+    /**
+     * The size of the length and correlation id header of a pipelined frame.
+     */
+    public static final int PIPELINE_HEADER_SIZE = 8;
+
+    /**
+     * The largest length prefixed frame accepted, to protect the heap from
+     * corrupt or malicious length headers.
+     */
+    public static final int MAX_FRAME_SIZE = 16 << 20;
+
+    /**
+     * The ways requests can be delimited on a connection.
+     */
+    public enum Framing { NUL, LENGTH, PIPELINED }
+
+    /**
+     * A complete length prefixed request.
+     */
+    private record Frame(int id, byte[] payload) {}
+
+    private Framing framing;
+    private boolean deflate;
+
+    // NUL framing state
+    private byte[] buffer;
+    private int start;  // Index of the first unconsumed byte
+    private int end;    // Index one past the last buffered byte
+    private int scan;   // Index from which to continue searching for a NUL
+
+    // Length framing state
+    private final Queue<Frame> frames;
+    private int header;       // Length header read so far
+    private int id;           // Correlation id header read so far
+    private int headerBytes;  // Number of header bytes read so far
+    private int lastId;       // Correlation id of the last polled request
+    private byte[] payload;   // Payload being read, null while reading a header
+    private int payloadId;    // Correlation id of the payload being read
+    private int payloadPos;   // Number of payload bytes read so far
+
+    /**
+     * Constructs an empty FrameDecoder.
+     *
+     * @param initialCapacity The initial size of the internal buffer.
+     */
+    public FrameDecoder(int initialCapacity) {
+        this.buffer = new byte[Math.max(initialCapacity, 16)];
+        this.start = 0;
+        this.end = 0;
+        this.scan = 0;
+        this.frames = new ArrayDeque<>();
+        this.framing = null;
+    }
+
+    /**
+     * Retrieves the framing negotiated by the client.
+     *
+     * @return The framing used by the connection, or {@code null} if the
+     *         client has not sent anything yet.
+     */
+    public Framing framing() {
+        return framing;
+    }
+
+    /**
+     * Indicates whether the client accepts compressed responses.
+     *
+     * @return {@code true} if the client set {@link #DEFLATE_FLAG} in its
+     *         preamble, {@code false} otherwise
+     */
+    public boolean acceptsDeflate() {
+        return deflate;
+    }
+
+    /**
+     * Appends the given bytes to the decoder.
+     *
+     * @param data   The array holding the bytes to add.
+     * @param offset The index of the first byte to add.
+     * @param length The number of bytes to add.
+     *
+     * @throws IOException if a length header exceeds {@link #MAX_FRAME_SIZE}.
+     */
+    public void feed(byte[] data, int offset, int length) throws IOException {
+        feed(ByteBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * Appends the remaining bytes of the given buffer to the decoder.
+     *
+     * @param data The buffer holding the bytes to add.
+     *
+     * @throws IOException if a length header exceeds {@link #MAX_FRAME_SIZE}.
+     */
+    public void feed(ByteBuffer data) throws IOException {
+        if (framing == null && data.hasRemaining()) {
+            byte preamble = data.get(data.position());
+            if ((preamble & ~DEFLATE_FLAG) == LENGTH_PREAMBLE
+                || (preamble & ~DEFLATE_FLAG) == PIPELINE_PREAMBLE) {
+                deflate = (preamble & DEFLATE_FLAG) != 0;
+                preamble &= ~DEFLATE_FLAG;
+            }
+
+            if (preamble == LENGTH_PREAMBLE) {
+                framing = Framing.LENGTH;
+                data.get();  // Consume the preamble
+            } else if (preamble == PIPELINE_PREAMBLE) {
+                framing = Framing.PIPELINED;
+                data.get();
+            } else {
+                framing = Framing.NUL;
+            }
+        }
+
+        if (framing != Framing.NUL) {
+            feedLength(data);
+            return;
+        }
+
+        int length = data.remaining();
+        ensureCapacity(length);
+        data.get(buffer, end, length);
+        end += length;
+    }
+
+    /**
+     * Retrieves a view of the part of the current length prefixed payload
+     * that has not been read yet.
+     *
+     * Reading straight into this buffer, followed by
+     * {@link #payloadFilled(int)}, avoids copying the payload through an
+     * intermediate buffer.
+     *
+     * @return A buffer backed by the payload array, or {@code null} if no
+     *         payload is being read.
+     */
+    public ByteBuffer payloadBuffer() {
+        if (payload == null)
+            return null;
+
+        return ByteBuffer.wrap(payload, payloadPos, payload.length - payloadPos);
+    }
+
+    /**
+     * Marks the given number of bytes as read into {@link #payloadBuffer()}.
+     *
+     * @param length The number of bytes read into the payload buffer.
+     */
+    public void payloadFilled(int length) {
+        payloadPos += length;
+        if (payloadPos == payload.length)
+            completePayload();
+    }
+
+    /**
+     * Retrieves the correlation id of the request last returned by
+     * {@link #poll()}.
+     *
+     * @return The correlation id sent by the client, or zero unless the
+     *         connection is pipelined.
+     */
+    public int correlationId() {
+        return lastId;
+    }
+
+    /**
+     * Retrieves the next complete request.
+     *
+     * @return The request without its delimiter, or {@code null} if no
+     *         complete request has been fed yet.
+     */
+    public byte[] poll() {
+        if (framing == Framing.LENGTH || framing == Framing.PIPELINED) {
+            Frame frame = frames.poll();
+            if (frame == null)
+                return null;
+
+            lastId = frame.id();
+            return frame.payload();
+        }
+
+        for (int i = Math.max(scan, start); i < end; i++) {
+            if (buffer[i] == 0) {
+                byte[] frame = Arrays.copyOfRange(buffer, start, i);
+                start = i + 1;
+                scan = start;
+                return frame;
+            }
+        }
+
+        scan = end;
+        return null;
+    }
+
+    /**
+     * Retrieves all bytes fed since the last complete request, even though
+     * they were not terminated by a NUL byte.
+     *
+     * This is used for clients that do not terminate their requests, and
+     * close or stop writing after a single request instead.
+     *
+     * @return The unterminated bytes, possibly empty.
+     */
+    public byte[] drain() {
+        byte[] frame = Arrays.copyOfRange(buffer, start, end);
+        start = end = scan = 0;
+        return frame;
+    }
+
+    /**
+     * Indicates whether part of a request has been fed, but not polled yet.
+     *
+     * @return {@code true} if there are unconsumed bytes,
+     *         {@code false} otherwise
+     */
+    public boolean hasPartial() {
+        if (framing == Framing.LENGTH || framing == Framing.PIPELINED)
+            return headerBytes > 0 || payload != null;
+
+        return end > start;
+    }
+
+    private void feedLength(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            if (payload == null) {
+                if (headerBytes < HEADER_SIZE)
+                    header = (header << 8) | (data.get() & 0xFF);
+                else
+                    id = (id << 8) | (data.get() & 0xFF);
+
+                int headerSize = framing == Framing.PIPELINED
+                               ? PIPELINE_HEADER_SIZE : HEADER_SIZE;
+                if (++headerBytes < headerSize)
+                    continue;
+
+                if (header < 0 || header > MAX_FRAME_SIZE)
+                    throw new IOException("Frame of " + Integer.toUnsignedString(header)
+                                        + " bytes exceeds the maximum of "
+                                        + MAX_FRAME_SIZE + " bytes");
+
+                // Exactly one buffer of exactly the right size per request
+                payload = new byte[header];
+                payloadId = id;
+                payloadPos = 0;
+                header = id = headerBytes = 0;
+                if (payload.length == 0)
+                    completePayload();
+                continue;
+            }
+
+            int length = Math.min(data.remaining(), payload.length - payloadPos);
+            data.get(payload, payloadPos, length);
+            payloadFilled(length);
+        }
+    }
+
+    private void completePayload() {
+        frames.add(new Frame(payloadId, payload));
+        payload = null;
+        payloadPos = 0;
+    }
+
+    private void ensureCapacity(int length) {
+        if (end + length <= buffer.length)
+            return;
+
+        // Reclaim the space of consumed requests first
+        int size = end - start;
+        if (size + length <= buffer.length && start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, size);
+        } else {
+            int capacity = Math.max(buffer.length * 2, size + length);
+            byte[] grown = new byte[capacity];
+            System.arraycopy(buffer, start, grown, 0, size);
+            buffer = grown;
+        }
+
+        scan -= start;
+        start = 0;
+        end = size;
+    }
+}
@@ -0,0 +1,391 @@
+package com.cs506.project.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Padding before the tail index, so it does not share a cache line with the
+ * object header or the fields of other objects.
+ */
+abstract class RingBufferPadding0<E> extends AbstractQueue<E> {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class RingBufferTail<E> extends RingBufferPadding0<E> {
+    volatile long tail;  // Index of the next slot to offer into
+}
+
+/**
+ * Padding between the tail and head indexes, so producers and consumers do
+ * not invalidate each other's cache lines.
+ */
+abstract class RingBufferPadding1<E> extends RingBufferTail<E> {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+    long p30, p31, p32, p33, p34, p35, p36, p37;
+}
+
+abstract class RingBufferHead<E> extends RingBufferPadding1<E> {
+    volatile long head;  // Index of the next slot to poll from
+}
+
+abstract class RingBufferPadding2<E> extends RingBufferHead<E> {
+    long p40, p41, p42, p43, p44, p45, p46, p47;
+    long p50, p51, p52, p53, p54, p55, p56, p57;
+}
+
+/**
+ * A bounded, lock free, multi producer multi consumer queue backed by a
+ * preallocated ring of slots.
+ *
+ * Every slot carries a sequence number telling producers and consumers
+ * whether it is free or holds an element for the current lap of the ring,
+ * so offering and polling each take a single compare and set on the tail or
+ * head index, and never allocate. The indexes are padded onto cache lines of
+ * their own to avoid false sharing between producers and consumers.
+ *
+ * The blocking operations wait according to a {@link WaitStrategy}, trading
+ * CPU time for handoff latency.
+ *
+ * @param <E> The type of elements held in this queue.
+ */
+@SuppressWarnings("unchecked")
+public class RingBufferQueue<E> extends RingBufferPadding2<E>
+    implements BlockingQueue<E> {
+
+    /**
+     * How a blocked producer or consumer waits for the ring to change.
+     */
+    public enum WaitStrategy {
+        /** Busy spin, lowest latency at the cost of a fully used core. */
+        SPIN,
+        /** Yield the processor to other threads between attempts. */
+        YIELD,
+        /** Spin briefly, then park with a growing back off, up to 1 ms. */
+        PARK;
+
+        /**
+         * Parses a wait strategy from its case insensitive name.
+         *
+         * @param name The name of the strategy.
+         *
+         * @return The strategy, or {@code null} if there is none by that name.
+         */
+        public static WaitStrategy parse(String name) {
+            for (WaitStrategy strategy: values())
+                if (strategy.name().equalsIgnoreCase(name))
+                    return strategy;
+
+            return null;
+        }
+    }
+
+    /**
+     * The capacity used when none is specified.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final int SPINS = 128;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final VarHandle TAIL;
+    private static final VarHandle HEAD;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TAIL = lookup.findVarHandle(RingBufferTail.class, "tail", long.class);
+            HEAD = lookup.findVarHandle(RingBufferHead.class, "head", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int mask;
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Constructs an empty RingBufferQueue of the default capacity, that parks
+     * blocked threads.
+     */
+    public RingBufferQueue() {
+        this(DEFAULT_CAPACITY, WaitStrategy.PARK);
+    }
+
+    /**
+     * Constructs an empty RingBufferQueue.
+     *
+     * @param capacity     The number of elements the queue can hold, rounded up
+     *                     to a power of two of at least 2.
+     * @param waitStrategy How blocked producers and consumers wait.
+     *
+     * @throws IllegalArgumentException if the capacity is not positive, or no
+     *                                  wait strategy is given.
+     */
+    public RingBufferQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        if (waitStrategy == null)
+            throw new IllegalArgumentException("Wait strategy cannot be null");
+
+        // A single slot could not tell a published element from a free slot
+        int size = Math.max(Integer.highestOneBit(capacity), 2);
+        if (size < capacity)
+            size <<= 1;
+
+        this.mask = size - 1;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.waitStrategy = waitStrategy;
+
+        // Slot i is free for the offer with index i
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+    }
+
+    /**
+     * Retrieves the strategy blocked producers and consumers wait with.
+     *
+     * @return The wait strategy of this queue.
+     */
+    public WaitStrategy waitStrategy() {
+        return waitStrategy;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+
+        long index = tail;
+        while (true) {
+            int slot = (int) index & mask;
+            long diff = sequences.get(slot) - index;
+
+            if (diff == 0) {
+                // Slot is free for this lap, claim it
+                if (TAIL.weakCompareAndSet(this, index, index + 1)) {
+                    elements[slot] = e;
+                    sequences.lazySet(slot, index + 1);  // Publish
+                    return true;
+                }
+                index = tail;
+            } else if (diff < 0) {
+                return false;  // Full, the slot still holds the previous lap
+            } else {
+                index = tail;  // Another producer claimed it first
+            }
+        }
+    }
+
+    @Override
+    public E poll() {
+        long index = head;
+        while (true) {
+            int slot = (int) index & mask;
+            long diff = sequences.get(slot) - (index + 1);
+
+            if (diff == 0) {
+                // Slot holds an element for this lap, claim it
+                if (HEAD.weakCompareAndSet(this, index, index + 1)) {
+                    E e = (E) elements[slot];
+                    elements[slot] = null;
+                    sequences.lazySet(slot, index + mask + 1);  // Free
+                    return e;
+                }
+                index = head;
+            } else if (diff < 0) {
+                return null;  // Empty, the slot has not been published yet
+            } else {
+                index = head;  // Another consumer claimed it first
+            }
+        }
+    }
+
+    @Override
+    public E peek() {
+        while (true) {
+            long index = head;
+            int slot = (int) index & mask;
+            if (sequences.get(slot) != index + 1)
+                return null;
+
+            E e = (E) elements[slot];
+            if (e != null && head == index)
+                return e;
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        for (int attempt = 0; !offer(e); attempt++)
+            idle(attempt, Long.MAX_VALUE);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int attempt = 0; !offer(e); attempt++) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+            idle(attempt, remaining);
+        }
+
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e;
+        for (int attempt = 0; (e = poll()) == null; attempt++)
+            idle(attempt, Long.MAX_VALUE);
+
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E e;
+        for (int attempt = 0; (e = poll()) == null; attempt++) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return null;
+            idle(attempt, remaining);
+        }
+
+        return e;
+    }
+
+    private void idle(int attempt, long maxNanos) throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+
+        switch (waitStrategy) {
+            case SPIN:
+                Thread.onSpinWait();
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            case PARK:
+                if (attempt < SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    // Back off exponentially, from 1 us up to 1 ms
+                    int shift = Math.min(attempt - SPINS, 20);
+                    long nanos = Math.min(1000L << shift, MAX_PARK_NANOS);
+                    LockSupport.parkNanos(this, Math.min(nanos, maxNanos));
+                }
+                break;
+        }
+    }
+
+    @Override
+    public int size() {
+        while (true) {
+            long before = head;
+            long size = tail - before;
+            if (head == before)
+                return (int) Math.max(0, Math.min(size, capacity()));
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Retrieves the number of elements this queue can hold.
+     *
+     * @return The capacity of the ring.
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity() - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this)
+            throw new IllegalArgumentException();
+
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = poll()) != null) {
+            c.add(e);
+            n++;
+        }
+
+        return n;
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this queue.
+     * The iterator does not support removal.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        long end = tail;
+        for (long index = head; index < end; index++) {
+            int slot = (int) index & mask;
+            E e = (E) elements[slot];
+            if (sequences.get(slot) == index + 1 && e != null)
+                snapshot.add(e);
+        }
+
+        Iterator<E> it = snapshot.iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return it.next();
+            }
+        };
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null)
+            return false;
+
+        for (E e: this)
+            if (o.equals(e))
+                return true;
+
+        return false;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("Cannot remove from a ring buffer");
+    }
+}
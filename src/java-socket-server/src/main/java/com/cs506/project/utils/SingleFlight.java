@@ -0,0 +1,259 @@
+package com.cs506.project.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces identical requests that are in progress at the same time, so
+ * the response is produced once and shared by all of them.
+ *
+ * The first request for a key becomes the leader of a flight, and produces
+ * the response into its own writer. Identical requests arriving while the
+ * flight is in progress follow it: they are sent the output produced so
+ * far, then the rest as the leader produces it. Responses are never cached
+ * past the end of their flight. If the client of the leader goes away, the
+ * response is still produced for the followers.
+ *
+ * The output is only kept for followers up to {@link #MAX_SHARED}
+ * characters, unless a follower already joined. Beyond that, the flight is
+ * closed to new followers and the leader goes on without keeping anything,
+ * so a large response produced by a single request still does not grow with
+ * its size.
+ *
+ * Instances of this class are thread safe.
+ *
+ * @param <K> The type of the keys identifying identical requests.
+ */
+public class SingleFlight<K> {
+    /**
+     * The number of characters of a response kept for followers that have
+     * not joined yet.
+     */
+    public static final int MAX_SHARED = 1 << 20;
+
+    private static final int COPY_SIZE = 8192;
+
+    /**
+     * Produces a response.
+     */
+    @FunctionalInterface
+    public interface Producer {
+        /**
+         * Writes the response.
+         *
+         * @param out The writer to write the response to.
+         *
+         * @throws IOException if an I/O error occurs while writing.
+         */
+        void write(Writer out) throws IOException;
+    }
+
+    private final Map<K, Flight> flights;
+
+    /**
+     * Constructs a new SingleFlight, with no flights in progress.
+     */
+    public SingleFlight() {
+        this.flights = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Writes the response for the given key, produced by the given producer
+     * unless an identical flight is in progress.
+     *
+     * @param key      Identifies the request.
+     * @param out      The writer to write the response to.
+     * @param producer Produces the response if this request leads the flight.
+     *
+     * @return {@code true} if the response was shared with an earlier
+     *         request, {@code false} if it was produced by this one
+     *
+     * @throws IOException if an I/O error occurs while writing, or the leader
+     *                     of the flight failed part way.
+     */
+    public boolean execute(K key, Writer out, Producer producer)
+        throws IOException {
+        while (true) {
+            Flight flight = flights.get(key);
+            if (flight != null) {
+                if (flight.join()) {
+                    flight.follow(out);
+                    return true;
+                }
+                // Closed to followers, lead a new one rather than waiting
+                flights.remove(key, flight);
+                continue;
+            }
+
+            flight = new Flight(key, out);
+            if (flights.putIfAbsent(key, flight) != null)
+                continue;  // Another request took the lead first
+
+            boolean complete = false;
+            try {
+                producer.write(flight);
+                complete = true;
+            } finally {
+                flight.land(complete);
+            }
+
+            if (flight.leaderError != null)
+                throw flight.leaderError;
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves the number of flights in progress.
+     *
+     * @return The number of distinct requests being produced.
+     */
+    public int inFlight() {
+        return flights.size();
+    }
+
+    /**
+     * Writes the output of the leader to its own writer, and keeps it for
+     * the followers.
+     */
+    private final class Flight extends Writer {
+        private final K key;
+        private final Writer out;
+        private StringBuilder shared;  // Null once closed to followers
+        private int followers;
+        private boolean landed;
+        private boolean failed;
+        private IOException leaderError;  // Only touched by the leader
+
+        private Flight(K key, Writer out) {
+            this.key = key;
+            this.out = out;
+            this.shared = new StringBuilder();
+        }
+
+        private synchronized boolean join() {
+            if (shared == null || landed)
+                return false;
+
+            followers++;
+            return true;
+        }
+
+        private void follow(Writer target) throws IOException {
+            char[] copy = new char[COPY_SIZE];
+            int position = 0;
+            while (true) {
+                int length;
+                synchronized (this) {
+                    while (position == shared.length() && !landed)
+                        waitForOutput();
+                    if (failed)
+                        throw new IOException("Shared response failed");
+                    if (position == shared.length())
+                        return;
+
+                    length = Math.min(COPY_SIZE, shared.length() - position);
+                    shared.getChars(position, position + length, copy, 0);
+                }
+
+                // Never write to a slow client while holding up the leader
+                target.write(copy, 0, length);
+                position += length;
+            }
+        }
+
+        private void waitForOutput() throws IOException {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for shared response");
+            }
+        }
+
+        private void land(boolean complete) {
+            flights.remove(key, this);
+            synchronized (this) {
+                landed = true;
+                failed = !complete;
+                notifyAll();
+            }
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            keep(cbuf, off, len);
+            if (leaderError == null) {
+                try {
+                    out.write(cbuf, off, len);
+                } catch (IOException e) {
+                    leaderGone(e);
+                }
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            keep(str, off, len);
+            if (leaderError == null) {
+                try {
+                    out.write(str, off, len);
+                } catch (IOException e) {
+                    leaderGone(e);
+                }
+            }
+        }
+
+        private synchronized void keep(char[] cbuf, int off, int len) {
+            if (shared != null) {
+                shared.append(cbuf, off, len);
+                kept();
+            }
+        }
+
+        private synchronized void keep(String str, int off, int len) {
+            if (shared != null) {
+                shared.append(str, off, off + len);
+                kept();
+            }
+        }
+
+        private void kept() {
+            if (followers > 0) {
+                notifyAll();
+            } else if (shared.length() > MAX_SHARED) {
+                shared = null;
+                flights.remove(key, this);
+            }
+        }
+
+        /**
+         * Goes on producing for the followers, if any, once the client of
+         * the leader is gone.
+         */
+        private void leaderGone(IOException e) throws IOException {
+            synchronized (this) {
+                if (followers == 0) {
+                    shared = null;
+                    flights.remove(key, this);
+                    throw e;
+                }
+            }
+
+            leaderError = e;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (leaderError == null)
+                out.flush();
+        }
+
+        @Override
+        public void close() {
+            // The writer of the leader is closed by its owner
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.cs506.project.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of snapshot files, one per key, built on demand and reused until
+ * they are invalidated or grow too old.
+ *
+ * Snapshots are written to a temporary file first, and moved in place once
+ * complete, so a snapshot being sent is never seen half written. Replacing a
+ * snapshot deletes the previous file, which does not disturb a reader that
+ * already opened it.
+ *
+ * Snapshots are encoded with the default charset, like everything written
+ * through {@link SocketIO}, so their bytes can be sent to a client as is.
+ *
+ * Instances of this class are thread safe. Concurrent misses for the same
+ * key may each build a snapshot, the last one built wins.
+ */
+public class SnapshotCache {
+    /**
+     * Writes the contents of a snapshot.
+     */
+    @FunctionalInterface
+    public interface Builder {
+        /**
+         * Writes the contents of a snapshot.
+         *
+         * @param out The writer to write the snapshot to.
+         *
+         * @return {@code true} if the snapshot is complete and may be reused,
+         *         {@code false} if it must be discarded
+         *
+         * @throws IOException if an I/O error occurs while writing.
+         */
+        boolean write(Writer out) throws IOException;
+    }
+
+    private record Snapshot(Path path, long version, long createdAt) {}
+
+    private final Path directory;
+    private final long maxAge;
+    private final Map<String, Snapshot> snapshots;
+    private final Map<String, AtomicLong> versions;
+
+    /**
+     * Constructs a new SnapshotCache.
+     *
+     * @param directory The directory to keep the snapshot files in, created
+     *                  if missing.
+     * @param maxAge    How long a snapshot is reused for, in milliseconds,
+     *                  even if it is never invalidated.
+     */
+    public SnapshotCache(Path directory, long maxAge) {
+        this.directory = directory;
+        this.maxAge = maxAge;
+        this.snapshots = new ConcurrentHashMap<>();
+        this.versions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Marks the snapshot of the given key as out of date, including one that
+     * is being built right now.
+     *
+     * @param key The key of the snapshot.
+     */
+    public void invalidate(String key) {
+        version(key).incrementAndGet();
+    }
+
+    /**
+     * Retrieves the snapshot file of the given key, building it first unless
+     * an up to date one exists.
+     *
+     * @param key     The key of the snapshot, also used in its file name.
+     * @param builder Writes the snapshot if it has to be built.
+     *
+     * @return The snapshot file, or {@code null} if the builder reported the
+     *         snapshot incomplete.
+     *
+     * @throws IOException if an I/O error occurs while building the snapshot.
+     */
+    public Path get(String key, Builder builder) throws IOException {
+        long version = version(key).get();
+        Snapshot snapshot = snapshots.get(key);
+        if (snapshot != null && snapshot.version() == version
+            && System.currentTimeMillis() - snapshot.createdAt() < maxAge
+            && Files.exists(snapshot.path()))
+            return snapshot.path();
+
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        boolean complete = false;
+        try {
+            long createdAt = System.currentTimeMillis();
+            try (Writer out = Files.newBufferedWriter(temp, Charset.defaultCharset())) {
+                complete = builder.write(out);
+            }
+            if (!complete)
+                return null;
+
+            // Builds of the same version have the same contents
+            Path path = directory.resolve(key + "-" + version + ".json");
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+
+            // Stays out of date if invalidated while it was being built
+            Snapshot previous = snapshots.put(key, new Snapshot(path, version, createdAt));
+            if (previous != null && !previous.path().equals(path))
+                Files.deleteIfExists(previous.path());
+            return path;
+        } finally {
+            if (!complete)
+                Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Opens the snapshot file of the given key for reading, building it
+     * first unless an up to date one exists.
+     *
+     * @param key     The key of the snapshot, also used in its file name.
+     * @param builder Writes the snapshot if it has to be built.
+     *
+     * @return The open snapshot file, or {@code null} if the builder
+     *         reported the snapshot incomplete.
+     *
+     * @throws IOException if an I/O error occurs while building or opening
+     *                     the snapshot.
+     */
+    public FileChannel open(String key, Builder builder) throws IOException {
+        while (true) {
+            Path path = get(key, builder);
+            if (path == null)
+                return null;
+
+            try {
+                return FileChannel.open(path);
+            } catch (NoSuchFileException e) {
+                // Replaced by a newer snapshot meanwhile
+            }
+        }
+    }
+
+    private AtomicLong version(String key) {
+        return versions.computeIfAbsent(key, k -> new AtomicLong());
+    }
+}
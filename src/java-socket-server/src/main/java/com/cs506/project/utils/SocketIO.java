@@ -1,18 +1,58 @@
 package com.cs506.project.utils;
 
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.zip.Deflater;
 
 /**
  * Utility class for reading from and writing to sockets.
  * Provides methods to read bytes write bytes or strings from a socket
  *
+ * Buffers are taken from the shared {@link BufferPool}s, so that reading a
+ * request and writing its response allocates close to nothing in the steady
+ * state. Sockets backed by a channel are written to with pooled direct
+ * buffers, other sockets through their output stream.
+ *
+ * Length prefixed responses of at least {@link #DEFLATE_THRESHOLD} bytes are
+ * deflated when the client negotiated compression, and the result is sent if
+ * it is smaller. Every thread reuses a single compressor.
+ *
  * @author Mrigank Kumar
  */
 public class SocketIO {
+    // Strings are encoded like String.getBytes() does, without allocating
+    private static final ThreadLocal<CharsetEncoder> encoder =
+        ThreadLocal.withInitial(() -> Charset.defaultCharset().newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    /**
+     * The smallest response that is compressed, in bytes. Smaller responses
+     * fit a few packets anyway, and would only pay for the compression.
+     */
+    public static final int DEFLATE_THRESHOLD = 1024;
+
+    // Fastest level, repeated JSON keys and values compress well regardless
+    private static final ThreadLocal<Deflater> deflater =
+        ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+
+    /**
+     * Retrieves the encoder of the current thread. It must be reset before use.
+     */
+    static CharsetEncoder encoder() {
+        return encoder.get();
+    }
+
     /**
      * Reads bytes from a socket's input stream.
      *
@@ -26,29 +66,141 @@ public class SocketIO {
     public static byte[] readFrom(Socket socket, int chunkSize)
         throws IOException {
         InputStream sockIn = socket.getInputStream();
-        byte[] buffer = new byte[chunkSize];
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        int nRead;
-        do {
-            // Read into buffer
-            if ((nRead = sockIn.read(buffer)) < 0)
-                break;
+        ByteBuffer buffer = BufferPool.HEAP.acquire(chunkSize);
+        buffer.limit(buffer.capacity());
+        try {
+            int nRead;
+            do {
+                // Make room for another chunk
+                if (buffer.remaining() < chunkSize) {
+                    ByteBuffer grown = BufferPool.HEAP.acquire(buffer.capacity() * 2);
+                    grown.limit(grown.capacity());
+                    grown.put(buffer.flip());
+                    BufferPool.HEAP.release(buffer);
+                    buffer = grown;
+                }
+
+                // Read into buffer
+                int offset = buffer.position();
+                if ((nRead = sockIn.read(buffer.array(), offset, chunkSize)) < 0)
+                    break;
+                buffer.position(offset + nRead);
+
+                // If we didn't fill up the chunk, it's likely we've read
+                // all data
+                if (nRead < chunkSize)
+                    break;
+
+                // Boundary condition, if we read the exactly chunkSize
+                // bytes
+                if (buffer.get(buffer.position() - 1) == 0)
+                    break;
+            } while(sockIn.available() > 0);
 
-            // Store buffer in byte array stream
-            stream.write(buffer, 0, nRead);
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        } finally {
+            BufferPool.HEAP.release(buffer);
+        }
+    }
+
+    /**
+     * Performs a single read from a socket's input stream into a decoder.
+     *
+     * While the decoder is in the middle of a length prefixed payload, the
+     * bytes are read straight into the payload buffer. Otherwise they are
+     * read into the given chunk and fed to the decoder.
+     *
+     * @param sockIn  The input stream of the socket from which to read.
+     * @param decoder The decoder to hand the read bytes to.
+     * @param chunk   The heap buffer to read into outside of a payload,
+     *                up to its limit.
+     *
+     * @return The number of bytes read, or -1 at the end of the stream.
+     *
+     * @throws IOException if an I/O error occurs while reading from the socket,
+     *                     or the client sends a frame that is too large.
+     */
+    public static int readInto(InputStream sockIn, FrameDecoder decoder,
+                               ByteBuffer chunk) throws IOException {
+        ByteBuffer payload = decoder.payloadBuffer();
+        if (payload != null) {
+            int nRead = sockIn.read(payload.array(),
+                                    payload.arrayOffset() + payload.position(),
+                                    payload.remaining());
+            if (nRead > 0)
+                decoder.payloadFilled(nRead);
+            return nRead;
+        }
+
+        int nRead = sockIn.read(chunk.array(), chunk.arrayOffset(), chunk.limit());
+        if (nRead > 0)
+            decoder.feed(chunk.array(), chunk.arrayOffset(), nRead);
+        return nRead;
+    }
+
+    /**
+     * Encodes a string into a pooled direct buffer, ready to be written.
+     *
+     * @param data         The string to encode.
+     * @param lengthPrefix Whether to prefix the data with its 4 byte length.
+     * @param appendNull   Whether to append a null byte after the data.
+     *
+     * @return The flipped buffer, which must be handed back to
+     *         {@link BufferPool#DIRECT} once written.
+     */
+    public static ByteBuffer encode(String data, boolean lengthPrefix,
+                                    boolean appendNull) {
+        return encode(data, lengthPrefix, appendNull, false);
+    }
 
-            // If we didn't fill up the buffer, it's likely we've read
-            // all data
-            if (nRead < buffer.length)
-                break;
+    /**
+     * Encodes a string into a pooled direct buffer, ready to be written.
+     *
+     * @param data         The string to encode.
+     * @param lengthPrefix Whether to prefix the data with its 4 byte length.
+     * @param appendNull   Whether to append a null byte after the data.
+     * @param deflate      Whether a large length prefixed response may be
+     *                     compressed.
+     *
+     * @return The flipped buffer, which must be handed back to
+     *         {@link BufferPool#DIRECT} once written.
+     */
+    public static ByteBuffer encode(String data, boolean lengthPrefix,
+                                    boolean appendNull, boolean deflate) {
+        int headerSize = lengthPrefix ? FrameDecoder.HEADER_SIZE : 0;
+        return encode(BufferPool.DIRECT, data, headerSize, 0, appendNull,
+                      deflate && lengthPrefix);
+    }
 
-            // Boundary condition, if we read the exactly chunkSize
-            // bytes
-            if (buffer[buffer.length - 1] == 0)
-                break;
-        } while(sockIn.available() > 0);
+    /**
+     * Encodes a string into a pooled direct buffer as a pipelined frame:
+     * a 4 byte length and a 4 byte correlation id followed by the data.
+     *
+     * @param data          The string to encode.
+     * @param correlationId The correlation id of the request answered.
+     *
+     * @return The flipped buffer, which must be handed back to
+     *         {@link BufferPool#DIRECT} once written.
+     */
+    public static ByteBuffer encode(String data, int correlationId) {
+        return encode(data, correlationId, false);
+    }
 
-        return stream.toByteArray();
+    /**
+     * Encodes a string into a pooled direct buffer as a pipelined frame:
+     * a 4 byte length and a 4 byte correlation id followed by the data.
+     *
+     * @param data          The string to encode.
+     * @param correlationId The correlation id of the request answered.
+     * @param deflate       Whether a large response may be compressed.
+     *
+     * @return The flipped buffer, which must be handed back to
+     *         {@link BufferPool#DIRECT} once written.
+     */
+    public static ByteBuffer encode(String data, int correlationId,
+                                    boolean deflate) {
+        return encode(BufferPool.DIRECT, data, FrameDecoder.PIPELINE_HEADER_SIZE,
+                      correlationId, false, deflate);
     }
 
     /**
@@ -81,6 +233,198 @@ public class SocketIO {
      */
     public static void writeTo(Socket socket, String data, boolean appendNull)
         throws IOException {
-        writeTo(socket, data.getBytes(), appendNull);
+        write(socket, data, 0, 0, appendNull);
+    }
+
+    /**
+     * Writes a byte array to a socket's output stream as a length prefixed
+     * frame: a 4 byte big endian length followed by the data.
+     *
+     * @param socket The socket to which to write.
+     * @param data   The byte array to write.
+     *
+     * @throws IOException if an I/O error occurs while writing to the socket.
+     */
+    public static void writeFrame(Socket socket, byte[] data)
+        throws IOException {
+        // Single write, so the header is never sent in a segment of its own
+        ByteBuffer frame = ByteBuffer.allocate(FrameDecoder.HEADER_SIZE + data.length);
+        frame.putInt(data.length).put(data);
+        socket.getOutputStream().write(frame.array());
+    }
+
+    /**
+     * Writes a string to a socket's output stream as a length prefixed
+     * frame: a 4 byte big endian length followed by the encoded string.
+     *
+     * @param socket The socket to which to write.
+     * @param data   The string to write.
+     *
+     * @throws IOException if an I/O error occurs while writing to the socket.
+     */
+    public static void writeFrame(Socket socket, String data)
+        throws IOException {
+        writeFrame(socket, data, false);
+    }
+
+    /**
+     * Writes a string to a socket's output stream as a length prefixed
+     * frame: a 4 byte big endian length followed by the encoded string.
+     *
+     * @param socket  The socket to which to write.
+     * @param data    The string to write.
+     * @param deflate Whether a large string may be sent compressed.
+     *
+     * @throws IOException if an I/O error occurs while writing to the socket.
+     */
+    public static void writeFrame(Socket socket, String data, boolean deflate)
+        throws IOException {
+        write(socket, data, FrameDecoder.HEADER_SIZE, 0, false, deflate);
+    }
+
+    /**
+     * Writes a string to a socket's output stream as a pipelined frame:
+     * a 4 byte length and a 4 byte correlation id followed by the encoded
+     * string.
+     *
+     * Frames are written whole, so concurrent callers writing to the same
+     * socket must synchronize on it.
+     *
+     * @param socket        The socket to which to write.
+     * @param data          The string to write.
+     * @param correlationId The correlation id of the request answered.
+     *
+     * @throws IOException if an I/O error occurs while writing to the socket.
+     */
+    public static void writeFrame(Socket socket, String data, int correlationId)
+        throws IOException {
+        writeFrame(socket, data, correlationId, false);
+    }
+
+    /**
+     * Writes a string to a socket's output stream as a pipelined frame:
+     * a 4 byte length and a 4 byte correlation id followed by the encoded
+     * string.
+     *
+     * Frames are written whole, so concurrent callers writing to the same
+     * socket must synchronize on it.
+     *
+     * @param socket        The socket to which to write.
+     * @param data          The string to write.
+     * @param correlationId The correlation id of the request answered.
+     * @param deflate       Whether a large string may be sent compressed.
+     *
+     * @throws IOException if an I/O error occurs while writing to the socket.
+     */
+    public static void writeFrame(Socket socket, String data, int correlationId,
+                                  boolean deflate)
+        throws IOException {
+        write(socket, data, FrameDecoder.PIPELINE_HEADER_SIZE, correlationId,
+              false, deflate);
+    }
+
+    private static void write(Socket socket, String data, int headerSize,
+                              int correlationId, boolean appendNull)
+        throws IOException {
+        write(socket, data, headerSize, correlationId, appendNull, false);
+    }
+
+    private static void write(Socket socket, String data, int headerSize,
+                              int correlationId, boolean appendNull,
+                              boolean deflate)
+        throws IOException {
+        SocketChannel channel = socket.getChannel();
+        BufferPool pool = channel != null ? BufferPool.DIRECT : BufferPool.HEAP;
+        ByteBuffer buffer = encode(pool, data, headerSize, correlationId,
+                                   appendNull, deflate);
+        try {
+            if (channel != null) {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            } else {
+                socket.getOutputStream().write(buffer.array(),
+                                               buffer.arrayOffset(),
+                                               buffer.remaining());
+            }
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    private static ByteBuffer encode(BufferPool pool, String data,
+                                     int headerSize, int correlationId,
+                                     boolean appendNull, boolean deflate) {
+        CharsetEncoder enc = encoder.get();
+        int extra = headerSize + (appendNull ? 1 : 0);
+
+        // Guess the typical size first, and only fall back to the worst case
+        for (int attempt = 0; ; attempt++) {
+            float factor = attempt == 0 ? enc.averageBytesPerChar()
+                                        : enc.maxBytesPerChar();
+            int size = extra + (int) Math.ceil(data.length() * (double) factor);
+            ByteBuffer buffer = pool.acquire(size);
+            buffer.limit(size - (appendNull ? 1 : 0));
+            buffer.position(headerSize);
+
+            enc.reset();
+            CoderResult result = enc.encode(CharBuffer.wrap(data), buffer, true);
+            if (!result.isOverflow())
+                result = enc.flush(buffer);
+            if (result.isOverflow()) {
+                pool.release(buffer);
+                continue;
+            }
+
+            int length = buffer.position() - headerSize;
+            if (deflate && headerSize > 0 && length >= DEFLATE_THRESHOLD) {
+                ByteBuffer deflated = deflate(pool, buffer, headerSize);
+                if (deflated != null) {
+                    pool.release(buffer);
+                    buffer = deflated;
+                    length = (buffer.position() - headerSize)
+                           | FrameDecoder.DEFLATED_BIT;
+                }
+            }
+
+            if (headerSize > 0)
+                buffer.putInt(0, length);
+            if (headerSize > FrameDecoder.HEADER_SIZE)
+                buffer.putInt(FrameDecoder.HEADER_SIZE, correlationId);
+
+            // Add extra NUL
+            if (appendNull)
+                buffer.limit(size).put((byte) 0);
+
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * Compresses the data encoded after the header of the given buffer into a
+     * new buffer from the same pool, leaving room for the same header.
+     *
+     * @return The new buffer, positioned after the compressed data, or
+     *         {@code null} if compressing does not make the data smaller.
+     */
+    private static ByteBuffer deflate(BufferPool pool, ByteBuffer buffer,
+                                      int headerSize) {
+        int length = buffer.position() - headerSize;
+        Deflater def = deflater.get();
+        def.reset();
+        def.setInput(buffer.duplicate().position(headerSize).limit(headerSize + length));
+        def.finish();
+
+        // Give up as soon as the output is no smaller than the input
+        ByteBuffer deflated = pool.acquire(headerSize + length - 1);
+        deflated.position(headerSize);
+        while (!def.finished() && deflated.hasRemaining())
+            def.deflate(deflated);
+
+        if (!def.finished()) {
+            pool.release(deflated);
+            return null;
+        }
+
+        return deflated;
     }
 }
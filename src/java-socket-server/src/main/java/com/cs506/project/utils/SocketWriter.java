@@ -0,0 +1,204 @@
+package com.cs506.project.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * A writer that encodes characters straight into a pooled buffer, and sends
+ * the buffer to a socket whenever it fills up.
+ *
+ * Responses written through a SocketWriter are never held in memory as a
+ * whole, so memory use stays constant however large they grow, and the
+ * client receives the first bytes while the rest is still being produced.
+ * Since their length is not known upfront, such responses can only be
+ * delimited with a trailing NUL byte.
+ *
+ * Closing the writer sends whatever is left, followed by the NUL byte if
+ * requested, but leaves the socket open.
+ */
+public class SocketWriter extends Writer {
+    /**
+     * The size of the buffer responses are encoded into.
+     */
+    public static final int BUFFER_SIZE = 16 * 1024;
+
+    private final SocketChannel channel;
+    private final OutputStream sockOut;
+    private final BufferPool pool;
+    private final CharsetEncoder encoder;
+    private final boolean appendNull;
+    private ByteBuffer buffer;
+    private char pending;  // High surrogate waiting for its low surrogate
+    private long written;
+
+    /**
+     * Constructs a new SocketWriter.
+     *
+     * @param socket     The socket to write to.
+     * @param appendNull Whether to end the response with a NUL byte.
+     *
+     * @throws IOException if the output stream of the socket is unavailable.
+     */
+    public SocketWriter(Socket socket, boolean appendNull) throws IOException {
+        this.channel = socket.getChannel();
+        this.sockOut = channel == null ? socket.getOutputStream() : null;
+        this.pool = channel != null ? BufferPool.DIRECT : BufferPool.HEAP;
+        this.buffer = pool.acquire(BUFFER_SIZE);
+        this.encoder = SocketIO.encoder();
+        this.appendNull = appendNull;
+
+        buffer.limit(buffer.capacity());
+        encoder.reset();
+    }
+
+    /**
+     * Retrieves the number of bytes sent to the socket so far.
+     *
+     * @return The number of bytes sent.
+     */
+    public long bytesWritten() {
+        return written;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        encode(CharBuffer.wrap(new char[]{ (char) c }), false);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        encode(CharBuffer.wrap(cbuf, off, len), false);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        encode(CharBuffer.wrap(str, off, off + len), false);
+    }
+
+    @Override
+    public Writer append(CharSequence csq) throws IOException {
+        encode(CharBuffer.wrap(csq == null ? "null" : csq), false);
+        return this;
+    }
+
+    /**
+     * Sends the whole contents of a file, after the characters written so
+     * far. The file must be encoded like the characters written to this
+     * writer.
+     *
+     * Sockets backed by a channel are sent the file with
+     * {@link FileChannel#transferTo}, so its contents never enter the heap.
+     *
+     * @param file The file to send.
+     *
+     * @throws IOException if an I/O error occurs while reading the file or
+     *                     writing to the socket.
+     */
+    public void transferFrom(FileChannel file) throws IOException {
+        flush();
+
+        WritableByteChannel target = channel != null ? channel
+                                   : Channels.newChannel(sockOut);
+        long size = file.size();
+        long position = 0;
+        while (position < size)
+            position += file.transferTo(position, size - position, target);
+
+        written += size;
+    }
+
+    private void encode(CharBuffer chars, boolean endOfInput)
+        throws IOException {
+        ensureOpen();
+
+        // Complete a surrogate pair split over two writes
+        if (pending != 0 && (chars.hasRemaining() || endOfInput)) {
+            char high = pending;
+            pending = 0;
+            CharBuffer pair = chars.hasRemaining()
+                            ? CharBuffer.wrap(new char[]{ high, chars.get() })
+                            : CharBuffer.wrap(new char[]{ high });
+            encode(pair, endOfInput && !chars.hasRemaining());
+        }
+
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, endOfInput);
+            if (!result.isOverflow())
+                break;
+            send();
+        }
+
+        // Only a lone high surrogate is left, its pair comes with the next write
+        if (chars.hasRemaining())
+            pending = chars.get();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (buffer == null)
+            throw new IOException("Writer closed");
+    }
+
+    private void send() throws IOException {
+        buffer.flip();
+        written += buffer.remaining();
+        if (channel != null) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        } else {
+            sockOut.write(buffer.array(), buffer.arrayOffset(),
+                          buffer.remaining());
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Sends the characters written so far.
+     *
+     * @throws IOException if an I/O error occurs while writing to the socket.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (buffer.position() > 0)
+            send();
+    }
+
+    /**
+     * Sends the rest of the response, followed by the NUL byte if requested.
+     * The socket is left open.
+     *
+     * @throws IOException if an I/O error occurs while writing to the socket.
+     */
+    @Override
+    public void close() throws IOException {
+        if (buffer == null)
+            return;
+
+        try {
+            encode(CharBuffer.allocate(0), true);
+            while (encoder.flush(buffer).isOverflow())
+                send();
+
+            if (appendNull) {
+                if (!buffer.hasRemaining())
+                    send();
+                buffer.put((byte) 0);
+            }
+
+            flush();
+        } finally {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+}
@@ -1,29 +1,112 @@
 package com.cs506.project;
 
+import com.cs506.project.configs.PoolConfig;
 import com.cs506.project.repos.AirplaneRepository;
 import com.cs506.project.schemas.AirplaneSchema;
 import com.cs506.project.schemas.SocketServerRequest;
+import com.cs506.project.utils.ConnectionPool;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class RepositoryControllerTest {
 
+    private final AtomicInteger opened = new AtomicInteger();
+
+    private final List<RepositoryController> controllers = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown () {
+        controllers.forEach(RepositoryController::close);
+    }
+
+    /**
+     * Creates a controller borrowing from a pool of mocked connections, whose READs of whole tables return as many
+     * airplanes as their limit.
+     */
+    private RepositoryController mockedController () {
+        ConnectionPool pool = new ConnectionPool(this::database, new PoolConfig(0, 8, 1000, 0, 0),
+                new PrintStream(new ByteArrayOutputStream()));
+        return controller(pool, this::database);
+    }
+
+    private RepositoryController controller (ConnectionPool pool, ConnectionPool.ConnectionFactory probeFactory) {
+        RepositoryController controller = new RepositoryController(pool, probeFactory);
+        controllers.add(controller);
+        return controller;
+    }
+
+    // Opens probe connections that answer, or fails while the database is down
+    private static ConnectionPool.ConnectionFactory probe (boolean up) {
+        return () -> {
+            if (!up) {
+                throw new SQLException("Communications link failure");
+            }
+            Connection connection = mock(Connection.class);
+            when(connection.isValid(anyInt())).thenReturn(true);
+            return connection;
+        };
+    }
+
+    private Connection database () throws SQLException {
+        opened.incrementAndGet();
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenAnswer(prepare -> {
+            int[] limit = new int[1];
+            PreparedStatement statement = mock(PreparedStatement.class);
+            doAnswer(set -> limit[0] = set.getArgument(1)).when(statement).setInt(eq(1), anyInt());
+            when(statement.executeQuery()).thenAnswer(query -> rows(limit[0]));
+            return statement;
+        });
+        return connection;
+    }
+
+    // One airplane per row, numbered from 1
+    private static ResultSet rows (int count) throws SQLException {
+        int[] row = new int[1];
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenAnswer(next -> ++row[0] <= count);
+        when(resultSet.getInt("AirplaneId")).thenAnswer(get -> row[0]);
+        return resultSet;
+    }
+
+    private static String readBatch (boolean parallel, int... limits) {
+        StringBuilder request = new StringBuilder("{\"type\": \"BATCH\", \"parallel\": " + parallel
+                + ", \"requests\": [");
+        for (int i = 0; i < limits.length; i++) {
+            request.append(i > 0 ? ", " : "")
+                    .append("{\"type\": \"READ\", \"entityName\": \"Airplane\", \"limit\": ")
+                    .append(limits[i])
+                    .append(", \"entities\": []}");
+        }
+        return request.append("]}").toString();
+    }
+
     @Test
     public void testCreateSocketServerRequest () {
 
@@ -35,7 +118,7 @@ public class RepositoryControllerTest {
                 "  \"entities\": []\n" +
                 "}";
 
-        RepositoryController controller = new RepositoryController();
+        RepositoryController controller = mockedController();
         Object ans = controller.createSocketServerRequest(request.getBytes());
 
         assertTrue(ans instanceof SocketServerRequest);
@@ -48,5 +131,123 @@ public class RepositoryControllerTest {
 
     }
 
+    @Test
+    public void testBatchResponse () {
+
+        String request = "{\n" +
+                "  \"type\": \"BATCH\",\n" +
+                "  \"requests\": [\n" +
+                "    {\"type\": \"READ\", \"entityName\": \"Hangar\", \"limit\": 1, \"entities\": []},\n" +
+                "    {\"type\": \"BATCH\", \"requests\": []}\n" +
+                "  ]\n" +
+                "}";
+
+        RepositoryController controller = mockedController();
+        JsonObject response = new Gson().fromJson(controller.handleRequest(request.getBytes()), JsonObject.class);
+
+        // Neither request can be answered, but each gets a response of its own
+        assertEquals("", response.get("error").getAsString());
+        JsonArray responses = response.getAsJsonArray("responses");
+        assertEquals(2, responses.size());
+        for (int i = 0; i < responses.size(); i++) {
+            assertEquals(0, responses.get(i).getAsJsonObject().getAsJsonArray("entities").size());
+            assertTrue(responses.get(i).getAsJsonObject().get("error").getAsString().length() > 0);
+        }
+
+    }
+
+    @Test
+    public void testBatchResponsesInOrder () {
+
+        RepositoryController controller = mockedController();
+        JsonObject response = new Gson().fromJson(
+                controller.handleRequest(readBatch(false, 3, 1, 2).getBytes()), JsonObject.class);
+
+        // Every response answers the request at the same position
+        assertEquals("", response.get("error").getAsString());
+        JsonArray responses = response.getAsJsonArray("responses");
+        int[] limits = {3, 1, 2};
+        assertEquals(limits.length, responses.size());
+        for (int i = 0; i < limits.length; i++) {
+            JsonObject answer = responses.get(i).getAsJsonObject();
+            assertEquals("", answer.get("error").getAsString());
+            JsonArray airplanes = answer.getAsJsonArray("entities");
+            assertEquals(limits[i], airplanes.size());
+            assertEquals(limits[i], airplanes.get(limits[i] - 1).getAsJsonObject().get("airplaneId").getAsInt());
+        }
+
+        // Sequential requests share a single connection
+        assertEquals(1, opened.get());
+
+    }
+
+    @Test
+    public void testParallelBatchMatchesSequential () {
+
+        RepositoryController controller = mockedController();
+        String sequential = controller.handleRequest(readBatch(false, 4, 1, 3, 2, 5).getBytes());
+        String parallel = controller.handleRequest(readBatch(true, 4, 1, 3, 2, 5).getBytes());
+
+        assertEquals(sequential, parallel);
+        JsonArray responses = new Gson().fromJson(parallel, JsonObject.class).getAsJsonArray("responses");
+        assertEquals(5, responses.size());
+        assertEquals(5, responses.get(4).getAsJsonObject().getAsJsonArray("entities").size());
+
+    }
+
+    @Test
+    public void testBatchTooLarge () {
+
+        RepositoryController controller = mockedController();
+        int[] limits = new int[33];
+        Arrays.fill(limits, 1);
+        JsonObject response = new Gson().fromJson(
+                controller.handleRequest(readBatch(false, limits).getBytes()), JsonObject.class);
+
+        // Turned away as a whole, before any connection is borrowed
+        assertEquals(0, response.getAsJsonArray("responses").size());
+        assertTrue(response.get("error").getAsString().contains("32"));
+        assertEquals(0, opened.get());
+
+    }
+
+    @Test
+    public void testDatabaseReachableWhilePoolExhausted () throws SQLException {
+
+        ConnectionPool pool = new ConnectionPool(this::database, new PoolConfig(0, 1, 10, 0, 0),
+                new PrintStream(new ByteArrayOutputStream()));
+        RepositoryController controller = controller(pool, probe(true));
+
+        // The probe never waits on the pool for a connection
+        try (Connection borrowed = pool.borrow()) {
+            assertTrue(controller.isDatabaseReachable(1));
+        }
+        assertEquals(1, opened.get());
+
+    }
+
+    @Test
+    public void testDatabaseUnreachable () {
+
+        ConnectionPool pool = new ConnectionPool(this::database, new PoolConfig(0, 1, 10, 0, 0),
+                new PrintStream(new ByteArrayOutputStream()));
+        RepositoryController controller = controller(pool, probe(false));
+
+        assertFalse(controller.isDatabaseReachable(1));
+
+    }
+
+    @Test
+    public void testEmptyBatch () {
+
+        RepositoryController controller = mockedController();
+        JsonObject response = new Gson().fromJson(
+                controller.handleRequest("{\"type\": \"BATCH\", \"requests\": []}".getBytes()), JsonObject.class);
+
+        assertEquals(0, response.getAsJsonArray("responses").size());
+        assertTrue(response.get("error").getAsString().length() > 0);
+
+    }
+
 
 }
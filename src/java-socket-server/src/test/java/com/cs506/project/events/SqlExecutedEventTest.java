@@ -0,0 +1,23 @@
+package com.cs506.project.events;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlExecutedEventTest {
+
+    @Test
+    public void testShapeReplacesLiterals() {
+        assertEquals("SELECT * FROM Airplane WHERE AirplaneId = ?;",
+                     SqlExecutedEvent.shape("SELECT * FROM Airplane WHERE AirplaneId = 42;"));
+        assertEquals("SELECT * FROM Manager WHERE Name = ? LIMIT ?",
+                     SqlExecutedEvent.shape("SELECT * FROM Manager WHERE Name = 'O''Brien' LIMIT 10"));
+        assertEquals("SELECT ComponentId FROM Component",
+                     SqlExecutedEvent.shape("SELECT ComponentId FROM Component"));
+    }
+
+    @Test
+    public void testShapeDropsValues() {
+        assertEquals("INSERT INTO appdb(managerId, Name)VALUES (?)",
+                     SqlExecutedEvent.shape("INSERT INTO appdb(managerId, Name)VALUES (7, Alice)"));
+    }
+}
@@ -21,7 +21,7 @@ public class AirplaneRepositoryTest {
     private Connection mockConnection;
 
     @Mock
-    private Statement mockStatement;
+    private PreparedStatement mockStatement;
 
     @Mock
     private ResultSet mockResult;
@@ -48,14 +48,15 @@ public class AirplaneRepositoryTest {
 
         ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(queryCaptor.capture())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(queryCaptor.capture())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         AirplaneRepository repo = new AirplaneRepository(mockConnection);
 
         repo.getAllWithAllDetails(10);
 
-        assertEquals("SELECT * FROM Airplane LIMIT 10;", queryCaptor.getValue());
+        assertEquals("SELECT * FROM Airplane LIMIT ?", queryCaptor.getValue());
+        verify(mockStatement).setInt(1, 10);
 
     }
 
@@ -66,8 +67,8 @@ public class AirplaneRepositoryTest {
     @Test
     public void testGetWithAllDetailsResponse () throws SQLException {
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(anyString())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         when(mockResult.next()).thenReturn(true).thenReturn(false);
 
@@ -110,14 +111,15 @@ public class AirplaneRepositoryTest {
 
         ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(queryCaptor.capture())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(queryCaptor.capture())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         AirplaneRepository repo = new AirplaneRepository(mockConnection);
 
         repo.getById(10);
 
-        assertEquals("SELECT * FROM Airplane WHERE AirplaneId = 10;", queryCaptor.getValue());
+        assertEquals("SELECT * FROM Airplane WHERE AirplaneId = ?", queryCaptor.getValue());
+        verify(mockStatement).setInt(1, 10);
 
     }
 
@@ -128,8 +130,8 @@ public class AirplaneRepositoryTest {
     @Test
     public void testGetByIdResponse () throws SQLException {
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(anyString())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         when(mockResult.next()).thenReturn(true).thenReturn(false);
 
@@ -171,14 +173,15 @@ public class AirplaneRepositoryTest {
     public void testGetWithBasicDetailsQueryString () throws SQLException {
         ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(queryCaptor.capture())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(queryCaptor.capture())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         AirplaneRepository repo = new AirplaneRepository(mockConnection);
 
         repo.getAllWithBasicDetails(10);
 
-        assertEquals("SELECT AirplaneId, Name, ProductionStage, Cost FROM Airplane LIMIT 10;", queryCaptor.getValue());
+        assertEquals("SELECT AirplaneId, Name, ProductionStage, Cost FROM Airplane LIMIT ?", queryCaptor.getValue());
+        verify(mockStatement).setInt(1, 10);
     }
 
     /**
@@ -188,8 +191,8 @@ public class AirplaneRepositoryTest {
     @Test
     public void testGetWithBasicDetailsResponse () throws SQLException {
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(anyString())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         when(mockResult.next()).thenReturn(true).thenReturn(false);
 
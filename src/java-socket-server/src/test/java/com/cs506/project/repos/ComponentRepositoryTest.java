@@ -22,7 +22,7 @@ public class ComponentRepositoryTest {
     private Connection mockConnection;
 
     @Mock
-    private Statement mockStatement;
+    private PreparedStatement mockStatement;
 
     @Mock
     private ResultSet mockResult;
@@ -46,14 +46,15 @@ public class ComponentRepositoryTest {
 
         ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(queryCaptor.capture())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(queryCaptor.capture())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         ComponentRepository repo = new ComponentRepository(mockConnection);
 
         repo.getAllWithAllDetails(10);
 
-        assertEquals("SELECT * FROM Component LIMIT 10", queryCaptor.getValue());
+        assertEquals("SELECT * FROM Component LIMIT ?", queryCaptor.getValue());
+        verify(mockStatement).setInt(1, 10);
 
     }
 
@@ -64,8 +65,8 @@ public class ComponentRepositoryTest {
     @Test
     public void testGetWithAllDetailsResponse () throws SQLException {
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(anyString())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         when(mockResult.next()).thenReturn(true).thenReturn(false);
 
@@ -104,14 +105,15 @@ public class ComponentRepositoryTest {
 
         ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(queryCaptor.capture())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(queryCaptor.capture())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         ComponentRepository repo = new ComponentRepository(mockConnection);
 
         repo.getAllWithBasicDetails(10);
 
-        assertEquals("SELECT ComponentId, Name, ProductionStage, Cost FROM Component LIMIT 10", queryCaptor.getValue());
+        assertEquals("SELECT ComponentId, Name, ProductionStage, Cost FROM Component LIMIT ?", queryCaptor.getValue());
+        verify(mockStatement).setInt(1, 10);
 
     }
 
@@ -122,8 +124,8 @@ public class ComponentRepositoryTest {
     @Test
     public void testGetWithBasicDetailsResponse () throws SQLException {
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(anyString())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         when(mockResult.next()).thenReturn(true).thenReturn(false);
 
@@ -157,14 +159,15 @@ public class ComponentRepositoryTest {
 
         ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(queryCaptor.capture())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(queryCaptor.capture())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         ComponentRepository repo = new ComponentRepository(mockConnection);
 
         repo.getById(10);
 
-        assertEquals("SELECT * FROM Component WHERE ComponentId = 10", queryCaptor.getValue());
+        assertEquals("SELECT * FROM Component WHERE ComponentId = ?", queryCaptor.getValue());
+        verify(mockStatement).setInt(1, 10);
 
     }
 
@@ -175,8 +178,8 @@ public class ComponentRepositoryTest {
     @Test
     public void testGetByIdResponse () throws SQLException {
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(anyString())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         when(mockResult.next()).thenReturn(true).thenReturn(false);
 
@@ -20,7 +20,7 @@ public class FacilityRepositoryTest {
     private Connection mockConnection;
 
     @Mock
-    private Statement mockStatement;
+    private PreparedStatement mockStatement;
 
     @Mock
     private ResultSet mockResult;
@@ -46,14 +46,15 @@ public class FacilityRepositoryTest {
 
         ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(queryCaptor.capture())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(queryCaptor.capture())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         FacilityRepository repo = new FacilityRepository(mockConnection);
 
         repo.getAllWithAllDetails(10);
 
-        assertEquals("SELECT * FROM Facility LIMIT 10", queryCaptor.getValue());
+        assertEquals("SELECT * FROM Facility LIMIT ?", queryCaptor.getValue());
+        verify(mockStatement).setInt(1, 10);
 
     }
     /**
@@ -64,8 +65,8 @@ public class FacilityRepositoryTest {
     @Test
     public void testGetWithAllDetailsResponse () throws SQLException {
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(anyString())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         when(mockResult.next()).thenReturn(true).thenReturn(false);
 
@@ -112,14 +113,15 @@ public class FacilityRepositoryTest {
 
         ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(queryCaptor.capture())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(queryCaptor.capture())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         FacilityRepository repo = new FacilityRepository(mockConnection);
 
         repo.getById(10);
 
-        assertEquals("SELECT * FROM Facility WHERE facilityId = 10", queryCaptor.getValue());
+        assertEquals("SELECT * FROM Facility WHERE facilityId = ?", queryCaptor.getValue());
+        verify(mockStatement).setInt(1, 10);
 
     }
     /**
@@ -129,8 +131,8 @@ public class FacilityRepositoryTest {
     @Test
     public void testGetByIDResponse () throws SQLException {
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(anyString())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         when(mockResult.next()).thenReturn(true).thenReturn(false);
 
@@ -175,14 +177,15 @@ public class FacilityRepositoryTest {
     public void testGetWithBasicDetailsQueryString () throws SQLException {
         ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(queryCaptor.capture())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(queryCaptor.capture())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         FacilityRepository repo = new FacilityRepository(mockConnection);
 
         repo.getAllWithBasicDetails(10);
 
-        assertEquals("SELECT facilityId, city, state FROM Facility LIMIT 10", queryCaptor.getValue());
+        assertEquals("SELECT facilityId, city, state FROM Facility LIMIT ?", queryCaptor.getValue());
+        verify(mockStatement).setInt(1, 10);
     }
 
     /**
@@ -191,8 +194,8 @@ public class FacilityRepositoryTest {
      * */
     @Test
     public void testGetWithBasicDetailsResponse () throws SQLException {
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(anyString())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         when(mockResult.next()).thenReturn(true).thenReturn(false);
 
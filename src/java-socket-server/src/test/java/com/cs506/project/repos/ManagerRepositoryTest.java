@@ -18,7 +18,7 @@ public class ManagerRepositoryTest {
     private Connection mockConnection;
 
     @Mock
-    private Statement mockStatement;
+    private PreparedStatement mockStatement;
 
     @Mock
     private ResultSet mockResult;
@@ -44,14 +44,15 @@ public class ManagerRepositoryTest {
     public void testGetWithAllBasicDetailsQueryString () throws SQLException {
         ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(queryCaptor.capture())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(queryCaptor.capture())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         FacilityRepository repo = new FacilityRepository(mockConnection);
 
         repo.getAllWithBasicDetails(10);
 
-        assertEquals("SELECT facilityId, city, state FROM Facility LIMIT 10", queryCaptor.getValue());
+        assertEquals("SELECT facilityId, city, state FROM Facility LIMIT ?", queryCaptor.getValue());
+        verify(mockStatement).setInt(1, 10);
     }
 
     /**
@@ -62,8 +63,8 @@ public class ManagerRepositoryTest {
     @Test
     public void testGetWithAllBasicDetailsResponse () throws SQLException {
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(anyString())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         when(mockResult.next()).thenReturn(true).thenReturn(false);
 
@@ -96,14 +97,15 @@ public class ManagerRepositoryTest {
 
         ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(queryCaptor.capture())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(queryCaptor.capture())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         ManagerRepository repo = new ManagerRepository(mockConnection);
 
         repo.getById(10);
 
-        assertEquals("SELECT * FROM Manager WHERE managerId = 10", queryCaptor.getValue());
+        assertEquals("SELECT * FROM Manager WHERE managerId = ?", queryCaptor.getValue());
+        verify(mockStatement).setInt(1, 10);
 
     }
     /**
@@ -113,8 +115,8 @@ public class ManagerRepositoryTest {
     @Test
     public void testGetByIDResponse () throws SQLException {
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(anyString())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         when(mockResult.next()).thenReturn(true).thenReturn(false);
 
@@ -152,14 +154,15 @@ public class ManagerRepositoryTest {
 
         ArgumentCaptor<String> queryCaptor = ArgumentCaptor.forClass(String.class);
 
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(queryCaptor.capture())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(queryCaptor.capture())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         ManagerRepository repo = new ManagerRepository(mockConnection);
 
         repo.getAllWithAllDetails(10);
 
-        assertEquals("SELECT * FROM Manager LIMIT 10", queryCaptor.getValue());
+        assertEquals("SELECT * FROM Manager LIMIT ?", queryCaptor.getValue());
+        verify(mockStatement).setInt(1, 10);
 
     }
     /**
@@ -168,8 +171,8 @@ public class ManagerRepositoryTest {
      * */
     @Test
     public void testGetWithAllDetailsResponse () throws SQLException {
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(anyString())).thenReturn(mockResult);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResult);
 
         when(mockResult.next()).thenReturn(true).thenReturn(false);
 
@@ -0,0 +1,125 @@
+package com.cs506.project.server;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class AdminServerTest {
+
+    @Test
+    public void testStats() {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.counter("requests").add(3);
+        AdminServer admin = new AdminServer(0, metrics, System.out);
+
+        assertEquals("requests 3\n", admin.execute("stats"));
+    }
+
+    @Test
+    public void testLatencyReset() {
+        // Setup
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.latency("stage.read").record(42);
+        AdminServer admin = new AdminServer(0, metrics, System.out);
+
+        // Execute & Verify
+        String expected = "stage.read count 1 p50 42 p90 42 p99 42 p99.9 42 max 42\n";
+        assertEquals(expected, admin.execute("latency"));
+        assertEquals(expected, admin.execute("latency reset"));
+        assertEquals("stage.read count 0 p50 0 p90 0 p99 0 p99.9 0 max 0\n",
+                     admin.execute("latency"));
+    }
+
+    @Test
+    public void testUnknownCommand() {
+        AdminServer admin = new AdminServer(0, new ServerMetrics(), System.out);
+
+        assertTrue(admin.execute("shutdown").startsWith("Unknown command: shutdown"));
+    }
+
+    @Test
+    public void testConfig() {
+        // Setup
+        ProxyServer server = mock(ProxyServer.class);
+        Map<String, Integer> settings = new LinkedHashMap<>();
+        settings.put("num-workers", 4);
+        settings.put("timeout", 1000);
+        when(server.getSettings()).thenReturn(settings);
+        AdminServer admin = new AdminServer(0, new ServerMetrics(), System.out);
+        admin.useProxyServer(server);
+
+        // Execute & Verify
+        assertEquals("num-workers 4\ntimeout 1000\n", admin.execute("config"));
+    }
+
+    @Test
+    public void testSet() throws IOException {
+        // Setup
+        ProxyServer server = mock(ProxyServer.class);
+        AdminServer admin = new AdminServer(0, new ServerMetrics(), System.out);
+        admin.useProxyServer(server);
+
+        // Execute
+        String response = admin.execute("set num-workers 8  timeout 500");
+
+        // Verify
+        assertEquals("Reconfigured {num-workers=8, timeout=500}\n", response);
+        verify(server).reconfigure(Map.of("num-workers", 8, "timeout", 500));
+    }
+
+    @Test
+    public void testSetInvalid() throws IOException {
+        // Setup
+        ProxyServer server = mock(ProxyServer.class);
+        doThrow(new IllegalStateException("Not running"))
+            .when(server).reconfigure(Map.of("num-workers", 2));
+        AdminServer admin = new AdminServer(0, new ServerMetrics(), System.out);
+
+        // Execute & Verify
+        assertEquals("Reconfiguration is not available\n",
+                     admin.execute("set num-workers 2"));
+
+        admin.useProxyServer(server);
+        assertTrue(admin.execute("set num-workers").startsWith("Usage: "));
+        assertEquals("timeout must be a number, not soon\n",
+                     admin.execute("set timeout soon"));
+        assertEquals("Failed to reconfigure: Not running\n",
+                     admin.execute("set num-workers 2"));
+    }
+
+    @Test
+    public void testServesOverLoopback() throws IOException, InterruptedException {
+        // Setup
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.gauge("queue.depth", () -> 7);
+        PrintStream logger = new PrintStream(new ByteArrayOutputStream());
+        AdminServer admin = new AdminServer(0, metrics, logger);
+        admin.start();
+        Thread thread = new Thread(admin, "Admin");
+        thread.start();
+
+        // Execute
+        String response;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), admin.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write("stats\n".getBytes());
+            response = new String(socket.getInputStream().readAllBytes());
+        } finally {
+            admin.stop();
+            thread.join(1000);
+        }
+
+        // Verify
+        assertEquals("queue.depth 7\n", response);
+        assertFalse(thread.isAlive());
+    }
+}
@@ -0,0 +1,94 @@
+package com.cs506.project.server;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public class AdmissionControllerTest {
+
+    @Test
+    public void testUnboundedAdmitsEverything() throws InterruptedException {
+        AdmissionController admission = new AdmissionController(0, 0, false);
+        BlockingQueue<Socket> queue = new LinkedBlockingQueue<>();
+
+        for (int i = 0; i < 100; i++)
+            assertTrue(admission.offer(queue, new Socket()));
+
+        assertEquals(100, queue.size());
+        assertEquals(100, admission.queued());
+        assertEquals(0, admission.shedCount());
+    }
+
+    @Test
+    public void testQueueLimit() throws InterruptedException {
+        AdmissionController admission = new AdmissionController(2, 0, false);
+        BlockingQueue<Socket> queue = new LinkedBlockingQueue<>();
+
+        assertTrue(admission.offer(queue, new Socket()));
+        assertTrue(admission.offer(queue, new Socket()));
+        assertFalse(admission.offer(queue, new Socket()));
+        assertEquals(2, queue.size());
+        assertEquals(1, admission.shedCount());
+
+        // Taking a connection makes room for the next one
+        assertFalse(admission.dequeue(queue.take()));
+        assertTrue(admission.offer(queue, new Socket()));
+        assertEquals(2, admission.queued());
+    }
+
+    @Test
+    public void testShortDelayIsNotShed() {
+        AdmissionController admission = new AdmissionController(0, 1000, false);
+
+        for (int i = 0; i < 100; i++)
+            assertFalse(admission.dequeue(admission.tryEnqueue()));
+
+        assertEquals(0, admission.queued());
+        assertEquals(0, admission.shedCount());
+    }
+
+    @Test
+    public void testPersistentDelayIsShed() throws InterruptedException {
+        AdmissionController admission = new AdmissionController(0, 1, false);
+        long longAgo = System.nanoTime() - 1_000_000_000L;
+
+        // A single late request starts the interval, but is still served
+        admission.tryEnqueue();
+        assertFalse(admission.dequeue(longAgo));
+
+        // Once the delay persisted for a whole interval, work is shed
+        Thread.sleep(150);
+        admission.tryEnqueue();
+        assertTrue(admission.dequeue(longAgo));
+        assertEquals(1, admission.shedCount());
+
+        // Until the queue drains again
+        assertFalse(admission.dequeue(admission.tryEnqueue()));
+        admission.tryEnqueue();
+        assertFalse(admission.dequeue(longAgo));
+        assertEquals(0, admission.queued());
+    }
+
+    @Test
+    public void testUseLimits() throws InterruptedException {
+        AdmissionController admission = new AdmissionController(1, 0, false);
+        BlockingQueue<Socket> queue = new LinkedBlockingQueue<>();
+
+        assertTrue(admission.offer(queue, new Socket()));
+        assertFalse(admission.offer(queue, new Socket()));
+
+        // A higher limit admits more right away
+        admission.useLimits(2, 0);
+        assertTrue(admission.offer(queue, new Socket()));
+        assertFalse(admission.offer(queue, new Socket()));
+        assertEquals(2, admission.shedCount());
+
+        // And no limit admits everything
+        admission.useLimits(0, 0);
+        assertTrue(admission.offer(queue, new Socket()));
+        assertEquals(3, admission.queued());
+    }
+}
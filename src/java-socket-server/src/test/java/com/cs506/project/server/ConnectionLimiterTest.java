@@ -0,0 +1,90 @@
+package com.cs506.project.server;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+public class ConnectionLimiterTest {
+
+    private static Socket clientAt(String address) throws IOException {
+        Socket client = mock(Socket.class);
+        when(client.getInetAddress()).thenReturn(InetAddress.getByName(address));
+        return client;
+    }
+
+    @Test
+    public void testRateAllowsBurst() throws IOException {
+        // Setup
+        ConnectionLimiter limiter = new ConnectionLimiter(10, 0, false);
+        Socket client = clientAt("10.0.0.1");
+        Socket other = clientAt("10.0.0.2");
+
+        // Execute
+        int admitted = 0;
+        for (int i = 0; i < 20; i++)
+            if (limiter.acquire(client))
+                admitted++;
+
+        // Verify
+        assertEquals(10, admitted);
+        assertEquals(10, limiter.rejectedCount());
+        assertTrue(limiter.acquire(other));  // Other clients are unaffected
+    }
+
+    @Test
+    public void testMaxOpen() throws IOException {
+        // Setup
+        ConnectionLimiter limiter = new ConnectionLimiter(0, 2, false);
+        Socket client = clientAt("10.0.0.1");
+
+        // Execute
+        assertTrue(limiter.acquire(client));
+        assertTrue(limiter.acquire(client));
+        assertFalse(limiter.acquire(client));
+        limiter.release(client);
+
+        // Verify
+        assertTrue(limiter.acquire(client));
+        assertEquals(1, limiter.rejectedCount());
+    }
+
+    @Test
+    public void testSweepForgetsIdleClients() throws IOException {
+        // Setup
+        ConnectionLimiter limiter = new ConnectionLimiter(0, 2, false);
+        Socket idle = clientAt("10.0.0.1");
+        Socket busy = clientAt("10.0.0.2");
+        limiter.acquire(idle);
+        limiter.acquire(busy);
+        limiter.release(idle);
+
+        // Execute
+        limiter.sweep(System.nanoTime());
+
+        // Verify
+        assertEquals(1, limiter.clientCount());
+        assertTrue(limiter.acquire(idle));
+        assertEquals(2, limiter.clientCount());
+    }
+
+    @Test
+    public void testReject() throws IOException {
+        // Setup
+        ConnectionLimiter limiter = new ConnectionLimiter(1, 0, true);
+        Socket client = clientAt("10.0.0.1");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(client.getOutputStream()).thenReturn(out);
+
+        // Execute
+        limiter.reject(client);
+
+        // Verify
+        assertEquals(ConnectionLimiter.LIMITED_RESPONSE + "\0", out.toString());
+        verify(client).close();
+    }
+}
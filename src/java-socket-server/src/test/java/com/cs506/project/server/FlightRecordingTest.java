@@ -0,0 +1,56 @@
+package com.cs506.project.server;
+
+import com.cs506.project.events.SqlExecutedEvent;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlightRecordingTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testDumpHoldsServerEvents() throws IOException {
+        // Setup
+        FlightRecording recording = new FlightRecording();
+        Path file = dir.resolve("server.jfr");
+
+        // Execute
+        try {
+            assertEquals("Recording started\n", recording.start());
+            assertTrue(recording.start().startsWith("Already recording"));
+
+            SqlExecutedEvent event = SqlExecutedEvent.start();
+            event.finish("SELECT * FROM Airplane WHERE AirplaneId = 42;", 1);
+
+            assertTrue(recording.dump(file).startsWith("Recording dumped to"));
+        } finally {
+            recording.stop();
+        }
+
+        // Verify
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent sql = events.stream()
+            .filter(e -> e.getEventType().getName().equals("com.cs506.project.SqlExecuted"))
+            .findFirst().orElseThrow();
+        assertEquals("SELECT * FROM Airplane WHERE AirplaneId = ?;", sql.getString("statement"));
+        assertEquals(1, sql.getInt("rows"));
+        assertFalse(recording.isRecording());
+    }
+
+    @Test
+    public void testNotRecording() {
+        FlightRecording recording = new FlightRecording();
+
+        assertEquals("Not recording\n", recording.dump(null));
+        assertEquals("Not recording\n", recording.stop());
+    }
+}
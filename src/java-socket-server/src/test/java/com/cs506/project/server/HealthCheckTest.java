@@ -0,0 +1,130 @@
+package com.cs506.project.server;
+
+import com.cs506.project.utils.FrameDecoder.Framing;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class HealthCheckTest {
+
+    private static String decode(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes);
+    }
+
+    @Test
+    public void testMatches() {
+        assertTrue(HealthCheck.matches("healthcheck".getBytes()));
+        assertTrue(HealthCheck.matches("healthcheck please".getBytes()));
+        assertFalse(HealthCheck.matches("health".getBytes()));
+        assertFalse(HealthCheck.matches(" healthcheck".getBytes()));
+        assertFalse(HealthCheck.matches("{\"type\":\"READ\"}".getBytes()));
+    }
+
+    @Test
+    public void testReadiness() {
+        // Setup
+        AtomicBoolean database = new AtomicBoolean(true);
+        AtomicInteger queued = new AtomicInteger();
+        HealthCheck health = new HealthCheck(database::get, queued::get, () -> 2);
+
+        // Execute & Verify
+        assertTrue(health.isReady());
+        assertEquals(HealthCheck.READY_RESPONSE,
+                     decode(health.encode(Framing.NUL, false)));
+
+        queued.set(2);
+        assertFalse(health.isReady());
+        assertEquals(HealthCheck.BUSY_RESPONSE,
+                     decode(health.encode(Framing.NUL, false)));
+
+        queued.set(0);
+        database.set(false);
+        assertTrue(health.isReady());  // Not probed yet
+        health.probe();
+        assertFalse(health.isReady());
+        assertEquals(HealthCheck.DATABASE_DOWN_RESPONSE,
+                     decode(health.encode(Framing.NUL, false)));
+    }
+
+    @Test
+    public void testThresholdChange() {
+        // Setup
+        AtomicInteger maxQueued = new AtomicInteger(4);
+        HealthCheck health = new HealthCheck(() -> true, () -> 2, maxQueued::get);
+
+        // Execute & Verify
+        assertTrue(health.isReady());
+        maxQueued.set(2);
+        assertFalse(health.isReady());
+        maxQueued.set(3);
+        assertTrue(health.isReady());
+    }
+
+    @Test
+    public void testFailingProbe() {
+        HealthCheck health = new HealthCheck(
+            () -> { throw new IllegalStateException("No driver"); }, () -> 0, () -> 1);
+
+        health.probe();
+
+        assertFalse(health.isReady());
+    }
+
+    @Test
+    public void testEncodeFramings() {
+        // Setup
+        HealthCheck health = new HealthCheck(() -> true, () -> 0, () -> 1);
+        int length = HealthCheck.READY_RESPONSE.getBytes().length;
+
+        // Execute
+        ByteBuffer terminated = health.encode(Framing.NUL, true);
+        ByteBuffer prefixed = health.encode(Framing.LENGTH, false);
+        ByteBuffer pipelined = health.encode(42);
+
+        // Verify
+        assertEquals(HealthCheck.READY_RESPONSE + "\0", decode(terminated));
+        assertEquals(length, prefixed.getInt());
+        assertEquals(HealthCheck.READY_RESPONSE, decode(prefixed));
+        assertEquals(length, pipelined.getInt());
+        assertEquals(42, pipelined.getInt());
+        assertEquals(HealthCheck.READY_RESPONSE, decode(pipelined));
+
+        // Shared responses are never consumed
+        assertEquals(HealthCheck.READY_RESPONSE + "\0",
+                     decode(health.encode(Framing.NUL, true)));
+    }
+
+    @Test
+    public void testWriteTo() throws IOException {
+        // Setup
+        HealthCheck health = new HealthCheck(() -> true, () -> 0, () -> 1);
+        Socket socket = mock(Socket.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(socket.getOutputStream()).thenReturn(out);
+
+        // Execute
+        health.writeTo(socket, Framing.NUL, true);
+        health.writeTo(socket, 7);
+
+        // Verify
+        ByteBuffer written = ByteBuffer.wrap(out.toByteArray());
+        int length = HealthCheck.READY_RESPONSE.getBytes().length;
+        byte[] body = new byte[length];
+        written.get(body);
+        assertEquals(HealthCheck.READY_RESPONSE, new String(body));
+        assertEquals(0, written.get());
+        assertEquals(length, written.getInt());
+        assertEquals(7, written.getInt());
+        assertEquals(length, written.remaining());
+    }
+}
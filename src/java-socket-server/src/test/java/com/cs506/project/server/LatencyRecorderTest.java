@@ -0,0 +1,91 @@
+package com.cs506.project.server;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LatencyRecorderTest {
+
+    @Test
+    public void testPercentiles() {
+        // Setup
+        LatencyRecorder recorder = new LatencyRecorder();
+
+        // Execute
+        for (int micros = 1; micros <= 1000; micros++)
+            recorder.record(micros);
+
+        // Verify: within the precision of a bucket
+        LatencyRecorder.Snapshot snapshot = recorder.snapshot(false);
+        assertEquals(1000, snapshot.count());
+        assertEquals(1000, snapshot.max());
+        assertEquals(500, snapshot.percentile(50), 500 * 0.016);
+        assertEquals(990, snapshot.percentile(99), 990 * 0.016);
+        assertEquals(1000, snapshot.percentile(100));
+    }
+
+    @Test
+    public void testEmpty() {
+        LatencyRecorder.Snapshot snapshot = new LatencyRecorder().snapshot(false);
+
+        assertEquals(0, snapshot.count());
+        assertEquals(0, snapshot.percentile(99));
+        assertEquals(0, snapshot.max());
+    }
+
+    @Test
+    public void testOutOfRangeValuesAreClamped() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.record(-5);
+        recorder.record(Long.MAX_VALUE);
+
+        LatencyRecorder.Snapshot snapshot = recorder.snapshot(false);
+        assertEquals(0, snapshot.percentile(50));
+        assertEquals(LatencyRecorder.HIGHEST, snapshot.max());
+    }
+
+    @Test
+    public void testResetStartsNewInterval() {
+        // Setup
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.record(100);
+        recorder.record(200);
+
+        // Execute
+        LatencyRecorder.Snapshot first = recorder.snapshot(true);
+        recorder.record(10);
+        LatencyRecorder.Snapshot second = recorder.snapshot(false);
+
+        // Verify
+        assertEquals(2, first.count());
+        assertEquals(200, first.max());
+        assertEquals(1, second.count());
+        assertEquals(10, second.max());
+    }
+
+    @Test
+    public void testConcurrentRecordsAreNeverLost() throws InterruptedException {
+        // Setup
+        LatencyRecorder recorder = new LatencyRecorder();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 10_000; j++)
+                    recorder.record(j % 500);
+            }));
+
+        // Execute: reset while recording
+        threads.forEach(Thread::start);
+        long counted = 0;
+        for (int i = 0; i < 10; i++)
+            counted += recorder.snapshot(true).count();
+        for (Thread thread: threads)
+            thread.join();
+        counted += recorder.snapshot(true).count();
+
+        // Verify: every latency is in exactly one interval
+        assertEquals(40_000, counted);
+    }
+}
@@ -0,0 +1,201 @@
+package com.cs506.project.server;
+
+import com.cs506.project.configs.WorkerConfig;
+import com.cs506.project.utils.FrameDecoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class ProxyServerDispatcherTest {
+
+    private WorkerConfig config = new WorkerConfig(1024, 1000, true, 1000);
+
+    @Mock
+    private PrintStream logger;
+
+    private BlockingQueue<Socket> workQueue;
+    private ServerSocket serverSocket;
+    private ProxyServerDispatcher dispatcher;
+
+    // Released once every blocked task has been entered
+    private CountDownLatch entered;
+    private CountDownLatch release;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+
+        workQueue = new LinkedBlockingQueue<>();
+        serverSocket = new ServerSocket(0);
+        release = new CountDownLatch(1);
+
+        ExecutorService executor = ProxyServerDispatcher.newThreadPerTaskExecutor(
+            Thread.currentThread().getThreadGroup());
+        ProxyServerWorker worker = new ProxyServerWorker(config, workQueue, logger);
+        worker.usePipelineExecutor(executor);
+        worker.setTask(x -> {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {}
+            return "echo:" + new String(x);
+        });
+
+        dispatcher = new ProxyServerDispatcher(workQueue, worker, executor, logger);
+        dispatcher.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        dispatcher.stop();
+        serverSocket.close();
+    }
+
+    private Socket connect(String request) throws IOException {
+        Socket client = new Socket("127.0.0.1", serverSocket.getLocalPort());
+        client.setSoTimeout(5000);
+        client.getOutputStream().write(request.getBytes());
+        workQueue.add(serverSocket.accept());
+        return client;
+    }
+
+    private static String readResponse(Socket socket) throws IOException {
+        InputStream in = socket.getInputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) > 0)
+            out.write(b);
+
+        return out.toString();
+    }
+
+    @Test
+    public void testSupportsVirtualThreads() {
+        assertEquals(Runtime.version().feature() >= 21,
+                     ProxyServerDispatcher.supportsVirtualThreads());
+    }
+
+    @Test
+    public void testStart() {
+        assertTrue(dispatcher.isActive());
+    }
+
+    @Test
+    public void testConcurrencyNotCappedByWorkers() throws Exception {
+        int numClients = 8;
+        entered = new CountDownLatch(numClients);
+        new Thread(dispatcher).start();
+
+        Socket[] clients = new Socket[numClients];
+        for (int i = 0; i < numClients; i++)
+            clients[i] = connect("request " + i);
+
+        // Every request is in flight at the same time, on its own thread
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        release.countDown();
+
+        for (int i = 0; i < numClients; i++) {
+            assertEquals("echo:request " + i, readResponse(clients[i]));
+            clients[i].close();
+        }
+    }
+
+    @Test
+    public void testKeepAlive() throws Exception {
+        entered = new CountDownLatch(2);
+        release.countDown();
+        new Thread(dispatcher).start();
+
+        try (Socket client = connect("first\0")) {
+            assertEquals("echo:first", readResponse(client));
+
+            client.getOutputStream().write("second\0".getBytes());
+            assertEquals("echo:second", readResponse(client));
+        }
+
+        assertEquals(0, entered.getCount());
+    }
+
+    @Test
+    public void testLengthPrefixedFraming() throws Exception {
+        entered = new CountDownLatch(1);
+        release.countDown();
+        new Thread(dispatcher).start();
+
+        String request = "{\"type\": \"READ\"}";
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(frame);
+        out.writeByte(FrameDecoder.LENGTH_PREAMBLE);
+        out.writeInt(request.length());
+        out.writeBytes(request);
+
+        try (Socket client = connect(frame.toString("ISO-8859-1"))) {
+            DataInputStream in = new DataInputStream(client.getInputStream());
+            byte[] response = new byte[in.readInt()];
+            in.readFully(response);
+
+            assertEquals("echo:" + request, new String(response));
+        }
+    }
+
+    @Test
+    public void testPipelinedRequestsRunConcurrently() throws Exception {
+        int numRequests = 3;
+        entered = new CountDownLatch(numRequests);
+        new Thread(dispatcher).start();
+
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(frames);
+        out.writeByte(FrameDecoder.PIPELINE_PREAMBLE);
+        for (int id = 0; id < numRequests; id++) {
+            out.writeInt(("request " + id).length());
+            out.writeInt(id);
+            out.writeBytes("request " + id);
+        }
+
+        try (Socket client = connect(frames.toString("ISO-8859-1"))) {
+            // Every request of the connection is in flight at the same time
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            release.countDown();
+
+            DataInputStream in = new DataInputStream(client.getInputStream());
+            Set<Integer> ids = new HashSet<>();
+            for (int i = 0; i < numRequests; i++) {
+                byte[] response = new byte[in.readInt()];
+                int id = in.readInt();
+                in.readFully(response);
+
+                assertEquals("echo:request " + id, new String(response));
+                ids.add(id);
+            }
+            assertEquals(Set.of(0, 1, 2), ids);
+        }
+    }
+
+    @Test
+    public void testStop() throws IOException {
+        new Thread(dispatcher).start();
+        dispatcher.stop();
+
+        assertFalse(dispatcher.isActive());
+    }
+}
@@ -0,0 +1,276 @@
+package com.cs506.project.server;
+
+import com.cs506.project.configs.ListenerConfig;
+import com.cs506.project.configs.WorkerConfig;
+import com.cs506.project.utils.FrameDecoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.Mockito.*;
+
+public class ProxyServerEventLoopTest {
+
+    private WorkerConfig config = new WorkerConfig(16, 1000, true, 1000);
+    private static int port = 23563;
+
+    @Mock
+    private PrintStream logger;
+
+    private ExecutorService executor;
+    private ProxyServerEventLoop eventLoop;
+    private ListenerConfig listenerConfig;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+
+        executor = Executors.newSingleThreadExecutor();
+        listenerConfig = new ListenerConfig(++port);
+        eventLoop = new ProxyServerEventLoop(config, executor, logger);
+        eventLoop.setTask(x -> "echo:" + new String(x));
+        eventLoop.bind(listenerConfig);
+        eventLoop.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        eventLoop.stop();
+        executor.shutdownNow();
+    }
+
+    private static String readResponse(Socket socket) throws IOException {
+        InputStream in = socket.getInputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) > 0)
+            out.write(b);
+
+        return out.toString();
+    }
+
+    @Test
+    public void testBind() {
+        verify(logger).println("Bound to port " + listenerConfig.port());
+    }
+
+    @Test
+    public void testRunWithoutTask() throws IOException {
+        ProxyServerEventLoop loop =
+            new ProxyServerEventLoop(config, executor, logger);
+        assertThrows(IllegalStateException.class, loop::run);
+    }
+
+    @Test
+    public void testRequestResponse() throws IOException {
+        new Thread(eventLoop).start();
+
+        try (Socket client = new Socket("127.0.0.1", listenerConfig.port())) {
+            client.setSoTimeout(2000);
+            // Longer than the chunk size, and NUL terminated
+            client.getOutputStream().write("Hello, World! Hello, World!\0".getBytes());
+
+            assertEquals("echo:Hello, World! Hello, World!", readResponse(client));
+        }
+    }
+
+    @Test
+    public void testSlowClientDoesNotBlockOthers() throws IOException {
+        new Thread(eventLoop).start();
+
+        try (Socket slow = new Socket("127.0.0.1", listenerConfig.port());
+             Socket fast = new Socket("127.0.0.1", listenerConfig.port())) {
+            // The slow client connects but never sends a request
+            fast.setSoTimeout(2000);
+            fast.getOutputStream().write("ping".getBytes());
+
+            assertEquals("echo:ping", readResponse(fast));
+            assertFalse(slow.isClosed());
+        }
+    }
+
+    @Test
+    public void testKeepAlive() throws IOException {
+        new Thread(eventLoop).start();
+
+        try (Socket client = new Socket("127.0.0.1", listenerConfig.port())) {
+            client.setSoTimeout(2000);
+            client.getOutputStream().write("first\0".getBytes());
+            assertEquals("echo:first", readResponse(client));
+
+            // Pipelined requests on the same connection are served in order
+            client.getOutputStream().write("second\0third\0".getBytes());
+            assertEquals("echo:second", readResponse(client));
+            assertEquals("echo:third", readResponse(client));
+        }
+    }
+
+    @Test
+    public void testLengthPrefixedFraming() throws IOException {
+        new Thread(eventLoop).start();
+
+        try (Socket client = new Socket("127.0.0.1", listenerConfig.port())) {
+            client.setSoTimeout(2000);
+            DataOutputStream out = new DataOutputStream(client.getOutputStream());
+            DataInputStream in = new DataInputStream(client.getInputStream());
+
+            // Larger than the chunk size, with a NUL byte in the payload
+            String request = "Hello,\0World! Hello, World!";
+            out.writeByte(FrameDecoder.LENGTH_PREAMBLE);
+            out.writeInt(request.length());
+            out.writeBytes(request);
+
+            byte[] response = new byte[in.readInt()];
+            in.readFully(response);
+            assertEquals("echo:" + request, new String(response));
+
+            // The connection is kept alive for the next frame
+            out.writeInt(4);
+            out.writeBytes("next");
+            response = new byte[in.readInt()];
+            in.readFully(response);
+            assertEquals("echo:next", new String(response));
+        }
+    }
+
+    @Test
+    public void testPipelinedResponsesOutOfOrder() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        ListenerConfig pipelineConfig = new ListenerConfig(++port);
+        ProxyServerEventLoop loop = new ProxyServerEventLoop(config, pool, logger);
+        loop.setTask(x -> {
+            String request = new String(x);
+            if (request.equals("slow")) {
+                try { Thread.sleep(500); } catch (InterruptedException e) {}
+            }
+            return "echo:" + request;
+        });
+        loop.bind(pipelineConfig);
+        loop.start();
+        new Thread(loop).start();
+
+        try (Socket client = new Socket("127.0.0.1", pipelineConfig.port())) {
+            client.setSoTimeout(2000);
+            DataOutputStream out = new DataOutputStream(client.getOutputStream());
+            DataInputStream in = new DataInputStream(client.getInputStream());
+
+            // Every request is sent before any response is read
+            out.writeByte(FrameDecoder.PIPELINE_PREAMBLE);
+            String[] requests = { "slow", "fast", "faster" };
+            for (int id = 0; id < requests.length; id++) {
+                out.writeInt(requests[id].length());
+                out.writeInt(id);
+                out.writeBytes(requests[id]);
+            }
+
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < requests.length; i++) {
+                byte[] response = new byte[in.readInt()];
+                int id = in.readInt();
+                in.readFully(response);
+
+                assertEquals("echo:" + requests[id], new String(response));
+                ids.add(id);
+            }
+
+            // The slow request does not hold back the others
+            assertEquals(0, ids.get(requests.length - 1));
+        } finally {
+            loop.stop();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testHealthCheckBypassesTask() throws IOException {
+        // Setup
+        eventLoop.setTask(x -> { throw new AssertionError("Task ran"); });
+        eventLoop.useHealthCheck(new HealthCheck(() -> true, () -> 0, () -> 1));
+        new Thread(eventLoop).start();
+
+        // Execute
+        try (Socket client = new Socket("127.0.0.1", listenerConfig.port())) {
+            client.setSoTimeout(2000);
+            client.getOutputStream().write("healthcheck\0".getBytes());
+
+            // Verify
+            assertEquals(HealthCheck.READY_RESPONSE, readResponse(client));
+        }
+    }
+
+    @Test
+    public void testConnectionLimiter() throws IOException {
+        // Setup
+        eventLoop.useConnectionLimiter(new ConnectionLimiter(0, 1, true));
+        new Thread(eventLoop).start();
+
+        // Execute
+        try (Socket first = new Socket("127.0.0.1", listenerConfig.port())) {
+            first.setSoTimeout(2000);
+            first.getOutputStream().write("first\0".getBytes());
+            assertEquals("echo:first", readResponse(first));
+
+            // Verify
+            try (Socket second = new Socket("127.0.0.1", listenerConfig.port())) {
+                second.setSoTimeout(2000);
+                assertEquals(ConnectionLimiter.LIMITED_RESPONSE, readResponse(second));
+            }
+        }
+    }
+
+    @Test
+    public void testRequestStages() throws IOException {
+        // Setup
+        ServerMetrics metrics = new ServerMetrics();
+        eventLoop.useRequestStages(new RequestStages(metrics));
+        new Thread(eventLoop).start();
+
+        // Execute
+        try (Socket client = new Socket("127.0.0.1", listenerConfig.port())) {
+            client.setSoTimeout(2000);
+            client.getOutputStream().write("ping\0".getBytes());
+            assertEquals("echo:ping", readResponse(client));
+        }
+
+        // Verify
+        for (String stage : new String[] {"stage.accept", "stage.read", "stage.queue", "stage.handle"}) {
+            assertEquals(1, metrics.latency(stage).snapshot(false).count(), stage);
+        }
+    }
+
+    @Test
+    public void testUnterminatedRequestClosesConnection() throws IOException {
+        new Thread(eventLoop).start();
+
+        try (Socket client = new Socket("127.0.0.1", listenerConfig.port())) {
+            client.setSoTimeout(2000);
+            client.getOutputStream().write("healthcheck".getBytes());
+
+            assertEquals("echo:healthcheck", readResponse(client));
+            assertEquals(-1, client.getInputStream().read());
+        }
+    }
+
+    @Test
+    public void testStop() throws IOException {
+        new Thread(eventLoop).start();
+        eventLoop.stop();
+
+        assertFalse(eventLoop.isActive());
+    }
+}
@@ -9,6 +9,7 @@ import org.mockito.MockitoAnnotations;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.net.ServerSocket;
 import java.net.Socket;
@@ -119,4 +120,23 @@ public class ProxyServerListenerTest {
         // Verify that a socket was added to the queue
         verify(workQueue).put(any());
     }
+
+    @Test
+    public void testFullQueueAnswersBusy()
+        throws IOException, InterruptedException {
+        when(workQueue.offer(any())).thenReturn(false);
+        listener.useAdmissionController(new AdmissionController(1, 0, true));
+        new Thread(listener).start();
+
+        try (Socket clientSocket = new Socket("127.0.0.1", config.port())) {
+            clientSocket.setSoTimeout(5000);
+            InputStream in = clientSocket.getInputStream();
+
+            // Answered without sending a request, then hung up on
+            String expected = AdmissionController.BUSY_RESPONSE + "\0";
+            assertEquals(expected, new String(in.readAllBytes()));
+        }
+
+        verify(workQueue, never()).put(any());
+    }
 }
@@ -0,0 +1,98 @@
+package com.cs506.project.server;
+
+import com.cs506.project.configs.ServerConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+
+public class ProxyServerTest {
+
+    private static int port = 22863;
+
+    private ProxyServer server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        port += 3;
+        ServerConfig config = new ServerConfig(2, 2, port, null, 1024, false, 1000,
+                                               File.createTempFile("server", ".log").getPath(),
+                                               0, false, 0, 0, 0, 0, 0, 0, 0, 0);
+        server = new ProxyServer(config);
+        server.setup(request -> "");
+        server.run();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testStopAddedAfterShrinkingBelowBase()
+        throws IOException, InterruptedException {
+        // Setup
+        server.reconfigure(Map.of("num-listeners", 1, "num-workers", 1));
+        server.reconfigure(Map.of("num-listeners", 2, "num-workers", 2));
+        ProxyServerWorker recreated = server.getWorkers()[1];
+
+        // Execute
+        server.stopAdded();
+
+        // Verify
+        assertFalse(recreated.isActive());
+        assertTrue(released(port + 1));
+    }
+
+    @Test
+    public void testEventLoopSettings() throws IOException {
+        // Setup
+        ServerConfig config = new ServerConfig(1, 1, port + 2, null, 1024, false, 1000,
+                                               File.createTempFile("server", ".log").getPath(),
+                                               1, false, 0, 8, 0, 0, 0, 0, 0, 0);
+        ProxyServer eventLoopServer = new ProxyServer(config);
+        eventLoopServer.setup(request -> "");
+        eventLoopServer.run();
+
+        try {
+            // Execute & Verify
+            assertEquals(ProxyServer.EVENT_LOOP_SETTINGS, eventLoopServer.getSettingNames());
+            assertEquals(ProxyServer.EVENT_LOOP_SETTINGS,
+                         List.copyOf(eventLoopServer.getSettings().keySet()));
+
+            // Rejected even when left unchanged
+            assertThrows(IllegalStateException.class,
+                         () -> eventLoopServer.reconfigure(Map.of("queue-limit", 4, "num-workers", 1)));
+            assertEquals(8, eventLoopServer.getSettings().get("queue-limit"));
+
+            eventLoopServer.reconfigure(Map.of("queue-limit", 4));
+            assertEquals(4, eventLoopServer.getSettings().get("queue-limit"));
+        } finally {
+            eventLoopServer.stop();
+        }
+    }
+
+    @Test
+    public void testSettings() {
+        assertEquals(ProxyServer.SETTINGS, server.getSettingNames());
+        assertEquals(ProxyServer.SETTINGS, List.copyOf(server.getSettings().keySet()));
+    }
+
+    // The port is released once the listener's accept returns, on its thread
+    private static boolean released(int port) throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            try (ServerSocket socket = new ServerSocket(port)) {
+                return true;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        return false;
+    }
+}
@@ -14,9 +14,13 @@ import org.mockito.junit.MockitoJUnitRunner;
 import static org.mockito.Mockito.*;
 import org.mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.net.InetAddress;
 import java.net.Socket;
+import java.net.SocketException;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 
@@ -39,6 +43,8 @@ public class ProxyServerWorkerTest {
 
     private static MockedStatic<SocketIO> io = Mockito.mockStatic(SocketIO.class);
 
+    private ByteArrayOutputStream out;
+
     private ProxyServerWorker worker;
 
     @BeforeAll
@@ -64,11 +70,20 @@ public class ProxyServerWorkerTest {
     public void setUp() throws IOException {
         MockitoAnnotations.openMocks(this);
 
+        // Serve a single client, then retire
         try {
-            when(workQueue.take()).thenReturn(client);
+            when(workQueue.take()).thenAnswer(take -> {
+                worker.retire();
+                return client;
+            });
         } catch (InterruptedException e) {
             fail(e.getMessage());
         }
+        out = new ByteArrayOutputStream();
+        when(client.getInputStream())
+            .thenReturn(new ByteArrayInputStream("ping\0".getBytes()));
+        when(client.getOutputStream()).thenReturn(out);
+        when(task.handle(any())).thenReturn("pong");
         worker = new ProxyServerWorker(config, workQueue, logger);
         worker.setTask(task);
         worker.start();
@@ -82,17 +97,44 @@ public class ProxyServerWorkerTest {
     @Test
     public void testRun() throws IOException {
         // Start the worker in a new thread
-        new Thread(worker).start();
+        Thread thread = new Thread(worker);
+        thread.start();
 
         // Verify that a client was retrieved from the queue
         try {
             verify(workQueue, timeout(1000)).take();
+
+            // Verifying the synchronized methods of a mocked socket holds its
+            // lock, so let the worker serve its only client first
+            thread.join(5000);
         } catch (InterruptedException e) {
             fail(e.getMessage());
         }
 
         // Verify that the socket timeout was set
         verify(client, timeout(1000)).setSoTimeout(anyInt());
+
+        // Verify that the request was served before the client was closed
+        verify(client, atLeastOnce()).close();
+        verify(task).handle("ping".getBytes());
+        assertTrue(out.toString().startsWith("pong"));
+    }
+
+    @Test
+    public void testServeReleasesClientWhenTimeoutFails() throws IOException {
+        // Setup
+        ConnectionLimiter limiter = new ConnectionLimiter(0, 1, false);
+        worker.useConnectionLimiter(limiter);
+        when(client.getInetAddress()).thenReturn(InetAddress.getLoopbackAddress());
+        doThrow(new SocketException("Socket is closed")).when(client).setSoTimeout(anyInt());
+        assertTrue(limiter.acquire(client));
+
+        // Execute
+        worker.serve(client);
+
+        // Verify
+        verify(client).close();
+        assertTrue(limiter.acquire(client));
     }
 
     @Test
@@ -0,0 +1,72 @@
+package com.cs506.project.server;
+
+import com.cs506.project.server.RequestClassifier.Lane;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestClassifierTest {
+
+    private static Lane classify(String request) {
+        return RequestClassifier.classify(request.getBytes());
+    }
+
+    @Test
+    public void testHealthcheck() {
+        assertEquals(Lane.HEALTH, classify("healthcheck"));
+    }
+
+    @Test
+    public void testWholeTableRead() {
+        assertEquals(Lane.BULK, classify(
+            "{\"type\":\"READ\",\"entityName\":\"Airplane\",\"entities\":[]}"));
+        assertEquals(Lane.BULK, classify(
+            "{ \"type\" : \"READ\",\n  \"entities\" : [ \n ], \"entityName\": \"Airplane\" }"));
+    }
+
+    @Test
+    public void testReadById() {
+        assertEquals(Lane.POINT, classify(
+            "{\"type\":\"READ\",\"entityName\":\"Airplane\",\"entities\":[{\"id\":1}]}"));
+    }
+
+    @Test
+    public void testExport() {
+        assertEquals(Lane.BULK, classify(
+            "{\"type\":\"EXPORT\",\"entityName\":\"Component\"}"));
+    }
+
+    @Test
+    public void testBatch() {
+        // Setup
+        String byId = "{\"type\":\"BATCH\",\"requests\":["
+            + "{\"type\":\"READ\",\"entityName\":\"Airplane\",\"entities\":[{\"id\":1}]},"
+            + "{\"type\":\"READ\",\"entityName\":\"Facility\",\"entities\":[{\"id\":2}]}]}";
+        String wholeTable = "{\"type\":\"BATCH\",\"requests\":["
+            + "{\"type\":\"READ\",\"entityName\":\"Airplane\",\"entities\":[{\"id\":1}]},"
+            + "{\"type\":\"READ\",\"entityName\":\"Facility\",\"entities\":[ ]}]}";
+
+        // Execute & Verify
+        assertEquals(Lane.POINT, classify(byId));
+        assertEquals(Lane.BULK, classify(wholeTable));
+    }
+
+    @Test
+    public void testWrites() {
+        // Setup
+        String create = "{\"type\":\"CREATE\",\"entityName\":\"Airplane\",\"entities\":[]}";
+        String nameIsType = "{\"entityName\":\"type\",\"type\":\"DELETE\",\"entities\":[]}";
+
+        // Execute & Verify
+        assertEquals(Lane.POINT, classify(create));
+        assertEquals(Lane.POINT, classify(nameIsType));
+    }
+
+    @Test
+    public void testMalformed() {
+        assertEquals(Lane.POINT, classify(""));
+        assertEquals(Lane.POINT, classify("not json"));
+        assertEquals(Lane.POINT, classify("{\"type\":"));
+        assertEquals(Lane.POINT, classify("{\"type\":\"READ\",\"entities\":["));
+    }
+}
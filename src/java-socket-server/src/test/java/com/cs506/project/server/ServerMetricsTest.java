@@ -0,0 +1,47 @@
+package com.cs506.project.server;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ServerMetricsTest {
+
+    @Test
+    public void testCounter() {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.counter("requests").increment();
+        metrics.counter("requests").add(2);
+
+        assertEquals(3, metrics.snapshot().get("requests"));
+    }
+
+    @Test
+    public void testGaugeIsSampledOnRead() {
+        ServerMetrics metrics = new ServerMetrics();
+        AtomicLong depth = new AtomicLong(1);
+        metrics.gauge("queue.depth", depth::get);
+
+        assertEquals(1, metrics.snapshot().get("queue.depth"));
+        depth.set(5);
+        assertEquals(5, metrics.snapshot().get("queue.depth"));
+    }
+
+    @Test
+    public void testGaugeIsNotACounter() {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.gauge("queue.depth", () -> 0);
+
+        assertThrows(IllegalStateException.class,
+                     () -> metrics.counter("queue.depth"));
+    }
+
+    @Test
+    public void testToString() {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.gauge("b", () -> 2);
+        metrics.counter("a").increment();
+
+        assertEquals("a 1\nb 2\n", metrics.toString());
+    }
+}
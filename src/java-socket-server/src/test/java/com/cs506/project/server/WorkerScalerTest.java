@@ -0,0 +1,105 @@
+package com.cs506.project.server;
+
+import com.cs506.project.configs.ScalerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.PrintStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.mockito.Mockito.*;
+
+public class WorkerScalerTest {
+
+    private BlockingQueue<Socket> workQueue;
+    private ProxyServerWorker[] baseWorkers;
+    private List<ProxyServerWorker> added;
+    private ServerMetrics metrics;
+
+    @BeforeEach
+    public void setUp() {
+        workQueue = new LinkedBlockingQueue<>();
+        baseWorkers = new ProxyServerWorker[]{
+            mock(ProxyServerWorker.class), mock(ProxyServerWorker.class)
+        };
+        added = new ArrayList<>();
+        metrics = new ServerMetrics();
+    }
+
+    private WorkerScaler scaler(int maxWorkers, int retireAfter) {
+        ScalerConfig config = new ScalerConfig(2, maxWorkers, 100, retireAfter);
+        return new WorkerScaler(config, workQueue, baseWorkers, () -> {
+            ProxyServerWorker worker = mock(ProxyServerWorker.class);
+            added.add(worker);
+            return worker;
+        }, new ThreadGroup("Test"), metrics, mock(PrintStream.class));
+    }
+
+    private void backUp(int connections) {
+        for (int i = 0; i < connections; i++)
+            workQueue.add(new Socket());
+        for (ProxyServerWorker worker: baseWorkers)
+            when(worker.isBusy()).thenReturn(true);
+    }
+
+    @Test
+    public void testIdleDoesNotScale() {
+        WorkerScaler scaler = scaler(8, 0);
+        scaler.sample();
+
+        assertEquals(2, scaler.workerCount());
+        assertTrue(added.isEmpty());
+    }
+
+    @Test
+    public void testScalesUpWhenBackedUp() {
+        WorkerScaler scaler = scaler(8, 0);
+        backUp(16);
+        scaler.sample();
+
+        // At most doubles at a time
+        assertEquals(4, scaler.workerCount());
+        assertEquals(2, metrics.snapshot().get("workers.scaled_up"));
+        for (ProxyServerWorker worker: added)
+            verify(worker).usePollTimeout(WorkerScaler.SAMPLE_INTERVAL);
+    }
+
+    @Test
+    public void testScalesUpToMax() {
+        WorkerScaler scaler = scaler(3, 0);
+        backUp(16);
+        scaler.sample();
+        scaler.sample();
+
+        assertEquals(3, scaler.workerCount());
+        assertEquals(3, metrics.snapshot().get("workers.max"));
+    }
+
+    @Test
+    public void testRetiresIdleWorkers() {
+        WorkerScaler scaler = scaler(8, 0);
+        backUp(4);
+        scaler.sample();
+        assertEquals(4, scaler.workerCount());
+
+        // Load is gone, every worker idles
+        workQueue.clear();
+        for (ProxyServerWorker worker: baseWorkers)
+            when(worker.isBusy()).thenReturn(false);
+
+        scaler.sample();  // Starts the idle period
+        scaler.sample();
+
+        assertEquals(2, scaler.workerCount());
+        assertEquals(2, metrics.snapshot().get("workers.scaled_down"));
+        for (ProxyServerWorker worker: added)
+            verify(worker).retire();
+        for (ProxyServerWorker worker: baseWorkers)
+            verify(worker, never()).retire();
+    }
+}
@@ -0,0 +1,92 @@
+package com.cs506.project.utils;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+
+public class AsyncLoggerTest {
+
+    @Test
+    public void testLinesAreWrittenInOrder() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLogger logger = new AsyncLogger(new PrintStream(out));
+        for (int i = 0; i < 1000; i++)
+            logger.println("line " + i);
+        logger.close();
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(1000, lines.length);
+        for (int i = 0; i < lines.length; i++)
+            assertEquals("line " + i, lines[i]);
+        assertEquals(0, logger.droppedCount());
+    }
+
+    @Test
+    public void testAccess() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLogger logger = new AsyncLogger(new PrintStream(out));
+        AsyncLogger.access(logger, "Listener:8000",
+                           InetAddress.getByName("127.0.0.1"), 5000);
+        logger.close();
+
+        String line = out.toString();
+        assertTrue(line.matches("Listener:8000 \\d\\d/\\d\\d/\\d\\d"
+                              + " \\d\\d:\\d\\d:\\d\\d from /127.0.0.1:5000\n"),
+                   line);
+    }
+
+    @Test
+    public void testAccessOnPlainStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLogger.access(new PrintStream(out), "Listener:8000",
+                           InetAddress.getByName("127.0.0.1"), 5000);
+
+        assertTrue(out.toString().startsWith("Listener:8000 "));
+        assertTrue(out.toString().endsWith(" from /127.0.0.1:5000\n"));
+    }
+
+    @Test
+    public void testFullRingDrops() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        OutputStream slow = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[]{ (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                writing.countDown();
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                written.write(b, off, len);
+            }
+        };
+
+        AsyncLogger logger = new AsyncLogger(new PrintStream(slow), 2);
+        logger.println("first");
+        writing.await();  // Drainer is stuck writing the first line
+
+        logger.println("second");
+        logger.println("third");
+        logger.println("dropped");
+        assertEquals(1, logger.droppedCount());
+
+        unblock.countDown();
+        logger.close();
+
+        assertEquals("first\nsecond\nthird\n1 log records dropped\n",
+                     written.toString());
+    }
+}
@@ -0,0 +1,54 @@
+package com.cs506.project.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testAcquireRoundsUpToSizeClass() {
+        BufferPool pool = new BufferPool(true);
+        ByteBuffer buffer = pool.acquire(1000);
+
+        assertTrue(buffer.isDirect());
+        assertEquals(1024, buffer.capacity());
+        assertEquals(1000, buffer.limit());
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testReleasedBufferIsReused() {
+        BufferPool pool = new BufferPool(false);
+        ByteBuffer buffer = pool.acquire(100);
+        buffer.put((byte) 1);
+        pool.release(buffer);
+
+        ByteBuffer reused = pool.acquire(200);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(200, reused.limit());
+    }
+
+    @Test
+    public void testOversizedBufferIsNotPooled() {
+        BufferPool pool = new BufferPool(false);
+        int size = (1 << 20) + 1;
+        ByteBuffer buffer = pool.acquire(size);
+        assertEquals(size, buffer.capacity());
+        pool.release(buffer);
+
+        assertNotSame(buffer, pool.acquire(size));
+    }
+
+    @Test
+    public void testForeignBufferIsNotPooled() {
+        BufferPool pool = new BufferPool(false);
+        ByteBuffer foreign = ByteBuffer.allocate(1000);
+        pool.release(foreign);
+
+        assertNotSame(foreign, pool.acquire(1000));
+    }
+}
@@ -0,0 +1,147 @@
+package com.cs506.project.utils;
+
+import com.cs506.project.configs.PoolConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConnectionPoolTest {
+
+    private final List<Connection> opened = new ArrayList<>();
+
+    private Connection open() {
+        Connection connection = mock(Connection.class);
+        synchronized (opened) {
+            opened.add(connection);
+        }
+        return connection;
+    }
+
+    private ConnectionPool pool(PoolConfig config) {
+        return new ConnectionPool(this::open, config,
+                                  new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testReusesReturnedConnection() throws SQLException {
+        try (ConnectionPool pool = pool(new PoolConfig(0, 2, 100, 0, 0))) {
+            Connection first = pool.borrow();
+            assertEquals(1, pool.activeCount());
+            first.close();
+            first.close();  // Returning twice does nothing
+
+            try (Connection second = pool.borrow()) {
+                assertNotSame(first, second);
+                second.createStatement();
+            }
+
+            assertEquals(1, pool.createdCount());
+            assertEquals(1, pool.idleCount());
+            assertEquals(0, pool.activeCount());
+            verify(opened.get(0)).createStatement();
+            verify(opened.get(0), never()).close();
+            assertThrows(SQLException.class, first::createStatement);
+        }
+    }
+
+    @Test
+    public void testBoundsBorrowedConnections() throws SQLException {
+        try (ConnectionPool pool = pool(new PoolConfig(0, 2, 100, 0, 0))) {
+            Connection first = pool.borrow();
+            Connection second = pool.borrow();
+
+            assertThrows(SQLTransientConnectionException.class, () -> pool.borrow(10));
+            assertEquals(1, pool.timeoutCount());
+
+            // A returned connection can be borrowed again
+            first.close();
+            pool.borrow(10).close();
+            second.close();
+            assertEquals(2, pool.createdCount());
+        }
+    }
+
+    @Test
+    public void testDiscardsBrokenConnection() throws SQLException {
+        try (ConnectionPool pool = pool(new PoolConfig(0, 2, 100, 0, 0))) {
+            Connection connection = pool.borrow();
+            Connection broken = opened.get(0);
+            when(broken.createStatement()).thenThrow(new SQLException("Gone", "08S01"));
+
+            assertThrows(SQLException.class, connection::createStatement);
+            connection.close();
+
+            // Closed instead of being lent again
+            verify(broken).close();
+            pool.borrow().close();
+            assertEquals(2, pool.createdCount());
+        }
+    }
+
+    @Test
+    public void testRetiresExpiredConnection() throws SQLException, InterruptedException {
+        try (ConnectionPool pool = pool(new PoolConfig(0, 2, 100, 1, 0))) {
+            Connection connection = pool.borrow();
+            Thread.sleep(5);
+            connection.close();
+
+            verify(opened.get(0)).close();
+            assertEquals(0, pool.idleCount());
+        }
+    }
+
+    @Test
+    public void testReportsLeakOnce() throws SQLException, InterruptedException {
+        try (ConnectionPool pool = pool(new PoolConfig(0, 2, 100, 0, 1))) {
+            Connection connection = pool.borrow();
+            Thread.sleep(5);
+
+            pool.housekeep();
+            pool.housekeep();
+
+            assertEquals(1, pool.leakCount());
+            connection.close();
+        }
+    }
+
+    @Test
+    public void testResize() throws SQLException {
+        try (ConnectionPool pool = pool(new PoolConfig(0, 1, 100, 0, 0))) {
+            Connection first = pool.borrow();
+
+            // Growing lets another borrower through
+            pool.resize(2);
+            Connection second = pool.borrow(10);
+            assertEquals(2, pool.maxSize());
+
+            // Shrinking closes a connection once returned
+            pool.resize(1);
+            first.close();
+            verify(opened.get(0)).close();
+            assertThrows(SQLTransientConnectionException.class, () -> pool.borrow(10));
+
+            second.close();
+            pool.borrow(10).close();
+            assertEquals(1, pool.idleCount());
+        }
+    }
+
+    @Test
+    public void testKeepsMinimumIdle() {
+        try (ConnectionPool pool = pool(new PoolConfig(2, 4, 100, 0, 0))) {
+            pool.housekeep();
+
+            assertEquals(2, pool.idleCount());
+            assertEquals(2, pool.createdCount());
+        }
+    }
+}
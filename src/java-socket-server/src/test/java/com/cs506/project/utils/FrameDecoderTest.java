@@ -0,0 +1,142 @@
+package com.cs506.project.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameDecoderTest {
+
+    @Test
+    public void testPollSplitsRequests() throws IOException {
+        FrameDecoder decoder = new FrameDecoder(16);
+        byte[] data = "first\0second\0thi".getBytes();
+        decoder.feed(data, 0, data.length);
+
+        assertArrayEquals("first".getBytes(), decoder.poll());
+        assertArrayEquals("second".getBytes(), decoder.poll());
+        assertNull(decoder.poll());
+        assertTrue(decoder.hasPartial());
+
+        decoder.feed(ByteBuffer.wrap("rd\0".getBytes()));
+        assertArrayEquals("third".getBytes(), decoder.poll());
+        assertFalse(decoder.hasPartial());
+    }
+
+    @Test
+    public void testFeedGrowsBuffer() throws IOException {
+        FrameDecoder decoder = new FrameDecoder(16);
+        String expected = "x".repeat(1000);
+        for (byte b: expected.getBytes())
+            decoder.feed(new byte[]{ b }, 0, 1);
+        decoder.feed(new byte[]{ 0 }, 0, 1);
+
+        assertArrayEquals(expected.getBytes(), decoder.poll());
+    }
+
+    @Test
+    public void testDrain() throws IOException {
+        FrameDecoder decoder = new FrameDecoder(16);
+        byte[] data = "healthcheck".getBytes();
+        decoder.feed(data, 0, data.length);
+
+        assertNull(decoder.poll());
+        assertArrayEquals(data, decoder.drain());
+        assertFalse(decoder.hasPartial());
+    }
+
+    private static byte[] frame(String payload) {
+        byte[] data = payload.getBytes();
+        return ByteBuffer.allocate(4 + data.length).putInt(data.length).put(data).array();
+    }
+
+    @Test
+    public void testNulFramingIsDefault() throws IOException {
+        FrameDecoder decoder = new FrameDecoder(16);
+        assertNull(decoder.framing());
+
+        decoder.feed(new byte[]{ 'x' }, 0, 1);
+        assertEquals(FrameDecoder.Framing.NUL, decoder.framing());
+    }
+
+    @Test
+    public void testLengthFraming() throws IOException {
+        FrameDecoder decoder = new FrameDecoder(16);
+        decoder.feed(new byte[]{ FrameDecoder.LENGTH_PREAMBLE }, 0, 1);
+        assertEquals(FrameDecoder.Framing.LENGTH, decoder.framing());
+
+        // Payloads may contain NUL bytes, and arrive in any number of pieces
+        byte[] first = frame("a\0b");
+        byte[] second = frame("second");
+        ByteBuffer data = ByteBuffer.allocate(first.length + second.length);
+        data.put(first).put(second).flip();
+        decoder.feed(data.array(), 0, 6);
+        assertNull(decoder.poll());
+        assertTrue(decoder.hasPartial());
+
+        decoder.feed(data.array(), 6, data.limit() - 6);
+        assertArrayEquals("a\0b".getBytes(), decoder.poll());
+        assertArrayEquals("second".getBytes(), decoder.poll());
+        assertNull(decoder.poll());
+        assertFalse(decoder.hasPartial());
+    }
+
+    @Test
+    public void testPayloadBuffer() throws IOException {
+        FrameDecoder decoder = new FrameDecoder(16);
+        byte[] header = { FrameDecoder.LENGTH_PREAMBLE, 0, 0, 0, 5 };
+        assertNull(decoder.payloadBuffer());
+        decoder.feed(header, 0, header.length);
+
+        ByteBuffer payload = decoder.payloadBuffer();
+        assertEquals(5, payload.remaining());
+        payload.put("hello".getBytes());
+        decoder.payloadFilled(5);
+
+        assertNull(decoder.payloadBuffer());
+        assertArrayEquals("hello".getBytes(), decoder.poll());
+    }
+
+    @Test
+    public void testFrameTooLarge() {
+        FrameDecoder decoder = new FrameDecoder(16);
+        byte[] header = { FrameDecoder.LENGTH_PREAMBLE, 0x7F, 0, 0, 0 };
+
+        assertThrows(IOException.class,
+                     () -> decoder.feed(header, 0, header.length));
+    }
+
+    @Test
+    public void testPipelinedFraming() throws IOException {
+        FrameDecoder decoder = new FrameDecoder(16);
+        ByteBuffer data = ByteBuffer.allocate(64);
+        data.put(FrameDecoder.PIPELINE_PREAMBLE);
+        data.putInt(5).putInt(7).put("first".getBytes());
+        data.putInt(6).putInt(-1).put("second".getBytes());
+        data.flip();
+        decoder.feed(data);
+
+        assertEquals(FrameDecoder.Framing.PIPELINED, decoder.framing());
+        assertArrayEquals("first".getBytes(), decoder.poll());
+        assertEquals(7, decoder.correlationId());
+        assertArrayEquals("second".getBytes(), decoder.poll());
+        assertEquals(-1, decoder.correlationId());
+        assertNull(decoder.poll());
+    }
+
+    @Test
+    public void testDeflateFlag() throws IOException {
+        FrameDecoder decoder = new FrameDecoder(16);
+        byte preamble = FrameDecoder.LENGTH_PREAMBLE | FrameDecoder.DEFLATE_FLAG;
+        decoder.feed(new byte[]{ preamble }, 0, 1);
+        assertEquals(FrameDecoder.Framing.LENGTH, decoder.framing());
+        assertTrue(decoder.acceptsDeflate());
+
+        FrameDecoder plain = new FrameDecoder(16);
+        plain.feed(new byte[]{ FrameDecoder.PIPELINE_PREAMBLE }, 0, 1);
+        assertEquals(FrameDecoder.Framing.PIPELINED, plain.framing());
+        assertFalse(plain.acceptsDeflate());
+    }
+}
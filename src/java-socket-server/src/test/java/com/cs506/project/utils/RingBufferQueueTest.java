@@ -0,0 +1,106 @@
+package com.cs506.project.utils;
+
+import com.cs506.project.utils.RingBufferQueue.WaitStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferQueueTest {
+
+    @Test
+    public void testCapacityRoundsUpToPowerOfTwo() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(5, WaitStrategy.PARK);
+        assertEquals(8, queue.capacity());
+        assertEquals(8, queue.remainingCapacity());
+    }
+
+    @Test
+    public void testOfferPollIsFifo() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(4, WaitStrategy.SPIN);
+        assertNull(queue.poll());
+
+        // Go around the ring a few times
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 4; i++)
+                assertTrue(queue.offer(i));
+            assertFalse(queue.offer(4));
+            assertEquals(4, queue.size());
+            assertEquals(0, queue.peek());
+
+            for (int i = 0; i < 4; i++)
+                assertEquals(i, queue.poll());
+            assertNull(queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void testTimedOperationsTimeOut() throws InterruptedException {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(2, WaitStrategy.PARK);
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+
+        queue.put(0);
+        queue.put(1);
+        assertFalse(queue.offer(2, 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testTakeIsInterruptible() throws InterruptedException {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(4, WaitStrategy.PARK);
+        Thread.currentThread().interrupt();
+
+        assertThrows(InterruptedException.class, queue::take);
+    }
+
+    @Test
+    public void testDrainTo() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(8, WaitStrategy.YIELD);
+        for (int i = 0; i < 5; i++)
+            queue.add(i);
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, queue.drainTo(drained, 2));
+        assertEquals(List.of(2, 3, 4), new ArrayList<>(queue));
+        assertEquals(3, queue.drainTo(drained));
+        assertEquals(List.of(0, 1, 2, 3, 4), drained);
+    }
+
+    @Test
+    public void testMultipleProducersAndConsumers() throws InterruptedException {
+        int threads = 4;
+        int perThread = 50_000;
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(64, WaitStrategy.PARK);
+        Set<Integer> received = ConcurrentHashMap.newKeySet();
+
+        List<Thread> all = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            all.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < perThread; i++)
+                        queue.put(base + i);
+                } catch (InterruptedException e) {}
+            }));
+            all.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < perThread; i++)
+                        assertTrue(received.add(queue.take()));
+                } catch (InterruptedException e) {}
+            }));
+        }
+
+        all.forEach(Thread::start);
+        for (Thread thread: all)
+            thread.join(10_000);
+
+        // Every element was handed over exactly once
+        assertEquals(threads * perThread, received.size());
+        assertTrue(queue.isEmpty());
+    }
+}
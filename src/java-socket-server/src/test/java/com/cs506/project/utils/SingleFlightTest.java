@@ -0,0 +1,181 @@
+package com.cs506.project.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testIdenticalRequestsShareResponse() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlight.Producer producer = out -> {
+            executions.incrementAndGet();
+            out.write("first half, ");
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            out.write("second half");
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            StringWriter leaderOut = new StringWriter();
+            Future<Boolean> leader = executor.submit(
+                () -> flight.execute("Component", leaderOut, producer));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            StringWriter[] followerOut = new StringWriter[3];
+            Future<?>[] followers = new Future<?>[3];
+            for (int i = 0; i < followers.length; i++) {
+                StringWriter out = followerOut[i] = new StringWriter();
+                followers[i] = executor.submit(
+                    () -> flight.execute("Component", out, producer));
+            }
+
+            // Followers only join while the leader is in progress
+            Thread.sleep(100);
+            release.countDown();
+
+            assertFalse(leader.get(5, TimeUnit.SECONDS));
+            for (int i = 0; i < followers.length; i++) {
+                assertEquals(true, followers[i].get(5, TimeUnit.SECONDS));
+                assertEquals("first half, second half", followerOut[i].toString());
+            }
+            assertEquals("first half, second half", leaderOut.toString());
+            assertEquals(1, executions.get());
+            assertEquals(0, flight.inFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSequentialRequestsNotShared() throws IOException {
+        SingleFlight<String> flight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            StringWriter out = new StringWriter();
+            assertFalse(flight.execute("Airplane", out,
+                                       o -> o.write("n" + executions.incrementAndGet())));
+            assertEquals("n" + (i + 1), out.toString());
+        }
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void testLargeResponseClosedToFollowers() throws IOException {
+        SingleFlight<String> flight = new SingleFlight<>();
+        String chunk = "x".repeat(SingleFlight.MAX_SHARED / 4);
+
+        StringWriter out = new StringWriter();
+        flight.execute("Airplane", out, o -> {
+            for (int i = 0; i < 5; i++)
+                o.write(chunk);
+            // Too late to share, identical requests run on their own
+            assertEquals(0, flight.inFlight());
+        });
+
+        assertEquals(5 * chunk.length(), out.toString().length());
+    }
+
+    @Test
+    public void testLeaderFailureFailsFollowers() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> leader = executor.submit(
+                () -> flight.execute("Manager", new StringWriter(), out -> {
+                    out.write("partial");
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    throw new IOException("Database went away");
+                }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Future<Boolean> follower = executor.submit(
+                () -> flight.execute("Manager", new StringWriter(), out -> fail()));
+            Thread.sleep(100);
+            release.countDown();
+
+            Exception e = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+            e = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLeaderClientGone() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Writer broken = new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                if (release.getCount() == 0)
+                    throw new IOException("Broken pipe");
+            }
+            @Override
+            public void flush() {}
+            @Override
+            public void close() {}
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> leader = executor.submit(
+                () -> flight.execute("Facility", broken, out -> {
+                    out.write("first, ");
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    out.write("second");
+                }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            StringWriter followerOut = new StringWriter();
+            Future<Boolean> follower = executor.submit(
+                () -> flight.execute("Facility", followerOut, out -> fail()));
+            Thread.sleep(100);
+            release.countDown();
+
+            // Still produced for the follower, the leader learns last
+            assertTrue(follower.get(5, TimeUnit.SECONDS));
+            assertEquals("first, second", followerOut.toString());
+            Exception e = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
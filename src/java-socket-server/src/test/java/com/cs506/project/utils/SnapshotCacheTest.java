@@ -0,0 +1,85 @@
+package com.cs506.project.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testReusesSnapshot() throws IOException {
+        SnapshotCache cache = new SnapshotCache(directory, 60_000);
+        AtomicInteger builds = new AtomicInteger();
+        SnapshotCache.Builder builder = out -> {
+            out.write("build " + builds.incrementAndGet());
+            return true;
+        };
+
+        Path first = cache.get("Airplane", builder);
+        Path second = cache.get("Airplane", builder);
+
+        assertEquals(first, second);
+        assertEquals(1, builds.get());
+        assertEquals("build 1", Files.readString(first));
+    }
+
+    @Test
+    public void testInvalidateRebuilds() throws IOException {
+        SnapshotCache cache = new SnapshotCache(directory, 60_000);
+        AtomicInteger builds = new AtomicInteger();
+        SnapshotCache.Builder builder = out -> {
+            out.write("build " + builds.incrementAndGet());
+            return true;
+        };
+
+        Path first = cache.get("Airplane", builder);
+        cache.invalidate("Airplane");
+        cache.invalidate("Component");  // Others are left alone
+        Path second = cache.get("Airplane", builder);
+
+        assertEquals(2, builds.get());
+        assertEquals("build 2", Files.readString(second));
+        assertFalse(Files.exists(first));
+    }
+
+    @Test
+    public void testMaxAgeRebuilds() throws IOException {
+        SnapshotCache cache = new SnapshotCache(directory, 0);
+        AtomicInteger builds = new AtomicInteger();
+        SnapshotCache.Builder builder = out -> {
+            out.write("build " + builds.incrementAndGet());
+            return true;
+        };
+
+        cache.get("Airplane", builder);
+        try (FileChannel snapshot = cache.open("Airplane", builder)) {
+            assertEquals("build 2".length(), snapshot.size());
+        }
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    public void testIncompleteSnapshotDiscarded() throws IOException {
+        SnapshotCache cache = new SnapshotCache(directory, 60_000);
+
+        assertNull(cache.get("Airplane", out -> {
+            out.write("partial");
+            return false;
+        }));
+        assertNull(cache.open("Airplane", out -> false));
+
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -5,6 +5,9 @@ import org.mockito.Mockito;
 
 import java.io.*;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -56,4 +59,82 @@ public class SocketIOTest {
         // Verify
         assertArrayEquals(data.getBytes(), outputStream.toByteArray());
     }
+
+    @Test
+    public void testWriteFrameString() throws IOException {
+        // Setup
+        Socket socket = mock(Socket.class);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(socket.getOutputStream()).thenReturn(outputStream);
+        String data = "Hello, World!";
+
+        // Execute
+        SocketIO.writeFrame(socket, data);
+
+        // Verify
+        ByteBuffer frame = ByteBuffer.wrap(outputStream.toByteArray());
+        assertEquals(data.length(), frame.getInt());
+        assertEquals(data, new String(frame.array(), 4, frame.remaining()));
+    }
+
+    @Test
+    public void testEncode() {
+        // Wider than the average bytes per character of any charset
+        String data = "\u00e9\u00e8\u00ea".repeat(100);
+        ByteBuffer buffer = SocketIO.encode(data, false, true);
+
+        byte[] expected = data.getBytes();
+        assertEquals(expected.length + 1, buffer.remaining());
+        byte[] actual = new byte[expected.length];
+        buffer.get(actual);
+        assertArrayEquals(expected, actual);
+        assertEquals(0, buffer.get());
+
+        BufferPool.DIRECT.release(buffer);
+    }
+
+    @Test
+    public void testWriteFrameDeflated() throws IOException, DataFormatException {
+        // Setup
+        Socket socket = mock(Socket.class);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(socket.getOutputStream()).thenReturn(outputStream);
+        String data = "{\"City\":\"Madison\",\"State\":\"WI\"},".repeat(100);
+
+        // Execute
+        SocketIO.writeFrame(socket, data, true);
+
+        // Verify
+        ByteBuffer frame = ByteBuffer.wrap(outputStream.toByteArray());
+        int header = frame.getInt();
+        assertNotEquals(0, header & FrameDecoder.DEFLATED_BIT);
+        int length = header & ~FrameDecoder.DEFLATED_BIT;
+        assertEquals(frame.remaining(), length);
+        assertTrue(length < data.length());
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(frame);
+        byte[] inflated = new byte[data.length()];
+        assertEquals(data.length(), inflater.inflate(inflated));
+        assertTrue(inflater.finished());
+        assertEquals(data, new String(inflated));
+    }
+
+    @Test
+    public void testWriteFrameSmallNotDeflated() throws IOException {
+        // Setup
+        Socket socket = mock(Socket.class);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(socket.getOutputStream()).thenReturn(outputStream);
+        String data = "x".repeat(SocketIO.DEFLATE_THRESHOLD - 1);
+
+        // Execute
+        SocketIO.writeFrame(socket, data, 42, true);
+
+        // Verify
+        ByteBuffer frame = ByteBuffer.wrap(outputStream.toByteArray());
+        assertEquals(data.length(), frame.getInt());
+        assertEquals(42, frame.getInt());
+        assertEquals(data, new String(frame.array(), 8, frame.remaining()));
+    }
 }
@@ -0,0 +1,104 @@
+package com.cs506.project.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SocketWriterTest {
+
+    @Test
+    public void testWriteLargerThanBuffer() throws IOException {
+        // Setup
+        Socket socket = mock(Socket.class);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(socket.getOutputStream()).thenReturn(outputStream);
+        String data = "x".repeat(3 * SocketWriter.BUFFER_SIZE + 7);
+
+        // Execute
+        SocketWriter out = new SocketWriter(socket, false);
+        out.write(data);
+
+        // Verify: full buffers are sent right away, the rest on close
+        assertEquals(3 * SocketWriter.BUFFER_SIZE, outputStream.size());
+        out.close();
+        assertEquals(data, outputStream.toString());
+        assertEquals(data.length(), out.bytesWritten());
+        verify(socket, never()).close();
+    }
+
+    @Test
+    public void testCloseAppendsNull() throws IOException {
+        // Setup
+        Socket socket = mock(Socket.class);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(socket.getOutputStream()).thenReturn(outputStream);
+
+        // Execute
+        try (SocketWriter out = new SocketWriter(socket, true)) {
+            out.write("Hello, ");
+            out.append("World!");
+        }
+
+        // Verify
+        assertArrayEquals("Hello, World!\0".getBytes(), outputStream.toByteArray());
+    }
+
+    @Test
+    public void testSurrogatePairSplitOverWrites() throws IOException {
+        // Setup
+        Socket socket = mock(Socket.class);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(socket.getOutputStream()).thenReturn(outputStream);
+        String data = "airplane \uD83D\uDEE9";
+
+        // Execute
+        try (SocketWriter out = new SocketWriter(socket, false)) {
+            out.write(data, 0, data.length() - 1);
+            out.write(data.charAt(data.length() - 1));
+        }
+
+        // Verify
+        assertArrayEquals(data.getBytes(), outputStream.toByteArray());
+    }
+
+    @Test
+    public void testTransferFrom(@TempDir Path directory) throws IOException {
+        // Setup
+        Socket socket = mock(Socket.class);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(socket.getOutputStream()).thenReturn(outputStream);
+        Path file = directory.resolve("snapshot.json");
+        String contents = "{\"entities\":[]}".repeat(2000);
+        Files.writeString(file, contents);
+
+        // Execute
+        try (SocketWriter out = new SocketWriter(socket, true);
+             FileChannel channel = FileChannel.open(file)) {
+            out.write("before ");
+            out.transferFrom(channel);
+        }
+
+        // Verify
+        assertEquals("before " + contents + "\0", outputStream.toString());
+    }
+
+    @Test
+    public void testWriteAfterClose() throws IOException {
+        // Setup
+        Socket socket = mock(Socket.class);
+        when(socket.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+        SocketWriter out = new SocketWriter(socket, false);
+        out.close();
+
+        // Execute & Verify
+        assertThrows(IOException.class, () -> out.write("late"));
+    }
+}